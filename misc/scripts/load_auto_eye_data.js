@@ -64,8 +64,9 @@ var ps = FuseBase.getPreparedStatement("pretre_sql_server",
             "{TABLE}", staging_table_name));
 ps.getConnection().setAutoCommit(false);
 for(var i=0; i<tables.length; i++) {
+    var rs = null;
     try {
-        var rs = FuseBase.getQueryObject("auto_eye", "select * from " + tables[i]);
+        rs = FuseBase.getQueryObject("auto_eye", "select * from " + tables[i]);
 
         var rows=0;
         var event_state, expected_state;
@@ -109,11 +110,14 @@ for(var i=0; i<tables.length; i++) {
         totalRows += rows;
 
         print("Added " + rows + " rows from " + tables[i] + " to " + staging_table_name);
-
-        rs.close();
     } catch(e) {
         print("Error for file " + tables[i] + ". Error: " + e);
+    } finally {
+        if(rs != null) {
+            rs.close();
+        }
     }
 }
+ps.close();
 
 print("Rows inserted: " + totalRows);
\ No newline at end of file
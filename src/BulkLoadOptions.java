@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+** Settings of a bulk load. Zero means the Config default applies.
+*/
+public class BulkLoadOptions {
+	
+	private int batchSize;
+	private int commitInterval;
+	private int writerCount;
+	
+	public BulkLoadOptions() {
+		this(0, 0, 0);
+	}
+	
+	public BulkLoadOptions(int batchSize, int commitInterval, int writerCount) {
+		this.batchSize = batchSize;
+		this.commitInterval = commitInterval;
+		this.writerCount = writerCount;
+	}
+	
+	// Rows per executeBatch
+	public int batchSize() {
+		return (this.batchSize > 0 ? this.batchSize : Config.DB_BULK_LOAD_BATCH_SIZE);
+	}
+	
+	// Rows per commit, per writer
+	public int commitInterval() {
+		return Math.max(
+			(this.commitInterval > 0 ? this.commitInterval : Config.DB_BULK_LOAD_COMMIT_INTERVAL),
+			this.batchSize()
+		);
+	}
+	
+	public int writerCount() {
+		return (this.writerCount > 0 ? this.writerCount : Config.DB_BULK_LOAD_WRITER_COUNT);
+	}
+	
+}
\ No newline at end of file
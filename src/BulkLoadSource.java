@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+** Rows for BulkLoader, read on the loading thread only.
+*/
+public interface BulkLoadSource {
+	
+	public String[] columnNames() throws Exception;
+	
+	// java.sql.Types of the columns, null when not known
+	public int[] columnTypes() throws Exception;
+	
+	// null when there are no more rows
+	public Object[] nextRow() throws Exception;
+	
+	public void close();
+	
+}
\ No newline at end of file
@@ -0,0 +1,626 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+** Inserts rows into a table with addBatch/executeBatch on several pooled
+** connections in parallel. The calling thread reads the source and hands
+** batches to the writers through a bounded queue, so a slow target slows
+** down reading instead of filling memory.
+**
+** Each writer commits every commitInterval rows. A failing batch is
+** reported and skipped: the writer rolls back, replays the batches since
+** its last commit and carries on.
+*/
+public class BulkLoader {
+	
+	private static final Batch END = new Batch(0, 0, null);
+	
+	private long id;
+	private DBConnection dbConnection;
+	private DBConnectionPool connectionPool;
+	private String table;
+	private BulkLoadOptions options;
+	
+	private int[] columnTypes;
+	private long startTime;
+	
+	private BlockingQueue<Batch> queue;
+	private AtomicInteger activeWriters;
+	private AtomicLong rowsRead;
+	private AtomicLong rowsLoaded;
+	private AtomicLong batchCount;
+	private List<Batch> failedBatches;
+	private volatile String writerError;
+	
+	public BulkLoader(long id, DBConnection dbConnection, String table, BulkLoadOptions options) throws Exception {
+		
+		this.id = id;
+		this.dbConnection = dbConnection;
+		this.connectionPool = dbConnection.getConnectionPool();
+		this.table = table;
+		this.options = options;
+		
+		if(this.connectionPool == null) {
+			throw new Exception("Not connected. Please connect.");
+		}
+		
+		this.activeWriters = new AtomicInteger(0);
+		this.rowsRead = new AtomicLong(0);
+		this.rowsLoaded = new AtomicLong(0);
+		this.batchCount = new AtomicLong(0);
+		this.failedBatches = Collections.synchronizedList(new ArrayList<Batch>());
+		this.writerError = null;
+		this.startTime = System.currentTimeMillis();
+		
+	}
+	
+	public long getId() {
+		return this.id;
+	}
+	
+	public static String insertStatement(String table, String[] columnNames) {
+		
+		StringBuilder columns = new StringBuilder();
+		StringBuilder values = new StringBuilder();
+		
+		for(int i=0; i<columnNames.length; i++) {
+			
+			columns.append((i > 0 ? ", " : "") + columnNames[i]);
+			values.append((i > 0 ? ", ?" : "?"));
+			
+		}
+		
+		return "insert into " + table + " (" + columns + ") values (" + values + ")";
+		
+	}
+	
+	/*
+	** Loads every row of the source and returns a summary with an entry
+	** per failed batch. The source is closed when done.
+	*/
+	public JSONBuilder load(BulkLoadSource source) throws Exception {
+		
+		try {
+			
+			this.columnTypes = source.columnTypes();
+			
+			String insertStatement =
+				BulkLoader.insertStatement(
+					this.table,
+					source.columnNames()
+				);
+			
+			int writerCount =
+				Math.min(
+					this.options.writerCount(),
+					this.connectionPool.maxSize()
+				);
+			
+			this.queue = new ArrayBlockingQueue<Batch>(writerCount * 2);
+			
+			List<Thread> writers = new ArrayList<Thread>();
+			
+			for(int i=0; i<writerCount; i++) {
+				
+				Thread writer =
+					this.startWriter(
+						insertStatement,
+						i + 1
+					);
+				
+				writers.add(writer);
+				
+			}
+			
+			try {
+				
+				this.read(source);
+				
+			} finally {
+				
+				this.finish(writers);
+				
+			}
+			
+		} finally {
+			
+			source.close();
+			
+		}
+		
+		return this.getJSONBuilder();
+		
+	}
+	
+	private void read(BulkLoadSource source) throws Exception {
+		
+		int batchSize = this.options.batchSize();
+		
+		List<Object[]> rows = new ArrayList<Object[]>(batchSize);
+		
+		Object[] row;
+		
+		while((row = source.nextRow()) != null) {
+			
+			rows.add(row);
+			
+			if(rows.size() == batchSize) {
+				
+				this.put(this.batch(rows));
+				
+				rows = new ArrayList<Object[]>(batchSize);
+				
+			}
+			
+		}
+		
+		if(rows.size() > 0) {
+			this.put(this.batch(rows));
+		}
+		
+	}
+	
+	private Batch batch(List<Object[]> rows) {
+		
+		long firstRow = this.rowsRead.get() + 1;
+		
+		this.rowsRead.addAndGet(rows.size());
+		
+		return new Batch(
+			this.batchCount.incrementAndGet(),
+			firstRow,
+			rows
+		);
+		
+	}
+	
+	private void put(Batch batch) throws Exception {
+		
+		while(!this.queue.offer(batch, 1, TimeUnit.SECONDS)) {
+			
+			if(this.activeWriters.get() == 0) {
+				throw new Exception("Bulk load stopped, no writer left. " + this.writerError);
+			}
+			
+		}
+		
+	}
+	
+	// Ends every writer still running and waits for its last commit
+	private void finish(List<Thread> writers) throws Exception {
+		
+		for(int i=0; i<writers.size(); i++) {
+			
+			while(!this.queue.offer(BulkLoader.END, 1, TimeUnit.SECONDS)) {
+				
+				if(this.activeWriters.get() == 0) {
+					break;
+				}
+				
+			}
+			
+		}
+		
+		for(Thread writer : writers) {
+			writer.join();
+		}
+		
+	}
+	
+	private Thread startWriter(final String insertStatement, int writerNumber) {
+		
+		final BulkLoader me = this;
+		
+		this.activeWriters.incrementAndGet();
+		
+		Thread writer =
+			new Thread(
+				new Runnable() {
+					public void run() {
+						try {
+							me.write(insertStatement);
+						} catch(Exception e) {
+							me.writerError = e.getMessage();
+						} finally {
+							me.activeWriters.decrementAndGet();
+						}
+					}
+				},
+				"BulkLoader-" + this.table + "-" + writerNumber
+			);
+		
+		writer.setDaemon(true);
+		writer.start();
+		
+		return writer;
+		
+	}
+	
+	private void write(String insertStatement) throws Exception {
+		
+		this.dbConnection.acquireQueryPermit();
+		
+		Connection connection = null;
+		PooledStatement statement = null;
+		
+		try {
+			
+			connection = this.connectionPool.borrow();
+			
+			connection.setAutoCommit(false);
+			
+			statement =
+				this.connectionPool.prepareStatement(
+					connection,
+					insertStatement
+				);
+			
+			int commitInterval = this.options.commitInterval();
+			
+			// Executed but not yet committed, replayed after a rollback
+			List<Batch> uncommitted = new ArrayList<Batch>();
+			int uncommittedRows = 0;
+			
+			Batch batch;
+			
+			while((batch = this.queue.take()) != BulkLoader.END) {
+				
+				if(this.execute(statement, batch)) {
+					
+					uncommitted.add(batch);
+					uncommittedRows += batch.rows.size();
+					
+				} else {
+					
+					this.failed(batch);
+					
+					this.recover(connection, statement, uncommitted);
+					
+					uncommittedRows = 0;
+					
+				}
+				
+				if(uncommittedRows >= commitInterval) {
+					
+					this.commit(connection, uncommitted);
+					
+					uncommittedRows = 0;
+					
+				}
+				
+			}
+			
+			this.commit(connection, uncommitted);
+			
+		} finally {
+			
+			if(statement != null) {
+				statement.release();
+			}
+			
+			this.connectionPool.giveBack(connection);
+			this.dbConnection.releaseQueryPermit();
+			
+		}
+		
+	}
+	
+	private boolean execute(PooledStatement statement, Batch batch) {
+		
+		PreparedStatement preparedStatement = statement.statement();
+		
+		try {
+			
+			for(Object[] row : batch.rows) {
+				
+				statement.bind(row, this.columnTypes);
+				
+				preparedStatement.addBatch();
+				
+			}
+			
+			preparedStatement.executeBatch();
+			
+			return true;
+			
+		} catch(Exception e) {
+			
+			batch.error = BulkLoader.errorMessage(e);
+			
+			try {
+				preparedStatement.clearBatch();
+			} catch(Exception ce) {
+				;
+			}
+			
+			return false;
+			
+		}
+		
+	}
+	
+	/*
+	** Rolls back and replays the batches since the last commit, leaving
+	** out any that fail again, then commits them.
+	*/
+	private void recover(Connection connection, PooledStatement statement, List<Batch> uncommitted) throws Exception {
+		
+		boolean replayed = false;
+		
+		while(!replayed) {
+			
+			connection.rollback();
+			
+			replayed = true;
+			
+			for(Batch batch : uncommitted) {
+				
+				if(!this.execute(statement, batch)) {
+					
+					this.failed(batch);
+					
+					uncommitted.remove(batch);
+					
+					replayed = false;
+					
+					break;
+					
+				}
+				
+			}
+			
+		}
+		
+		this.commit(connection, uncommitted);
+		
+	}
+	
+	private void commit(Connection connection, List<Batch> uncommitted) throws Exception {
+		
+		try {
+			
+			connection.commit();
+			
+		} catch(Exception e) {
+			
+			for(Batch batch : uncommitted) {
+				
+				batch.error = "Commit failed: " + BulkLoader.errorMessage(e);
+				
+				this.failed(batch);
+				
+			}
+			
+			uncommitted.clear();
+			
+			throw e;
+			
+		}
+		
+		for(Batch batch : uncommitted) {
+			this.rowsLoaded.addAndGet(batch.rows.size());
+		}
+		
+		uncommitted.clear();
+		
+	}
+	
+	private void failed(Batch batch) {
+		
+		batch.rowCount = batch.rows.size();
+		batch.rows = null;
+		
+		this.failedBatches.add(batch);
+		
+	}
+	
+	// The first error of a batch usually names the row, the chained ones say why
+	private static String errorMessage(Exception e) {
+		
+		String message = e.getMessage();
+		
+		if(e instanceof SQLException) {
+			
+			SQLException next = ((SQLException)e).getNextException();
+			
+			if(next != null && next.getMessage() != null && !next.getMessage().equals(message)) {
+				message += " " + next.getMessage();
+			}
+			
+		}
+		
+		return message;
+		
+	}
+	
+	/*
+	** Progress while loading, the summary when done.
+	*/
+	public JSONBuilder getJSONBuilder() {
+		
+		JSONBuilder jb = JSONBuilder.f();
+		
+		long failedRows = 0;
+		
+		long elapsedTime =
+			System.currentTimeMillis() - this.startTime;
+		
+		BlockingQueue<Batch> queue = this.queue;
+		
+		jb.$('{');
+		
+		jb.k("id").v(this.id);
+		jb.k("connectionName").v(this.dbConnection.getConnectionName());
+		jb.k("table").v(this.table);
+		jb.k("rowsRead").v(this.rowsRead.get());
+		jb.k("rowsLoaded").v(this.rowsLoaded.get());
+		jb.k("batches").v(this.batchCount.get());
+		jb.k("queuedBatches").v(queue != null ? queue.size() : 0);
+		jb.k("elapsedTimeMs").v(elapsedTime);
+		jb.k("rowsPerSecond").v(this.rowsLoaded.get() * 1000 / Math.max(1, elapsedTime));
+		
+		jb.k("failedBatches").$('[');
+		
+		synchronized(this.failedBatches) {
+			
+			for(Batch batch : this.failedBatches) {
+				
+				failedRows += batch.rowCount;
+				
+				jb.$('{');
+				jb.k("batch").v(batch.number);
+				jb.k("firstRow").v(batch.firstRow);
+				jb.k("rowCount").v(batch.rowCount);
+				jb.k("error").v(batch.error);
+				jb.$('}');
+				
+			}
+			
+		}
+		
+		jb.$(']');
+		
+		jb.k("rowsFailed").v(failedRows);
+		
+		if(this.writerError != null) {
+			jb.k("error").v(this.writerError);
+		}
+		
+		jb.$('}');
+		
+		return jb;
+		
+	}
+	
+	/*
+	** Source of the rows of a CSV file or stream, header as column names.
+	*/
+	public static BulkLoadSource csvSource(final CSVReader csvReader) {
+		
+		return new BulkLoadSource() {
+			
+			public String[] columnNames() throws Exception {
+				
+				if(!csvReader.fileIsOpen() || csvReader.getHeader() == null) {
+					throw new Exception("No CSV header found.");
+				}
+				
+				return csvReader.getHeader();
+				
+			}
+			
+			public int[] columnTypes() {
+				return null;
+			}
+			
+			public Object[] nextRow() throws Exception {
+				
+				if(!csvReader.readLine()) {
+					return null;
+				}
+				
+				// The reader reuses its field array
+				return csvReader.getFields().clone();
+				
+			}
+			
+			public void close() {
+				csvReader.close();
+			}
+			
+		};
+		
+	}
+	
+	/*
+	** Source of the rows of a query on another connection, typically
+	** copying between databases. Values are read as standard Java types
+	** rather than driver specific objects the target may not take.
+	*/
+	public static BulkLoadSource querySource(final QueryObject queryObject) {
+		
+		return new BulkLoadSource() {
+			
+			public String[] columnNames() throws Exception {
+				
+				String[] columnNames = new String[queryObject.getColumnCount()];
+				
+				for(int i=0; i<columnNames.length; i++) {
+					columnNames[i] = queryObject.getColumnName(i + 1);
+				}
+				
+				return columnNames;
+				
+			}
+			
+			public int[] columnTypes() throws Exception {
+				
+				int[] columnTypes = new int[queryObject.getColumnCount()];
+				
+				for(int i=0; i<columnTypes.length; i++) {
+					columnTypes[i] = queryObject.resultSetMetaData().getColumnType(i + 1);
+				}
+				
+				return columnTypes;
+				
+			}
+			
+			public Object[] nextRow() throws Exception {
+				
+				if(!queryObject.next()) {
+					return null;
+				}
+				
+				return queryObject.columns().readRow(queryObject.resultSet());
+				
+			}
+			
+			public void close() {
+				queryObject.close();
+			}
+			
+		};
+		
+	}
+	
+	private static class Batch {
+		
+		private long number;
+		private long firstRow;
+		private List<Object[]> rows;
+		private int rowCount;
+		private String error;
+		
+		private Batch(long number, long firstRow, List<Object[]> rows) {
+			this.number = number;
+			this.firstRow = firstRow;
+			this.rows = rows;
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -103,6 +103,28 @@ public class CSVReader implements Serializable {
 		this.isLoading = true;
 	}
 	
+	/*
+	** Read from a stream, e.g. a request body
+	**
+	*/
+	public CSVReader(InputStream inputStream, char fieldSeparator) {
+		file = null;
+		fs = null;
+		in = null;
+		br = new BufferedReader(new InputStreamReader(inputStream));
+		this.fieldSeparator = fieldSeparator;
+		
+		this.fieldCount = 0;
+		
+		this.readHeader();
+		
+		this.fileIsOpen = (this.header != null);
+		
+		this.bytesRead = 0;
+		
+		this.isLoading = true;
+	}
+	
 	/*
 	** Read chunks from remote file
 	**
@@ -402,7 +424,9 @@ public class CSVReader implements Serializable {
 		try {
 			sLine = this.readLineFromFile();
 			
-			this.readHeader(sLine);
+			if(sLine != null) {
+				this.readHeader(sLine);
+			}
 			
 		} catch(Exception e) {
 			e.printStackTrace();
@@ -459,6 +483,17 @@ public class CSVReader implements Serializable {
 		}
 	}
 	
+	public void close() {
+		try {
+			if(br != null) {
+				br.close();
+			}
+		} catch(Exception e) {
+			;
+		}
+		this.fileIsOpen = false;
+	}
+	
 	public void finishLoad() {
 		if(this.possiblyPartialLine != null) {
 			if(this.possiblyPartialLine.length() > 0) {
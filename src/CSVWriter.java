@@ -14,6 +14,8 @@
  * limitations under the License.
  */
 import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
 
 public class CSVWriter extends DataWriter {
 	
@@ -65,6 +67,24 @@ public class CSVWriter extends DataWriter {
 		out.print(entry);
 	}
 	
+	public void entry(long entry, int entryId) {
+		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : CSVWriter.BLANK));
+		out.print(entry);
+	}
+	
+	public void entry(BigDecimal entry, int entryId) {
+		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : CSVWriter.BLANK));
+		out.print(entry.toPlainString());
+	}
+	
+	public void entry(Timestamp entry, int entryId) {
+		this.entry(entry.toString(), entryId);
+	}
+	
+	public void entry(byte[] entry, int entryId) {
+		this.entry(representBytes(entry), entryId);
+	}
+	
 	public void nullEntry(int entryId) {
 		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : CSVWriter.BLANK));
 	}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/*
+** Contents of a jar resource held in memory by ResourceCache, both as is
+** and gzip compressed, together with a strong ETag for each.
+*/
+public class CachedResource {
+	
+	private byte[] bytes;
+	private byte[] gzipBytes;
+	private String eTag;
+	private String gzipETag;
+	private long lastModified;
+	
+	public CachedResource(byte[] bytes, long lastModified) throws Exception {
+		
+		this.bytes = bytes;
+		this.lastModified = lastModified;
+		
+		MessageDigest messageDigest =
+			MessageDigest.getInstance("SHA-1");
+		
+		StringBuilder hash = new StringBuilder();
+		
+		for(byte b : messageDigest.digest(bytes)) {
+			hash.append(String.format("%02x", b));
+		}
+		
+		this.eTag = "\"" + hash.toString() + "\"";
+		
+		// Each representation needs its own strong ETag
+		this.gzipETag = "\"" + hash.toString() + "-gzip\"";
+		
+		this.gzipBytes = CachedResource.gzip(bytes);
+		
+		// Not worth it when compression does not help (images, fonts, ...)
+		if(this.gzipBytes.length >= bytes.length) {
+			this.gzipBytes = null;
+		}
+		
+	}
+	
+	private static byte[] gzip(byte[] bytes) throws Exception {
+		
+		ByteArrayOutputStream compressed =
+			new ByteArrayOutputStream(bytes.length / 2 + 64);
+		
+		GZIPOutputStream gzipOutputStream =
+			new GZIPOutputStream(compressed) {
+				{
+					this.def.setLevel(Deflater.BEST_COMPRESSION);
+				}
+			};
+		
+		gzipOutputStream.write(bytes);
+		gzipOutputStream.close();
+		
+		return compressed.toByteArray();
+		
+	}
+	
+	public byte[] bytes() {
+		return this.bytes;
+	}
+	
+	public byte[] gzipBytes() {
+		return this.gzipBytes;
+	}
+	
+	public boolean hasGzipBytes() {
+		return this.gzipBytes != null;
+	}
+	
+	public String eTag() {
+		return this.eTag;
+	}
+	
+	public String gzipETag() {
+		return this.gzipETag;
+	}
+	
+	public long lastModified() {
+		return this.lastModified;
+	}
+	
+}
\ No newline at end of file
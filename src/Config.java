@@ -26,5 +26,64 @@ public class Config {
 	public static final String FUSEBASE_SESSION_KEY_PARAMETER_KEYNAME = "fusebase_sk";
 	public static final String FUSEBASE_FEEDBACK_COOKIE_KEYNAME = "fusebase_feedback";
 	public static final int DB_CONNECTION_POOL_SIZE = 5;
-	public static final int HTTP_SERVER_THREAD_COUNT = 20;
+	public static final int DB_CONNECTION_MAX_CONCURRENT_QUERIES = 20;
+	public static final int DB_CONNECTION_QUERY_PERMIT_TIMEOUT = 30000;
+	public static final int DB_CONNECTION_BORROW_TIMEOUT = 30000;
+	public static final int DB_CONNECTION_LEAK_THRESHOLD = 300000;
+	public static final boolean DB_CONNECTION_LEAK_TRACKING = false;
+	public static final int DB_CONNECTION_POOL_MAINTENANCE_INTERVAL = 1000;
+	public static final int DB_CONNECTION_VALIDATION_INTERVAL = 30000;
+	public static final int DB_CONNECTION_VALIDATION_TIMEOUT = 5;
+	public static final int DB_CONNECTION_MAX_LIFETIME = 1800000;
+	public static final int DB_CONNECTION_IDLE_TIMEOUT = 600000;
+	public static final int DB_CONNECTION_RECONNECT_BACKOFF_MIN = 1000;
+	public static final int DB_CONNECTION_RECONNECT_BACKOFF_MAX = 60000;
+	public static final int DB_CONNECTION_CONNECT_TIMEOUT = 60000;
+	public static final int DB_CONNECTION_CONNECT_THREAD_COUNT = 16;
+	public static final int DB_CONNECTION_MANAGER_CONNECT_THREAD_COUNT = 4;
+	public static final int DB_CONNECTION_STATEMENT_CACHE_SIZE = 64;
+	public static final int DB_QUERY_FETCH_SIZE = 1000;
+	public static final int DB_QUERY_TIMEOUT = 0;
+	public static final int DB_QUERY_TIMEOUT_CHECK_INTERVAL = 1000;
+	public static final boolean DB_QUERY_SINGLE_FLIGHT = true;
+	public static final int DB_QUERY_SINGLE_FLIGHT_JOIN_ROWS = 1000;
+	public static final int DB_QUERY_SINGLE_FLIGHT_BUFFER_ROWS = 10000;
+	public static final int DB_QUERY_SINGLE_FLIGHT_LAG_TIMEOUT = 30000;
+	public static final int DB_BULK_LOAD_BATCH_SIZE = 1000;
+	public static final int DB_BULK_LOAD_COMMIT_INTERVAL = 10000;
+	public static final int DB_BULK_LOAD_WRITER_COUNT = 4;
+	public static final int HTTP_SERVER_MIN_THREAD_COUNT = 8;
+	public static final int HTTP_SERVER_MAX_THREAD_COUNT = 200;
+	public static final int HTTP_SERVER_WORKER_IDLE_TIMEOUT = 60000;
+	public static final int HTTP_SERVER_POOL_CHECK_INTERVAL = 100;
+	public static final int HTTP_SERVER_MAX_QUEUE_LENGTH = 10000;
+	public static final int HTTP_SERVER_QUEUE_WAIT_GROW_THRESHOLD = 50;
+	public static final int HTTP_SERVER_QUEUE_WAIT_LIMIT = 2000;
+	public static final double HTTP_SERVER_QUEUE_WAIT_WEIGHT = 0.1;
+	public static final int HTTP_SERVER_RETRY_AFTER = 5;
+	public static final int HTTP_SERVER_REJECT_TIMEOUT = 1000;
+	public static final int HTTP_SERVER_NIO_EVENT_LOOP_COUNT = 2;
+	public static final int HTTP_SERVER_READ_BUFFER_SIZE = 16384;
+	public static final int HTTP_SERVER_KEEP_ALIVE_TIMEOUT = 15000;
+	public static final int HTTP_SERVER_KEEP_ALIVE_MAX_REQUESTS = 1000;
+	public static final int HTTP_RESPONSE_CHUNK_SIZE = 8192;
+	public static final int HTTP_REQUEST_BODY_BUFFER_SIZE = 65536;
+	public static final int HTTP_REQUEST_BODY_SPILL_THRESHOLD = 1048576;
+	public static final boolean HTTP_COMPRESSION_ENABLED = true;
+	public static final int HTTP_COMPRESSION_THRESHOLD = 1024;
+	public static final int HTTP_COMPRESSION_LEVEL = 6;
+	public static final int RESOURCE_CACHE_MAX_ENTRY_SIZE = 8388608;
+	public static final long QUERY_RESULT_CACHE_MAX_BYTES = 67108864;
+	public static final int QUERY_RESULT_CACHE_MAX_ENTRY_SIZE = 8388608;
+	public static final String WATERMARK_STATE_FILENAME = "./db/watermarks.ser";
+	public static final String QUERY_JOB_SPOOL_DIRECTORY = "./spool/";
+	public static final int QUERY_JOB_THREAD_COUNT = 4;
+	public static final int QUERY_JOB_MAX_QUEUED = 100;
+	public static final int QUERY_JOB_SPOOL_INDEX_ROWS = 1000;
+	public static final int QUERY_JOB_SPOOL_FLUSH_INTERVAL = 1000;
+	public static final int QUERY_JOB_FETCH_LIMIT = 10000;
+	public static final int QUERY_JOB_RETENTION = 3600000;
+	public static final int QUERY_JOB_CLEANUP_INTERVAL = 60000;
+	public static final int SQL_STREAMING_FLUSH_ROWS = 1000;
+	public static final long SQL_STREAMING_FLUSH_BYTES = 65536;
 }
\ No newline at end of file
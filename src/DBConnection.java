@@ -18,10 +18,16 @@ import java.sql.DriverManager;
 import java.sql.Statement;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.io.Serializable;
+import java.io.ObjectInputStream;
+import java.io.IOException;
 
 public class DBConnection implements Serializable {
 	
+	private static final long serialVersionUID = -5194771293805229101L;
+	
 	private String connectionName;
 	private String connectString;
 	private String user;
@@ -31,7 +37,11 @@ public class DBConnection implements Serializable {
 	private String validationQuery;
 	private boolean isConnected;
 	
-	private transient Connection[] connections;
+	private transient DBConnectionPool connectionPool;
+	private transient volatile DBConnectionState state;
+	
+	// Caps the number of statements running against the backend at once
+	private transient Semaphore queryPermits;
 	
 	private String lastError = "";
 	
@@ -51,9 +61,27 @@ public class DBConnection implements Serializable {
 		
 		this.jdbcDriverInfo = jdbcDriverInfo;
 		
-		this.connections = null;
+		this.connectionPool = null;
 	}
 
+	/*
+	** A loaded connection is disconnected until connect(), which creates
+	** its pool and query permits. wasConnected() tells whether to.
+	*/
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		
+		in.defaultReadObject();
+		
+		this.connectionPool = null;
+		this.state = DBConnectionState.DISCONNECTED;
+		this.queryPermits = null;
+		
+		if(this.lastError == null) {
+			this.lastError = "";
+		}
+		
+	}
+	
 	public void setUseUserAndPassword(boolean useUserAndPassword) {
 		this.useUserAndPassword = useUserAndPassword;
 	}
@@ -70,8 +98,26 @@ public class DBConnection implements Serializable {
 		this.isDefaultConnection = isDefaultConnection;
 	}
 	
-	public Connection getConnection() throws Exception {
-		return this.getFirstAvailableConnection();
+	/*
+	** Connections borrowed from the pool must be given back to the same pool,
+	** which is not necessarily the current one after a reconnect.
+	*/
+	public DBConnectionPool getConnectionPool() throws Exception {
+		
+		DBConnectionPool connectionPool = this.connectionPool;
+		
+		if(connectionPool == null && this.getState() == DBConnectionState.CONNECTING) {
+			
+			throw new Exception("Connection \"" + this.connectionName + "\" is still connecting. Please try again later.");
+			
+		} else if(connectionPool == null) {
+			
+			throw new Exception("Not connected. Please connect.");
+			
+		}
+		
+		return connectionPool;
+		
 	}
 	
 	public String getConnectionName() {
@@ -110,6 +156,10 @@ public class DBConnection implements Serializable {
 		return this.jdbcDriverClass;
 	}
 	
+	public JDBCDriverInfo getJDBCDriverInfo() {
+		return this.jdbcDriverInfo;
+	}
+	
 	public String getValidationQuery() {
 		return this.validationQuery;
 	}
@@ -118,68 +168,41 @@ public class DBConnection implements Serializable {
 		return this.lastError;
 	}
 	
-	private Connection getFirstAvailableConnection() throws Exception {
+	public DBConnectionState getState() {
+		return (this.state != null ? this.state : DBConnectionState.DISCONNECTED);
+	}
+	
+	/*
+	** Whether the connection was connected when FuseBase was last saved,
+	** used to reconnect it on startup.
+	*/
+	public boolean wasConnected() {
+		return this.isConnected;
+	}
+	
+	public void acquireQueryPermit() throws Exception {
 		
-		if(this.connections == null) {
+		Semaphore queryPermits = this.queryPermits;
+		
+		if(queryPermits == null) {
 			
 			throw new Exception("Not connected. Please connect.");
 			
 		}
 		
-		final DBConnection me = this;
-		Thread connectionValidationThread = null;
-		final DBConnectionValidationThreadSignal threadSignal =
-			new DBConnectionValidationThreadSignal();
-		
-		threadSignal.validationQueryReturned = false;
-		
-		for(int i=0; i<this.connections.length; i++) {
-			
-			final int connectionIndex = i;
-			
-			threadSignal.validationQueryReturned = false;
-			
-			connectionValidationThread =
-				new Thread() {
-			    	public void run() {
-						
-						try {
-							
-							/*
-							Statement statement =
-								me.connections[connectionIndex].createStatement();
-
-							statement.executeQuery(
-								me.getValidationQuery()
-							);
-							*/
-							
-							me.connections[connectionIndex].isClosed();
-
-							threadSignal.validationQueryReturned = true;
-							
-						} catch(Exception e) {
-							
-							e.printStackTrace();
-							
-						}
-			        	
-			    	}
-				};
+		if(!queryPermits.tryAcquire(Config.DB_CONNECTION_QUERY_PERMIT_TIMEOUT, TimeUnit.MILLISECONDS)) {
 			
-			connectionValidationThread.start();
-			// Wait at most 200 milliseconds for connectionValidationThread to finish
-			connectionValidationThread.join(5); 
-			
-			if(threadSignal.validationQueryReturned) {
-				
-				return this.connections[i];
-				
-			}
+			throw new Exception("Too many concurrent queries on connection \"" + this.connectionName + "\". Please try again later.");
 			
 		}
 		
-		throw new Exception("Connection not available. Please try again later.");
+	}
+	
+	public void releaseQueryPermit() {
+		
+		if(this.queryPermits != null) {
+			this.queryPermits.release();
+		}
 		
 	}
 	
@@ -194,7 +217,8 @@ public class DBConnection implements Serializable {
 	}
 	
 	public JSONBuilder getJSONBuilder() {
-		return
+		
+		JSONBuilder jb =
 			JSONBuilder.f().
 				$('{').
 					k("connectionName").v(this.getConnectionName()).
@@ -203,9 +227,19 @@ public class DBConnection implements Serializable {
 					k("jdbcDriverClass").v(this.getJDBCDriverClass()).
 					k("user").v(this.getUser()).
 					k("useUserAndPassword").v(this.useUserAndPassword()).
-					k("isConnected").v(this.isConnected).
-					k("Default").v(this.isDefaultConnection()).
-				$('}');
+					k("isConnected").v(this.getState() == DBConnectionState.CONNECTED).
+					k("state").v(this.getState().toString()).
+					k("lastError").v(this.getLastError()).
+					k("Default").v(this.isDefaultConnection());
+		
+		DBConnectionPool connectionPool = this.connectionPool;
+		
+		if(connectionPool != null) {
+			jb.k("pool").v(connectionPool.getJSONBuilder());
+		}
+		
+		return jb.$('}');
+		
 	}
 	
 	public JSONBuilder getJSONBuilderForExport() {
@@ -226,54 +260,94 @@ public class DBConnection implements Serializable {
 		return this.getJSONBuilder().getJSON();
 	}
 	
-	public void connect() throws SQLException, Exception {
+	public Connection openConnection() throws SQLException, Exception {
+		
+		if(this.useUserAndPassword()) {
+			return DriverShim.getConnection(
+				this.jdbcDriverInfo.getJDBCDriverPath(),
+				this.jdbcDriverClass,
+				this.connectString,
+				this.user,
+				this.passWord
+			);
+		}
+		
+		return DriverShim.getConnection(
+			this.jdbcDriverInfo.getJDBCDriverPath(),
+			this.jdbcDriverClass,
+			this.connectString
+		);
+		
+	}
+	
+	/*
+	** Synchronized so that a reconnect on startup and one asked for through
+	** the API do not build two pools.
+	*/
+	public synchronized void connect() throws SQLException, Exception {
 		
 		this.isConnected = false;
+		this.state = DBConnectionState.CONNECTING;
 		
-		if(this.connections != null) {
+		if(this.connectionPool != null) {
 			
-			for(int i=0; i<Config.DB_CONNECTION_POOL_SIZE; i++) {
-				
-				try {
-					
-					this.connections[i].close();
-					
-				} catch(Exception e) {
-					
-					;
-					
-				}
+			this.connectionPool.close();
+			this.connectionPool = null;
 			
-			}
+		}
+		
+		DBConnectionPool connectionPool =
+			new DBConnectionPool(
+				this,
+				this.jdbcDriverInfo.getConnectionPoolSize()
+			);
+		
+		try {
+			
+			connectionPool.warmUp();
+			
+		} catch(Exception e) {
+			
+			connectionPool.close();
 			
-		} else if(this.connections == null) {
+			this.lastError = (e.getMessage() != null ? e.getMessage() : e.toString());
+			this.state = DBConnectionState.FAILED;
 			
-			this.connections =
-				new Connection[this.jdbcDriverInfo.getConnectionPoolSize()];
+			throw e;
 			
 		}
 		
-		for(int i=0; i<this.jdbcDriverInfo.getConnectionPoolSize(); i++) {
+		connectionPool.startMaintenance();
+		
+		this.connectionPool = connectionPool;
+		
+		if(this.queryPermits == null) {
 			
-			if(this.useUserAndPassword()) {
-				this.connections[i] = DriverShim.getConnection(
-					this.jdbcDriverInfo.getJDBCDriverPath(),
-					this.jdbcDriverClass,
-					this.connectString,
-					this.user,
-					this.passWord
+			this.queryPermits =
+				new Semaphore(
+					this.jdbcDriverInfo.getMaxConcurrentQueries(),
+					true
 				);
-			} else if(!this.useUserAndPassword()) {
-				this.connections[i] = DriverShim.getConnection(
-					this.jdbcDriverInfo.getJDBCDriverPath(),
-					this.jdbcDriverClass,
-					this.connectString
-				);
-			}
 			
 		}
 		
 		this.isConnected = true;
+		this.lastError = "";
+		this.state = DBConnectionState.CONNECTED;
+		
+	}
+	
+	public synchronized void disconnect() {
+		
+		this.isConnected = false;
+		this.state = DBConnectionState.DISCONNECTED;
+		
+		if(this.connectionPool != null) {
+			
+			this.connectionPool.close();
+			this.connectionPool = null;
+			
+		}
 		
 	}
 }
\ No newline at end of file
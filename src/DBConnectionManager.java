@@ -14,15 +14,36 @@
  * limitations under the License.
  */
 import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.io.Serializable;
 import java.sql.SQLException;
 
 public class DBConnectionManager implements Serializable, RESTAPIValidValues {
 	
+	private static final long serialVersionUID = 794716455814842080L;
+	
 	private HashMap<String, DBConnection> connections;
 	
 	private String validAPIValues;
 	
+	// Connects several connections at once, each of which opens its pool concurrently
+	private static final ExecutorService connectExecutor =
+		Executors.newFixedThreadPool(
+			Config.DB_CONNECTION_MANAGER_CONNECT_THREAD_COUNT,
+			new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "DBConnectionManager-connect");
+					thread.setDaemon(true);
+					return thread;
+				}
+			}
+		);
+	
 	public DBConnectionManager() {
 		this.connections = new HashMap<String, DBConnection>();
 		this.validAPIValues = this.validAPIValues();
@@ -51,12 +72,11 @@ public class DBConnectionManager implements Serializable, RESTAPIValidValues {
 	
 	public void connectAll() {
 		
-		for(DBConnection dbConnection : this.connections.values()) {
+		for(Future<?> connecting : this.connectInBackground(false)) {
 			
 			try {
-				dbConnection.connect();
+				connecting.get();
 			} catch(Exception e) {
-				// TODO: Add logging
 				;
 			}
 			
@@ -64,6 +84,81 @@ public class DBConnectionManager implements Serializable, RESTAPIValidValues {
 			
 	}
 	
+	/*
+	** Starts connecting and returns at once, so HTTP serving does not wait
+	** for slow backends. Progress is reported by DBConnection.getState().
+	*/
+	public List<Future<?>> connectInBackground(boolean onlyPreviouslyConnected) {
+		
+		List<Future<?>> connectings = new ArrayList<Future<?>>();
+		
+		for(final DBConnection dbConnection : new ArrayList<DBConnection>(this.connections.values())) {
+			
+			if(onlyPreviouslyConnected && !dbConnection.wasConnected()) {
+				continue;
+			}
+			
+			connectings.add(
+				connectExecutor.submit(
+					new Runnable() {
+						public void run() {
+							
+							try {
+								
+								dbConnection.connect();
+								
+							} catch(Exception e) {
+								
+								System.out.println(
+									"Could not connect \"" + dbConnection.getConnectionName() + "\": " + e.getMessage()
+								);
+								
+							}
+							
+						}
+					}
+				)
+			);
+			
+		}
+		
+		return connectings;
+		
+	}
+	
+	public boolean isReady() {
+		
+		for(DBConnection dbConnection : new ArrayList<DBConnection>(this.connections.values())) {
+			
+			if(dbConnection.getState() == DBConnectionState.CONNECTING) {
+				return false;
+			}
+			
+		}
+		
+		return true;
+		
+	}
+	
+	public JSONBuilder getStatusJSONBuilder() {
+		
+		JSONBuilder jb = JSONBuilder.f();
+		
+		jb.$('{').k("ready").v(this.isReady()).k("connections").$('[');
+		
+		for(DBConnection dbConnection : new ArrayList<DBConnection>(this.connections.values())) {
+			jb.
+				$('{').
+					k("connectionName").v(dbConnection.getConnectionName()).
+					k("state").v(dbConnection.getState().toString()).
+					k("lastError").v(dbConnection.getLastError()).
+				$('}');
+		}
+		
+		return jb.$(']').$('}');
+		
+	}
+	
 	public boolean setDefaultConnection(String connectionName) {
 		
 		if(this.connections.containsKey(connectionName)) {
@@ -165,7 +260,7 @@ public class DBConnectionManager implements Serializable, RESTAPIValidValues {
 		
 		if(this.connections.containsKey(connectionName)) {
 			
-			this.connections.remove(connectionName);
+			this.connections.remove(connectionName).disconnect();
 			
 			this.setValidAPIValues();
 			
@@ -0,0 +1,665 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+** Borrow/return pool of physical connections for one DBConnection.
+** Each borrowed connection is held exclusively until it is given back.
+** The pool grows lazily up to maxSize and callers wait at most
+** Config.DB_CONNECTION_BORROW_TIMEOUT for a connection to become free.
+** A maintenance thread validates idle connections, retires old ones and
+** reopens broken ones, so request threads never pay for either.
+*/
+public class DBConnectionPool {
+	
+	// Shared by all pools, bounds the number of logins in flight at once
+	private static final ThreadPoolExecutor connectExecutor =
+		DBConnectionPool.createConnectExecutor();
+	
+	private DBConnection dbConnection;
+	private int maxSize;
+	
+	// One permit per connection that may be borrowed, idle or not yet opened
+	private Semaphore permits;
+	
+	// Most recently returned first, so warm connections get reused
+	private LinkedBlockingDeque<PooledConnection> idleConnections;
+	private ConcurrentHashMap<Connection, PooledConnection> borrowedConnections;
+	
+	private AtomicInteger size;
+	private volatile boolean isClosed;
+	
+	// Connections evicted as broken or expired, to be reopened in the background
+	private AtomicInteger replacementsNeeded;
+	private long reconnectBackoff;
+	private long nextReconnectTime;
+	private volatile String lastError;
+	
+	public DBConnectionPool(DBConnection dbConnection, int maxSize) {
+		this.dbConnection = dbConnection;
+		this.maxSize = Math.max(maxSize, 1);
+		this.permits = new Semaphore(this.maxSize, true);
+		this.idleConnections = new LinkedBlockingDeque<PooledConnection>();
+		this.borrowedConnections = new ConcurrentHashMap<Connection, PooledConnection>();
+		this.size = new AtomicInteger(0);
+		this.isClosed = false;
+		this.replacementsNeeded = new AtomicInteger(0);
+		this.reconnectBackoff = 0;
+		this.nextReconnectTime = 0;
+		this.lastError = "";
+	}
+	
+	private static ThreadPoolExecutor createConnectExecutor() {
+		
+		ThreadPoolExecutor executor =
+			new ThreadPoolExecutor(
+				Config.DB_CONNECTION_CONNECT_THREAD_COUNT,
+				Config.DB_CONNECTION_CONNECT_THREAD_COUNT,
+				60,
+				TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "DBConnectionPool-connect");
+						thread.setDaemon(true);
+						return thread;
+					}
+				}
+			);
+		
+		executor.allowCoreThreadTimeOut(true);
+		
+		return executor;
+		
+	}
+	
+	/*
+	** Opens every connection of the pool concurrently and waits at most
+	** Config.DB_CONNECTION_CONNECT_TIMEOUT for them. Fails only if none could
+	** be opened; the pool grows into missing connections on demand.
+	*/
+	public void warmUp() throws Exception {
+		
+		final DBConnectionPool me = this;
+		
+		List<Future<Void>> openings = new ArrayList<Future<Void>>();
+		
+		for(int i=0; i<this.maxSize; i++) {
+			
+			openings.add(
+				connectExecutor.submit(
+					new Callable<Void>() {
+						public Void call() throws Exception {
+							me.openIdleConnection();
+							return null;
+						}
+					}
+				)
+			);
+			
+		}
+		
+		long deadline =
+			System.currentTimeMillis() + Config.DB_CONNECTION_CONNECT_TIMEOUT;
+		
+		Exception firstError = null;
+		int openedCount = 0;
+		
+		for(Future<Void> opening : openings) {
+			
+			try {
+				
+				opening.get(
+					Math.max(deadline - System.currentTimeMillis(), 0),
+					TimeUnit.MILLISECONDS
+				);
+				
+				openedCount++;
+				
+			} catch(TimeoutException e) {
+				
+				// A login that finishes later still joins the pool, or is closed with it
+				opening.cancel(true);
+				
+				if(firstError == null) {
+					firstError = new Exception("Timed out after " + Config.DB_CONNECTION_CONNECT_TIMEOUT + " ms connecting \"" + this.dbConnection.getConnectionName() + "\".");
+				}
+				
+			} catch(ExecutionException e) {
+				
+				if(firstError == null) {
+					firstError = (e.getCause() instanceof Exception ? (Exception)e.getCause() : e);
+				}
+				
+			}
+			
+		}
+		
+		if(openedCount == 0) {
+			throw firstError;
+		}
+		
+	}
+	
+	private void openIdleConnection() throws Exception {
+		
+		// Already full, for instance when borrowed into during warm-up
+		if(!this.permits.tryAcquire()) {
+			return;
+		}
+		
+		try {
+			
+			if(this.reserve()) {
+				this.putBack(this.open(), true);
+			}
+			
+		} finally {
+			
+			this.permits.release();
+			
+		}
+		
+	}
+	
+	public Connection borrow() throws Exception {
+		
+		if(this.isClosed) {
+			throw new Exception("Not connected. Please connect.");
+		}
+		
+		if(!this.permits.tryAcquire(Config.DB_CONNECTION_BORROW_TIMEOUT, TimeUnit.MILLISECONDS)) {
+			
+			this.reportLeaks();
+			
+			throw new Exception("No connection available on \"" + this.dbConnection.getConnectionName() + "\" within " + Config.DB_CONNECTION_BORROW_TIMEOUT + " ms. Please try again later.");
+			
+		}
+		
+		PooledConnection pooledConnection = null;
+		
+		try {
+			
+			if(this.isClosed) {
+				throw new Exception("Not connected. Please connect.");
+			}
+			
+			pooledConnection = this.idleConnections.pollFirst();
+			
+			if(pooledConnection == null && this.reserve()) {
+				
+				pooledConnection = this.open();
+				
+			} else if(pooledConnection == null) {
+				
+				// Full while the last free slot is being opened in the background
+				pooledConnection =
+					this.idleConnections.pollFirst(
+						Config.DB_CONNECTION_BORROW_TIMEOUT,
+						TimeUnit.MILLISECONDS
+					);
+				
+				if(pooledConnection == null) {
+					throw new Exception("No connection available on \"" + this.dbConnection.getConnectionName() + "\" within " + Config.DB_CONNECTION_BORROW_TIMEOUT + " ms. Please try again later.");
+				}
+				
+			}
+			
+		} catch(Exception e) {
+			
+			this.permits.release();
+			
+			throw e;
+			
+		}
+		
+		pooledConnection.borrowed(Config.DB_CONNECTION_LEAK_TRACKING);
+		
+		this.borrowedConnections.put(
+			pooledConnection.connection(),
+			pooledConnection
+		);
+		
+		return pooledConnection.connection();
+		
+	}
+	
+	/*
+	** Returns a borrowed connection. Giving back a connection twice, or one
+	** that did not come from this pool, is ignored.
+	*/
+	public void giveBack(Connection connection) {
+		
+		if(connection == null) {
+			return;
+		}
+		
+		PooledConnection pooledConnection =
+			this.borrowedConnections.remove(connection);
+		
+		if(pooledConnection == null) {
+			return;
+		}
+		
+		if(!this.isClosed && pooledConnection.reset()) {
+			
+			this.putBack(pooledConnection, true);
+			
+		} else {
+			
+			this.evict(pooledConnection);
+			
+		}
+		
+		this.permits.release();
+		
+	}
+	
+	/*
+	** Prepares on a borrowed connection through its statement cache.
+	*/
+	public PooledStatement prepareStatement(Connection connection, String sql) throws Exception {
+		
+		PooledConnection pooledConnection =
+			this.borrowedConnections.get(connection);
+		
+		if(pooledConnection == null) {
+			throw new Exception("Connection is not borrowed from this pool.");
+		}
+		
+		return pooledConnection.prepareStatement(sql);
+		
+	}
+	
+	public void removeStatement(Connection connection, String sql) {
+		
+		PooledConnection pooledConnection =
+			this.borrowedConnections.get(connection);
+		
+		if(pooledConnection != null) {
+			pooledConnection.removeStatement(sql);
+		}
+		
+	}
+	
+	private void putBack(PooledConnection pooledConnection, boolean isMostRecent) {
+		
+		if(isMostRecent) {
+			this.idleConnections.offerFirst(pooledConnection);
+		} else {
+			this.idleConnections.offerLast(pooledConnection);
+		}
+		
+		// close() may have run in the meantime
+		if(this.isClosed && this.idleConnections.remove(pooledConnection)) {
+			this.discard(pooledConnection);
+		}
+		
+	}
+	
+	private void evict(PooledConnection pooledConnection) {
+		
+		this.discard(pooledConnection);
+		
+		if(!this.isClosed) {
+			this.replacementsNeeded.incrementAndGet();
+		}
+		
+	}
+	
+	/*
+	** Counts a connection in before it is opened so that concurrent
+	** openers never take the pool past maxSize.
+	*/
+	private boolean reserve() {
+		
+		int count;
+		
+		do {
+			
+			count = this.size.get();
+			
+			if(count >= this.maxSize) {
+				return false;
+			}
+			
+		} while(!this.size.compareAndSet(count, count + 1));
+		
+		return true;
+		
+	}
+	
+	/*
+	** Opens a connection into a slot taken with reserve().
+	*/
+	private PooledConnection open() throws Exception {
+		
+		try {
+			
+			return
+				new PooledConnection(
+					this.dbConnection.openConnection()
+				);
+			
+		} catch(Exception e) {
+			
+			this.size.decrementAndGet();
+			
+			throw e;
+			
+		}
+		
+	}
+	
+	private void discard(PooledConnection pooledConnection) {
+		
+		pooledConnection.close();
+		this.size.decrementAndGet();
+		
+	}
+	
+	/*
+	** Closes idle connections now and borrowed ones as they are given back.
+	*/
+	public void close() {
+		
+		this.isClosed = true;
+		
+		PooledConnection pooledConnection = null;
+		
+		while((pooledConnection = this.idleConnections.pollFirst()) != null) {
+			this.discard(pooledConnection);
+		}
+		
+	}
+	
+	public void startMaintenance() {
+		
+		final DBConnectionPool me = this;
+		
+		Thread maintenanceThread =
+			new Thread() {
+				public void run() {
+					
+					while(!me.isClosed) {
+						
+						try {
+							
+							Thread.sleep(Config.DB_CONNECTION_POOL_MAINTENANCE_INTERVAL);
+							
+							me.maintain();
+							
+						} catch(Exception e) {
+							
+							System.out.println(
+								e.getMessage()
+							);
+							
+						}
+						
+					}
+					
+				}
+			};
+		
+		maintenanceThread.setName("DBConnectionPool-" + this.dbConnection.getConnectionName());
+		maintenanceThread.setDaemon(true);
+		maintenanceThread.start();
+		
+	}
+	
+	/*
+	** Checks each idle connection that is due, then reopens evicted ones.
+	** An idle connection is taken out of the pool with a permit while it is
+	** checked, exactly like a borrow, so it is never handed out meanwhile.
+	*/
+	private void maintain() {
+		
+		JDBCDriverInfo jdbcDriverInfo = this.dbConnection.getJDBCDriverInfo();
+		long now;
+		
+		for(PooledConnection pooledConnection : this.idleConnections) {
+			
+			if(this.isClosed) {
+				return;
+			}
+			
+			now = System.currentTimeMillis();
+			
+			boolean isExpired =
+				now - pooledConnection.createdTime() >= jdbcDriverInfo.getMaxLifetime();
+			
+			boolean isIdleTooLong =
+				now - pooledConnection.lastUsedTime() >= jdbcDriverInfo.getIdleTimeout() &&
+				this.size() > 1;
+			
+			boolean isValidationDue =
+				now - pooledConnection.lastValidatedTime() >= jdbcDriverInfo.getValidationInterval();
+			
+			if(!isExpired && !isIdleTooLong && !isValidationDue) {
+				continue;
+			}
+			
+			if(!this.permits.tryAcquire()) {
+				return;
+			}
+			
+			try {
+				
+				// Borrowed since the iteration started
+				if(!this.idleConnections.remove(pooledConnection)) {
+					continue;
+				}
+				
+				if(isExpired) {
+					
+					this.evict(pooledConnection);
+					
+				} else if(isIdleTooLong) {
+					
+					this.discard(pooledConnection);
+					
+				} else if(pooledConnection.validate(this.dbConnection.getValidationQuery(), Config.DB_CONNECTION_VALIDATION_TIMEOUT)) {
+					
+					this.putBack(pooledConnection, false);
+					
+				} else {
+					
+					this.evict(pooledConnection);
+					
+				}
+				
+			} finally {
+				
+				this.permits.release();
+				
+			}
+			
+		}
+		
+		this.reconnect();
+		
+	}
+	
+	/*
+	** Reopens evicted connections, backing off exponentially while the
+	** backend keeps refusing them.
+	*/
+	private void reconnect() {
+		
+		while(!this.isClosed && this.replacementsNeeded.get() > 0) {
+			
+			if(System.currentTimeMillis() < this.nextReconnectTime) {
+				return;
+			}
+			
+			if(!this.permits.tryAcquire()) {
+				return;
+			}
+			
+			if(!this.reserve()) {
+				this.permits.release();
+				this.replacementsNeeded.set(0);
+				return;
+			}
+			
+			try {
+				
+				this.putBack(this.open(), true);
+				
+				this.replacementsNeeded.decrementAndGet();
+				this.reconnectBackoff = 0;
+				this.lastError = "";
+				
+			} catch(Exception e) {
+				
+				this.reconnectBackoff =
+					Math.min(
+						Math.max(this.reconnectBackoff * 2, Config.DB_CONNECTION_RECONNECT_BACKOFF_MIN),
+						Config.DB_CONNECTION_RECONNECT_BACKOFF_MAX
+					);
+				
+				this.nextReconnectTime =
+					System.currentTimeMillis() + this.reconnectBackoff;
+				
+				this.lastError = (e.getMessage() != null ? e.getMessage() : e.toString());
+				
+				System.out.println(
+					"Reconnect to \"" + this.dbConnection.getConnectionName() + "\" failed, retrying in " + this.reconnectBackoff + " ms: " + this.lastError
+				);
+				
+				return;
+				
+			} finally {
+				
+				this.permits.release();
+				
+			}
+			
+		}
+		
+	}
+	
+	public String getLastError() {
+		return this.lastError;
+	}
+	
+	public boolean isClosed() {
+		return this.isClosed;
+	}
+	
+	public int size() {
+		return this.size.get();
+	}
+	
+	public int maxSize() {
+		return this.maxSize;
+	}
+	
+	public int idleCount() {
+		return this.idleConnections.size();
+	}
+	
+	public int borrowedCount() {
+		return this.borrowedConnections.size();
+	}
+	
+	public int waitingCount() {
+		return this.permits.getQueueLength();
+	}
+	
+	/*
+	** Connections borrowed for longer than Config.DB_CONNECTION_LEAK_THRESHOLD.
+	*/
+	public int leakCount() {
+		
+		long now = System.currentTimeMillis();
+		int leakCount = 0;
+		
+		for(PooledConnection pooledConnection : this.borrowedConnections.values()) {
+			
+			if(now - pooledConnection.borrowedTime() >= Config.DB_CONNECTION_LEAK_THRESHOLD) {
+				leakCount++;
+			}
+			
+		}
+		
+		return leakCount;
+		
+	}
+	
+	public void reportLeaks() {
+		
+		long now = System.currentTimeMillis();
+		
+		for(PooledConnection pooledConnection : this.borrowedConnections.values()) {
+			
+			long heldFor = now - pooledConnection.borrowedTime();
+			
+			if(heldFor < Config.DB_CONNECTION_LEAK_THRESHOLD) {
+				continue;
+			}
+			
+			System.out.println(
+				"Possible connection leak on \"" + this.dbConnection.getConnectionName() + "\": " +
+				"held by " + pooledConnection.borrower() + " for " + heldFor + " ms."
+			);
+			
+			StackTraceElement[] borrowStackTrace =
+				pooledConnection.borrowStackTrace();
+			
+			if(borrowStackTrace != null) {
+				
+				for(StackTraceElement stackTraceElement : borrowStackTrace) {
+					System.out.println("\tat " + stackTraceElement);
+				}
+				
+			}
+			
+		}
+		
+	}
+	
+	public JSONBuilder getJSONBuilder() {
+		return
+			JSONBuilder.f().
+				$('{').
+					k("size").v(this.size()).
+					k("maxSize").v(this.maxSize()).
+					k("idle").v(this.idleCount()).
+					k("borrowed").v(this.borrowedCount()).
+					k("waiting").v(this.waitingCount()).
+					k("leaks").v(this.leakCount()).
+					k("replacementsPending").v(this.replacementsNeeded.get()).
+					k("lastError").v(this.getLastError()).
+				$('}');
+	}
+	
+}
\ No newline at end of file
@@ -13,8 +13,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-public class DBConnectionValidationThreadSignal {
-	
-	public boolean validationQueryReturned;
-	
+public enum DBConnectionState {
+	DISCONNECTED,
+	CONNECTING,
+	CONNECTED,
+	FAILED;
 }
\ No newline at end of file
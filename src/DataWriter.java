@@ -14,6 +14,9 @@
  * limitations under the License.
  */
 import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Base64;
 
 public class DataWriter {
 	public static final String FIELD_SEPARATOR = ",";
@@ -31,6 +34,11 @@ public class DataWriter {
 		return this.recordCount;
 	}
 	
+	// Continues a count of rows written elsewhere, see PartitionedExtract
+	public void setRecordCount(int recordCount) {
+		this.recordCount = recordCount;
+	}
+	
 	public DataWriterType getDataWriterType() {
 		return this.dataWriterType;
 	}
@@ -63,6 +71,22 @@ public class DataWriter {
 		;
 	}
 	
+	public void entry(long entry, int entryId) {
+		;
+	}
+	
+	public void entry(BigDecimal entry, int entryId) {
+		;
+	}
+	
+	public void entry(Timestamp entry, int entryId) {
+		;
+	}
+	
+	public void entry(byte[] entry, int entryId) {
+		;
+	}
+	
 	public void nullEntry(int entryId) {
 		;
 	}
@@ -79,6 +103,35 @@ public class DataWriter {
 		;
 	}
 	
+	/*
+	** Called after endRow() for every row, lets a streaming
+	** output decide whether to flush.
+	*/
+	public void rowWritten() {
+		if(this.out instanceof StreamingPrintWriter) {
+			((StreamingPrintWriter)this.out).rowWritten();
+		}
+	}
+	
+	/*
+	** True once a streaming output has failed to reach the client.
+	*/
+	public boolean isOutputBroken() {
+		return (this.out instanceof StreamingPrintWriter) && ((StreamingPrintWriter)this.out).isClientGone();
+	}
+	
+	/*
+	** Written between the rows of two outputs of this writer type
+	** when they are concatenated.
+	*/
+	public String fragmentSeparator() {
+		return "";
+	}
+	
+	public String representBytes(byte[] entry) {
+		return Base64.getEncoder().encodeToString(entry);
+	}
+	
 	public String representNull(double entry) {
 		return (!Double.isNaN(entry) ? entry + "" : "null");
 	}
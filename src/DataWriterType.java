@@ -17,7 +17,8 @@ public enum DataWriterType {
 	CSV(0),
 	JSON_TABULAR(1),
 	JSON(2),
-	PERSISTED_RESULTSET(3);
+	PERSISTED_RESULTSET(3),
+	QUERY_JOB_SPOOL(4);
 	
 	public static final int SIZE = DataWriterType.values().length;
 	
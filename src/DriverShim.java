@@ -19,6 +19,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.DriverPropertyInfo;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.lang.reflect.Method;
@@ -29,6 +30,10 @@ public class DriverShim implements Driver {
 
 	private static final DriverShimClassLoader classLoader =
 		new DriverShimClassLoader(new URL[0], DriverShim.class.getClassLoader());
+	
+	// One loaded driver per driver path and class name
+	private static final ConcurrentHashMap<String, Driver> drivers =
+		new ConcurrentHashMap<String, Driver>();
 
 	private Driver driver;
 	
@@ -94,24 +99,92 @@ public class DriverShim implements Driver {
 		
 	}
 
-	private static void registerDriver(String jdbcDriverPath, String className) throws SQLException, Exception {
+	/*
+	** Loads and registers the driver the first time it is asked for. Later
+	** calls return the cached instance without touching the file system.
+	*/
+	private static Driver getDriver(String jdbcDriverPath, String className) throws SQLException, Exception {
+		
+		String key = jdbcDriverPath + "\n" + className;
+		
+		Driver driver = drivers.get(key);
+		
+		if(driver != null) {
+			return driver;
+		}
+		
+		synchronized(drivers) {
+			
+			driver = drivers.get(key);
+			
+			if(driver == null) {
+				
+				driver = DriverShim.registerDriver(jdbcDriverPath, className);
+				
+				drivers.put(key, driver);
+				
+			}
+			
+		}
+		
+		return driver;
+		
+	}
+
+	private static Driver registerDriver(String jdbcDriverPath, String className) throws SQLException, Exception {
 		DriverShim.updateClassPath(jdbcDriverPath);
 	
 		URL u = new URL("jar:file:" + jdbcDriverPath + "!/");
 		String classname = className;
 		URLClassLoader ucl = new URLClassLoader(new URL[] { u });
 		Driver d = (Driver)Class.forName(classname, true, ucl).newInstance();
+		
+		// Still registered for scripts that go through DriverManager themselves
 		DriverManager.registerDriver(new DriverShim(d));
+		
+		return d;
+	}
+	
+	/*
+	** Connects through the driver directly instead of letting DriverManager
+	** try every registered driver in turn.
+	*/
+	private static Connection connect(Driver driver, String connectionString, Properties properties) throws SQLException {
+		
+		Connection connection =
+			driver.connect(connectionString, properties);
+		
+		if(connection == null) {
+			throw new SQLException("No suitable driver found for " + connectionString, "08001");
+		}
+		
+		return connection;
+		
 	}
 
 	public static Connection getConnection(String jdbcDriverPath, String className, String connectionString) throws SQLException, Exception {
-		DriverShim.registerDriver(jdbcDriverPath, className);
-		return DriverManager.getConnection(connectionString);
+		return DriverShim.connect(
+			DriverShim.getDriver(jdbcDriverPath, className),
+			connectionString,
+			new Properties()
+		);
 	}
 	
 	public static Connection getConnection(String jdbcDriverPath, String className, String connectionString, String user, String passWord) throws SQLException, Exception {
-		DriverShim.registerDriver(jdbcDriverPath, className);		
-		return DriverManager.getConnection(connectionString, user, passWord);
+		Properties properties = new Properties();
+		
+		if(user != null) {
+			properties.put("user", user);
+		}
+		
+		if(passWord != null) {
+			properties.put("password", passWord);
+		}
 		
+		return DriverShim.connect(
+			DriverShim.getDriver(jdbcDriverPath, className),
+			connectionString,
+			properties
+		);
 	}
 }
\ No newline at end of file
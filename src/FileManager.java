@@ -28,15 +28,23 @@ import java.io.PrintWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.net.URL;
 
 import java.util.ArrayList;
 
 public class FileManager implements Serializable {
 	
+	private static final long serialVersionUID = -1680036215136298349L;
+	
+	private static final int FILE_COPY_BUFFER_SIZE = 65536;
+	
 	private HashMap<String, WebServerFile> outputFiles;
 
 	private transient JarFile jarFile;
+	private transient ResourceCache resourceCache;
 	
 	public FileManager() {
 		
@@ -47,6 +55,7 @@ public class FileManager implements Serializable {
 
 	public void setJarFile(JarFile jarFile) {
 		this.jarFile = jarFile;
+		this.resourceCache = new ResourceCache(jarFile);
 	}
 	
 	/*
@@ -54,28 +63,18 @@ public class FileManager implements Serializable {
 	*/
 	public boolean isResourceFile(String fileName) throws Exception {
 		
-		String jarEntryFileName = fileName;
-		
-		if(jarFile.getEntry(fileName) != null) {
-			
-			return true;
-			
-		}
-		
-		if(jarEntryFileName.length() >= 1) {
-			if(jarEntryFileName.substring(0,1).equals("/".intern())) {
-				jarEntryFileName = "..".intern() + jarEntryFileName.intern();
-			} else if(!jarEntryFileName.substring(0,1).equals("/".intern())) {
-				jarEntryFileName = "../".intern() + jarEntryFileName.intern();
-			}
-		}
-		
-		return (jarFile.getEntry(jarEntryFileName) != null);
+		return this.resourceCache.contains(fileName);
 		
 	}
 
 	public String fixJarEntryFileName(String fileName) {
-		String jarEntryFileName = fileName;
+		String jarEntryFileName = this.resourceCache.getEntryName(fileName);
+		
+		if(jarEntryFileName != null) {
+			return jarEntryFileName;
+		}
+		
+		jarEntryFileName = fileName;
 
 		if(jarFile.getEntry(fileName) == null) {
 
@@ -92,6 +91,76 @@ public class FileManager implements Serializable {
 		return jarEntryFileName;
 	}
 	
+	/*
+	** Serve a complete response for a jar resource from ResourceCache.
+	** Answers If-None-Match with 304 and sends the gzip compressed copy
+	** to clients that accept it.
+	*/
+	public void serveResourceFile(DataOutputStream output, HttpRequest httpRequest, String fileName, String contentType, byte[] resourceFileBytes) throws Exception {
+		
+		CachedResource cachedResource =
+			this.resourceCache.get(fileName);
+		
+		if(cachedResource == null) {
+			
+			// Too large to be cached, stream it from the jar
+			HttpResponse.header(
+				output,
+				contentType,
+				-1
+			);
+			
+			this.serveResourceFile(
+				output,
+				fileName,
+				resourceFileBytes
+			);
+			
+			return;
+			
+		}
+		
+		boolean useGzip =
+			cachedResource.hasGzipBytes() &&
+			httpRequest.acceptsEncoding("gzip");
+		
+		String eTag =
+			(useGzip ? cachedResource.gzipETag() : cachedResource.eTag());
+		
+		if(httpRequest.matchesETag(eTag)) {
+			
+			HttpResponse.notModified(
+				output,
+				eTag
+			);
+			
+			return;
+			
+		}
+		
+		byte[] bytes =
+			(useGzip ? cachedResource.gzipBytes() : cachedResource.bytes());
+		
+		output.writeBytes(HttpResponse.defaultHeader);
+		
+		if(contentType != null) {
+			output.writeBytes("Content-Type: " + contentType + HttpResponse.NEW_LINE);
+		}
+		
+		if(useGzip) {
+			output.writeBytes("Content-Encoding: gzip" + HttpResponse.NEW_LINE);
+		}
+		
+		output.writeBytes("Content-Length: " + bytes.length + HttpResponse.NEW_LINE);
+		output.writeBytes("ETag: " + eTag + HttpResponse.NEW_LINE);
+		output.writeBytes("Vary: Accept-Encoding" + HttpResponse.NEW_LINE);
+		output.writeBytes("Last-Modified: " + Utils.getHttpDate(cachedResource.lastModified()) + HttpResponse.NEW_LINE);
+		output.writeBytes(HttpResponse.NEW_LINE);
+		
+		output.write(bytes, 0, bytes.length);
+		
+	}
+	
 	/*
 	** Read a file from a jar and write to DataOutputStream
 	*/
@@ -107,19 +176,12 @@ public class FileManager implements Serializable {
 			);
 		
 		BufferedInputStream bis = null;
-		int bytesRead = 0, totalBytesRead = 0;
+		int bytesRead = 0;
 		
 		bis = new BufferedInputStream(is);
 		
 		while((bytesRead = bis.read(resourceFileBytes, 0, resourceFileBytes.length)) > -1) {
-			totalBytesRead += bytesRead;
-			if(totalBytesRead % resourceFileBytes.length == 0) {
-				output.write(resourceFileBytes, 0, resourceFileBytes.length);
-			}
-		}
-		
-		if(totalBytesRead % resourceFileBytes.length > 0) {
-			output.write(resourceFileBytes, 0, totalBytesRead % resourceFileBytes.length);
+			output.write(resourceFileBytes, 0, bytesRead);
 		}
 	    
 		bis.close();
@@ -286,6 +348,39 @@ public class FileManager implements Serializable {
 		
 	}
 	
+	/*
+	** Write text fileData to fileName as it is read. A body consisting of
+	** just Config.CLOSEFILE closes the file, as for writeToFile above.
+	*/
+	public void writeToFile(String fileName, InputStream fileData) throws Exception {
+		
+		Reader reader =
+			new InputStreamReader(fileData, StandardCharsets.UTF_8);
+		
+		char[] buffer = new char[FileManager.FILE_COPY_BUFFER_SIZE];
+		int charsRead = 0;
+		int n;
+		
+		// Fill the first buffer so the close marker can be recognized
+		while(charsRead < buffer.length && (n = reader.read(buffer, charsRead, buffer.length - charsRead)) != -1) {
+			charsRead += n;
+		}
+		
+		this.writeToFile(fileName, new String(buffer, 0, charsRead));
+		
+		if(charsRead < buffer.length) {
+			return;
+		}
+		
+		WebServerFile webServerFile =
+			this.outputFiles.get(fileName);
+		
+		while((charsRead = reader.read(buffer, 0, buffer.length)) != -1) {
+			webServerFile.print(new String(buffer, 0, charsRead), true);
+		}
+		
+	}
+	
 	/*
 	** Write binary fileData to fileName
 	*/
@@ -303,6 +398,35 @@ public class FileManager implements Serializable {
 		
 	}
 	
+	/*
+	** Write binary fileData to fileName as it is read, e.g. straight from
+	** a request body
+	*/
+	public void writeToBinaryFile(String fileName, InputStream fileData) throws Exception {
+		
+		// Create directories recursively if they don't exist
+		(new File(fileName.substring(0,fileName.lastIndexOf('/')))).mkdirs();
+		
+		FileOutputStream fos =
+			new FileOutputStream(fileName, false);
+		
+		byte[] buffer = new byte[FileManager.FILE_COPY_BUFFER_SIZE];
+		int bytesRead;
+		
+		try {
+			
+			while((bytesRead = fileData.read(buffer, 0, buffer.length)) != -1) {
+				fos.write(buffer, 0, bytesRead);
+			}
+			
+		} finally {
+			
+			fos.close();
+			
+		}
+		
+	}
+	
 	/*
 	** Read contents from URL and write to DataOutputStream
 	*/
@@ -19,12 +19,16 @@ import java.io.FileOutputStream;
 import java.io.ObjectOutputStream;
 import java.io.FileInputStream;
 import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.InputStream;
 import java.io.IOException;
 import java.io.File;
 import java.util.jar.JarFile;
 
 public class FuseBase implements Serializable {
 	
+	private static final long serialVersionUID = -4475627735236540811L;
+	
 	private String fuseBaseSerializationFilename;
 	
 	public DBConnectionManager dbConnectionManager;
@@ -41,6 +45,8 @@ public class FuseBase implements Serializable {
 
 	private transient JarFile jarFile;
 	
+	private transient HTTPServer httpServer;
+	
 	public FuseBase(String fuseBaseSerializationFilename) throws Exception {
 		
 		this.fuseBaseSerializationFilename = fuseBaseSerializationFilename;
@@ -67,6 +73,14 @@ public class FuseBase implements Serializable {
 		return this.scriptAPI;
 	}
 	
+	public HTTPServer httpServer() {
+		return this.httpServer;
+	}
+	
+	public void setHTTPServer(HTTPServer httpServer) {
+		this.httpServer = httpServer;
+	}
+	
 	public void createScriptAPI() {
 		Script.setFuseBaseInstance(this);
 		this.scriptAPI = new ScriptAPI(this);
@@ -144,34 +158,44 @@ public class FuseBase implements Serializable {
 		}
 	}
 	
-	private static FuseBase deserialize(String fuseBaseSerializationFilename) {
+	/*
+	** Startup fails if the state cannot be read. Starting empty instead
+	** would drop all users, connections and queries, and overwrite the
+	** state file at shutdown.
+	*/
+	private static FuseBase deserialize(String fuseBaseSerializationFilename) throws Exception {
 		FuseBase fuseBase = null;
 		
 		try {
 			FileInputStream fileIn = new FileInputStream(fuseBaseSerializationFilename);
-			ObjectInputStream in = new ObjectInputStream(fileIn);
-			
-			fuseBase = (FuseBase)in.readObject();
-			
-			in.close();
-			fileIn.close();
-			
-			//fuseBase.dbConnectionManager.connectAll();
-			
-			fuseBase.scheduler().initialize();
-			fuseBase.scheduler().setScriptAPI(fuseBase.scriptAPI());
-			
-			fuseBase.userManager.startSessionCleaner();
-			
-			fuseBase.exportManager = new ExportManager(fuseBase);
-			
-			fuseBase.addShutdownHook();
+			ObjectInputStream in = new StateInputStream(fileIn);
 			
+			try {
+				fuseBase = (FuseBase)in.readObject();
+			} finally {
+				in.close();
+				fileIn.close();
+			}
 		} catch(Exception e) {
-			// TODO: Add logging
-			System.out.println(e.getMessage());
+			throw new Exception(
+				"Failed to read the FuseBase state in \"" + fuseBaseSerializationFilename + "\": " + e +
+				". The file is left as it is. Restore a readable copy, or move it away to start empty.",
+				e
+			);
 		}
 		
+		// Reconnect what was connected before, without holding up startup
+		fuseBase.dbConnectionManager.connectInBackground(true);
+		
+		fuseBase.scheduler().initialize();
+		fuseBase.scheduler().setScriptAPI(fuseBase.scriptAPI());
+		
+		fuseBase.userManager.startSessionCleaner();
+		
+		fuseBase.exportManager = new ExportManager(fuseBase);
+		
+		fuseBase.addShutdownHook();
+		
 		return fuseBase;
 	}
 	
@@ -181,6 +205,12 @@ public class FuseBase implements Serializable {
 			Unsecured:
 				nohup java -jar fusebase.jar -port=80 > log.txt &
 			
+			Unsecured, non-blocking I/O:
+				nohup java -jar fusebase.jar -port=80 -useNIO=true > log.txt &
+			
+			Virtual thread per connection (Java 21+), also with -useHttps=true:
+				nohup java -jar fusebase.jar -port=80 -useVirtualThreads=true > log.txt &
+			
 			Secured:
 				nohup java -jar fusebase.jar -useHttps=true -sslCertificateFileName=NameOfCertificate -sslKeyStorePassword=Password
 				
@@ -202,6 +232,16 @@ public class FuseBase implements Serializable {
 			Boolean.parseBoolean(
 				parameters.get("useHttps", "false")
 			);
+		
+		boolean useNIO =
+			Boolean.parseBoolean(
+				parameters.get("useNIO", "false")
+			);
+		
+		boolean useVirtualThreads =
+			Boolean.parseBoolean(
+				parameters.get("useVirtualThreads", "false")
+			);
 
 		JDBCDriverInfo.readInfoFromFile(null);
 		
@@ -215,14 +255,34 @@ public class FuseBase implements Serializable {
 				fuseBase
 			);
 		
-		if(!useHttps) {
+		if(!useHttps && useNIO) {
+			
+			NIOHTTPServer httpServer =
+				new NIOHTTPServer(
+					port,
+					fuseBaseWebServer,
+					Config.HTTP_SERVER_MIN_THREAD_COUNT,
+					Config.HTTP_SERVER_MAX_THREAD_COUNT,
+					Config.HTTP_SERVER_NIO_EVENT_LOOP_COUNT
+				);
+			
+			fuseBase.setHTTPServer(httpServer);
+
+			httpServer.runServer();
+			
+		} else if(!useHttps) {
 			
 			HTTPServer httpServer =
 				new HTTPServer(
 					port,
 					fuseBaseWebServer,
-					Config.HTTP_SERVER_THREAD_COUNT
+					Config.HTTP_SERVER_MIN_THREAD_COUNT,
+					Config.HTTP_SERVER_MAX_THREAD_COUNT
 				);
+			
+			httpServer.setUseVirtualThreads(useVirtualThreads);
+			
+			fuseBase.setHTTPServer(httpServer);
 
 			httpServer.runServer();
 			
@@ -248,8 +308,13 @@ public class FuseBase implements Serializable {
 						"./ssl/" + sslCertificateFileName
 					),
 					sslKeyStorePassword,
-					Config.HTTP_SERVER_THREAD_COUNT
+					Config.HTTP_SERVER_MIN_THREAD_COUNT,
+					Config.HTTP_SERVER_MAX_THREAD_COUNT
 				);
+			
+			httpServer.setUseVirtualThreads(useVirtualThreads);
+			
+			fuseBase.setHTTPServer(httpServer);
 
 			httpServer.runServer();
 			
@@ -257,4 +322,42 @@ public class FuseBase implements Serializable {
 		
 	}
 	
+	/*
+	** The released fusebase.jar and builds from source compute different
+	** implicit serialVersionUIDs for FuseBase and DBConnection, from the
+	** synthetic methods their compilers generate, while the fields are the
+	** same. State files written by either are read with the local class.
+	*/
+	private static class StateInputStream extends ObjectInputStream {
+		
+		private static final HashMap<String, Long> alternateSerialVersionUIDs = new HashMap<String, Long>();
+		
+		static {
+			// Source build
+			alternateSerialVersionUIDs.put("FuseBase", -2275207956632155370L);
+			// Released fusebase.jar
+			alternateSerialVersionUIDs.put("DBConnection", 4470351875154571310L);
+		}
+		
+		public StateInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+		
+		protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+			
+			ObjectStreamClass streamClass = super.readClassDescriptor();
+			
+			Long alternateSerialVersionUID =
+				alternateSerialVersionUIDs.get(streamClass.getName());
+			
+			if(alternateSerialVersionUID != null && alternateSerialVersionUID.longValue() == streamClass.getSerialVersionUID()) {
+				return ObjectStreamClass.lookup(Class.forName(streamClass.getName()));
+			}
+			
+			return streamClass;
+			
+		}
+		
+	}
+	
 }
\ No newline at end of file
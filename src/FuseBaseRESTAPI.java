@@ -14,12 +14,14 @@
  * limitations under the License.
  */
 import java.io.DataOutputStream;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.net.URLDecoder;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.ArrayList;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.lang.StringBuffer;
@@ -509,6 +511,17 @@ public class FuseBaseRESTAPI {
 		
 	}
 	
+	private String getUsername(FuseBaseRESTAPICall c) {
+		
+		UserSession userSession =
+			FuseBase.userManager.getUserSession(
+				this.getSessionKey(c.httpRequest())
+			);
+		
+		return (userSession != null ? userSession.user().username() : null);
+		
+	}
+	
 	private boolean isAuthorized(String sessionKey, String privilegeKey) {
 		
 		if(sessionKey != null) {
@@ -1401,11 +1414,47 @@ public class FuseBaseRESTAPI {
 				)
 			);
 		
+		int flushRows =
+			Integer.parseInt(
+				c.httpRequest().parameter(
+					"flushRows",
+					Config.SQL_STREAMING_FLUSH_ROWS + ""
+				)
+			);
+		
+		long flushBytes =
+			Long.parseLong(
+				c.httpRequest().parameter(
+					"flushBytes",
+					Config.SQL_STREAMING_FLUSH_BYTES + ""
+				)
+			);
+		
+		int fetchSize =
+			Integer.parseInt(
+				c.httpRequest().parameter(
+					"fetchSize",
+					"0"
+				)
+			);
+		
+		int queryTimeout =
+			Integer.parseInt(
+				c.httpRequest().parameter(
+					"queryTimeout",
+					"0"
+				)
+			);
+		
 		this.connections_query(
 			connectionName,
 			query,
 			queryType,
 			outputType,
+			flushRows,
+			flushBytes,
+			fetchSize,
+			queryTimeout,
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -1421,6 +1470,14 @@ public class FuseBaseRESTAPI {
 									QueryType queryType,
 									@Parameter(name="outputType", required=false)
 									OutputType outputType,
+									@Parameter(name="flushRows", required=false)
+									int flushRows,
+									@Parameter(name="flushBytes", required=false)
+									long flushBytes,
+									@Parameter(name="fetchSize", required=false)
+									int fetchSize,
+									@Parameter(name="queryTimeout", required=false)
+									int queryTimeout,
 									@Parameter(name="jsonCallbackFunction", required=false)
 									String jsonCallbackFunction,
 									FuseBaseRESTAPICall c
@@ -1432,6 +1489,11 @@ public class FuseBaseRESTAPI {
 			query,
 			queryType,
 			outputType,
+			flushRows,
+			flushBytes,
+			fetchSize,
+			queryTimeout,
+			0,
 			jsonCallbackFunction,
 			c
 		);
@@ -1461,11 +1523,47 @@ public class FuseBaseRESTAPI {
 				)
 			);
 		
+		int flushRows =
+			Integer.parseInt(
+				c.httpRequest().parameter(
+					"flushRows",
+					Config.SQL_STREAMING_FLUSH_ROWS + ""
+				)
+			);
+		
+		long flushBytes =
+			Long.parseLong(
+				c.httpRequest().parameter(
+					"flushBytes",
+					Config.SQL_STREAMING_FLUSH_BYTES + ""
+				)
+			);
+		
+		int fetchSize =
+			Integer.parseInt(
+				c.httpRequest().parameter(
+					"fetchSize",
+					"0"
+				)
+			);
+		
+		int queryTimeout =
+			Integer.parseInt(
+				c.httpRequest().parameter(
+					"queryTimeout",
+					"0"
+				)
+			);
+		
 		this.connections_registeredquery(
 			connectionName,
 			queryId,
 			queryType,
 			outputType,
+			flushRows,
+			flushBytes,
+			fetchSize,
+			queryTimeout,
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -1481,6 +1579,14 @@ public class FuseBaseRESTAPI {
 												QueryType queryType,
 												@Parameter(name="outputType", required=false)
 												OutputType outputType,
+												@Parameter(name="flushRows", required=false)
+												int flushRows,
+												@Parameter(name="flushBytes", required=false)
+												long flushBytes,
+												@Parameter(name="fetchSize", required=false)
+												int fetchSize,
+												@Parameter(name="queryTimeout", required=false)
+												int queryTimeout,
 												@Parameter(name="jsonCallbackFunction", required=false)
 												String jsonCallbackFunction,
 												FuseBaseRESTAPICall c
@@ -1511,6 +1617,11 @@ public class FuseBaseRESTAPI {
 					query.getQuery(),
 					queryType,
 					outputType,
+					flushRows,
+					flushBytes,
+					fetchSize,
+					queryTimeout,
+					query.getCacheTTL(),
 					jsonCallbackFunction,
 					c
 				);
@@ -1533,6 +1644,11 @@ public class FuseBaseRESTAPI {
 									String query,
 									QueryType queryType,
 									OutputType outputType,
+									int flushRows,
+									long flushBytes,
+									int fetchSize,
+									int queryTimeout,
+									int cacheTTL,
 									String jsonCallbackFunction,
 									FuseBaseRESTAPICall c			) throws Exception {
 		
@@ -1548,16 +1664,28 @@ public class FuseBaseRESTAPI {
 		
 		}
 		
-		if(query != null && !query.equals("")) {
-			for(String key : c.httpRequest().getParameterKeys()) {
-				if(key.substring(0,1).equals(":")) {
-					if(c.httpRequest().parameter(key) != null) {
-						query = query.replaceAll(key, c.httpRequest().parameter(key));
-					}
+		// ":name" request parameters, bound to the statement unless DDL
+		HashMap<String, String> parameters = new HashMap<String, String>();
+		
+		for(String key : c.httpRequest().getParameterKeys()) {
+			if(key.substring(0,1).equals(":")) {
+				if(c.httpRequest().parameter(key) != null) {
+					parameters.put(key, c.httpRequest().parameter(key));
 				}
 			}
 		}
 		
+		if(query != null && queryType == QueryType.DDL) {
+			query = NamedParameterQuery.substitute(query, parameters);
+		}
+		
+		QueryOptions queryOptions =
+			new QueryOptions(
+				fetchSize,
+				queryTimeout,
+				this.getUsername(c)
+			);
+		
 		if(query == null) {
 		
 			this.apiResponseError(
@@ -1573,7 +1701,13 @@ public class FuseBaseRESTAPI {
 		if(queryType == QueryType.SQL) {
 		
 			DataWriter dataWriter = null;
-			PrintWriter printOutput = new PrintWriter(c.output());
+			// Rows are sent as HTTP chunks while the result set is fetched
+			StreamingPrintWriter printOutput =
+				new StreamingPrintWriter(
+					c.output(),
+					flushRows,
+					flushBytes
+				);
 			String[] headers = HttpResponse.JSON_HEADERS;
 			
 			DataWriterType dataWriterType =
@@ -1596,12 +1730,62 @@ public class FuseBaseRESTAPI {
 					break;
 			}
 		
+			boolean isJSONP =
+				(dataWriterType == DataWriterType.JSON || dataWriterType == DataWriterType.JSON_TABULAR) &&
+				c.jsonCallbackFunction() != null;
+			
+			// Registered queries with a cacheTTL are answered from the result cache
+			String cacheKey = null;
+			
+			if(cacheTTL > 0) {
+				
+				cacheKey =
+					QueryResultCache.key(
+						connectionName,
+						query,
+						parameters,
+						outputType
+					);
+				
+				byte[] cachedResult =
+					FuseBase.queryManager.resultCache().get(cacheKey);
+				
+				if(cachedResult != null) {
+					
+					HttpResponse.header(
+						c.output(),
+						headers
+					);
+					
+					if(isJSONP) {
+						printOutput.print(c.jsonCallbackFunction() + "(");
+						printOutput.flush();
+					}
+					
+					c.output().write(cachedResult, 0, cachedResult.length);
+					
+					if(isJSONP) {
+						printOutput.print(");");
+					}
+					
+					printOutput.flush();
+					
+					return;
+					
+				}
+				
+			}
+		
+			QueryObject queryObject = null;
+		
 			try {
 		
-				QueryObject queryObject =
-					FuseBase.queryManager.getQueryObject(
+				queryObject =
+					FuseBase.queryManager.getSharedQueryObject(
 						connectionName,
-						query
+						query,
+						parameters,
+						queryOptions
 					);
 		
 				HttpResponse.header(
@@ -1609,20 +1793,41 @@ public class FuseBaseRESTAPI {
 					headers
 				);
 		
-				if(	(dataWriterType == DataWriterType.JSON || dataWriterType == DataWriterType.JSON_TABULAR) &&
-					c.jsonCallbackFunction() != null	) {
+				if(isJSONP) {
 		
 					printOutput.print(c.jsonCallbackFunction() + "(");
 		
 				}
+				
+				if(cacheKey != null) {
+					printOutput.startCapture(Config.QUERY_RESULT_CACHE_MAX_ENTRY_SIZE);
+				}
 		
 				FuseBase.queryManager.printResultSet(
 					queryObject,
 					dataWriter
 				);
+				
+				if(cacheKey != null) {
+					
+					String result =
+						printOutput.stopCapture();
+					
+					if(result != null) {
+						
+						FuseBase.queryManager.resultCache().put(
+							cacheKey,
+							connectionName,
+							query,
+							result,
+							cacheTTL
+						);
+						
+					}
+					
+				}
 		
-				if(	(dataWriterType == DataWriterType.JSON || dataWriterType == DataWriterType.JSON_TABULAR) &&
-					c.jsonCallbackFunction() != null	) {
+				if(isJSONP) {
 		
 					printOutput.print(");");
 		
@@ -1641,6 +1846,12 @@ public class FuseBaseRESTAPI {
 		
 				return;
 		
+			} finally {
+		
+				if(queryObject != null) {
+					queryObject.close();
+				}
+		
 			}
 		
 		} else if(queryType == QueryType.DML) {
@@ -1650,7 +1861,9 @@ public class FuseBaseRESTAPI {
 				int recordCount =
 					FuseBase.queryManager.dml(
 						connectionName,
-						query
+						query,
+						parameters,
+						queryOptions
 					);
 		
 				this.apiResponseSuccess(
@@ -1711,10 +1924,19 @@ public class FuseBaseRESTAPI {
 			query = this.replaceURL(c.httpRequest().parameter("query")),
 			queryId = c.httpRequest().parameter("queryId");
 		
+		int cacheTTL =
+			Integer.parseInt(
+				c.httpRequest().parameter(
+					"cacheTTL",
+					"0"
+				)
+			);
+		
 		this.connections_query_register(
 			connectionName,
 			query,
 			queryId,
+			cacheTTL,
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -1728,6 +1950,8 @@ public class FuseBaseRESTAPI {
 											String query,
 											@Parameter(name="queryId")
 											String queryId,
+											@Parameter(name="cacheTTL", required=false)
+											int cacheTTL,
 											@Parameter(name="jsonCallbackFunction", required=false)
 											String jsonCallbackFunction,
 											FuseBaseRESTAPICall c
@@ -1738,7 +1962,8 @@ public class FuseBaseRESTAPI {
 			FuseBase.queryManager.addOrUpdateQuery(
 				queryId,
 				query,
-				connectionName
+				connectionName,
+				cacheTTL
 			);
 		
 		if(mapAction == MapAction.ADD) {
@@ -1807,42 +2032,135 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void files_directorylisting(FuseBaseRESTAPICall c) throws Exception {
+	public void connections_query_submit(FuseBaseRESTAPICall c) throws Exception {
 		
-		String path =
-			this.replaceURL(
-				c.httpRequest().parameter("path")
+		String
+			connectionName = c.httpRequest().parameter("connectionName"),
+			query = this.replaceURL(c.httpRequest().parameter("query"));
+		
+		int fetchSize =
+			Integer.parseInt(
+				c.httpRequest().parameter(
+					"fetchSize",
+					"0"
+				)
 			);
 		
-		this.files_directorylisting(
+		int queryTimeout =
+			Integer.parseInt(
+				c.httpRequest().parameter(
+					"queryTimeout",
+					"0"
+				)
+			);
+		
+		this.connections_query_submit(
+			connectionName,
+			query,
+			fetchSize,
+			queryTimeout,
 			c.jsonCallbackFunction(),
-			path,
 			c
 		);
-
+		
 	}
 	
+	/*
+	** Starts the query as a job and replies at once with its jobId. Rows
+	** are fetched with api/connections/query/fetch.
+	*/
 	@API(type=HttpRequestType.GET)
-	public void files_directorylisting(	@Parameter(name="jsonCallbackFunction", required=false)
-										String jsonCallbackFunction,
-										@Parameter(name="path")
-										String path,
-										FuseBaseRESTAPICall c
-										
-										) throws Exception {
+	public void connections_query_submit(	@Parameter(name="connectionName", validValuesClass=DBConnectionManager.class)
+											String connectionName,
+											@Parameter(name="query")
+											String query,
+											@Parameter(name="fetchSize", required=false)
+											int fetchSize,
+											@Parameter(name="queryTimeout", required=false)
+											int queryTimeout,
+											@Parameter(name="jsonCallbackFunction", required=false)
+											String jsonCallbackFunction,
+											FuseBaseRESTAPICall c
+											
+											) throws Exception {
+		
+		if(!FuseBase.dbConnectionManager.hasConnection(connectionName)) {
+			
+			this.apiResponseError(
+				c.output(),
+				"Connection \"" + connectionName + "\" does not exist.",
+				c.jsonCallbackFunction()
+			);
+			
+			return;
+			
+		}
+		
+		if(query == null) {
+			
+			this.apiResponseError(
+				c.output(),
+				"No query provided.",
+				c.jsonCallbackFunction()
+			);
+			
+			return;
+			
+		}
+		
+		// ":name" request parameters, bound to the statement
+		HashMap<String, String> parameters = new HashMap<String, String>();
+		
+		for(String key : c.httpRequest().getParameterKeys()) {
+			if(key.substring(0,1).equals(":")) {
+				if(c.httpRequest().parameter(key) != null) {
+					parameters.put(key, c.httpRequest().parameter(key));
+				}
+			}
+		}
+		
+		QueryJob job;
+		
+		try {
+			
+			job =
+				FuseBase.queryManager.queryJobs().submit(
+					FuseBase.queryManager,
+					connectionName,
+					query,
+					parameters,
+					new QueryOptions(
+						fetchSize,
+						queryTimeout,
+						this.getUsername(c)
+					)
+				);
+			
+		} catch(Exception e) {
+			
+			this.apiResponseError(
+				c.output(),
+				e.getMessage(),
+				c.jsonCallbackFunction()
+			);
+			
+			return;
+			
+		}
 		
 		this.jsonReply(
 			c.output(),
-			this.FuseBase.fileManager.listFullDirectory(path),
+			job.getJSONBuilder(),
 			c.jsonCallbackFunction()
 		);
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void apps(FuseBaseRESTAPICall c) throws Exception {
+	public void connections_query_status(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.apps(
+		this.connections_query_status(
+			Long.parseLong(c.httpRequest().parameter("jobId", "0")),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -1850,361 +2168,509 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void apps(	@Parameter(name="jsonCallbackFunction", required=false)
-						String jsonCallbackFunction,
-						FuseBaseRESTAPICall c
-					
-					) throws Exception {
-	
+	public void connections_query_status(	@Parameter(name="jobId")
+											long jobId,
+											@Parameter(name="jsonCallbackFunction", required=false)
+											String jsonCallbackFunction,
+											FuseBaseRESTAPICall c
+											
+											) throws Exception {
+		
+		QueryJob job =
+			FuseBase.queryManager.queryJobs().get(jobId, this.getUsername(c));
+		
+		if(job == null) {
+			
+			this.apiResponseError(
+				c.output(),
+				"Job " + jobId + " does not exist.",
+				c.jsonCallbackFunction()
+			);
+			
+			return;
+			
+		}
+		
 		this.jsonReply(
 			c.output(),
-			this.FuseBase.fileManager.listFullDirectory("./" + Config.APPS_DIRECTORY + "/"),
+			job.getJSONBuilder(),
 			c.jsonCallbackFunction()
 		);
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void apps_upload(FuseBaseRESTAPICall c) throws Exception {
+	public void connections_query_jobs(FuseBaseRESTAPICall c) throws Exception {
 		
-		String
-			fileName = replaceURL(c.httpRequest().parameter("fileName")),
-			fileContents = new String(c.httpRequest().getClientData(), StandardCharsets.UTF_8);
-			
-		this.apps_upload(
-			fileName,
-			fileContents,
-			c.jsonCallbackFunction(),
-			c
-		);
+		this.connections_query_jobs(c.jsonCallbackFunction(), c);
 		
 	}
 	
-	@API(type=HttpRequestType.POST)
-	public void apps_upload(	@Parameter(name="fileName")
-								String fileName,
-								@Parameter(name="data")
-								String fileContents,
-								@Parameter(name="jsonCallbackFunction", required=false)
-								String jsonCallbackFunction,
-								FuseBaseRESTAPICall c
-							
-							) throws Exception {
+	@API(type=HttpRequestType.GET)
+	public void connections_query_jobs(	@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										FuseBaseRESTAPICall c) throws Exception {
 		
-		if(fileName != null && c.httpRequest().getFileName().length() > 0) {
+		this.jsonReply(
+			c.output(),
+			FuseBase.queryManager.queryJobs().getJSONBuilder(this.getUsername(c)),
+			c.jsonCallbackFunction()
+		);
 		
-			if(fileName.substring(1, 1).equals("/")) {
-				fileName = "./" + Config.APPS_DIRECTORY + fileName;
-			} else {
-				fileName = "./" + Config.APPS_DIRECTORY + "/" + fileName;
-			}
+	}
+	
+	@HTTP_ENDPOINT
+	public void connections_query_fetch(FuseBaseRESTAPICall c) throws Exception {
 		
-			this.FuseBase.fileManager.writeToFile(
-				fileName,
-				fileContents
+		OutputType outputType =
+			OutputType.valueOf(
+				c.httpRequest().parameter(
+					"outputType",
+					OutputType.DEFAULT_VALUE.toString()
+				)
 			);
 		
-			this.apiResponseSuccess(
-				c.output(),
-				"Successfully uploaded filename \"" + fileName + "\".",
-				c.jsonCallbackFunction()
+		long offset =
+			Long.parseLong(
+				c.httpRequest().parameter(
+					"offset",
+					"0"
+				)
 			);
 		
-		} else {
-		
-			this.apiResponseError(
-				c.output(),
-				"No filename or file contents provided.",
-				c.jsonCallbackFunction()
+		int limit =
+			Integer.parseInt(
+				c.httpRequest().parameter(
+					"limit",
+					Config.QUERY_JOB_FETCH_LIMIT + ""
+				)
 			);
 		
-		}
-		
-	}
-	
-	@HTTP_ENDPOINT
-	public void file_upload(FuseBaseRESTAPICall c) throws Exception {
-			
-		this.file_upload(
-			replaceURL(c.httpRequest().parameter("fileName")),
-			c.httpRequest().getClientData(),
+		this.connections_query_fetch(
+			Long.parseLong(c.httpRequest().parameter("jobId", "0")),
+			outputType,
+			offset,
+			limit,
+			c.httpRequest().parameter("token"),
 			c.jsonCallbackFunction(),
 			c
 		);
 		
 	}
 	
-	@API(type=HttpRequestType.POST)
-	public void file_upload(	@Parameter(name="fileName")
-								String fileName,
-								@Parameter(name="data")
-								byte[] fileContents,
-								@Parameter(name="jsonCallbackFunction", required=false)
-								String jsonCallbackFunction,
-								FuseBaseRESTAPICall c
-							
-							) throws Exception {
-		
-		if(fileName != null && c.httpRequest().getFileName().length() > 0) {
+	/*
+	** Replies with up to limit rows from offset, or from where token says.
+	** The token for the next page is sent as the X-FuseBase-Next-Token
+	** header, and as nextToken in JSON output. It is left out once the job
+	** is done and all rows are fetched.
+	*/
+	@API(type=HttpRequestType.GET)
+	public void connections_query_fetch(	@Parameter(name="jobId")
+											long jobId,
+											@Parameter(name="outputType", required=false)
+											OutputType outputType,
+											@Parameter(name="offset", required=false)
+											long offset,
+											@Parameter(name="limit", required=false)
+											int limit,
+											@Parameter(name="token", required=false)
+											String token,
+											@Parameter(name="jsonCallbackFunction", required=false)
+											String jsonCallbackFunction,
+											FuseBaseRESTAPICall c
+											
+											) throws Exception {
 		
-			/*if(fileName.substring(1, 1).equals("/")) {
-				fileName = "./" + Config.APPS_DIRECTORY + fileName;
-			} else {
-				fileName = "./" + Config.APPS_DIRECTORY + "/" + fileName;
-			}*/
-				
-			if(fileName.substring(1, 1).equals("/")) {
-				fileName = "." + fileName;
-			} else {
-				fileName = "./" + fileName;
-			}
-				
-			this.FuseBase.fileManager.writeToBinaryFile(
-				fileName,
-				fileContents
-			);
+		QueryJob job =
+			FuseBase.queryManager.queryJobs().get(jobId, this.getUsername(c));
 		
-			this.apiResponseSuccess(
+		if(job == null) {
+			
+			this.apiResponseError(
 				c.output(),
-				"Successfully uploaded filename \"" + fileName + "\".",
+				"Job " + jobId + " does not exist.",
 				c.jsonCallbackFunction()
 			);
+			
+			return;
+			
+		}
 		
-		} else {
+		QueryJobState state =
+			job.getState();
 		
+		if(state == QueryJobState.FAILED || state == QueryJobState.CANCELLED) {
+			
 			this.apiResponseError(
 				c.output(),
-				"No filename or file contents provided.",
+				(state == QueryJobState.FAILED ? "Job " + jobId + " failed. " + job.getError() : "Job " + jobId + " was cancelled."),
 				c.jsonCallbackFunction()
 			);
+			
+			return;
+			
+		}
 		
+		try {
+			
+			if(token != null) {
+				offset = job.tokenOffset(token);
+			}
+			
+		} catch(Exception e) {
+			
+			this.apiResponseError(
+				c.output(),
+				e.getMessage(),
+				c.jsonCallbackFunction()
+			);
+			
+			return;
+			
 		}
 		
-	}
-	
-	@HTTP_ENDPOINT
-	public void scripts(FuseBaseRESTAPICall c) throws Exception {
+		long rowCount =
+			job.pageSize(offset, limit);
 		
-		this.scripts(
-			c.jsonCallbackFunction(),
-			c
-		);
+		String nextToken =
+			job.nextToken(offset + rowCount);
 		
-	}
-	
-	@API(type=HttpRequestType.GET)
-	public void scripts(	@Parameter(name="jsonCallbackFunction", required=false)
-							String jsonCallbackFunction,
-							FuseBaseRESTAPICall c
-						
-						) throws Exception {
+		DataWriter dataWriter = null;
+		StreamingPrintWriter printOutput =
+			new StreamingPrintWriter(
+				c.output(),
+				Config.SQL_STREAMING_FLUSH_ROWS,
+				Config.SQL_STREAMING_FLUSH_BYTES
+			);
+		String[] headers = HttpResponse.JSON_HEADERS;
 		
-		this.jsonReply(
-			c.output(),
-			FuseBase.scriptManager.getJSONBuilder(),
-			c.jsonCallbackFunction()
-		);
+		DataWriterType dataWriterType =
+			DataWriterType.valueOf(
+				outputType.toString()
+			);
 		
-	}
-	
-	@HTTP_ENDPOINT
-	public void scripts_source(FuseBaseRESTAPICall c) throws Exception {
+		switch(dataWriterType) {
+			case JSON:
+				dataWriter = new JSONWriter(printOutput);
+				break;
+			case JSON_TABULAR:
+				dataWriter = new JSONWriterTabular(printOutput);
+				break;
+			case CSV:
+				dataWriter = new CSVWriter(printOutput);
+				headers = HttpResponse.CSV_HEADERS;
+				break;
+			default:
+				break;
+		}
 		
-		String name = replaceURL(c.httpRequest().parameter("name"));
+		ArrayList<String> jobHeaders =
+			new ArrayList<String>(Arrays.asList(headers));
 		
-		this.scripts_source(
-			name,
-			c.jsonCallbackFunction(),
-			c
-		);
+		jobHeaders.add("X-FuseBase-Job-State: " + state.toString());
 		
-	}
-	
-	@API(type=HttpRequestType.GET)
-	public void scripts_source(
-							@Parameter(name="name")
-							String name,
-							@Parameter(name="jsonCallbackFunction", required=false)
-							String jsonCallbackFunction,
-							FuseBaseRESTAPICall c
-						
-						) throws Exception {
+		if(nextToken != null) {
+			jobHeaders.add("X-FuseBase-Next-Token: " + nextToken);
+		}
 		
-		this.textReply(
-			c.output(),
-			FuseBase.scriptManager.getScript(name).source()
-		);
+		dataWriter.extraInfo("state", "\"" + state.toString() + "\"");
+		dataWriter.extraInfo("nextToken", (nextToken != null ? "\"" + nextToken + "\"" : "null"));
+		
+		boolean isJSONP =
+			(dataWriterType == DataWriterType.JSON || dataWriterType == DataWriterType.JSON_TABULAR) &&
+			c.jsonCallbackFunction() != null;
+		
+		try {
+			
+			HttpResponse.header(
+				c.output(),
+				jobHeaders.toArray(new String[jobHeaders.size()])
+			);
+			
+			if(isJSONP) {
+				printOutput.print(c.jsonCallbackFunction() + "(");
+			}
+			
+			job.fetch(
+				dataWriter,
+				offset,
+				rowCount
+			);
+			
+			dataWriter.finish();
+			
+			if(isJSONP) {
+				printOutput.print(");");
+			}
+			
+			printOutput.flush();
+			
+		} catch(Exception e) {
+			
+			this.apiResponseError(
+				c.output(),
+				"Failed to fetch rows of job " + jobId + "." +
+					(e.getMessage() != null ? " " + e.getMessage() : ""),
+				c.jsonCallbackFunction()
+			);
+			
+		}
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void scripts_upload(FuseBaseRESTAPICall c) throws Exception {
-		
-		String name = replaceURL(c.httpRequest().parameter("name"));
+	public void connections_query_cancel(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.scripts_upload(
-			name,
-			new String(c.httpRequest().getClientData()),
+		this.connections_query_cancel(
+			Long.parseLong(c.httpRequest().parameter("jobId", "0")),
 			c.jsonCallbackFunction(),
 			c
 		);
 		
 	}
 	
-	@API(type=HttpRequestType.POST)
-	public void scripts_upload(	@Parameter(name="name")
-								String name,
-								@Parameter(name="source")
-								String source,
-								@Parameter(name="jsonCallbackFunction", required=false)
-								String jsonCallbackFunction,
-								FuseBaseRESTAPICall c
-								
-								) throws Exception {
-		
-		MapAction mapAction =
-			FuseBase.scriptManager.addOrUpdateScript(
-				name,
-				source
-			);
+	@API(type=HttpRequestType.GET)
+	public void connections_query_cancel(	@Parameter(name="jobId")
+											long jobId,
+											@Parameter(name="jsonCallbackFunction", required=false)
+											String jsonCallbackFunction,
+											FuseBaseRESTAPICall c
+											
+											) throws Exception {
 		
-		if(mapAction == MapAction.ADD) {
+		QueryJob job =
+			FuseBase.queryManager.queryJobs().get(jobId, this.getUsername(c));
 		
+		if(job != null && job.cancel()) {
+			
 			this.apiResponseSuccess(
 				c.output(),
-				"Added script \"" + name + "\".",
+				"Cancelled job " + jobId + ".",
 				c.jsonCallbackFunction()
 			);
-		
-		} else if(mapAction == MapAction.UPDATE) {
-		
-			this.apiResponseSuccess(
+			
+		} else {
+			
+			this.apiResponseError(
 				c.output(),
-				"Updated script \"" + name + "\".",
+				"Job " + jobId + " is not running.",
 				c.jsonCallbackFunction()
 			);
-		
+			
 		}
-	
+		
 	}
 	
 	@HTTP_ENDPOINT
-	public void scripts_delete(FuseBaseRESTAPICall c) throws Exception {
-		
-		String name = replaceURL(c.httpRequest().parameter("name"));
+	public void connections_query_discard(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.scripts_delete(
-			name,
+		this.connections_query_discard(
+			Long.parseLong(c.httpRequest().parameter("jobId", "0")),
 			c.jsonCallbackFunction(),
 			c
 		);
 		
 	}
 	
+	/*
+	** Cancels the job if it runs and deletes its rows.
+	*/
 	@API(type=HttpRequestType.GET)
-	public void scripts_delete(	@Parameter(name="name", validValuesClass=ScriptManager.class)
-								String name,
-								@Parameter(name="jsonCallbackFunction", required=false)
-								String jsonCallbackFunction,
-								FuseBaseRESTAPICall c
-							
-								) throws Exception {
-		
-		MapAction mapAction =
-			FuseBase.scriptManager.deleteScript(name);
-		
-		if(mapAction == MapAction.DELETE) {
+	public void connections_query_discard(	@Parameter(name="jobId")
+											long jobId,
+											@Parameter(name="jsonCallbackFunction", required=false)
+											String jsonCallbackFunction,
+											FuseBaseRESTAPICall c
+											
+											) throws Exception {
 		
+		if(FuseBase.queryManager.queryJobs().discard(jobId, this.getUsername(c))) {
+			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully removed script \"" + name + "\".",
+				"Discarded job " + jobId + ".",
 				c.jsonCallbackFunction()
 			);
-		
-		} else if(mapAction == MapAction.NONE) {
-		
+			
+		} else {
+			
 			this.apiResponseError(
 				c.output(),
-				"Script \"" + name + "\" does not exist.",
+				"Job " + jobId + " does not exist.",
 				c.jsonCallbackFunction()
 			);
-		
+			
 		}
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void scripts_run(FuseBaseRESTAPICall c) throws Exception {
+	public void files_directorylisting(FuseBaseRESTAPICall c) throws Exception {
 		
-		String name = replaceURL(c.httpRequest().parameter("name"));
+		String path =
+			this.replaceURL(
+				c.httpRequest().parameter("path")
+			);
 		
-		this.scripts_run(
-			name,
+		this.files_directorylisting(
 			c.jsonCallbackFunction(),
+			path,
 			c
 		);
-		
+
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void scripts_run(	@Parameter(name="name", validValuesClass=ScriptManager.class)
-								String name,
-								@Parameter(name="jsonCallbackFunction", required=false)
-								String jsonCallbackFunction,
-								FuseBaseRESTAPICall c
-							
-							) throws Exception {
+	public void files_directorylisting(	@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										@Parameter(name="path")
+										String path,
+										FuseBaseRESTAPICall c
+										
+										) throws Exception {
 		
-		Script script =
-			FuseBase.scriptManager.getScript(name);
+		this.jsonReply(
+			c.output(),
+			this.FuseBase.fileManager.listFullDirectory(path),
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void apps(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.apps(
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void apps(	@Parameter(name="jsonCallbackFunction", required=false)
+						String jsonCallbackFunction,
+						FuseBaseRESTAPICall c
+					
+					) throws Exception {
+	
+		this.jsonReply(
+			c.output(),
+			this.FuseBase.fileManager.listFullDirectory("./" + Config.APPS_DIRECTORY + "/"),
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void apps_upload(FuseBaseRESTAPICall c) throws Exception {
+		
+		String fileName = replaceURL(c.httpRequest().parameter("fileName"));
 			
-		if(script != null) {
+		this.apps_upload(
+			fileName,
+			c.httpRequest().getClientDataStream(),
+			c.jsonCallbackFunction(),
+			c
+		);
 		
-			try {
+	}
+	
+	@API(type=HttpRequestType.POST)
+	public void apps_upload(	@Parameter(name="fileName")
+								String fileName,
+								@Parameter(name="data")
+								InputStream fileContents,
+								@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c
+							
+							) throws Exception {
 		
-				script.init(
-					this.FuseBase.scriptAPI()
-				);
+		if(fileName != null && c.httpRequest().getFileName().length() > 0) {
 		
-				script.addBinding(
-					"parameters",
-					c.httpRequest().getParameters()
-				);
-				
-				script.addBinding(
-					"cookies",
-					c.httpRequest().getCookies()
-				);
+			if(fileName.substring(1, 1).equals("/")) {
+				fileName = "./" + Config.APPS_DIRECTORY + fileName;
+			} else {
+				fileName = "./" + Config.APPS_DIRECTORY + "/" + fileName;
+			}
 		
-				PersistedDataOutputStream persistedOutput =
-					new PersistedDataOutputStream();
+			this.FuseBase.fileManager.writeToFile(
+				fileName,
+				fileContents
+			);
 		
-				script.run(
-					persistedOutput
-				);
-				
-				byte[] bytes = persistedOutput.getData().getBytes("UTF-8");
+			this.apiResponseSuccess(
+				c.output(),
+				"Successfully uploaded filename \"" + fileName + "\".",
+				c.jsonCallbackFunction()
+			);
 		
-				c.output().write(bytes, 0, bytes.length);
+		} else {
 		
-				c.output().flush();
+			this.apiResponseError(
+				c.output(),
+				"No filename or file contents provided.",
+				c.jsonCallbackFunction()
+			);
 		
-			} catch(Exception e) {
+		}
 		
-				this.apiResponseError(
-					c.output(),
-					"Failed to run script \"" + name + "\". Error message: \"" + JSONBuilder.jsonEscape(e.getMessage()) + "\".",
-					c.jsonCallbackFunction()
-				);
+	}
+	
+	@HTTP_ENDPOINT
+	public void file_upload(FuseBaseRESTAPICall c) throws Exception {
+			
+		this.file_upload(
+			replaceURL(c.httpRequest().parameter("fileName")),
+			c.httpRequest().getClientDataStream(),
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.POST)
+	public void file_upload(	@Parameter(name="fileName")
+								String fileName,
+								@Parameter(name="data")
+								InputStream fileContents,
+								@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c
+							
+							) throws Exception {
+		
+		if(fileName != null && c.httpRequest().getFileName().length() > 0) {
 		
+			/*if(fileName.substring(1, 1).equals("/")) {
+				fileName = "./" + Config.APPS_DIRECTORY + fileName;
+			} else {
+				fileName = "./" + Config.APPS_DIRECTORY + "/" + fileName;
+			}*/
+				
+			if(fileName.substring(1, 1).equals("/")) {
+				fileName = "." + fileName;
+			} else {
+				fileName = "./" + fileName;
 			}
+				
+			this.FuseBase.fileManager.writeToBinaryFile(
+				fileName,
+				fileContents
+			);
 		
+			this.apiResponseSuccess(
+				c.output(),
+				"Successfully uploaded filename \"" + fileName + "\".",
+				c.jsonCallbackFunction()
+			);
 		
 		} else {
 		
 			this.apiResponseError(
 				c.output(),
-				"Script \"" + name + "\" does not exist.",
+				"No filename or file contents provided.",
 				c.jsonCallbackFunction()
 			);
 		
@@ -2213,75 +2679,600 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void scripts_run_anonymous(FuseBaseRESTAPICall c) throws Exception {
+	public void scripts(FuseBaseRESTAPICall c) throws Exception {
 		
-		String scriptSource = replaceURL(c.httpRequest().parameter("source"));
+		this.scripts(
+			c.jsonCallbackFunction(),
+			c
+		);
 		
-		this.scripts_run_anonymous(
-			new String(c.httpRequest().getClientData()),
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void scripts(	@Parameter(name="jsonCallbackFunction", required=false)
+							String jsonCallbackFunction,
+							FuseBaseRESTAPICall c
+						
+						) throws Exception {
+		
+		this.jsonReply(
+			c.output(),
+			FuseBase.scriptManager.getJSONBuilder(),
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void scripts_source(FuseBaseRESTAPICall c) throws Exception {
+		
+		String name = replaceURL(c.httpRequest().parameter("name"));
+		
+		this.scripts_source(
+			name,
 			c.jsonCallbackFunction(),
 			c
 		);
 		
 	}
 	
-	@API(type=HttpRequestType.POST)
-	public void scripts_run_anonymous(	@Parameter(name="source")
-										String scriptSource,
-										@Parameter(name="jsonCallbackFunction", required=false)
-										String jsonCallbackFunction,
-										FuseBaseRESTAPICall c
-							
-									) throws Exception {
-			
-		if(scriptSource != null && scriptSource.length() > 0) {
+	@API(type=HttpRequestType.GET)
+	public void scripts_source(
+							@Parameter(name="name")
+							String name,
+							@Parameter(name="jsonCallbackFunction", required=false)
+							String jsonCallbackFunction,
+							FuseBaseRESTAPICall c
+						
+						) throws Exception {
 		
-			try {
-				
-				PersistedDataOutputStream persistedOutput =
-					new PersistedDataOutputStream();
-				
-				Script.runAnonymousScript(
-					this.FuseBase.scriptAPI(),
-					c.httpRequest().getParameters(),
-					c.httpRequest().getCookies(),
-					persistedOutput,
-					scriptSource
-				);
-				
-				byte[] bytes = persistedOutput.getData().getBytes("UTF-8");
+		this.textReply(
+			c.output(),
+			FuseBase.scriptManager.getScript(name).source()
+		);
 		
-				c.output().write(bytes, 0, bytes.length);
+	}
+	
+	@HTTP_ENDPOINT
+	public void scripts_upload(FuseBaseRESTAPICall c) throws Exception {
 		
-				c.output().flush();
+		String name = replaceURL(c.httpRequest().parameter("name"));
 		
-			} catch(Exception e) {
+		this.scripts_upload(
+			name,
+			new String(c.httpRequest().getClientData()),
+			c.jsonCallbackFunction(),
+			c
+		);
 		
-				this.apiResponseError(
-					c.output(),
-					"Failed to run script. Error message: \"" + JSONBuilder.jsonEscape(e.getMessage()) + "\".",
-					c.jsonCallbackFunction()
-				);
+	}
+	
+	@API(type=HttpRequestType.POST)
+	public void scripts_upload(	@Parameter(name="name")
+								String name,
+								@Parameter(name="source")
+								String source,
+								@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c
+								
+								) throws Exception {
 		
-			}
+		MapAction mapAction =
+			FuseBase.scriptManager.addOrUpdateScript(
+				name,
+				source
+			);
 		
+		if(mapAction == MapAction.ADD) {
+		
+			this.apiResponseSuccess(
+				c.output(),
+				"Added script \"" + name + "\".",
+				c.jsonCallbackFunction()
+			);
+		
+		} else if(mapAction == MapAction.UPDATE) {
+		
+			this.apiResponseSuccess(
+				c.output(),
+				"Updated script \"" + name + "\".",
+				c.jsonCallbackFunction()
+			);
+		
+		}
+	
+	}
+	
+	@HTTP_ENDPOINT
+	public void scripts_delete(FuseBaseRESTAPICall c) throws Exception {
+		
+		String name = replaceURL(c.httpRequest().parameter("name"));
+		
+		this.scripts_delete(
+			name,
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void scripts_delete(	@Parameter(name="name", validValuesClass=ScriptManager.class)
+								String name,
+								@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c
+							
+								) throws Exception {
+		
+		MapAction mapAction =
+			FuseBase.scriptManager.deleteScript(name);
+		
+		if(mapAction == MapAction.DELETE) {
+		
+			this.apiResponseSuccess(
+				c.output(),
+				"Successfully removed script \"" + name + "\".",
+				c.jsonCallbackFunction()
+			);
+		
+		} else if(mapAction == MapAction.NONE) {
+		
+			this.apiResponseError(
+				c.output(),
+				"Script \"" + name + "\" does not exist.",
+				c.jsonCallbackFunction()
+			);
+		
+		}
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void scripts_run(FuseBaseRESTAPICall c) throws Exception {
+		
+		String name = replaceURL(c.httpRequest().parameter("name"));
+		
+		this.scripts_run(
+			name,
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void scripts_run(	@Parameter(name="name", validValuesClass=ScriptManager.class)
+								String name,
+								@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c
+							
+							) throws Exception {
+		
+		Script script =
+			FuseBase.scriptManager.getScript(name);
+			
+		if(script != null) {
+		
+			try {
+		
+				script.init(
+					this.FuseBase.scriptAPI()
+				);
+		
+				script.addBinding(
+					"parameters",
+					c.httpRequest().getParameters()
+				);
+				
+				script.addBinding(
+					"cookies",
+					c.httpRequest().getCookies()
+				);
+		
+				PersistedDataOutputStream persistedOutput =
+					new PersistedDataOutputStream();
+		
+				script.run(
+					persistedOutput
+				);
+				
+				byte[] bytes = persistedOutput.getData().getBytes("UTF-8");
+		
+				c.output().write(bytes, 0, bytes.length);
+		
+				c.output().flush();
+		
+			} catch(Exception e) {
+		
+				this.apiResponseError(
+					c.output(),
+					"Failed to run script \"" + name + "\". Error message: \"" + JSONBuilder.jsonEscape(e.getMessage()) + "\".",
+					c.jsonCallbackFunction()
+				);
+		
+			}
+		
+		
+		} else {
+		
+			this.apiResponseError(
+				c.output(),
+				"Script \"" + name + "\" does not exist.",
+				c.jsonCallbackFunction()
+			);
+		
+		}
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void scripts_run_anonymous(FuseBaseRESTAPICall c) throws Exception {
+		
+		String scriptSource = replaceURL(c.httpRequest().parameter("source"));
+		
+		this.scripts_run_anonymous(
+			new String(c.httpRequest().getClientData()),
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.POST)
+	public void scripts_run_anonymous(	@Parameter(name="source")
+										String scriptSource,
+										@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										FuseBaseRESTAPICall c
+							
+									) throws Exception {
+			
+		if(scriptSource != null && scriptSource.length() > 0) {
+		
+			try {
+				
+				PersistedDataOutputStream persistedOutput =
+					new PersistedDataOutputStream();
+				
+				Script.runAnonymousScript(
+					this.FuseBase.scriptAPI(),
+					c.httpRequest().getParameters(),
+					c.httpRequest().getCookies(),
+					persistedOutput,
+					scriptSource
+				);
+				
+				byte[] bytes = persistedOutput.getData().getBytes("UTF-8");
+		
+				c.output().write(bytes, 0, bytes.length);
+		
+				c.output().flush();
+		
+			} catch(Exception e) {
+		
+				this.apiResponseError(
+					c.output(),
+					"Failed to run script. Error message: \"" + JSONBuilder.jsonEscape(e.getMessage()) + "\".",
+					c.jsonCallbackFunction()
+				);
+		
+			}
+		
+		
+		} else {
+		
+			this.apiResponseError(
+				c.output(),
+				"No script provided.",
+				c.jsonCallbackFunction()
+			);
+		
+		}
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void users(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.users(
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void users(	@Parameter(name="jsonCallbackFunction", required=false)
+						String jsonCallbackFunction,
+						FuseBaseRESTAPICall c
+							
+								) throws Exception {
+		
+		this.jsonReply(
+			c.output(),
+			this.FuseBase.userManager.getJSONBuilder(),
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void users_sessions_deleteall(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.users_sessions_deleteall(
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void users_sessions_deleteall(	@Parameter(name="jsonCallbackFunction", required=false)
+											String jsonCallbackFunction,
+											FuseBaseRESTAPICall c
+							
+										) throws Exception {
+		
+		this.FuseBase.userManager.deleteAllUserSessions();
+		
+		this.apiResponseSuccess(
+			c.output(),
+			"Deleted all user sessions.",
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void users_sessions_removeexpired(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.users_sessions_removeexpired(
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void users_sessions_removeexpired(	@Parameter(name="jsonCallbackFunction", required=false)
+											String jsonCallbackFunction,
+											FuseBaseRESTAPICall c
+							
+										) throws Exception {
+		
+		this.FuseBase.userManager.removeExpiredSessions();
+		
+		this.apiResponseSuccess(
+			c.output(),
+			"Removed all expired user sessions.",
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void users_sessions(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.users_sessions(
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void users_sessions(	@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c
+							
+								) throws Exception {
+		
+		this.jsonReply(
+			c.output(),
+			this.FuseBase.userManager.getUserSessionsJSONBuilder(),
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void users_roles(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.users_roles(
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void users_roles(	@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c
+							
+								) throws Exception {
+		
+		this.jsonReply(
+			c.output(),
+			this.FuseBase.userManager.getRolesJSONBuilder(),
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void users_roles_types(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.users_roles_types(
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void users_roles_types(	@Parameter(name="jsonCallbackFunction", required=false)
+									String jsonCallbackFunction,
+									FuseBaseRESTAPICall c
+							
+									) throws Exception {
+		
+		this.jsonReply(
+			c.output(),
+			RoleType.getJSONBuilder(),
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void users_roles_add(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.users_roles_add(
+			c.httpRequest().parameter("name"),
+			RoleType.valueOf(c.httpRequest().parameter("roleType")),
+			this.replaceURL(c.httpRequest().parameter("privilegeList")),
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void users_roles_add(	@Parameter(name="name")
+									String name,
+									@Parameter(name="roleType")
+									RoleType roleType,
+									@Parameter(name="privilegeList")
+									String privilegeList,
+									@Parameter(name="jsonCallbackFunction", required=false)
+									String jsonCallbackFunction,
+									FuseBaseRESTAPICall c
+							
+									) throws Exception {
+		
+		MapAction mapAction =
+			this.FuseBase.userManager.addRole(
+				name,
+				roleType,
+				privilegeList.split(",")
+			);
+			
+		if(mapAction == MapAction.ADD) {
+			
+			this.apiResponseSuccess(
+				c.output(),
+				"Successfully added role \"" + name + "\" with privileges \"" + privilegeList + "\" .",
+				c.jsonCallbackFunction()
+			);
+			
+		} else if(mapAction == MapAction.NONE) {
+			
+			this.apiResponseError(
+				c.output(),
+				"Failed to add role \"" + name + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		}
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void users_roles_delete(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.users_roles_delete(
+			c.httpRequest().parameter("name"),
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void users_roles_delete(	@Parameter(name="name")
+									String name,
+									@Parameter(name="jsonCallbackFunction", required=false)
+									String jsonCallbackFunction,
+									FuseBaseRESTAPICall c
+							
+									) throws Exception {
+
+		MapAction mapAction =
+			this.FuseBase.userManager.deleteRole(
+				name
+			);
+			
+		if(mapAction == MapAction.DELETE) {
+			
+			this.apiResponseSuccess(
+				c.output(),
+				"Successfully deleted role \"" + name + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		} else if(mapAction == MapAction.NONE) {
+			
+			this.apiResponseError(
+				c.output(),
+				"Failed to delete role \"" + name + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		}
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void users_roles_delete_all(FuseBaseRESTAPICall c) throws Exception {
 		
-		} else {
+		this.users_roles_delete_all(
+			c.jsonCallbackFunction(),
+			c
+		);
 		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void users_roles_delete_all(	@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										FuseBaseRESTAPICall c
+							
+										) throws Exception {
+
+		MapAction mapAction =
+			this.FuseBase.userManager.deleteAllRoles();
+			
+		if(mapAction == MapAction.DELETE) {
+			
+			this.apiResponseSuccess(
+				c.output(),
+				"Successfully deleted all deleteable roles.",
+				c.jsonCallbackFunction()
+			);
+			
+		} else if(mapAction == MapAction.NONE) {
+			
 			this.apiResponseError(
 				c.output(),
-				"No script provided.",
+				"Failed to delete all roles.",
 				c.jsonCallbackFunction()
 			);
-		
+			
 		}
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void users(FuseBaseRESTAPICall c) throws Exception {
+	public void users_roles_update_privileges(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.users(
+		this.users_roles_update_privileges(
+			c.httpRequest().parameter("name"),
+			this.replaceURL(c.httpRequest().parameter("privilegeList", "")),
+			this.replaceURL(c.httpRequest().parameter("privilegeListToRemove", "")),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2289,24 +3280,55 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void users(	@Parameter(name="jsonCallbackFunction", required=false)
-						String jsonCallbackFunction,
-						FuseBaseRESTAPICall c
+	public void users_roles_update_privileges(	@Parameter(name="name")
+												String name,
+												@Parameter(name="privilegeList")
+												String privilegeList,
+												@Parameter(name="privilegeListToRemove")
+												String privilegeListToRemove,
+												@Parameter(name="jsonCallbackFunction", required=false)
+												String jsonCallbackFunction,
+												FuseBaseRESTAPICall c
 							
-								) throws Exception {
+											) throws Exception {
 		
-		this.jsonReply(
-			c.output(),
-			this.FuseBase.userManager.getJSONBuilder(),
-			c.jsonCallbackFunction()
+		this.FuseBase.userManager.deleteRolePrivileges(
+			name,
+			privilegeListToRemove.split(",")
 		);
 		
+		MapAction mapAction =
+			this.FuseBase.userManager.addRolePrivileges(
+				name,
+				privilegeList.split(",")
+			);
+			
+		if(mapAction == MapAction.ADD) {
+			
+			this.apiResponseSuccess(
+				c.output(),
+				"Successfully added privileges \"" + privilegeList + "\" and removed \"" + privilegeListToRemove + "\" for role \"" + name + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		} else if(mapAction == MapAction.NONE) {
+			
+			this.apiResponseError(
+				c.output(),
+				"Failed to add privileges to role \"" + name + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		}
+		
 	}
 	
 	@HTTP_ENDPOINT
-	public void users_sessions_deleteall(FuseBaseRESTAPICall c) throws Exception {
+	public void users_roles_delete_privileges(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.users_sessions_deleteall(
+		this.users_roles_delete_privileges(
+			c.httpRequest().parameter("name"),
+			c.httpRequest().parameter("privilegeList"),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2314,26 +3336,49 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void users_sessions_deleteall(	@Parameter(name="jsonCallbackFunction", required=false)
-											String jsonCallbackFunction,
-											FuseBaseRESTAPICall c
+	public void users_roles_delete_privileges(	@Parameter(name="name")
+												String name,
+												@Parameter(name="privilegeList")
+												String privilegeList,
+												@Parameter(name="jsonCallbackFunction", required=false)
+												String jsonCallbackFunction,
+												FuseBaseRESTAPICall c
 							
-										) throws Exception {
-		
-		this.FuseBase.userManager.deleteAllUserSessions();
+												) throws Exception {
 		
-		this.apiResponseSuccess(
-			c.output(),
-			"Deleted all user sessions.",
-			c.jsonCallbackFunction()
-		);
+		String[] privilegeArray =
+			privilegeList.split(",");
+			
+		MapAction mapAction =
+			this.FuseBase.userManager.deleteRolePrivileges(
+				name,
+				privilegeArray
+			);
+			
+		if(mapAction == MapAction.DELETE) {
+			
+			this.apiResponseSuccess(
+				c.output(),
+				"Successfully deleted privileges \"" + privilegeList + "\" from role \"" + name + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		} else if(mapAction == MapAction.NONE) {
+			
+			this.apiResponseError(
+				c.output(),
+				"Failed to delete privileges from role \"" + name + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		}
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void users_sessions_removeexpired(FuseBaseRESTAPICall c) throws Exception {
+	public void privileges(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.users_sessions_removeexpired(
+		this.privileges(
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2341,26 +3386,25 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void users_sessions_removeexpired(	@Parameter(name="jsonCallbackFunction", required=false)
-											String jsonCallbackFunction,
-											FuseBaseRESTAPICall c
+	public void privileges(	@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c
 							
-										) throws Exception {
-		
-		this.FuseBase.userManager.removeExpiredSessions();
+								) throws Exception {
 		
-		this.apiResponseSuccess(
+		this.jsonReply(
 			c.output(),
-			"Removed all expired user sessions.",
+			this.apiEndpointsJSONBuilder(),
 			c.jsonCallbackFunction()
 		);
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void users_sessions(FuseBaseRESTAPICall c) throws Exception {
+	public void user_clientkeys(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.users_sessions(
+		this.user_clientkeys(
+			c.httpRequest().parameter("username"),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2368,24 +3412,42 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void users_sessions(	@Parameter(name="jsonCallbackFunction", required=false)
-								String jsonCallbackFunction,
-								FuseBaseRESTAPICall c
+	public void user_clientkeys(	@Parameter(name="username")
+									String username,
+									@Parameter(name="jsonCallbackFunction", required=false)
+									String jsonCallbackFunction,
+									FuseBaseRESTAPICall c
 							
 								) throws Exception {
 		
-		this.jsonReply(
-			c.output(),
-			this.FuseBase.userManager.getUserSessionsJSONBuilder(),
-			c.jsonCallbackFunction()
-		);
+		JSONBuilder jb =
+			this.FuseBase.userManager.getUserClientKeys(username);
+			
+		if(jb != null) {
+			
+			this.jsonReply(
+				c.output(),
+				jb,
+				c.jsonCallbackFunction()
+			);
+			
+		} else if(jb == null) {
+			
+			this.apiResponseError(
+				c.output(),
+				"Username \"" + username + "\" does not exist.",
+				c.jsonCallbackFunction()
+			);
+			
+		}
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void users_roles(FuseBaseRESTAPICall c) throws Exception {
+	public void user_generateclientkey(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.users_roles(
+		this.user_generateclientkey(
+			c.httpRequest().parameter("username"),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2393,24 +3455,43 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void users_roles(	@Parameter(name="jsonCallbackFunction", required=false)
-								String jsonCallbackFunction,
-								FuseBaseRESTAPICall c
+	public void user_generateclientkey(	@Parameter(name="username")
+										String username,
+										@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										FuseBaseRESTAPICall c
 							
-								) throws Exception {
+										) throws Exception {
 		
-		this.jsonReply(
-			c.output(),
-			this.FuseBase.userManager.getRolesJSONBuilder(),
-			c.jsonCallbackFunction()
-		);
+		MapAction mapAction =
+			this.FuseBase.userManager.addClientKey(username);
+			
+		if(mapAction == MapAction.ADD) {
+			
+			this.apiResponseSuccess(
+				c.output(),
+				"Successfully generated new client key for username \"" + username + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		} else {
+			
+			this.apiResponseError(
+				c.output(),
+				"Failed to generate new client key for username \"" + username + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		}
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void users_roles_types(FuseBaseRESTAPICall c) throws Exception {
+	public void user_clientkeys_add(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.users_roles_types(
+		this.user_clientkeys_add(
+			c.httpRequest().parameter("username"),
+			c.httpRequest().parameter("clientKey"),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2418,27 +3499,45 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void users_roles_types(	@Parameter(name="jsonCallbackFunction", required=false)
-									String jsonCallbackFunction,
-									FuseBaseRESTAPICall c
+	public void user_clientkeys_add(	@Parameter(name="username")
+										String username,
+										@Parameter(name="clientKey")
+										String clientKey,
+										@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										FuseBaseRESTAPICall c
 							
-									) throws Exception {
+										) throws Exception {
 		
-		this.jsonReply(
-			c.output(),
-			RoleType.getJSONBuilder(),
-			c.jsonCallbackFunction()
-		);
+		MapAction mapAction =
+			this.FuseBase.userManager.addExternalClientKey(username, clientKey);
+			
+		if(mapAction == MapAction.ADD) {
+			
+			this.apiResponseSuccess(
+				c.output(),
+				"Successfully added client key for username \"" + username + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		} else {
+			
+			this.apiResponseError(
+				c.output(),
+				"Failed to add client key for username \"" + username + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		}
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void users_roles_add(FuseBaseRESTAPICall c) throws Exception {
+	public void user_clientkey_delete(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.users_roles_add(
-			c.httpRequest().parameter("name"),
-			RoleType.valueOf(c.httpRequest().parameter("roleType")),
-			this.replaceURL(c.httpRequest().parameter("privilegeList")),
+		this.user_clientkey_delete(
+			c.httpRequest().parameter("username"),
+			c.httpRequest().parameter("clientkey"),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2446,38 +3545,35 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void users_roles_add(	@Parameter(name="name")
-									String name,
-									@Parameter(name="roleType")
-									RoleType roleType,
-									@Parameter(name="privilegeList")
-									String privilegeList,
-									@Parameter(name="jsonCallbackFunction", required=false)
-									String jsonCallbackFunction,
-									FuseBaseRESTAPICall c
+	public void user_clientkey_delete(	@Parameter(name="username")
+										String username,
+										@Parameter(name="clientkey")
+										String clientKey,
+										@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										FuseBaseRESTAPICall c
 							
 									) throws Exception {
 		
 		MapAction mapAction =
-			this.FuseBase.userManager.addRole(
-				name,
-				roleType,
-				privilegeList.split(",")
+			this.FuseBase.userManager.deleteClientKey(
+				username,
+				clientKey
 			);
 			
-		if(mapAction == MapAction.ADD) {
+		if(mapAction == MapAction.DELETE) {
 			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully added role \"" + name + "\" with privileges \"" + privilegeList + "\" .",
+				"Successfully deleted client key \"" + clientKey + "\" for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
-		} else if(mapAction == MapAction.NONE) {
+		} else {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to add role \"" + name + "\".",
+				"Failed to delete client key \"" + clientKey + "\" for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -2486,10 +3582,10 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void users_roles_delete(FuseBaseRESTAPICall c) throws Exception {
+	public void user_clientkeys_deleteall(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.users_roles_delete(
-			c.httpRequest().parameter("name"),
+		this.user_clientkeys_deleteall(
+			c.httpRequest().parameter("username"),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2497,32 +3593,30 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void users_roles_delete(	@Parameter(name="name")
-									String name,
-									@Parameter(name="jsonCallbackFunction", required=false)
-									String jsonCallbackFunction,
-									FuseBaseRESTAPICall c
+	public void user_clientkeys_deleteall(	@Parameter(name="username")
+											String username,
+											@Parameter(name="jsonCallbackFunction", required=false)
+											String jsonCallbackFunction,
+											FuseBaseRESTAPICall c
 							
-									) throws Exception {
-
+										) throws Exception {
+		
 		MapAction mapAction =
-			this.FuseBase.userManager.deleteRole(
-				name
-			);
+			this.FuseBase.userManager.deleteUserClientKeys(username);
 			
-		if(mapAction == MapAction.DELETE) {
+		if(mapAction == MapAction.DELETE_ALL) {
 			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully deleted role \"" + name + "\".",
+				"Successfully deleted all client keys for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
-		} else if(mapAction == MapAction.NONE) {
+		} else {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to delete role \"" + name + "\".",
+				"Failed to delete all client keys for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -2531,9 +3625,10 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void users_roles_delete_all(FuseBaseRESTAPICall c) throws Exception {
+	public void user_privileges(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.users_roles_delete_all(
+		this.user_privileges(
+			c.httpRequest().parameter("username"),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2541,28 +3636,32 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void users_roles_delete_all(	@Parameter(name="jsonCallbackFunction", required=false)
-										String jsonCallbackFunction,
-										FuseBaseRESTAPICall c
+	public void user_privileges(	@Parameter(name="username")
+									String username,
+									@Parameter(name="jsonCallbackFunction", required=false)
+									String jsonCallbackFunction,
+									FuseBaseRESTAPICall c
 							
-										) throws Exception {
-
-		MapAction mapAction =
-			this.FuseBase.userManager.deleteAllRoles();
+									) throws Exception {
+		
+		JSONBuilder jb =
+			this.FuseBase.userManager.getUserRolesAndPrivilegesJSONBuilder(
+				username
+			);
 			
-		if(mapAction == MapAction.DELETE) {
+		if(jb != null) {
 			
-			this.apiResponseSuccess(
+			this.jsonReply(
 				c.output(),
-				"Successfully deleted all deleteable roles.",
+				jb,
 				c.jsonCallbackFunction()
 			);
 			
-		} else if(mapAction == MapAction.NONE) {
+		} else if(jb == null) {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to delete all roles.",
+				"Failed to list privileges for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -2571,12 +3670,11 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void users_roles_update_privileges(FuseBaseRESTAPICall c) throws Exception {
+	public void user_privileges_add(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.users_roles_update_privileges(
-			c.httpRequest().parameter("name"),
-			this.replaceURL(c.httpRequest().parameter("privilegeList", "")),
-			this.replaceURL(c.httpRequest().parameter("privilegeListToRemove", "")),
+		this.user_privileges_add(
+			c.httpRequest().parameter("username"),
+			c.httpRequest().parameter("privilegeList"),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2584,26 +3682,19 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void users_roles_update_privileges(	@Parameter(name="name")
-												String name,
-												@Parameter(name="privilegeList")
-												String privilegeList,
-												@Parameter(name="privilegeListToRemove")
-												String privilegeListToRemove,
-												@Parameter(name="jsonCallbackFunction", required=false)
-												String jsonCallbackFunction,
-												FuseBaseRESTAPICall c
+	public void user_privileges_add(	@Parameter(name="username")
+										String username,
+										@Parameter(name="privilegeList")
+										String privilegeList,
+										@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										FuseBaseRESTAPICall c
 							
-											) throws Exception {
-		
-		this.FuseBase.userManager.deleteRolePrivileges(
-			name,
-			privilegeListToRemove.split(",")
-		);
+									) throws Exception {
 		
 		MapAction mapAction =
-			this.FuseBase.userManager.addRolePrivileges(
-				name,
+			this.FuseBase.userManager.addUserPrivileges(
+				username,
 				privilegeList.split(",")
 			);
 			
@@ -2611,15 +3702,15 @@ public class FuseBaseRESTAPI {
 			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully added privileges \"" + privilegeList + "\" and removed \"" + privilegeListToRemove + "\" for role \"" + name + "\".",
+				"Successfully added privileges \"" + privilegeList + "\" for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
-		} else if(mapAction == MapAction.NONE) {
+		} else {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to add privileges to role \"" + name + "\".",
+				"Failed to add privileges for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -2628,10 +3719,10 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void users_roles_delete_privileges(FuseBaseRESTAPICall c) throws Exception {
+	public void user_privileges_delete(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.users_roles_delete_privileges(
-			c.httpRequest().parameter("name"),
+		this.user_privileges_delete(
+			c.httpRequest().parameter("username"),
 			c.httpRequest().parameter("privilegeList"),
 			c.jsonCallbackFunction(),
 			c
@@ -2640,38 +3731,35 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void users_roles_delete_privileges(	@Parameter(name="name")
-												String name,
-												@Parameter(name="privilegeList")
-												String privilegeList,
-												@Parameter(name="jsonCallbackFunction", required=false)
-												String jsonCallbackFunction,
-												FuseBaseRESTAPICall c
+	public void user_privileges_delete(	@Parameter(name="username")
+										String username,
+										@Parameter(name="privilegeList")
+										String privilegeList,
+										@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										FuseBaseRESTAPICall c
 							
-												) throws Exception {
+									) throws Exception {
 		
-		String[] privilegeArray =
-			privilegeList.split(",");
-			
 		MapAction mapAction =
-			this.FuseBase.userManager.deleteRolePrivileges(
-				name,
-				privilegeArray
+			this.FuseBase.userManager.deleteUserPrivileges(
+				username,
+				privilegeList.split(",")
 			);
 			
 		if(mapAction == MapAction.DELETE) {
 			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully deleted privileges \"" + privilegeList + "\" from role \"" + name + "\".",
+				"Successfully deleted privileges \"" + privilegeList + "\" for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
-		} else if(mapAction == MapAction.NONE) {
+		} else {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to delete privileges from role \"" + name + "\".",
+				"Failed to delete privileges for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -2680,9 +3768,10 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void privileges(FuseBaseRESTAPICall c) throws Exception {
+	public void user_privileges_deleteall(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.privileges(
+		this.user_privileges_deleteall(
+			c.httpRequest().parameter("username"),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2690,56 +3779,81 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void privileges(	@Parameter(name="jsonCallbackFunction", required=false)
-								String jsonCallbackFunction,
-								FuseBaseRESTAPICall c
+	public void user_privileges_deleteall(	@Parameter(name="username")
+											String username,
+											@Parameter(name="jsonCallbackFunction", required=false)
+											String jsonCallbackFunction,
+											FuseBaseRESTAPICall c
 							
-								) throws Exception {
+										) throws Exception {
 		
-		this.jsonReply(
-			c.output(),
-			this.apiEndpointsJSONBuilder(),
-			c.jsonCallbackFunction()
-		);
+		MapAction mapAction =
+			this.FuseBase.userManager.deleteAllUserPrivileges(
+				username
+			);
+			
+		if(mapAction == MapAction.DELETE_ALL) {
+			
+			this.apiResponseSuccess(
+				c.output(),
+				"Successfully deleted all privileges for username \"" + username + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		} else {
+			
+			this.apiResponseError(
+				c.output(),
+				"Failed to delete all privileges for username \"" + username + "\".",
+				c.jsonCallbackFunction()
+			);
+			
+		}
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_clientkeys(FuseBaseRESTAPICall c) throws Exception {
+	public void user_roles_add(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_clientkeys(
+		this.user_roles_add(
 			c.httpRequest().parameter("username"),
+			c.httpRequest().parameter("roleList"),
 			c.jsonCallbackFunction(),
 			c
 		);
 		
 	}
-	
-	@API(type=HttpRequestType.GET)
-	public void user_clientkeys(	@Parameter(name="username")
-									String username,
-									@Parameter(name="jsonCallbackFunction", required=false)
-									String jsonCallbackFunction,
-									FuseBaseRESTAPICall c
+	
+	@API(type=HttpRequestType.GET)
+	public void user_roles_add(	@Parameter(name="username")
+								String username,
+								@Parameter(name="roleList")
+								String roleList,
+								@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c
 							
 								) throws Exception {
 		
-		JSONBuilder jb =
-			this.FuseBase.userManager.getUserClientKeys(username);
+		MapAction mapAction =
+			this.FuseBase.userManager.addUserRoles(
+				username,
+				roleList.split(",")
+			);
 			
-		if(jb != null) {
+		if(mapAction == MapAction.ADD) {
 			
-			this.jsonReply(
+			this.apiResponseSuccess(
 				c.output(),
-				jb,
+				"Successfully added roles \"" + roleList + "\" for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
-		} else if(jb == null) {
+		} else {
 			
 			this.apiResponseError(
 				c.output(),
-				"Username \"" + username + "\" does not exist.",
+				"Failed to add roles for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -2748,10 +3862,11 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_generateclientkey(FuseBaseRESTAPICall c) throws Exception {
+	public void user_roles_delete(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_generateclientkey(
+		this.user_roles_delete(
 			c.httpRequest().parameter("username"),
+			c.httpRequest().parameter("roleList"),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2759,22 +3874,27 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void user_generateclientkey(	@Parameter(name="username")
-										String username,
-										@Parameter(name="jsonCallbackFunction", required=false)
-										String jsonCallbackFunction,
-										FuseBaseRESTAPICall c
+	public void user_roles_delete(	@Parameter(name="username")
+									String username,
+									@Parameter(name="roleList")
+									String roleList,
+									@Parameter(name="jsonCallbackFunction", required=false)
+									String jsonCallbackFunction,
+									FuseBaseRESTAPICall c
 							
-										) throws Exception {
+									) throws Exception {
 		
 		MapAction mapAction =
-			this.FuseBase.userManager.addClientKey(username);
+			this.FuseBase.userManager.deleteUserRoles(
+				username,
+				roleList.split(",")
+			);
 			
-		if(mapAction == MapAction.ADD) {
+		if(mapAction == MapAction.DELETE) {
 			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully generated new client key for username \"" + username + "\".",
+				"Successfully deleted roles \"" + roleList + "\" for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -2782,7 +3902,7 @@ public class FuseBaseRESTAPI {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to generate new client key for username \"" + username + "\".",
+				"Failed to delete roles for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -2791,11 +3911,10 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_clientkeys_add(FuseBaseRESTAPICall c) throws Exception {
+	public void user_roles_deleteall(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_clientkeys_add(
+		this.user_roles_deleteall(
 			c.httpRequest().parameter("username"),
-			c.httpRequest().parameter("clientKey"),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2803,10 +3922,8 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void user_clientkeys_add(	@Parameter(name="username")
+	public void user_roles_deleteall(	@Parameter(name="username")
 										String username,
-										@Parameter(name="clientKey")
-										String clientKey,
 										@Parameter(name="jsonCallbackFunction", required=false)
 										String jsonCallbackFunction,
 										FuseBaseRESTAPICall c
@@ -2814,13 +3931,15 @@ public class FuseBaseRESTAPI {
 										) throws Exception {
 		
 		MapAction mapAction =
-			this.FuseBase.userManager.addExternalClientKey(username, clientKey);
+			this.FuseBase.userManager.deleteAllUserRoles(
+				username
+			);
 			
-		if(mapAction == MapAction.ADD) {
+		if(mapAction == MapAction.DELETE_ALL) {
 			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully added client key for username \"" + username + "\".",
+				"Successfully deleted all roles for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -2828,7 +3947,7 @@ public class FuseBaseRESTAPI {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to add client key for username \"" + username + "\".",
+				"Failed to delete all roles for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -2837,11 +3956,14 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_clientkey_delete(FuseBaseRESTAPICall c) throws Exception {
+	public void user_privilegesandroles_update(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_clientkey_delete(
+		this.user_privilegesandroles_update(
 			c.httpRequest().parameter("username"),
-			c.httpRequest().parameter("clientkey"),
+			this.replaceURL(c.httpRequest().parameter("privilegeList", "")),
+			this.replaceURL(c.httpRequest().parameter("privilegeListToRemove", "")),
+			this.replaceURL(c.httpRequest().parameter("roleList", "")),
+			this.replaceURL(c.httpRequest().parameter("roleListToRemove", "")),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2849,35 +3971,68 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void user_clientkey_delete(	@Parameter(name="username")
-										String username,
-										@Parameter(name="clientkey")
-										String clientKey,
-										@Parameter(name="jsonCallbackFunction", required=false)
-										String jsonCallbackFunction,
-										FuseBaseRESTAPICall c
-							
-									) throws Exception {
+	public void user_privilegesandroles_update(
+	
+			@Parameter(name="username")
+			String username,
+			@Parameter(name="priviligeList")
+			String privilegeList,
+			@Parameter(name="privilegeListToRemove")
+			String privilegeListToRemove,
+			@Parameter(name="roleList")
+			String roleList,
+			@Parameter(name="roleListToRemove")
+			String roleListToRemove,
+			@Parameter(name="jsonCallbackFunction", required=false)
+			String jsonCallbackFunction,
+			FuseBaseRESTAPICall c
+			
+		) throws Exception {
 		
-		MapAction mapAction =
-			this.FuseBase.userManager.deleteClientKey(
+		MapAction[] mapActions =
+			new MapAction[4];
+		
+		mapActions[0] =
+			this.FuseBase.userManager.addUserPrivileges(
 				username,
-				clientKey
+				privilegeList.split(",")
 			);
-			
-		if(mapAction == MapAction.DELETE) {
+		
+		mapActions[1] =
+			this.FuseBase.userManager.deleteUserPrivileges(
+				username,
+				privilegeListToRemove.split(",")
+			);
+		
+		mapActions[2] =
+			this.FuseBase.userManager.addUserRoles(
+				username,
+				roleList.split(",")
+			);
+		
+		mapActions[3] =
+			this.FuseBase.userManager.deleteUserRoles(
+				username,
+				roleListToRemove.split(",")
+			);
+		
+		if(	mapActions[0] != MapAction.NONE ||
+			mapActions[1] != MapAction.NONE ||
+			mapActions[2] != MapAction.NONE ||
+			mapActions[3] != MapAction.NONE	) {
 			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully deleted client key \"" + clientKey + "\" for username \"" + username + "\".",
+				"Successfully added privileges \"" + privilegeList + "\", removed \"" + privilegeListToRemove + "\", " +
+				"added roles \"" + roleList + "\" and removed \"" + roleListToRemove + "\" for username \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
 		} else {
 			
-			this.apiResponseError(
+			this.apiResponseSuccess(
 				c.output(),
-				"Failed to delete client key \"" + clientKey + "\" for username \"" + username + "\".",
+				"No changes to privileges and roles for \"" + username + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -2886,10 +4041,9 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_clientkeys_deleteall(FuseBaseRESTAPICall c) throws Exception {
+	public void scheduler_jobs(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_clientkeys_deleteall(
-			c.httpRequest().parameter("username"),
+		this.scheduler_jobs(
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2897,30 +4051,92 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void user_clientkeys_deleteall(	@Parameter(name="username")
-											String username,
-											@Parameter(name="jsonCallbackFunction", required=false)
-											String jsonCallbackFunction,
-											FuseBaseRESTAPICall c
+	public void scheduler_jobs(	@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c
 							
-										) throws Exception {
+								) throws Exception {
 		
-		MapAction mapAction =
-			this.FuseBase.userManager.deleteUserClientKeys(username);
+		this.jsonReply(
+			c.output(),
+			this.FuseBase.scheduler().getJSONBuilder(),
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void scheduler_jobs_create(FuseBaseRESTAPICall c) throws Exception {
+		
+		String
+			name = this.replaceURL(c.httpRequest().parameter("name")),
+			scriptName = this.replaceURL(c.httpRequest().parameter("scriptName"));
+		long
+			initialDelay = Long.parseLong(c.httpRequest().parameter("initialDelay")),
+			period = Long.parseLong(c.httpRequest().parameter("period"));
+		
+		TimeUnit timeUnit =
+			TimeUnit.valueOf(
+				c.httpRequest().parameter(
+					"timeUnit",
+					TimeUnit.MINUTES.toString()
+				)
+			);
+		
+		
+		this.scheduler_jobs_create(
+			name,
+			scriptName,
+			initialDelay,
+			period,
+			timeUnit,
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void scheduler_jobs_create(	@Parameter(name="name")
+										String name,
+										@Parameter(name="scriptName", validValuesClass=ScriptManager.class)
+										String scriptName,
+										@Parameter(name="intitalDelay")
+										long initialDelay,
+										@Parameter(name="period")
+										long period,
+										@Parameter(name="timeUnit")
+										TimeUnit timeUnit,
+										@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										FuseBaseRESTAPICall c
+									
+									) throws Exception {
+		
+		Script script =
+			this.FuseBase.scriptManager.getScript(scriptName);
+		
+		try {
 			
-		if(mapAction == MapAction.DELETE_ALL) {
+			this.FuseBase.scheduler().scheduleJob(
+				name,
+				script,
+				initialDelay,
+				period,
+				timeUnit
+			);
 			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully deleted all client keys for username \"" + username + "\".",
+				"Successfully created and scheduled job \"" + name + "\".",
 				c.jsonCallbackFunction()
 			);
 			
-		} else {
+		} catch(Exception e) {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to delete all client keys for username \"" + username + "\".",
+				"Failed to create and schedule job \"" + name + "\". Error: " + e.getMessage(),
 				c.jsonCallbackFunction()
 			);
 			
@@ -2929,10 +4145,39 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_privileges(FuseBaseRESTAPICall c) throws Exception {
+	public void scheduler_timeunits(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.scheduler_timeunits(
+			c.jsonCallbackFunction(),
+			c
+		);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void scheduler_timeunits(	@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										FuseBaseRESTAPICall c
+											
+										) throws Exception {
+		
+		this.jsonReply(
+			c.output(),
+			this.FuseBase.scheduler().getTimeUnitJSONBuilder(),
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void scheduler_jobs_delete(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_privileges(
-			c.httpRequest().parameter("username"),
+		String
+			name = this.replaceURL(c.httpRequest().parameter("name"));
+		
+		
+		this.scheduler_jobs_delete(
+			name,
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2940,32 +4185,31 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void user_privileges(	@Parameter(name="username")
-									String username,
-									@Parameter(name="jsonCallbackFunction", required=false)
-									String jsonCallbackFunction,
-									FuseBaseRESTAPICall c
-							
+	public void scheduler_jobs_delete(	@Parameter(name="name", validValuesClass=Scheduler.class)
+										String name,
+										@Parameter(name="jsonCallbackFunction", required=false)
+										String jsonCallbackFunction,
+										FuseBaseRESTAPICall c
+									
 									) throws Exception {
 		
-		JSONBuilder jb =
-			this.FuseBase.userManager.getUserRolesAndPrivilegesJSONBuilder(
-				username
-			);
+		try {
 			
-		if(jb != null) {
+			this.FuseBase.scheduler().deleteJob(
+				name
+			);
 			
-			this.jsonReply(
+			this.apiResponseSuccess(
 				c.output(),
-				jb,
+				"Successfully stopped and deleted job \"" + name + "\".",
 				c.jsonCallbackFunction()
 			);
 			
-		} else if(jb == null) {
+		} catch(Exception e) {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to list privileges for username \"" + username + "\".",
+				"Failed to stop and delete job \"" + name + "\". Error: " + e.getMessage(),
 				c.jsonCallbackFunction()
 			);
 			
@@ -2974,11 +4218,14 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_privileges_add(FuseBaseRESTAPICall c) throws Exception {
+	public void scheduler_jobs_start(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_privileges_add(
-			c.httpRequest().parameter("username"),
-			c.httpRequest().parameter("privilegeList"),
+		String
+			name = this.replaceURL(c.httpRequest().parameter("name"));
+		
+		
+		this.scheduler_jobs_start(
+			name,
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -2986,35 +4233,31 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void user_privileges_add(	@Parameter(name="username")
-										String username,
-										@Parameter(name="privilegeList")
-										String privilegeList,
+	public void scheduler_jobs_start(	@Parameter(name="name", validValuesClass=Scheduler.class)
+										String name,
 										@Parameter(name="jsonCallbackFunction", required=false)
 										String jsonCallbackFunction,
 										FuseBaseRESTAPICall c
-							
+									
 									) throws Exception {
 		
-		MapAction mapAction =
-			this.FuseBase.userManager.addUserPrivileges(
-				username,
-				privilegeList.split(",")
-			);
+		try {
 			
-		if(mapAction == MapAction.ADD) {
+			this.FuseBase.scheduler().startJob(
+				name
+			);
 			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully added privileges \"" + privilegeList + "\" for username \"" + username + "\".",
+				"Successfully started schedule of job \"" + name + "\".",
 				c.jsonCallbackFunction()
 			);
 			
-		} else {
+		} catch(Exception e) {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to add privileges for username \"" + username + "\".",
+				"Failed to start schedule of job \"" + name + "\". Error: " + e.getMessage(),
 				c.jsonCallbackFunction()
 			);
 			
@@ -3023,11 +4266,14 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_privileges_delete(FuseBaseRESTAPICall c) throws Exception {
+	public void scheduler_jobs_logs(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_privileges_delete(
-			c.httpRequest().parameter("username"),
-			c.httpRequest().parameter("privilegeList"),
+		String
+			name = this.replaceURL(c.httpRequest().parameter("name"));
+		
+		
+		this.scheduler_jobs_logs(
+			name,
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -3035,35 +4281,27 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void user_privileges_delete(	@Parameter(name="username")
-										String username,
-										@Parameter(name="privilegeList")
-										String privilegeList,
+	public void scheduler_jobs_logs(	@Parameter(name="name", validValuesClass=Scheduler.class)
+										String name,
 										@Parameter(name="jsonCallbackFunction", required=false)
 										String jsonCallbackFunction,
 										FuseBaseRESTAPICall c
-							
+									
 									) throws Exception {
 		
-		MapAction mapAction =
-			this.FuseBase.userManager.deleteUserPrivileges(
-				username,
-				privilegeList.split(",")
-			);
-			
-		if(mapAction == MapAction.DELETE) {
+		try {
 			
-			this.apiResponseSuccess(
+			this.jsonReply(
 				c.output(),
-				"Successfully deleted privileges \"" + privilegeList + "\" for username \"" + username + "\".",
+				this.FuseBase.fileManager.listFullDirectory(Scheduler.SCHEDULER_LOG_DIRECTORY + name),
 				c.jsonCallbackFunction()
 			);
 			
-		} else {
+		} catch(Exception e) {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to delete privileges for username \"" + username + "\".",
+				"Failed list logs for job \"" + name + "\". Error: " + e.getMessage(),
 				c.jsonCallbackFunction()
 			);
 			
@@ -3072,10 +4310,16 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_privileges_deleteall(FuseBaseRESTAPICall c) throws Exception {
+	public void scheduler_jobs_logs_getfile(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_privileges_deleteall(
-			c.httpRequest().parameter("username"),
+		String
+			name = this.replaceURL(c.httpRequest().parameter("name")),
+			fileName = this.replaceURL(c.httpRequest().parameter("fileName"));
+		
+		
+		this.scheduler_jobs_logs_getfile(
+			name,
+			fileName,
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -3083,32 +4327,52 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void user_privileges_deleteall(	@Parameter(name="username")
-											String username,
-											@Parameter(name="jsonCallbackFunction", required=false)
-											String jsonCallbackFunction,
-											FuseBaseRESTAPICall c
-							
-										) throws Exception {
+	public void scheduler_jobs_logs_getfile(	@Parameter(name="name", validValuesClass=Scheduler.class)
+												String name,
+												@Parameter(name="fileName")
+												String fileName,
+												@Parameter(name="jsonCallbackFunction", required=false)
+												String jsonCallbackFunction,
+												FuseBaseRESTAPICall c
+											
+											) throws Exception {
 		
-		MapAction mapAction =
-			this.FuseBase.userManager.deleteAllUserPrivileges(
-				username
-			);
+		try {
 			
-		if(mapAction == MapAction.DELETE_ALL) {
+			String fullPath =
+				this.FuseBase.scheduler().getFullPathOfSchedulerJobLogFile(
+					name,
+					fileName
+				);
+				
+			if(fullPath != null) {
+				
+				c.httpServerThread().serveFile(
+					c.output(),
+					fullPath,
+					HttpResponse.contentType(
+						HttpResponse.getFileType(
+							fileName
+						)
+					)
+				);
+				
+			} else if(fullPath == null) {
+				
+				this.apiResponseError(
+					c.output(),
+					"Log file \"" + fileName + "\" for job \"" + name + "\" does not exist.",
+					c.jsonCallbackFunction()
+				);
+				
+			}
 			
-			this.apiResponseSuccess(
-				c.output(),
-				"Successfully deleted all privileges for username \"" + username + "\".",
-				c.jsonCallbackFunction()
-			);
 			
-		} else {
+		} catch(Exception e) {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to delete all privileges for username \"" + username + "\".",
+				"Failed to get log file \"" + fileName + "\" for job \"" + name + "\". Error: " + e.getMessage(),
 				c.jsonCallbackFunction()
 			);
 			
@@ -3117,108 +4381,128 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_roles_add(FuseBaseRESTAPICall c) throws Exception {
+	public void geturl(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_roles_add(
-			c.httpRequest().parameter("username"),
-			c.httpRequest().parameter("roleList"),
-			c.jsonCallbackFunction(),
+		String url =
+			replaceURL(c.httpRequest().parameter("url"));
+			
+		this.geturl(
+			url,
 			c
 		);
 		
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void user_roles_add(	@Parameter(name="username")
-								String username,
-								@Parameter(name="roleList")
-								String roleList,
-								@Parameter(name="jsonCallbackFunction", required=false)
-								String jsonCallbackFunction,
-								FuseBaseRESTAPICall c
-							
-								) throws Exception {
+	public void geturl(	@Parameter(name="url") String url, FuseBaseRESTAPICall c) throws Exception {
 		
-		MapAction mapAction =
-			this.FuseBase.userManager.addUserRoles(
-				username,
-				roleList.split(",")
-			);
-			
-		if(mapAction == MapAction.ADD) {
+		this.FuseBase.fileManager.printURL(
+			c.output(),
+			url
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void system_export_all(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.system_export_all(c.jsonCallbackFunction(), c);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void system_export_all(	@Parameter(name="jsonCallbackFunction", required=false)
+									String jsonCallbackFunction,
+									FuseBaseRESTAPICall c) throws Exception {
+		try {
 			
-			this.apiResponseSuccess(
+			byte[] exportData =
+				this.FuseBase.exportManager.exportAll();
+
+			HttpResponse.header(
 				c.output(),
-				"Successfully added roles \"" + roleList + "\" for username \"" + username + "\".",
-				c.jsonCallbackFunction()
+				new String[] {
+					"Content-Type: application/octet-stream",
+					"Content-Disposition: inline; filename=\"FuseBase.bak\""
+				}
 			);
+
+			c.output().write(exportData, 0, exportData.length);
 			
-		} else {
+		} catch(Exception e) {
 			
-			this.apiResponseError(
-				c.output(),
-				"Failed to add roles for username \"" + username + "\".",
-				c.jsonCallbackFunction()
-			);
+			e.printStackTrace();
 			
 		}
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_roles_delete(FuseBaseRESTAPICall c) throws Exception {
+	public void system_import_all(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_roles_delete(
-			c.httpRequest().parameter("username"),
-			c.httpRequest().parameter("roleList"),
-			c.jsonCallbackFunction(),
-			c
-		);
+		this.system_import_all(c.jsonCallbackFunction(), c);
 		
 	}
 	
-	@API(type=HttpRequestType.GET)
-	public void user_roles_delete(	@Parameter(name="username")
-									String username,
-									@Parameter(name="roleList")
-									String roleList,
-									@Parameter(name="jsonCallbackFunction", required=false)
+	@API(type=HttpRequestType.POST)
+	public void system_import_all(	@Parameter(name="jsonCallbackFunction", required=false)
 									String jsonCallbackFunction,
-									FuseBaseRESTAPICall c
-							
-									) throws Exception {
+									FuseBaseRESTAPICall c) throws Exception {
+		
 		
-		MapAction mapAction =
-			this.FuseBase.userManager.deleteUserRoles(
-				username,
-				roleList.split(",")
-			);
 			
-		if(mapAction == MapAction.DELETE) {
+		try {
+			
+			this.FuseBase.exportManager.importAll(
+				c.httpRequest().getClientData()
+			);
 			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully deleted roles \"" + roleList + "\" for username \"" + username + "\".",
+				"Successfully imported FuseBase data.",
 				c.jsonCallbackFunction()
 			);
 			
-		} else {
+		} catch(Exception e) {
+			
+			e.printStackTrace();
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to delete roles for username \"" + username + "\".",
+				"An error ocurred while importing FuseBase data. Error: " + e.getMessage(),
 				c.jsonCallbackFunction()
 			);
 			
 		}
 		
+		
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_roles_deleteall(FuseBaseRESTAPICall c) throws Exception {
+	public void queries_running(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_roles_deleteall(
-			c.httpRequest().parameter("username"),
+		this.queries_running(c.jsonCallbackFunction(), c);
+		
+	}
+	
+	@API(type=HttpRequestType.GET)
+	public void queries_running(	@Parameter(name="jsonCallbackFunction", required=false)
+									String jsonCallbackFunction,
+									FuseBaseRESTAPICall c) throws Exception {
+		
+		this.jsonReply(
+			c.output(),
+			FuseBase.queryManager.getRunningQueriesJSONBuilder(),
+			c.jsonCallbackFunction()
+		);
+		
+	}
+	
+	@HTTP_ENDPOINT
+	public void queries_cancel(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.queries_cancel(
+			Long.parseLong(c.httpRequest().parameter("runningQueryId", "0")),
 			c.jsonCallbackFunction(),
 			c
 		);
@@ -3226,24 +4510,17 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void user_roles_deleteall(	@Parameter(name="username")
-										String username,
-										@Parameter(name="jsonCallbackFunction", required=false)
-										String jsonCallbackFunction,
-										FuseBaseRESTAPICall c
-							
-										) throws Exception {
+	public void queries_cancel(	@Parameter(name="runningQueryId")
+								long runningQueryId,
+								@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c) throws Exception {
 		
-		MapAction mapAction =
-			this.FuseBase.userManager.deleteAllUserRoles(
-				username
-			);
-			
-		if(mapAction == MapAction.DELETE_ALL) {
+		if(FuseBase.queryManager.cancelQuery(runningQueryId)) {
 			
 			this.apiResponseSuccess(
 				c.output(),
-				"Successfully deleted all roles for username \"" + username + "\".",
+				"Cancelled query " + runningQueryId + ".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -3251,7 +4528,7 @@ public class FuseBaseRESTAPI {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to delete all roles for username \"" + username + "\".",
+				"Query " + runningQueryId + " is not running.",
 				c.jsonCallbackFunction()
 			);
 			
@@ -3260,187 +4537,135 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void user_privilegesandroles_update(FuseBaseRESTAPICall c) throws Exception {
+	public void queries_cache(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.user_privilegesandroles_update(
-			c.httpRequest().parameter("username"),
-			this.replaceURL(c.httpRequest().parameter("privilegeList", "")),
-			this.replaceURL(c.httpRequest().parameter("privilegeListToRemove", "")),
-			this.replaceURL(c.httpRequest().parameter("roleList", "")),
-			this.replaceURL(c.httpRequest().parameter("roleListToRemove", "")),
-			c.jsonCallbackFunction(),
-			c
-		);
+		this.queries_cache(c.jsonCallbackFunction(), c);
 		
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void user_privilegesandroles_update(
-	
-			@Parameter(name="username")
-			String username,
-			@Parameter(name="priviligeList")
-			String privilegeList,
-			@Parameter(name="privilegeListToRemove")
-			String privilegeListToRemove,
-			@Parameter(name="roleList")
-			String roleList,
-			@Parameter(name="roleListToRemove")
-			String roleListToRemove,
-			@Parameter(name="jsonCallbackFunction", required=false)
-			String jsonCallbackFunction,
-			FuseBaseRESTAPICall c
-			
-		) throws Exception {
-		
-		MapAction[] mapActions =
-			new MapAction[4];
+	public void queries_cache(	@Parameter(name="jsonCallbackFunction", required=false)
+								String jsonCallbackFunction,
+								FuseBaseRESTAPICall c) throws Exception {
 		
-		mapActions[0] =
-			this.FuseBase.userManager.addUserPrivileges(
-				username,
-				privilegeList.split(",")
-			);
+		this.jsonReply(
+			c.output(),
+			FuseBase.queryManager.resultCache().getJSONBuilder(),
+			c.jsonCallbackFunction()
+		);
 		
-		mapActions[1] =
-			this.FuseBase.userManager.deleteUserPrivileges(
-				username,
-				privilegeListToRemove.split(",")
-			);
+	}
+	
+	@HTTP_ENDPOINT
+	public void queries_cache_invalidate(FuseBaseRESTAPICall c) throws Exception {
 		
-		mapActions[2] =
-			this.FuseBase.userManager.addUserRoles(
-				username,
-				roleList.split(",")
-			);
+		this.queries_cache_invalidate(
+			c.httpRequest().parameter("queryId"),
+			c.jsonCallbackFunction(),
+			c
+		);
 		
-		mapActions[3] =
-			this.FuseBase.userManager.deleteUserRoles(
-				username,
-				roleListToRemove.split(",")
-			);
+	}
+	
+	/*
+	** Without queryId, the cached results of all queries are dropped.
+	*/
+	@API(type=HttpRequestType.GET)
+	public void queries_cache_invalidate(	@Parameter(name="queryId", required=false, validValuesClass=QueryManager.class)
+											String queryId,
+											@Parameter(name="jsonCallbackFunction", required=false)
+											String jsonCallbackFunction,
+											FuseBaseRESTAPICall c) throws Exception {
 		
-		if(	mapActions[0] != MapAction.NONE ||
-			mapActions[1] != MapAction.NONE ||
-			mapActions[2] != MapAction.NONE ||
-			mapActions[3] != MapAction.NONE	) {
+		if(queryId != null && !FuseBase.queryManager.hasQuery(queryId)) {
 			
-			this.apiResponseSuccess(
+			this.apiResponseError(
 				c.output(),
-				"Successfully added privileges \"" + privilegeList + "\", removed \"" + privilegeListToRemove + "\", " +
-				"added roles \"" + roleList + "\" and removed \"" + roleListToRemove + "\" for username \"" + username + "\".",
+				"Query Id \"" + queryId + "\" does not exist.",
 				c.jsonCallbackFunction()
 			);
 			
-		} else {
-			
-			this.apiResponseSuccess(
-				c.output(),
-				"No changes to privileges and roles for \"" + username + "\".",
-				c.jsonCallbackFunction()
-			);
+			return;
 			
 		}
 		
+		int removed =
+			FuseBase.queryManager.invalidateCachedResults(queryId);
+		
+		this.apiResponseSuccess(
+			c.output(),
+			"Removed " + removed + " cached results.",
+			c.jsonCallbackFunction()
+		);
+		
 	}
 	
 	@HTTP_ENDPOINT
-	public void scheduler_jobs(FuseBaseRESTAPICall c) throws Exception {
+	public void queries_watermarks(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.scheduler_jobs(
-			c.jsonCallbackFunction(),
-			c
-		);
+		this.queries_watermarks(c.jsonCallbackFunction(), c);
 		
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void scheduler_jobs(	@Parameter(name="jsonCallbackFunction", required=false)
-								String jsonCallbackFunction,
-								FuseBaseRESTAPICall c
-							
-								) throws Exception {
+	public void queries_watermarks(	@Parameter(name="jsonCallbackFunction", required=false)
+									String jsonCallbackFunction,
+									FuseBaseRESTAPICall c) throws Exception {
 		
 		this.jsonReply(
 			c.output(),
-			this.FuseBase.scheduler().getJSONBuilder(),
+			FuseBase.queryManager.watermarks().getJSONBuilder(),
 			c.jsonCallbackFunction()
 		);
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void scheduler_jobs_create(FuseBaseRESTAPICall c) throws Exception {
-		
-		String
-			name = this.replaceURL(c.httpRequest().parameter("name")),
-			scriptName = this.replaceURL(c.httpRequest().parameter("scriptName"));
-		long
-			initialDelay = Long.parseLong(c.httpRequest().parameter("initialDelay")),
-			period = Long.parseLong(c.httpRequest().parameter("period"));
+	public void queries_watermarks_reset(FuseBaseRESTAPICall c) throws Exception {
 		
-		TimeUnit timeUnit =
-			TimeUnit.valueOf(
-				c.httpRequest().parameter(
-					"timeUnit",
-					TimeUnit.MINUTES.toString()
-				)
-			);
-		
-		
-		this.scheduler_jobs_create(
-			name,
-			scriptName,
-			initialDelay,
-			period,
-			timeUnit,
+		this.queries_watermarks_reset(
+			c.httpRequest().parameter("name"),
 			c.jsonCallbackFunction(),
 			c
 		);
 		
 	}
 	
+	/*
+	** The next incremental extraction by this name extracts all rows.
+	*/
 	@API(type=HttpRequestType.GET)
-	public void scheduler_jobs_create(	@Parameter(name="name")
-										String name,
-										@Parameter(name="scriptName", validValuesClass=ScriptManager.class)
-										String scriptName,
-										@Parameter(name="intitalDelay")
-										long initialDelay,
-										@Parameter(name="period")
-										long period,
-										@Parameter(name="timeUnit")
-										TimeUnit timeUnit,
-										@Parameter(name="jsonCallbackFunction", required=false)
-										String jsonCallbackFunction,
-										FuseBaseRESTAPICall c
-									
-									) throws Exception {
-		
-		Script script =
-			this.FuseBase.scriptManager.getScript(scriptName);
+	public void queries_watermarks_reset(	@Parameter(name="name")
+											String name,
+											@Parameter(name="jsonCallbackFunction", required=false)
+											String jsonCallbackFunction,
+											FuseBaseRESTAPICall c) throws Exception {
 		
 		try {
 			
-			this.FuseBase.scheduler().scheduleJob(
-				name,
-				script,
-				initialDelay,
-				period,
-				timeUnit
-			);
-			
-			this.apiResponseSuccess(
-				c.output(),
-				"Successfully created and scheduled job \"" + name + "\".",
-				c.jsonCallbackFunction()
-			);
+			if(name != null && FuseBase.queryManager.watermarks().reset(name)) {
+				
+				this.apiResponseSuccess(
+					c.output(),
+					"Reset watermark \"" + name + "\".",
+					c.jsonCallbackFunction()
+				);
+				
+			} else {
+				
+				this.apiResponseError(
+					c.output(),
+					"Watermark \"" + name + "\" does not exist.",
+					c.jsonCallbackFunction()
+				);
+				
+			}
 			
 		} catch(Exception e) {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to create and schedule job \"" + name + "\". Error: " + e.getMessage(),
+				e.getMessage(),
 				c.jsonCallbackFunction()
 			);
 			
@@ -3449,111 +4674,129 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void scheduler_timeunits(FuseBaseRESTAPICall c) throws Exception {
+	public void connections_status(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.scheduler_timeunits(
-			c.jsonCallbackFunction(),
-			c
-		);
+		this.connections_status(c.jsonCallbackFunction(), c);
 		
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void scheduler_timeunits(	@Parameter(name="jsonCallbackFunction", required=false)
-										String jsonCallbackFunction,
-										FuseBaseRESTAPICall c
-											
-										) throws Exception {
+	public void connections_status(	@Parameter(name="jsonCallbackFunction", required=false)
+									String jsonCallbackFunction,
+									FuseBaseRESTAPICall c) throws Exception {
 		
 		this.jsonReply(
 			c.output(),
-			this.FuseBase.scheduler().getTimeUnitJSONBuilder(),
+			FuseBase.dbConnectionManager.getStatusJSONBuilder(),
 			c.jsonCallbackFunction()
 		);
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void scheduler_jobs_delete(FuseBaseRESTAPICall c) throws Exception {
+	public void connections_bulkload(FuseBaseRESTAPICall c) throws Exception {
 		
-		String
-			name = this.replaceURL(c.httpRequest().parameter("name"));
+		String sourceQuery =
+			c.httpRequest().parameter("sourceQuery");
 		
+		if(sourceQuery != null) {
+			sourceQuery = replaceURL(sourceQuery);
+		}
 		
-		this.scheduler_jobs_delete(
-			name,
+		String delimiter =
+			replaceURL(c.httpRequest().parameter("delimiter", ","));
+		
+		this.connections_bulkload(
+			c.httpRequest().parameter("connectionName"),
+			c.httpRequest().parameter("table"),
+			(delimiter.length() > 0 ? delimiter.charAt(0) : ','),
+			c.httpRequest().parameter("sourceConnectionName"),
+			sourceQuery,
+			Integer.parseInt(c.httpRequest().parameter("batchSize", "0")),
+			Integer.parseInt(c.httpRequest().parameter("commitInterval", "0")),
+			Integer.parseInt(c.httpRequest().parameter("writerCount", "0")),
 			c.jsonCallbackFunction(),
 			c
 		);
 		
 	}
 	
-	@API(type=HttpRequestType.GET)
-	public void scheduler_jobs_delete(	@Parameter(name="name", validValuesClass=Scheduler.class)
-										String name,
+	/*
+	** Inserts the posted CSV, or the result of sourceQuery on
+	** sourceConnectionName, into table.
+	*/
+	@API(type=HttpRequestType.POST)
+	public void connections_bulkload(	@Parameter(name="connectionName", validValuesClass=DBConnectionManager.class)
+										String connectionName,
+										@Parameter(name="table")
+										String table,
+										@Parameter(name="delimiter", required=false)
+										char delimiter,
+										@Parameter(name="sourceConnectionName", required=false, validValuesClass=DBConnectionManager.class)
+										String sourceConnectionName,
+										@Parameter(name="sourceQuery", required=false)
+										String sourceQuery,
+										@Parameter(name="batchSize", required=false)
+										int batchSize,
+										@Parameter(name="commitInterval", required=false)
+										int commitInterval,
+										@Parameter(name="writerCount", required=false)
+										int writerCount,
 										@Parameter(name="jsonCallbackFunction", required=false)
 										String jsonCallbackFunction,
 										FuseBaseRESTAPICall c
-									
+										
 									) throws Exception {
 		
-		try {
-			
-			this.FuseBase.scheduler().deleteJob(
-				name
-			);
-			
-			this.apiResponseSuccess(
-				c.output(),
-				"Successfully stopped and deleted job \"" + name + "\".",
-				c.jsonCallbackFunction()
-			);
-			
-		} catch(Exception e) {
+		if(connectionName == null || table == null) {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to stop and delete job \"" + name + "\". Error: " + e.getMessage(),
+				"No connectionName or table provided.",
 				c.jsonCallbackFunction()
 			);
 			
+			return;
+			
 		}
 		
-	}
-	
-	@HTTP_ENDPOINT
-	public void scheduler_jobs_start(FuseBaseRESTAPICall c) throws Exception {
-		
-		String
-			name = this.replaceURL(c.httpRequest().parameter("name"));
-		
-		
-		this.scheduler_jobs_start(
-			name,
-			c.jsonCallbackFunction(),
-			c
-		);
-		
-	}
-	
-	@API(type=HttpRequestType.GET)
-	public void scheduler_jobs_start(	@Parameter(name="name", validValuesClass=Scheduler.class)
-										String name,
-										@Parameter(name="jsonCallbackFunction", required=false)
-										String jsonCallbackFunction,
-										FuseBaseRESTAPICall c
-									
-									) throws Exception {
-		
 		try {
 			
-			this.FuseBase.scheduler().startJob(
-				name
-			);
+			JSONBuilder result;
 			
-			this.apiResponseSuccess(
+			// Same as api/connections/copy
+			if(sourceConnectionName != null && sourceQuery != null) {
+				
+				result =
+					FuseBase.queryManager.copy(
+						sourceConnectionName,
+						sourceQuery,
+						connectionName,
+						table,
+						new BulkLoadOptions(batchSize, commitInterval, writerCount),
+						new QueryOptions(0, 0, this.getUsername(c))
+					);
+				
+			} else {
+				
+				result =
+					FuseBase.queryManager.bulkLoad(
+						connectionName,
+						table,
+						BulkLoader.csvSource(
+							new CSVReader(
+								c.httpRequest().getClientDataStream(),
+								delimiter
+							)
+						),
+						new BulkLoadOptions(batchSize, commitInterval, writerCount)
+					);
+				
+			}
+			
+			this.jsonReply(
 				c.output(),
-				"Successfully started schedule of job \"" + name + "\".",
+				result,
 				c.jsonCallbackFunction()
 			);
 			
@@ -3561,7 +4804,7 @@ public class FuseBaseRESTAPI {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to start schedule of job \"" + name + "\". Error: " + e.getMessage(),
+				"Bulk load failed. Error message: \"" + JSONBuilder.jsonEscape(e.getMessage()) + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -3570,118 +4813,79 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void scheduler_jobs_logs(FuseBaseRESTAPICall c) throws Exception {
-		
-		String
-			name = this.replaceURL(c.httpRequest().parameter("name"));
-		
-		
-		this.scheduler_jobs_logs(
-			name,
+	public void connections_copy(FuseBaseRESTAPICall c) throws Exception {
+		
+		this.connections_copy(
+			c.httpRequest().parameter("sourceConnectionName"),
+			this.replaceURL(c.httpRequest().parameter("sourceQuery")),
+			c.httpRequest().parameter("connectionName"),
+			c.httpRequest().parameter("table"),
+			Integer.parseInt(c.httpRequest().parameter("batchSize", "0")),
+			Integer.parseInt(c.httpRequest().parameter("commitInterval", "0")),
+			Integer.parseInt(c.httpRequest().parameter("writerCount", "0")),
 			c.jsonCallbackFunction(),
 			c
 		);
 		
 	}
 	
+	/*
+	** Copies the result of sourceQuery on sourceConnectionName into table
+	** on connectionName. Progress is listed by api/connections/bulkload/progress.
+	*/
 	@API(type=HttpRequestType.GET)
-	public void scheduler_jobs_logs(	@Parameter(name="name", validValuesClass=Scheduler.class)
-										String name,
-										@Parameter(name="jsonCallbackFunction", required=false)
-										String jsonCallbackFunction,
-										FuseBaseRESTAPICall c
+	public void connections_copy(	@Parameter(name="sourceConnectionName", validValuesClass=DBConnectionManager.class)
+									String sourceConnectionName,
+									@Parameter(name="sourceQuery")
+									String sourceQuery,
+									@Parameter(name="connectionName", validValuesClass=DBConnectionManager.class)
+									String connectionName,
+									@Parameter(name="table")
+									String table,
+									@Parameter(name="batchSize", required=false)
+									int batchSize,
+									@Parameter(name="commitInterval", required=false)
+									int commitInterval,
+									@Parameter(name="writerCount", required=false)
+									int writerCount,
+									@Parameter(name="jsonCallbackFunction", required=false)
+									String jsonCallbackFunction,
+									FuseBaseRESTAPICall c
 									
-									) throws Exception {
+								) throws Exception {
 		
-		try {
-			
-			this.jsonReply(
-				c.output(),
-				this.FuseBase.fileManager.listFullDirectory(Scheduler.SCHEDULER_LOG_DIRECTORY + name),
-				c.jsonCallbackFunction()
-			);
-			
-		} catch(Exception e) {
+		if(sourceConnectionName == null || sourceQuery == null || connectionName == null || table == null) {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed list logs for job \"" + name + "\". Error: " + e.getMessage(),
+				"No sourceConnectionName, sourceQuery, connectionName or table provided.",
 				c.jsonCallbackFunction()
 			);
 			
+			return;
+			
 		}
 		
-	}
-	
-	@HTTP_ENDPOINT
-	public void scheduler_jobs_logs_getfile(FuseBaseRESTAPICall c) throws Exception {
-		
-		String
-			name = this.replaceURL(c.httpRequest().parameter("name")),
-			fileName = this.replaceURL(c.httpRequest().parameter("fileName"));
-		
-		
-		this.scheduler_jobs_logs_getfile(
-			name,
-			fileName,
-			c.jsonCallbackFunction(),
-			c
-		);
-		
-	}
-	
-	@API(type=HttpRequestType.GET)
-	public void scheduler_jobs_logs_getfile(	@Parameter(name="name", validValuesClass=Scheduler.class)
-												String name,
-												@Parameter(name="fileName")
-												String fileName,
-												@Parameter(name="jsonCallbackFunction", required=false)
-												String jsonCallbackFunction,
-												FuseBaseRESTAPICall c
-											
-											) throws Exception {
-		
 		try {
 			
-			String fullPath =
-				this.FuseBase.scheduler().getFullPathOfSchedulerJobLogFile(
-					name,
-					fileName
-				);
-				
-			if(fullPath != null) {
-				
-				HttpResponse.header(
-					c.output(),
-					HttpResponse.contentType(
-						HttpResponse.getFileType(
-							fileName
-						)
-					),
-					-1
-				);
-
-				c.httpServerThread().serveFile(
-					c.output(),
-					fullPath
-				);
-				
-			} else if(fullPath == null) {
-				
-				this.apiResponseError(
-					c.output(),
-					"Log file \"" + fileName + "\" for job \"" + name + "\" does not exist.",
-					c.jsonCallbackFunction()
-				);
-				
-			}
-			
+			this.jsonReply(
+				c.output(),
+				FuseBase.queryManager.copy(
+					sourceConnectionName,
+					sourceQuery,
+					connectionName,
+					table,
+					new BulkLoadOptions(batchSize, commitInterval, writerCount),
+					new QueryOptions(0, 0, this.getUsername(c))
+				),
+				c.jsonCallbackFunction()
+			);
 			
 		} catch(Exception e) {
 			
 			this.apiResponseError(
 				c.output(),
-				"Failed to get log file \"" + fileName + "\" for job \"" + name + "\". Error: " + e.getMessage(),
+				"Copy failed. Error message: \"" + JSONBuilder.jsonEscape(e.getMessage()) + "\".",
 				c.jsonCallbackFunction()
 			);
 			
@@ -3690,101 +4894,55 @@ public class FuseBaseRESTAPI {
 	}
 	
 	@HTTP_ENDPOINT
-	public void geturl(FuseBaseRESTAPICall c) throws Exception {
+	public void connections_bulkload_progress(FuseBaseRESTAPICall c) throws Exception {
 		
-		String url =
-			replaceURL(c.httpRequest().parameter("url"));
-			
-		this.geturl(
-			url,
-			c
-		);
+		this.connections_bulkload_progress(c.jsonCallbackFunction(), c);
 		
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void geturl(	@Parameter(name="url") String url, FuseBaseRESTAPICall c) throws Exception {
+	public void connections_bulkload_progress(	@Parameter(name="jsonCallbackFunction", required=false)
+												String jsonCallbackFunction,
+												FuseBaseRESTAPICall c) throws Exception {
 		
-		this.FuseBase.fileManager.printURL(
+		this.jsonReply(
 			c.output(),
-			url
+			FuseBase.queryManager.getBulkLoadsJSONBuilder(),
+			c.jsonCallbackFunction()
 		);
 		
 	}
 	
 	@HTTP_ENDPOINT
-	public void system_export_all(FuseBaseRESTAPICall c) throws Exception {
+	public void system_httpserver(FuseBaseRESTAPICall c) throws Exception {
 		
-		this.system_export_all(c.jsonCallbackFunction(), c);
+		this.system_httpserver(c.jsonCallbackFunction(), c);
 		
 	}
 	
 	@API(type=HttpRequestType.GET)
-	public void system_export_all(	@Parameter(name="jsonCallbackFunction", required=false)
-									String jsonCallbackFunction,
-									FuseBaseRESTAPICall c) throws Exception {
-		try {
-			
-			byte[] exportData =
-				this.FuseBase.exportManager.exportAll();
-
-			HttpResponse.header(
-				c.output(),
-				new String[] {
-					"Content-Type: application/octet-stream",
-					"Content-Disposition: inline; filename=\"FuseBase.bak\""
-				}
-			);
-
-			c.output().write(exportData, 0, exportData.length);
-			
-		} catch(Exception e) {
-			
-			e.printStackTrace();
-			
-		}
-		
-	}
-	
-	@HTTP_ENDPOINT
-	public void system_import_all(FuseBaseRESTAPICall c) throws Exception {
-		
-		this.system_import_all(c.jsonCallbackFunction(), c);
-		
-	}
-	
-	@API(type=HttpRequestType.POST)
-	public void system_import_all(	@Parameter(name="jsonCallbackFunction", required=false)
+	public void system_httpserver(	@Parameter(name="jsonCallbackFunction", required=false)
 									String jsonCallbackFunction,
 									FuseBaseRESTAPICall c) throws Exception {
 		
-		
-			
-		try {
-			
-			this.FuseBase.exportManager.importAll(
-				c.httpRequest().getClientData()
-			);
+		if(this.FuseBase.httpServer() != null) {
 			
-			this.apiResponseSuccess(
+			this.jsonReply(
 				c.output(),
-				"Successfully imported FuseBase data.",
+				this.FuseBase.httpServer().getJSONBuilder(),
 				c.jsonCallbackFunction()
 			);
 			
-		} catch(Exception e) {
-			
-			e.printStackTrace();
+		} else {
 			
 			this.apiResponseError(
 				c.output(),
-				"An error ocurred while importing FuseBase data. Error: " + e.getMessage(),
+				"HTTP server is not running.",
 				c.jsonCallbackFunction()
 			);
 			
 		}
 		
-		
 	}
 	
 	/*
@@ -113,31 +113,25 @@ public class FuseBaseWebServer implements HttpRequestProcessor {
 				
 			}
 			
-			if(isFile || isResourceFile) {
-				
-				HttpResponse.header(
-					output,
-						HttpResponse.contentType(
-							fileName
-						)
-					,
-					-1
-				);
-				
-			}
-			
 			if(isFile) {
 				
 				httpServerThread.serveFile(
 					output,
-					fileName
+					fileName,
+					HttpResponse.contentType(
+						fileName
+					)
 				);
 				
 			} else if(isResourceFile) {
 				
 				this.fuseBase.fileManager.serveResourceFile(
 					output,
+					httpRequest,
 					fileName,
+					HttpResponse.contentType(
+						fileName
+					),
 					httpServerThread.getFileBuffer()
 				);
 				
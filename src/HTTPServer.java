@@ -15,30 +15,420 @@
  */
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.lang.reflect.Method;
 
+/*
+** The worker pool grows from minThreadCount towards maxThreadCount while
+** connections wait in the queue for longer than
+** HTTP_SERVER_QUEUE_WAIT_GROW_THRESHOLD, and shrinks again as workers stay
+** idle. Once the pool is at its maximum and the oldest queued connection
+** has waited longer than HTTP_SERVER_QUEUE_WAIT_LIMIT, new connections are
+** answered with 503 right away instead of being queued.
+*/
 public class HTTPServer {
 	
-	public static final int MAX_CLIENT_SOCKETS = 100000;
-	
 	protected int port;
-	private ServerSocket serverSocket;
+	private ServerSocketChannel serverSocket;
 	protected HttpRequestProcessor httpRequestProcessor;
-	protected LinkedBlockingQueue<Socket> clientSocketProcessingQueue;
-	protected HTTPServerThread[] httpServerThreads;
+	protected LinkedBlockingQueue<QueuedSocket> clientSocketProcessingQueue;
+	
+	protected int minThreadCount;
+	protected int maxThreadCount;
+	
+	// Pool and queue gauges
+	private AtomicInteger workerCount;
+	private AtomicInteger idleWorkerCount;
+	private AtomicLong acceptedConnectionCount;
+	private AtomicLong rejectedConnectionCount;
+	// Double bits, updated by every worker
+	private AtomicLong averageQueueWait;
+	private AtomicLong maxQueueWait;
+	
+	// Run every connection on a thread of its own instead of the worker pool
+	protected boolean useVirtualThreads;
+	private Method startVirtualThread;
+	private ExecutorService connectionExecutor;
+	
+	private static final byte[] SERVICE_UNAVAILABLE =
+		(	"HTTP/1.1 503 Service Unavailable" + HttpResponse.NEW_LINE +
+			"Retry-After: " + Config.HTTP_SERVER_RETRY_AFTER + HttpResponse.NEW_LINE +
+			"Content-Length: 0" + HttpResponse.NEW_LINE +
+			"Connection: close" + HttpResponse.NEW_LINE +
+			HttpResponse.NEW_LINE	).getBytes(StandardCharsets.ISO_8859_1);
 	
 	public HTTPServer(int port, HttpRequestProcessor httpRequestProcessor, int threadCount) {
 		
+		this(port, httpRequestProcessor, threadCount, threadCount);
+		
+	}
+	
+	public HTTPServer(int port, HttpRequestProcessor httpRequestProcessor, int minThreadCount, int maxThreadCount) {
+		
 		this.port = port;
 		this.serverSocket = null;
 		this.httpRequestProcessor = httpRequestProcessor;
 		this.clientSocketProcessingQueue =
-			new LinkedBlockingQueue<Socket>(
-				HTTPServer.MAX_CLIENT_SOCKETS
+			new LinkedBlockingQueue<QueuedSocket>(
+				Config.HTTP_SERVER_MAX_QUEUE_LENGTH
+			);
+		this.minThreadCount = Math.max(minThreadCount, 1);
+		this.maxThreadCount = Math.max(maxThreadCount, this.minThreadCount);
+		this.workerCount = new AtomicInteger(0);
+		this.idleWorkerCount = new AtomicInteger(0);
+		this.acceptedConnectionCount = new AtomicLong(0);
+		this.rejectedConnectionCount = new AtomicLong(0);
+		this.averageQueueWait = new AtomicLong(Double.doubleToLongBits(0));
+		this.maxQueueWait = new AtomicLong(0);
+		this.useVirtualThreads = false;
+		this.startVirtualThread = null;
+		this.connectionExecutor = null;
+		
+	}
+	
+	/*
+	** Virtual threads need Java 21. They are looked up by reflection so the
+	** server still builds and runs on older JVMs, where a cached pool of
+	** platform threads is used instead.
+	*/
+	public void setUseVirtualThreads(boolean useVirtualThreads) {
+		
+		this.useVirtualThreads = useVirtualThreads;
+		
+		if(!useVirtualThreads) {
+			return;
+		}
+		
+		try {
+			
+			this.startVirtualThread =
+				Thread.class.getMethod(
+					"startVirtualThread",
+					Runnable.class
+				);
+			
+		} catch(Exception e) {
+			
+			System.out.println(
+				"Virtual threads not supported by this JVM. Using a thread per connection."
+			);
+			
+			this.connectionExecutor =
+				Executors.newCachedThreadPool();
+			
+		}
+		
+	}
+	
+	protected void startWorkers() {
+		
+		if(this.useVirtualThreads) {
+			return;
+		}
+		
+		// Start worker thread pool
+		for(int i=0; i<this.minThreadCount; i++) {
+			this.addWorker();
+		}
+		
+		this.startPoolMonitor();
+		
+	}
+	
+	/*
+	** Starts a worker thread unless the pool is at its maximum size.
+	*/
+	protected boolean addWorker() {
+		
+		int count;
+		
+		do {
+			
+			count = this.workerCount.get();
+			
+			if(count >= this.maxThreadCount) {
+				return false;
+			}
+			
+		} while(!this.workerCount.compareAndSet(count, count + 1));
+		
+		this.startWorker();
+		
+		return true;
+		
+	}
+	
+	protected void startWorker() {
+		
+		new HTTPServerThread(
+			this,						// HTTPServer instance
+			this.httpRequestProcessor	// HttpRequestProcessor instance
+		);
+		
+	}
+	
+	/*
+	** Called by a worker that has been idle. Returns true if the worker
+	** should stop, which it may as long as the pool stays at its minimum.
+	*/
+	private boolean removeWorker() {
+		
+		int count;
+		
+		do {
+			
+			count = this.workerCount.get();
+			
+			if(count <= this.minThreadCount) {
+				return false;
+			}
+			
+		} while(!this.workerCount.compareAndSet(count, count - 1));
+		
+		return true;
+		
+	}
+	
+	/*
+	** Grows the pool while connections are left waiting. A connection
+	** queued while all workers are busy is only noticed here, as no
+	** worker is free to measure its wait.
+	*/
+	private void startPoolMonitor() {
+		
+		final HTTPServer me = this;
+		
+		Thread poolMonitor =
+			new Thread() {
+				public void run() {
+					
+					while(true) {
+						
+						try {
+							
+							Thread.sleep(Config.HTTP_SERVER_POOL_CHECK_INTERVAL);
+							
+							if(	me.idleWorkerCount.get() == 0 &&
+								me.oldestQueueWait() >= Config.HTTP_SERVER_QUEUE_WAIT_GROW_THRESHOLD	) {
+								
+								// One more worker for each waiting connection
+								int queueLength = me.queueLength();
+								
+								for(int i=0; i<queueLength && me.addWorker(); i++) {
+									;
+								}
+								
+							}
+							
+						} catch(Exception e) {
+							
+							System.out.println(
+								e.getMessage()
+							);
+							
+						}
+						
+					}
+					
+				}
+			};
+		
+		poolMonitor.setDaemon(true);
+		poolMonitor.start();
+		
+	}
+	
+	/*
+	** Waits for the next element of a worker queue. Returns null when the
+	** calling worker has been idle for HTTP_SERVER_WORKER_IDLE_TIMEOUT and
+	** is no longer needed, in which case it should stop.
+	*/
+	protected <E> E takeFromQueue(BlockingQueue<E> queue) throws Exception {
+		
+		while(true) {
+			
+			E element;
+			
+			this.idleWorkerCount.incrementAndGet();
+			
+			try {
+				
+				element =
+					queue.poll(
+						Config.HTTP_SERVER_WORKER_IDLE_TIMEOUT,
+						TimeUnit.MILLISECONDS
+					);
+				
+			} finally {
+				
+				this.idleWorkerCount.decrementAndGet();
+				
+			}
+			
+			if(element != null) {
+				return element;
+			}
+			
+			if(this.removeWorker()) {
+				return null;
+			}
+			
+		}
+		
+	}
+	
+	protected void queueWaitMeasured(long queuedTime) {
+		
+		long queueWait =
+			System.currentTimeMillis() - queuedTime;
+		
+		// Exponentially weighted, recent connections count the most
+		while(true) {
+			
+			long bits = this.averageQueueWait.get();
+			
+			double average = Double.longBitsToDouble(bits);
+			
+			average += (queueWait - average) * Config.HTTP_SERVER_QUEUE_WAIT_WEIGHT;
+			
+			if(this.averageQueueWait.compareAndSet(bits, Double.doubleToLongBits(average))) {
+				break;
+			}
+			
+		}
+		
+		long maxQueueWait = this.maxQueueWait.get();
+		
+		while(queueWait > maxQueueWait && !this.maxQueueWait.compareAndSet(maxQueueWait, queueWait)) {
+			maxQueueWait = this.maxQueueWait.get();
+		}
+		
+	}
+	
+	protected double averageQueueWait() {
+		return Double.longBitsToDouble(this.averageQueueWait.get());
+	}
+	
+	/*
+	** Time the connection at the head of the queue has been waiting
+	*/
+	protected long oldestQueueWait() {
+		
+		QueuedSocket oldest =
+			this.clientSocketProcessingQueue.peek();
+		
+		return (oldest != null ? System.currentTimeMillis() - oldest.queuedTime() : 0);
+		
+	}
+	
+	protected int queueLength() {
+		return this.clientSocketProcessingQueue.size();
+	}
+	
+	/*
+	** New connections would wait longer than HTTP_SERVER_QUEUE_WAIT_LIMIT
+	** and the pool can not grow any further.
+	*/
+	protected boolean isOverloaded() {
+		
+		return
+			this.workerCount.get() >= this.maxThreadCount &&
+			this.idleWorkerCount.get() == 0 &&
+			this.oldestQueueWait() > Config.HTTP_SERVER_QUEUE_WAIT_LIMIT;
+		
+	}
+	
+	/*
+	** Answers with 503 and closes the connection without queueing it.
+	*/
+	protected void rejectConnection(Socket socket) {
+		
+		this.connectionRejected();
+		
+		try {
+			
+			socket.setSoTimeout(Config.HTTP_SERVER_REJECT_TIMEOUT);
+			socket.getOutputStream().write(HTTPServer.SERVICE_UNAVAILABLE);
+			socket.shutdownOutput();
+			
+		} catch(Exception e) {
+			
+			;
+			
+		}
+		
+		try {
+			
+			socket.close();
+			
+		} catch(Exception e) {
+			
+			;
+			
+		}
+		
+	}
+	
+	protected void connectionAccepted() {
+		this.acceptedConnectionCount.incrementAndGet();
+	}
+	
+	protected void connectionRejected() {
+		this.rejectedConnectionCount.incrementAndGet();
+	}
+	
+	protected void dispatch(Socket socket) throws Exception {
+		
+		if(!this.useVirtualThreads) {
+			
+			if(	this.isOverloaded() ||
+				!this.clientSocketProcessingQueue.offer(new QueuedSocket(socket))	) {
+				
+				this.rejectConnection(socket);
+				
+				return;
+				
+			}
+			
+			this.connectionAccepted();
+			
+			return;
+			
+		}
+		
+		this.connectionAccepted();
+		
+		HTTPServerThread connectionHandler =
+			new HTTPServerThread(
+				this,
+				this.httpRequestProcessor,
+				socket
+			);
+		
+		if(this.startVirtualThread != null) {
+			
+			this.startVirtualThread.invoke(
+				null,
+				connectionHandler
 			);
-		this.httpServerThreads =
-			new HTTPServerThread[threadCount];
+			
+		} else {
+			
+			this.connectionExecutor.execute(
+				connectionHandler
+			);
+			
+		}
 		
 	}
 	
@@ -47,7 +437,10 @@ public class HTTPServer {
 		// Setup server socket on specified port
 		try {
 			
-			this.serverSocket = new ServerSocket(this.port);
+			// Sockets of a channel allow zero-copy file transfer (see HTTPServerThread.serveFile)
+			this.serverSocket = ServerSocketChannel.open();
+			this.serverSocket.socket().setReuseAddress(true);
+			this.serverSocket.bind(new InetSocketAddress(this.port));
 			
 		} catch (Exception e) {
 			
@@ -61,21 +454,12 @@ public class HTTPServer {
 		// Listen for connections and add to socket processing queue
 		try {
 			
-			// Start worker thread pool
-			for(int i=0; i<this.httpServerThreads.length; i++) {
-
-				this.httpServerThreads[i] =
-					new HTTPServerThread(
-						this,						// HTTPServer instance
-						this.httpRequestProcessor	// HttpRequestProcessor instance
-					);
-
-			}
+			this.startWorkers();
 			
 			while(true) {
 				
-				this.clientSocketProcessingQueue.put(
-					serverSocket.accept()
+				this.dispatch(
+					this.serverSocket.accept().socket()
 				);
 				
 			}
@@ -103,12 +487,43 @@ public class HTTPServer {
 		
 	}
 	
-	public synchronized Socket takeFromClientSocketProcessingQueue() throws Exception {
+	/*
+	** Returns null when the calling worker should stop, see takeFromQueue.
+	*/
+	public Socket takeFromClientSocketProcessingQueue() throws Exception {
+		
+		QueuedSocket queuedSocket =
+			this.takeFromQueue(this.clientSocketProcessingQueue);
 		
-		return this.clientSocketProcessingQueue.take();
+		if(queuedSocket == null) {
+			return null;
+		}
+		
+		this.queueWaitMeasured(queuedSocket.queuedTime());
+		
+		return queuedSocket.socket();
 		
 	}
 	
+	public JSONBuilder getJSONBuilder() {
+		return
+			JSONBuilder.f().
+				$('{').
+					k("useVirtualThreads").v(this.useVirtualThreads).
+					k("minWorkerCount").v(this.minThreadCount).
+					k("maxWorkerCount").v(this.maxThreadCount).
+					k("workerCount").v(this.workerCount.get()).
+					k("idleWorkerCount").v(this.idleWorkerCount.get()).
+					k("queueLength").v(this.queueLength()).
+					k("oldestQueueWaitMs").v(this.oldestQueueWait()).
+					k("averageQueueWaitMs").v(this.averageQueueWait()).
+					k("maxQueueWaitMs").v(this.maxQueueWait.get()).
+					k("queueWaitLimitMs").v(Config.HTTP_SERVER_QUEUE_WAIT_LIMIT).
+					k("acceptedConnections").v(this.acceptedConnectionCount.get()).
+					k("rejectedConnections").v(this.rejectedConnectionCount.get()).
+				$('}');
+	}
+	
 	public static void main(String args[]) {
 		
 		HTTPServer httpServer =
@@ -22,40 +22,75 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.OutputStream;
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.File;
 import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.StandardOpenOption;
 
 public class HTTPServerThread extends Thread implements HttpRequestProcessor {
 	
-	private Socket socket;
-	private HTTPServer parentHTTPServer;
+	protected Socket socket;
+	protected HTTPServer parentHTTPServer;
 	private int ID;
-	private HttpRequestProcessor httpRequestProcessor;
-	private DataInputStream input;
-	private DataOutputStream output;
+	protected HttpRequestProcessor httpRequestProcessor;
+	protected DataInputStream input;
+	protected DataOutputStream output;
+	protected HttpResponseStream responseStream;
 	
 	private static int threadIDGenerator = 0;
 	
 	private static final int BYTE_BUFFER_SIZE = 4000;
 	
+	private static final int FILE_TRANSFER_BUFFER_SIZE = 262144;
+	
 	private boolean headerIsPrinted;
 	
 	private HttpRequest httpRequest;
 	
 	private byte[] servedfileBytes;
 	
-	// Used to hold request data
-	private LiteString requestData;
-	
-	// Used for parsing request data
-	private char c;		// Current character
-	private char pc;	// Previous character
-	private int nc = 0;	// Next character
+	// Bytes read from the connection, requests are parsed in place
+	private byte[] readBuffer;
+	private int readPosition;
+	private int readLimit;
 	
 	private byte[] fileBuffer;
 	
+	// Allocated on first use, only needed when zero-copy transfer is not possible
+	private ByteBuffer fileTransferBuffer;
+	
+	// Serves a single connection instead of taking them from the queue
+	private boolean isPerConnection;
+	
 	public HTTPServerThread(HTTPServer parentHTTPServer, HttpRequestProcessor httpRequestProcessor) {
+		
+		this.init(parentHTTPServer, httpRequestProcessor);
+		
+		this.isPerConnection = false;
+		
+		this.start();
+		
+	}
+	
+	/*
+	** Used when each connection gets a thread of its own (see
+	** HTTPServer.setUseVirtualThreads). Not started, the caller runs it.
+	*/
+	public HTTPServerThread(HTTPServer parentHTTPServer, HttpRequestProcessor httpRequestProcessor, Socket socket) {
+		
+		this.init(parentHTTPServer, httpRequestProcessor);
+		
+		this.isPerConnection = true;
+		this.socket = socket;
+		
+	}
+	
+	private void init(HTTPServer parentHTTPServer, HttpRequestProcessor httpRequestProcessor) {
 
 		this.parentHTTPServer = parentHTTPServer;
 		this.ID = HTTPServerThread.threadIDGenerator++;
@@ -63,6 +98,7 @@ public class HTTPServerThread extends Thread implements HttpRequestProcessor {
 			(httpRequestProcessor == null ? this : httpRequestProcessor);
 		this.input = null;
 		this.output = null;
+		this.responseStream = null;
 		
 		this.headerIsPrinted = false;
 		
@@ -72,15 +108,21 @@ public class HTTPServerThread extends Thread implements HttpRequestProcessor {
 		this.servedfileBytes =
 			new byte[HTTPServerThread.BYTE_BUFFER_SIZE];
 			
-		this.requestData =
-			new LiteString(100000);
-		
-		this.start();
+		this.readBuffer =
+			new byte[Config.HTTP_SERVER_READ_BUFFER_SIZE];
 		
 	}
 	
 	public void run() {
 		
+		if(this.isPerConnection) {
+			
+			this.serveConnection();
+			
+			return;
+			
+		}
+		
 		while(true) {
 
 			try {
@@ -88,47 +130,23 @@ public class HTTPServerThread extends Thread implements HttpRequestProcessor {
 				// This will wait until a socket element becomes available
 				this.socket =
 					this.parentHTTPServer.takeFromClientSocketProcessingQueue();
-
-				this.headerIsPrinted = false;
-				this.httpRequest.reset();
 				
-				// Setup HTTP I/O for thread
-				this.input =
-					new DataInputStream(
-						this.socket.getInputStream()
-					);
-
-				this.output = 
-					new DataOutputStream(
-						this.socket.getOutputStream()
-					);
-
-				this.processHTTPCommunication();
-
 			} catch(Exception e) {
 				
-				e.printStackTrace();
-				
 				System.out.println(
 					e.getMessage()
 				);
-
+				
+				continue;
+				
 			}
-
-			try {
-
-				// Shutdown HTTP I/O
-				this.input.close();
-				this.output.close();
-				this.socket.close();
-
-			} catch(Exception e) {
-
-				System.out.println(
-					e.getMessage()
-				);
-
+			
+			if(this.socket == null) {
+				// Idle while the pool is above its minimum size
+				return;
 			}
+			
+			this.serveConnection();
 
 			//System.out.println("\tStopping HTTP Server Thread");
 
@@ -139,88 +157,227 @@ public class HTTPServerThread extends Thread implements HttpRequestProcessor {
 		
 	}
 	
-	private void processHTTPCommunication() throws Exception {
-		
-		this.requestData.clear();
-		
-		this.c = '\0';
-		this.pc = '\0';
-		this.nc = 0;
-		
-		while((this.nc = this.input.read()) != -1) {
-			this.pc = c;
-			this.c = (char)this.nc;
-
-			if(this.c == '\n' && this.pc == '\r') {
-
-				if(this.httpRequest.isFresh()) {
-
-					this.httpRequest.begin(this.requestData.toString());
+	/*
+	** Serves requests on this.socket until the connection is done with.
+	*/
+	private void serveConnection() {
 
-				} else {
-					
-					this.httpRequest.processLine(this.requestData.toString());
+		try {
+			
+			// Idle time allowed between requests on a persistent connection
+			this.socket.setSoTimeout(
+				Config.HTTP_SERVER_KEEP_ALIVE_TIMEOUT
+			);
+			
+			// Setup HTTP I/O for thread
+			// Buffering is done by the request parsing
+			this.input =
+				new DataInputStream(
+					this.socket.getInputStream()
+				);
+			
+			this.readPosition = 0;
+			this.readLimit = 0;
+			
+			this.responseStream =
+				new HttpResponseStream(
+					new BufferedOutputStream(
+						this.socket.getOutputStream(),
+						Config.HTTP_RESPONSE_CHUNK_SIZE
+					)
+				);
 
+			this.output = 
+				new DataOutputStream(
+					this.responseStream
+				);
+			
+			int requestCount = 0;
+			boolean keepAlive = true;
+			
+			while(keepAlive) {
+				
+				this.headerIsPrinted = false;
+				this.httpRequest.reset();
+				
+				if(!this.processHTTPCommunication(++requestCount)) {
+					break;
 				}
 				
-				switch(this.httpRequest.getHttpRequestState()) {
-					case CLIENT_AWAITING_DATA:
-						
-						// Process httpRequest object
-						this.httpRequestProcessor.processHttpRequest(
-							this.output,
-							this.httpRequest,
-							this
-						);
-						
-						return;
-						
-					case SERVER_AWAITING_DATA:
-					
-						// Read post data from client
-						this.httpRequest.readClientData(this.input);
-						
-						this.httpRequestProcessor.processHttpRequest(
-							this.output,
-							this.httpRequest,
-							this
-						);
-						
-						return;
-						
-					case VOID:
-					
-						// Process httpRequest object
-						this.httpRequestProcessor.processHttpRequest(
-							this.output,
-							this.httpRequest,
-							this
-						);
-						
-						return;
-						
-					case DONE:
-						return;
-					default:
-						break;
+				keepAlive = this.responseStream.finish();
+				
+				// Pipelined requests already waiting get their responses in one write
+				if(!keepAlive || (this.readPosition == this.readLimit && this.input.available() == 0)) {
+					this.responseStream.flush();
 				}
 				
-				this.requestData.clear();
+			}
 
-			} else if(this.c != '\n' && this.c != '\r') {
+		} catch(SocketTimeoutException e) {
+			
+			// Persistent connection was idle for too long
+			;
+			
+		} catch(Exception e) {
+			
+			e.printStackTrace();
+			
+			System.out.println(
+				e.getMessage()
+			);
 
-				this.requestData.append(c);
+		}
 
+		// Removes a spilled request body
+		this.httpRequest.reset();
+		
+		try {
+
+			// Shutdown HTTP I/O
+			this.input.close();
+			this.output.close();
+			this.socket.close();
+
+		} catch(Exception e) {
+
+			System.out.println(
+				e.getMessage()
+			);
+
+		}
+		
+	}
+	
+	/*
+	** Reads one request from the connection and processes it.
+	** Returns false if the client closed the connection.
+	*/
+	private boolean processHTTPCommunication(int requestCount) throws Exception {
+		
+		int headEnd;
+		
+		while((headEnd = HttpRequest.findHeadEnd(this.readBuffer, this.readPosition, this.readLimit)) == -1) {
+			
+			if(!this.fillReadBuffer()) {
+				// End of client HTTP communication
+				return false;
 			}
+			
+		}
+		
+		this.httpRequest.parse(
+			this.readBuffer,
+			this.readPosition,
+			headEnd - this.readPosition
+		);
+		
+		this.readPosition = headEnd;
+		
+		HttpRequestBody clientDataStream = null;
+		
+		if(this.httpRequest.getHttpRequestState() == HTTPRequestState.SERVER_AWAITING_DATA) {
+			
+			// Post data is read from the connection by the request processor
+			clientDataStream =
+				new HttpRequestBody(
+					this.readBuffer,
+					this.readPosition,
+					this.readLimit,
+					this.input,
+					this.httpRequest.getContentLength(),
+					this.httpRequest.isChunkedBody()
+				);
+			
+			this.httpRequest.setClientDataStream(clientDataStream);
+			
+			if(this.httpRequest.isContinueExpected()) {
+				this.responseStream.sendContinue();
+			}
+			
 		}
 		
 		//System.out.println(this.httpRequest.toString());
 		
-		// End of client HTTP communication
-		if(this.nc == -1) {
-			return;
+		this.dispatchHttpRequest(requestCount);
+		
+		if(clientDataStream != null) {
+			
+			// Next request starts after the body
+			clientDataStream.drain();
+			
+			this.readPosition = clientDataStream.bufferPosition();
+			
+		}
+		
+		return true;
+		
+	}
+	
+	/*
+	** Reads more bytes from the connection into the read buffer.
+	** Returns false if the client closed the connection.
+	*/
+	private boolean fillReadBuffer() throws Exception {
+		
+		if(this.readPosition > 0) {
+			
+			// Move what is left of the previous request to the front
+			System.arraycopy(
+				this.readBuffer,
+				this.readPosition,
+				this.readBuffer,
+				0,
+				this.readLimit - this.readPosition
+			);
+			
+			this.readLimit -= this.readPosition;
+			this.readPosition = 0;
+			
 		}
 		
+		if(this.readLimit == this.readBuffer.length) {
+			throw new Exception("HTTP request line or header exceeds " + this.readBuffer.length + " bytes.");
+		}
+		
+		int bytesRead =
+			this.input.read(
+				this.readBuffer,
+				this.readLimit,
+				this.readBuffer.length - this.readLimit
+			);
+		
+		if(bytesRead == -1) {
+			return false;
+		}
+		
+		this.readLimit += bytesRead;
+		
+		return true;
+		
+	}
+	
+	private void dispatchHttpRequest(int requestCount) throws Exception {
+		
+		this.responseStream.begin(
+			this.isKeepAlive(this.httpRequest, requestCount),
+			this.httpRequest.isChunkedResponseSupported(),
+			this.httpRequest.getPreferredContentEncoding()
+		);
+		
+		this.httpRequestProcessor.processHttpRequest(
+			this.output,
+			this.httpRequest,
+			this
+		);
+		
+	}
+	
+	protected boolean isKeepAlive(HttpRequest httpRequest, int requestCount) {
+		
+		return
+			httpRequest.isKeepAliveRequested() &&
+			requestCount < Config.HTTP_SERVER_KEEP_ALIVE_MAX_REQUESTS;
+		
 	}
 	
 	public void processHttpRequest(DataOutputStream output, HttpRequest httpRequest, HTTPServerThread httpServerThread) throws Exception {
@@ -247,34 +404,122 @@ public class HTTPServerThread extends Thread implements HttpRequestProcessor {
 		
 	}
 	
-	public void serveFile(DataOutputStream output, String fileName) throws Exception {
+	/*
+	** Serves a complete response (header and body) for a file on disk.
+	** On plain sockets the body goes straight from the file to the socket
+	** with FileChannel.transferTo, otherwise (TLS, compressed responses)
+	** through a large buffer.
+	*/
+	public void serveFile(DataOutputStream output, String fileName, String contentType) throws Exception {
 		
-		int bytesRead = 0, totalBytesRead = 0;
+		File file = new File(fileName);
 		
-		BufferedInputStream input =
-			new BufferedInputStream(
-				new FileInputStream(fileName)
+		FileChannel fileChannel =
+			FileChannel.open(
+				file.toPath(),
+				StandardOpenOption.READ
 			);
-	
-		while((bytesRead = input.read(this.servedfileBytes, 0, this.servedfileBytes.length)) > -1) {
+		
+		try {
+			
+			long fileSize = fileChannel.size();
 			
-			totalBytesRead += bytesRead;
+			HttpResponse.header(
+				output,
+				contentType,
+				fileSize,
+				file.lastModified()
+			);
+			
+			SocketChannel socketChannel =
+				this.socket.getChannel();
 			
-			if(totalBytesRead % this.servedfileBytes.length == 0) {
+			// Compressed bodies have to pass through the response stream
+			if(	output == this.output &&
+				this.responseStream != null &&
+				!this.responseStream.isCompressing() &&
+				socketChannel != null &&
+				socketChannel.isBlocking()	) {
+				
+				// Header has to be on the wire before the file contents
+				output.flush();
 				
-				output.write(this.servedfileBytes, 0, this.servedfileBytes.length);
+				long position = 0;
+				
+				while(position < fileSize) {
+					
+					position +=
+						fileChannel.transferTo(
+							position,
+							fileSize - position,
+							socketChannel
+						);
+					
+				}
+				
+				this.responseStream.bodyWritten(fileSize);
+				
+			} else {
+				
+				this.copyFile(output, fileChannel);
 				
 			}
 			
+		} finally {
+			
+			fileChannel.close();
+			
 		}
-
-		if(totalBytesRead % this.servedfileBytes.length > 0) {
-			output.write(this.servedfileBytes, 0, totalBytesRead % this.servedfileBytes.length);
+		
+	}
+	
+	/*
+	** Writes the contents of a file to output. Header must already be written.
+	*/
+	public void serveFile(DataOutputStream output, String fileName) throws Exception {
+		
+		FileChannel fileChannel =
+			FileChannel.open(
+				new File(fileName).toPath(),
+				StandardOpenOption.READ
+			);
+		
+		try {
+			
+			this.copyFile(output, fileChannel);
+			
+		} finally {
+			
+			fileChannel.close();
+			
+		}
+		
+	}
+	
+	private void copyFile(DataOutputStream output, FileChannel fileChannel) throws Exception {
+		
+		if(this.fileTransferBuffer == null) {
+			
+			this.fileTransferBuffer =
+				ByteBuffer.allocate(HTTPServerThread.FILE_TRANSFER_BUFFER_SIZE);
+			
+		}
+		
+		this.fileTransferBuffer.clear();
+		
+		while(fileChannel.read(this.fileTransferBuffer) > -1) {
+			
+			output.write(
+				this.fileTransferBuffer.array(),
+				0,
+				this.fileTransferBuffer.position()
+			);
+			
+			this.fileTransferBuffer.clear();
+			
 		}
 		
 		output.flush();
-
-		input.close();
 		
 	}
 	
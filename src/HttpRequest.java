@@ -13,57 +13,86 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Set;
-import java.io.DataInputStream;
-import java.io.PrintWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 
+/*
+** A request is parsed from the bytes of its request line and header in a
+** single pass. Only offsets are recorded; method, path, parameters,
+** headers and cookies are turned into Strings when they are asked for.
+** The buffers are kept between requests on the same connection.
+*/
 public class HttpRequest {
 	
-	private static long time = 0;
-	
 	public static final String DEFAULT_FILE_NAME = "index.html";
 	
-	private boolean isFresh;
+	private static final int HEAD_INITIAL_SIZE = 1024;
+	
+	// Offsets are kept as key start, key end, value start, value end
+	private static final int ENTRY_SIZE = 4;
+	private static final int ENTRIES_INITIAL_COUNT = 16;
+	
+	private static final byte[] METHOD_GET = "GET".getBytes(StandardCharsets.ISO_8859_1);
+	private static final byte[] METHOD_POST = "POST".getBytes(StandardCharsets.ISO_8859_1);
+	private static final byte[] HTTP_1_1 = "HTTP/1.1".getBytes(StandardCharsets.ISO_8859_1);
+	
 	private HttpRequestType httpRequestType;
-	private String originalFileName;
-	private String fileName;
-	private AgedStringMap parameters;
-	private AgedStringMap headers;
-	private AgedStringMap cookies;
-	private int lineCount;
 	private HTTPRequestState httpRequestState;
+	
+	// Body as it arrives on the connection
+	private HttpRequestBody clientDataStream;
+	
+	// Body read to the end, in memory or spilled to a temporary file
 	private byte[] clientData;
+	private File clientDataFile;
 	
-	// Processing fields
-	private String verb;
-	private String[] requestParts;
-	private String queryString;
-	private String[] params;
-	private String[] param;
-	private String headerKey;
-	private String headerValue;
-	private String cookieList[];
-	private String[] cookieParts;
-	private String cookieKey;
-	private String cookieValue;
-	
-	private long requestStartTime;
+	// Request line and header, from the first byte up to the empty line
+	private byte[] head;
+	private int headLength;
 	
-	private LiteString toString;
+	private int pathStart;
+	private int pathEnd;
+	private int versionStart;
+	private int versionEnd;
+	private boolean isHttp11;
 	
-	private URLDecoder urlDecoder;
+	private int[] parameterOffsets;
+	private int parameterCount;
 	
+	private int[] headerOffsets;
+	private int headerCount;
+	
+	private int[] cookieOffsets;
+	private int cookieCount;
+	
+	private long contentLength;
+	private boolean isChunkedBody;
+	
+	// Decoded on first access
+	private String httpVersion;
+	private String originalFileName;
+	private String fileName;
+	
+	private LiteString toString;
 	
 	public HttpRequest() {
 		
-		this.parameters = new AgedStringMap();
-		this.headers = new AgedStringMap();
-		this.cookies = new AgedStringMap();
-		this.toString = new LiteString(10000);
-		
-		this.urlDecoder = new URLDecoder();
+		this.head = new byte[HttpRequest.HEAD_INITIAL_SIZE];
+		this.parameterOffsets = new int[HttpRequest.ENTRIES_INITIAL_COUNT * HttpRequest.ENTRY_SIZE];
+		this.headerOffsets = new int[HttpRequest.ENTRIES_INITIAL_COUNT * HttpRequest.ENTRY_SIZE];
+		this.cookieOffsets = new int[HttpRequest.ENTRIES_INITIAL_COUNT * HttpRequest.ENTRY_SIZE];
+		this.toString = null;
 		
 		this.reset();
 		
@@ -71,250 +100,624 @@ public class HttpRequest {
 	
 	public void reset() {
 		
-		this.isFresh = true;
 		this.httpRequestType = HttpRequestType.UNKNOWN;
-		this.originalFileName = null;
-		this.fileName = null;
-		this.lineCount = -1;
 		this.httpRequestState = HTTPRequestState.UNKNOWN;
+		this.clientDataStream = null;
 		this.clientData = null;
-		this.toString.clear();
+		
+		if(this.clientDataFile != null) {
+			this.clientDataFile.delete();
+			this.clientDataFile = null;
+		}
+		
+		this.headLength = 0;
+		this.pathStart = 0;
+		this.pathEnd = 0;
+		this.versionStart = 0;
+		this.versionEnd = 0;
+		this.isHttp11 = false;
+		this.parameterCount = 0;
+		this.headerCount = 0;
+		this.cookieCount = 0;
+		this.contentLength = -1;
+		this.isChunkedBody = false;
+		
+		this.httpVersion = null;
+		this.originalFileName = null;
+		this.fileName = null;
+		
+		if(this.toString != null) {
+			this.toString.clear();
+		}
 		
 	}
 	
-	private HttpRequestType getHttpRequestType(String requestString) {
+	/*
+	** Returns the index just past the empty line ending a request header
+	** in data[offset..limit), or -1 if the header is not complete yet.
+	** Empty lines in front of the request line are part of the header.
+	*/
+	public static int findHeadEnd(byte[] data, int offset, int limit) {
 		
-		if(	requestString.charAt(0) == 'G' &&
-			requestString.charAt(1) == 'E' &&
-			requestString.charAt(2) == 'T'		) {
+		// Skip empty lines left over from a previous request
+		while(offset + 1 < limit && data[offset] == '\r' && data[offset+1] == '\n') {
+			offset += 2;
+		}
+		
+		for(int i=offset; i<limit-3; i++) {
 			
-			return HttpRequestType.GET;
+			if(	data[i] == '\r' &&
+				data[i+1] == '\n' &&
+				data[i+2] == '\r' &&
+				data[i+3] == '\n'	) {
+				
+				return i + 4;
 				
-		} else if(	requestString.charAt(0) == 'P' &&
-					requestString.charAt(1) == 'O' &&
-					requestString.charAt(2) == 'S' &&
-					requestString.charAt(3) == 'T'		) {
+			}
+			
+		}
+		
+		return -1;
+		
+	}
+	
+	/*
+	** Parse a complete request header, as delimited by findHeadEnd.
+	*/
+	public void parse(byte[] data, int offset, int length) {
+		
+		if(length > this.head.length) {
+			this.head = new byte[Math.max(length, this.head.length * 2)];
+		}
+		
+		System.arraycopy(data, offset, this.head, 0, length);
+		this.headLength = length;
+		
+		byte[] b = this.head;
+		int position = 0;
+		
+		while(position + 1 < length && b[position] == '\r' && b[position+1] == '\n') {
+			position += 2;
+		}
+		
+		int lineEnd = this.indexOfLineEnd(position);
+		
+		this.parseRequestLine(position, lineEnd);
+		
+		position = lineEnd + 2;
+		
+		// Header lines up to the empty line
+		while((lineEnd = this.indexOfLineEnd(position)) > position) {
+			
+			this.parseHeaderLine(position, lineEnd);
 			
-			return HttpRequestType.POST;
+			position = lineEnd + 2;
+			
+		}
+		
+		if(	this.httpRequestType == HttpRequestType.POST ||
+			this.contentLength > 0 ||
+			this.isChunkedBody	) {
+			
+			this.httpRequestState = HTTPRequestState.SERVER_AWAITING_DATA;
 			
 		} else {
 			
-			return HttpRequestType.UNSUPPORTED;
+			this.httpRequestState = HTTPRequestState.CLIENT_AWAITING_DATA;
 			
 		}
 		
 	}
 	
-	private void age() {
+	private int indexOfLineEnd(int position) {
 		
-		this.requestStartTime =
-			HttpRequest.getNextTime();
+		for(int i=position; i<this.headLength-1; i++) {
+			
+			if(this.head[i] == '\r' && this.head[i+1] == '\n') {
+				return i;
+			}
+			
+		}
 		
-		this.parameters.setLatestAge(this.requestStartTime);
-		this.headers.setLatestAge(this.requestStartTime);
-		this.cookies.setLatestAge(this.requestStartTime);
+		return this.headLength;
 		
 	}
 	
-	public void begin(String requestString) {
+	private void parseRequestLine(int start, int end) {
+		
+		int methodEnd = this.indexOf(' ', start, end);
+		
+		if(this.startsWith(HttpRequest.METHOD_GET, start, methodEnd)) {
+			this.httpRequestType = HttpRequestType.GET;
+		} else if(this.startsWith(HttpRequest.METHOD_POST, start, methodEnd)) {
+			this.httpRequestType = HttpRequestType.POST;
+		} else {
+			this.httpRequestType = HttpRequestType.UNSUPPORTED;
+		}
+		
+		this.pathStart = Math.min(methodEnd + 1, end);
 		
-		this.age();
+		int targetEnd = this.indexOf(' ', this.pathStart, end);
 		
-		this.httpRequestState = HTTPRequestState.SERVER_AWAITING_REQUEST;
+		this.versionStart = Math.min(targetEnd + 1, end);
+		this.versionEnd = end;
 		
-		if(requestString != null) {
+		this.isHttp11 =
+			this.versionEnd - this.versionStart == HttpRequest.HTTP_1_1.length &&
+			this.startsWith(HttpRequest.HTTP_1_1, this.versionStart, this.versionEnd);
+		
+		int queryStart = this.indexOf('?', this.pathStart, targetEnd);
+		
+		this.pathEnd = queryStart;
+		
+		// Query string parameters, split at the first '='
+		int position = queryStart + 1;
+		
+		while(position < targetEnd) {
 			
-			this.httpRequestType =
-				this.getHttpRequestType(
-					requestString
-				);
+			int parameterEnd = this.indexOf('&', position, targetEnd);
+			int equals = this.indexOf('=', position, parameterEnd);
 			
-			if(this.httpRequestType != HttpRequestType.UNSUPPORTED) {
-				
-				this.requestParts = requestString.split("\\s")[1].split("\\?");
+			// Parameters without a name or value are ignored
+			if(equals > position && equals + 1 < parameterEnd) {
 				
-				this.originalFileName = this.urlDecoder.decode(requestParts[0]); 
-				this.fileName = this.urlDecoder.decode(requestParts[0].substring(1));
-				
-				/*if(	(	this.fileName.length() > 0 &&
-						this.fileName.substring(this.fileName.length()-1).equals("/")	) ||
-						this.fileName.length() == 0	) {
-						
-					this.fileName += HttpRequest.DEFAULT_FILE_NAME;
-					
-				}*/
-
-				this.queryString = (requestParts.length == 2 ? requestParts[1] : "");
-				this.params = queryString.split("&");
-
-				if(this.queryString.length() > 0) {
-					for(int i=0; i<this.params.length; i++) {
-						
-						this.param = this.params[i].split("=");
-						
-						if(this.param.length == 2) {
-							this.parameters.put(
-								param[0],
-								param[1],
-								this.requestStartTime
-							);
-						}
-
-					}
-				}
-				
-				this.httpRequestState = HTTPRequestState.SERVER_AWAITING_NEXT_HEADER;
+				this.parameterOffsets =
+					this.addEntry(this.parameterOffsets, this.parameterCount++, position, equals, equals + 1, parameterEnd);
 				
 			}
 			
-		} else {
-			
-			this.httpRequestType = HttpRequestType.UNKNOWN;
-			this.httpRequestState = HTTPRequestState.VOID;
+			position = parameterEnd + 1;
 			
 		}
 		
-		this.lineCount = 0;
-		
-		this.isFresh = false;
-		
-	}
-	
-	public boolean isFresh() {
-		return this.isFresh;
 	}
 	
-	public void processLine(String line) {
+	private void parseHeaderLine(int start, int end) {
 		
-		if(this.httpRequestState == HTTPRequestState.CLIENT_AWAITING_DATA ||
-			this.httpRequestState == HTTPRequestState.DONE) { // Only send data to the client once
+		int colon = this.indexOf(':', start, end);
+		
+		if(colon == end) {
+			return;
+		}
+		
+		int keyEnd = this.trimEnd(start, colon);
+		int valueStart = this.trimStart(colon + 1, end);
+		int valueEnd = this.trimEnd(valueStart, end);
+		
+		if(this.equalsIgnoreCase("cookie", start, keyEnd)) {
 			
-			this.httpRequestState = HTTPRequestState.DONE;
+			this.parseCookies(valueStart, valueEnd);
 			
 			return;
 			
 		}
 		
-		// HTTP header
-		if(line.indexOf(":") > -1 && this.lineCount >= 0) {
+		this.headerOffsets =
+			this.addEntry(this.headerOffsets, this.headerCount++, start, keyEnd, valueStart, valueEnd);
+		
+		if(this.equalsIgnoreCase("content-length", start, keyEnd)) {
+			this.contentLength = this.parseLong(valueStart, valueEnd);
+		} else if(this.equalsIgnoreCase("transfer-encoding", start, keyEnd)) {
+			// Chunked is always the last coding applied
+			this.isChunkedBody = this.equalsIgnoreCase("chunked", Math.max(valueEnd - 7, valueStart), valueEnd);
+		}
+		
+	}
+	
+	private void parseCookies(int start, int end) {
+		
+		int position = start;
+		
+		while(position < end) {
 			
-			this.headerKey = line.substring(0, line.indexOf(":")).trim().toLowerCase();
-			this.headerValue = line.substring(line.indexOf(":")+1).trim();
+			int cookieEnd = this.indexOf(';', position, end);
+			int keyStart = this.trimStart(position, cookieEnd);
+			int equals = this.indexOf('=', keyStart, cookieEnd);
+			int keyEnd = this.trimEnd(keyStart, equals);
 			
-			if(this.headerKey.equals("cookie")) {
+			if(keyEnd > keyStart) {
 				
-				this.cookieList =
-					this.headerValue.split(";");
+				if(equals == cookieEnd) {
 					
-				for(String cookieEntry : this.cookieList) {
+					// Cookie without a value has its name as value
+					this.cookieOffsets =
+						this.addEntry(this.cookieOffsets, this.cookieCount++, keyStart, keyEnd, keyStart, keyEnd);
 					
-					this.cookieParts = cookieEntry.split("=");
+				} else {
 					
-					this.cookieKey = this.cookieParts[0].trim();
+					int valueStart = this.trimStart(equals + 1, cookieEnd);
 					
-					if(this.cookieParts.length == 2) {
-						
-						this.cookieValue = this.cookieParts[1].trim();
-						
-					} else {
-						
-						this.cookieValue = this.cookieKey;
-						
-					}
-					
-					this.cookies.put(
-						this.cookieKey,
-						this.cookieValue,
-						this.requestStartTime
-					);
+					this.cookieOffsets =
+						this.addEntry(this.cookieOffsets, this.cookieCount++, keyStart, keyEnd, valueStart, this.trimEnd(valueStart, cookieEnd));
 					
 				}
 				
-			} else {
-				
-				this.headers.put(
-					this.headerKey,
-					this.headerValue,
-					this.requestStartTime
-				);
-				
 			}
 			
+			position = cookieEnd + 1;
 			
-		} else if(line.length() == 0) {
+		}
+		
+	}
+	
+	private int[] addEntry(int[] offsets, int index, int keyStart, int keyEnd, int valueStart, int valueEnd) {
+		
+		int i = index * HttpRequest.ENTRY_SIZE;
+		
+		if(i + HttpRequest.ENTRY_SIZE > offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		
+		offsets[i] = keyStart;
+		offsets[i+1] = keyEnd;
+		offsets[i+2] = valueStart;
+		offsets[i+3] = valueEnd;
+		
+		return offsets;
+		
+	}
+	
+	/*
+	** Index of the last entry with the given key, so that repeated keys
+	** behave as if later ones overwrite earlier ones.
+	*/
+	private int findEntry(int[] offsets, int count, String key, boolean ignoreCase) {
+		
+		for(int i=count-1; i>=0; i--) {
 			
-			if(this.httpRequestState == HTTPRequestState.SERVER_AWAITING_NEXT_HEADER) {
-				
-				if(this.httpRequestType == HttpRequestType.GET) {
-
-					this.httpRequestState = HTTPRequestState.CLIENT_AWAITING_DATA;
-					
-
-				} else if(this.httpRequestType == HttpRequestType.POST) {
-
-					this.httpRequestState = HTTPRequestState.SERVER_AWAITING_DATA;
-
-				}
-				
+			int start = offsets[i * HttpRequest.ENTRY_SIZE];
+			int end = offsets[i * HttpRequest.ENTRY_SIZE + 1];
+			
+			if(ignoreCase ? this.equalsIgnoreCase(key, start, end) : this.equals(key, start, end)) {
+				return i;
 			}
 			
 		}
 		
-		this.newLine();
+		return -1;
+		
+	}
+	
+	private String entryKey(int[] offsets, int index) {
+		
+		return this.string(
+			offsets[index * HttpRequest.ENTRY_SIZE],
+			offsets[index * HttpRequest.ENTRY_SIZE + 1]
+		);
+		
 	}
 	
-	public int getLineCount() {
-		return this.lineCount;
+	private String entryValue(int[] offsets, int index) {
+		
+		return this.string(
+			offsets[index * HttpRequest.ENTRY_SIZE + 2],
+			offsets[index * HttpRequest.ENTRY_SIZE + 3]
+		);
+		
+	}
+	
+	private String string(int start, int end) {
+		return new String(this.head, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+	
+	private int indexOf(char c, int start, int end) {
+		
+		for(int i=start; i<end; i++) {
+			
+			if(this.head[i] == c) {
+				return i;
+			}
+			
+		}
+		
+		return end;
+		
+	}
+	
+	private int trimStart(int start, int end) {
+		
+		while(start < end && (this.head[start] == ' ' || this.head[start] == '\t')) {
+			start++;
+		}
+		
+		return start;
+		
+	}
+	
+	private int trimEnd(int start, int end) {
+		
+		while(end > start && (this.head[end-1] == ' ' || this.head[end-1] == '\t')) {
+			end--;
+		}
+		
+		return end;
+		
+	}
+	
+	private boolean startsWith(byte[] prefix, int start, int end) {
+		
+		if(end - start < prefix.length) {
+			return false;
+		}
+		
+		for(int i=0; i<prefix.length; i++) {
+			
+			if(this.head[start+i] != prefix[i]) {
+				return false;
+			}
+			
+		}
+		
+		return true;
+		
+	}
+	
+	private boolean equals(String s, int start, int end) {
+		
+		if(end - start != s.length()) {
+			return false;
+		}
+		
+		for(int i=0; i<s.length(); i++) {
+			
+			if((char)(this.head[start+i] & 0xff) != s.charAt(i)) {
+				return false;
+			}
+			
+		}
+		
+		return true;
+		
+	}
+	
+	private boolean equalsIgnoreCase(String s, int start, int end) {
+		
+		if(end - start != s.length()) {
+			return false;
+		}
+		
+		for(int i=0; i<s.length(); i++) {
+			
+			char c = (char)(this.head[start+i] & 0xff);
+			char d = s.charAt(i);
+			
+			if(c != d && Character.toLowerCase(c) != Character.toLowerCase(d)) {
+				return false;
+			}
+			
+		}
+		
+		return true;
+		
 	}
 	
-	public void newLine() {
-		this.lineCount++;
+	private long parseLong(int start, int end) {
+		
+		long value = 0;
+		
+		if(start == end) {
+			return -1;
+		}
+		
+		for(int i=start; i<end; i++) {
+			
+			if(this.head[i] < '0' || this.head[i] > '9') {
+				return -1;
+			}
+			
+			value = value * 10 + (this.head[i] - '0');
+			
+		}
+		
+		return value;
+		
 	}
 	
 	public String getOriginalFileName() {
+		
+		if(this.originalFileName == null) {
+			this.originalFileName = URLDecoder.decode(this.string(this.pathStart, this.pathEnd));
+		}
+		
 		return this.originalFileName;
+		
 	}
 	
 	public String getFileName() {
+		
+		if(this.fileName == null) {
+			
+			this.fileName =
+				URLDecoder.decode(
+					this.string(Math.min(this.pathStart + 1, this.pathEnd), this.pathEnd)
+				);
+			
+		}
+		
 		return this.fileName;
+		
 	}
 	
 	public HttpRequestType getHttpRequestType() {
 		return this.httpRequestType;
 	}
 	
+	public String getHttpVersion() {
+		
+		if(this.httpVersion == null) {
+			
+			this.httpVersion =
+				(this.versionEnd > this.versionStart ? this.string(this.versionStart, this.versionEnd) : "HTTP/1.0");
+			
+		}
+		
+		return this.httpVersion;
+		
+	}
+	
+	/*
+	** HTTP/1.1 connections are persistent unless the client asks otherwise,
+	** HTTP/1.0 connections only when the client asks for it.
+	*/
+	public boolean isKeepAliveRequested() {
+		
+		String connection =
+			this.header("connection", "");
+		
+		if(this.isHttp11) {
+			return !connection.equalsIgnoreCase("close");
+		}
+		
+		return connection.equalsIgnoreCase("keep-alive");
+		
+	}
+	
+	/*
+	** Whether the Accept-Encoding header allows the given content coding,
+	** e.g. "gzip". Codings listed with q=0 are not accepted.
+	*/
+	public boolean acceptsEncoding(String encoding) {
+		
+		String acceptEncoding =
+			this.header("accept-encoding");
+		
+		if(acceptEncoding == null) {
+			return false;
+		}
+		
+		for(String coding : acceptEncoding.split(",")) {
+			
+			String[] codingParts = coding.split(";");
+			String name = codingParts[0].trim();
+			
+			if(!name.equalsIgnoreCase(encoding) && !name.equals("*")) {
+				continue;
+			}
+			
+			for(int i=1; i<codingParts.length; i++) {
+				
+				String parameter = codingParts[i].trim();
+				
+				if(parameter.startsWith("q=")) {
+					
+					try {
+						
+						if(Double.parseDouble(parameter.substring(2)) <= 0) {
+							return false;
+						}
+						
+					} catch(Exception e) {
+						;
+					}
+					
+				}
+				
+			}
+			
+			return true;
+			
+		}
+		
+		return false;
+		
+	}
+	
+	/*
+	** Content coding to compress the response with, gzip preferred,
+	** or null when the client accepts neither gzip nor deflate.
+	*/
+	public String getPreferredContentEncoding() {
+		
+		if(this.acceptsEncoding("gzip")) {
+			return "gzip";
+		} else if(this.acceptsEncoding("deflate")) {
+			return "deflate";
+		}
+		
+		return null;
+		
+	}
+	
+	/*
+	** Whether eTag matches the If-None-Match header
+	*/
+	public boolean matchesETag(String eTag) {
+		
+		String ifNoneMatch =
+			this.header("if-none-match");
+		
+		if(ifNoneMatch == null) {
+			return false;
+		}
+		
+		for(String candidate : ifNoneMatch.split(",")) {
+			
+			candidate = candidate.trim();
+			
+			if(candidate.startsWith("W/")) {
+				candidate = candidate.substring(2);
+			}
+			
+			if(candidate.equals("*") || candidate.equals(eTag)) {
+				return true;
+			}
+			
+		}
+		
+		return false;
+		
+	}
+	
+	public boolean isChunkedResponseSupported() {
+		return this.isHttp11;
+	}
+	
 	public HTTPRequestState getHttpRequestState() {
 		return this.httpRequestState;
 	}
 	
 	public String parameter(String key) {
-		return this.parameters.get(key);
+		return this.parameter(key, null);
 	}
 	
 	public String parameter(String key, String defaultValue) {
-		return this.parameters.get(key, defaultValue);
+		
+		int index =
+			this.findEntry(this.parameterOffsets, this.parameterCount, key, false);
+		
+		return (index > -1 ? this.entryValue(this.parameterOffsets, index) : defaultValue);
+		
 	}
 	
 	public boolean hasParameterKey(String key) {
-		return this.parameters.containsKey(key);
+		return this.findEntry(this.parameterOffsets, this.parameterCount, key, false) > -1;
 	}
 	
 	public Set<String> getParameterKeys() {
 		
-		return this.parameters.keySet();
+		HashSet<String> keys =
+			new HashSet<String>();
+		
+		for(int i=0; i<this.parameterCount; i++) {
+			keys.add(this.entryKey(this.parameterOffsets, i));
+		}
+		
+		return keys;
 		
 	}
 	
 	public String[][] getParameters() {
 		
+		Set<String> keys = this.getParameterKeys();
+		
 		String[][] parameterList =
-			new String[this.parameters.size()][];
+			new String[keys.size()][];
 		int index = 0;
 		
-		for(String key : this.getParameterKeys()) {
+		for(String key : keys) {
 			
 			parameterList[index++] =
-				new String[]{key, this.parameters.get(key)};
+				new String[]{key, this.parameter(key)};
 			
 		}
 		
@@ -324,14 +727,16 @@ public class HttpRequest {
 	
 	public String[][] getCookies() {
 		
+		Set<String> keys = this.getCookieKeys();
+		
 		String[][] cookieList =
-			new String[this.cookies.size()][];
+			new String[keys.size()][];
 		int index = 0;
 		
-		for(String key : this.getCookieKeys()) {
+		for(String key : keys) {
 			
 			cookieList[index++] =
-				new String[]{key, this.cookies.get(key)};
+				new String[]{key, this.cookie(key)};
 			
 		}
 		
@@ -340,107 +745,248 @@ public class HttpRequest {
 	}
 	
 	public String cookie(String key) {
-
-		return this.cookies.get(key);
+		
+		int index =
+			this.findEntry(this.cookieOffsets, this.cookieCount, key, false);
+		
+		return (index > -1 ? this.entryValue(this.cookieOffsets, index) : null);
 		
 	}
 	
 	public Set<String> getCookieKeys() {
-		return this.cookies.keySet();
+		
+		HashSet<String> keys =
+			new HashSet<String>();
+		
+		for(int i=0; i<this.cookieCount; i++) {
+			keys.add(this.entryKey(this.cookieOffsets, i));
+		}
+		
+		return keys;
+		
 	}
 	
+	/*
+	** Header names are case insensitive
+	*/
 	public String header(String key) {
-		return this.headers.get(key);
+		return this.header(key, null);
 	}
 	
 	public String header(String key, String defaultValue) {
 		
-		return this.headers.get(
-			key.toLowerCase(),
-			defaultValue
-		);
+		int index =
+			this.findEntry(this.headerOffsets, this.headerCount, key, true);
+		
+		return (index > -1 ? this.entryValue(this.headerOffsets, index) : defaultValue);
 		
 	}
 	
 	public boolean hasHeaderKey(String key) {
-		return this.headers.containsKey(key.toLowerCase());
+		return this.findEntry(this.headerOffsets, this.headerCount, key, true) > -1;
 	}
 	
 	public Set<String> getHeaderKeys() {
-		return this.headers.keySet();
+		
+		HashSet<String> keys =
+			new HashSet<String>();
+		
+		for(int i=0; i<this.headerCount; i++) {
+			keys.add(this.entryKey(this.headerOffsets, i).toLowerCase());
+		}
+		
+		return keys;
+		
+	}
+	
+	/*
+	** Value of the Content-Length header, -1 if not given or invalid
+	*/
+	public long getContentLength() {
+		return this.contentLength;
+	}
+	
+	public boolean isChunkedBody() {
+		return this.isChunkedBody;
+	}
+	
+	public boolean isContinueExpected() {
+		return this.isHttp11 && "100-continue".equalsIgnoreCase(this.header("expect"));
+	}
+	
+	/*
+	** Set by the server thread reading the request.
+	*/
+	public void setClientDataStream(HttpRequestBody clientDataStream) {
+		
+		this.clientDataStream = clientDataStream;
+		
+		this.httpRequestState = HTTPRequestState.CLIENT_AWAITING_DATA;
+		
 	}
 	
-	public void readClientData(DataInputStream input) throws Exception {
+	/*
+	** The request body. Read it once, straight from the connection, unless
+	** it has been buffered by getClientData or getClientDataFile.
+	*/
+	public InputStream getClientDataStream() throws Exception {
 		
-		if(!this.hasHeaderKey("content-length")) {
+		if(this.clientData != null) {
+			return new ByteArrayInputStream(this.clientData);
+		} else if(this.clientDataFile != null) {
+			return new FileInputStream(this.clientDataFile);
+		} else if(this.clientDataStream != null) {
+			return this.clientDataStream;
+		}
+		
+		return new ByteArrayInputStream(new byte[0]);
+		
+	}
+	
+	/*
+	** The request body as a byte array. Prefer getClientDataStream for
+	** bodies that can be large.
+	*/
+	public byte[] getClientData() throws Exception {
+		
+		this.bufferClientData();
+		
+		if(this.clientDataFile != null) {
+			return Files.readAllBytes(this.clientDataFile.toPath());
+		}
+		
+		return this.clientData;
+		
+	}
+	
+	/*
+	** The request body in a temporary file, for random access. The file
+	** is deleted when the connection moves on to the next request.
+	*/
+	public File getClientDataFile() throws Exception {
+		
+		this.bufferClientData();
+		
+		if(this.clientDataFile == null) {
+			
+			this.clientDataFile = HttpRequest.createClientDataFile();
+			
+			Files.write(this.clientDataFile.toPath(), this.clientData);
+			
+			this.clientData = null;
+			
+		}
+		
+		return this.clientDataFile;
+		
+	}
+	
+	/*
+	** Reads the rest of the body. Up to HTTP_REQUEST_BODY_SPILL_THRESHOLD
+	** bytes are kept in memory, larger bodies go to a temporary file.
+	*/
+	private void bufferClientData() throws Exception {
+		
+		if(this.clientData != null || this.clientDataFile != null) {
+			return;
+		}
+		
+		if(this.clientDataStream == null) {
+			
+			this.clientData = new byte[0];
+			
 			return;
+			
 		}
 		
-		int contentLengthExpected = Integer.parseInt(this.header("content-length"));
-		this.clientData = new byte[contentLengthExpected];
-		int bytesRead = 0;
+		ByteArrayOutputStream memory =
+			new ByteArrayOutputStream(
+				(int)Math.min(Math.max(this.contentLength, 0), Config.HTTP_REQUEST_BODY_SPILL_THRESHOLD)
+			);
+		
+		OutputStream destination = memory;
 		
-		while(bytesRead < contentLengthExpected) {
-			bytesRead +=
-				input.read(
-					this.clientData,
-					bytesRead,
-					contentLengthExpected - bytesRead
-				);
+		byte[] buffer = new byte[Config.HTTP_REQUEST_BODY_BUFFER_SIZE];
+		int bytesRead;
+		
+		try {
+			
+			while((bytesRead = this.clientDataStream.read(buffer, 0, buffer.length)) != -1) {
+				
+				if(destination == memory && memory.size() + bytesRead > Config.HTTP_REQUEST_BODY_SPILL_THRESHOLD) {
+					
+					this.clientDataFile = HttpRequest.createClientDataFile();
+					
+					destination = new FileOutputStream(this.clientDataFile);
+					memory.writeTo(destination);
+					memory = null;
+					
+				}
+				
+				destination.write(buffer, 0, bytesRead);
+				
+			}
+			
+		} finally {
+			
+			if(destination != memory) {
+				destination.close();
+			}
+			
 		}
 		
-		this.httpRequestState = HTTPRequestState.CLIENT_AWAITING_DATA;
+		if(memory != null) {
+			this.clientData = memory.toByteArray();
+		}
 		
 	}
 	
-	public byte[] getClientData() {
-		return this.clientData;
+	private static File createClientDataFile() throws Exception {
+		return File.createTempFile("fusebase", ".body");
 	}
 	
 	public String toString() {
 		
+		if(this.toString == null) {
+			this.toString = new LiteString(10000);
+		}
+		
 		this.toString.clear();
 			
 		this.toString.append("Request Type: ".intern());
 		this.toString.append(this.httpRequestType.toString().intern());
 		this.toString.append("\n".intern());
 		this.toString.append("Unprocessed Resource: ".intern());
-		this.toString.append((this.originalFileName != null ? this.originalFileName : "".intern()));
+		this.toString.append(this.getOriginalFileName());
 		this.toString.append("\n".intern());
 		this.toString.append("Processed Resource: ".intern());
-		this.toString.append(this.fileName);
-		
-		if(this.parameters != null) {
-			this.toString.append("\nParameters:\n".intern());
-			for(String key : this.getParameterKeys()) {
-				this.toString.append("  ".intern());
-				this.toString.append(key.intern());
-				this.toString.append(": ".intern());
-				this.toString.append(this.parameters.get(key).intern());
-				this.toString.append("\n".intern());
-			}
+		this.toString.append(this.getFileName());
+		
+		this.toString.append("\nParameters:\n".intern());
+		for(String key : this.getParameterKeys()) {
+			this.toString.append("  ".intern());
+			this.toString.append(key);
+			this.toString.append(": ".intern());
+			this.toString.append(this.parameter(key));
+			this.toString.append("\n".intern());
 		}
 		
-		if(this.headers != null) {
-			this.toString.append("Headers:\n".intern());
-			for(String key : this.getHeaderKeys()) {
-				this.toString.append("  ".intern());
-				this.toString.append(key.intern());
-				this.toString.append(": ".intern());
-				this.toString.append(this.headers.get(key).intern());
-				this.toString.append("\n".intern());
-			}
+		this.toString.append("Headers:\n".intern());
+		for(String key : this.getHeaderKeys()) {
+			this.toString.append("  ".intern());
+			this.toString.append(key);
+			this.toString.append(": ".intern());
+			this.toString.append(this.header(key));
+			this.toString.append("\n".intern());
 		}
 		
-		if(this.cookies != null) {
-			this.toString.append("Cookies:\n".intern());
-			for(String key : this.getCookieKeys()) {
-				this.toString.append("  ".intern());
-				this.toString.append(key.intern());
-				this.toString.append(": ".intern());
-				this.toString.append(this.cookies.get(key).intern());
-				this.toString.append("\n".intern());
-			}
+		this.toString.append("Cookies:\n".intern());
+		for(String key : this.getCookieKeys()) {
+			this.toString.append("  ".intern());
+			this.toString.append(key);
+			this.toString.append(": ".intern());
+			this.toString.append(this.cookie(key));
+			this.toString.append("\n".intern());
 		}
 		
 		if(this.clientData != null) {
@@ -454,20 +1000,4 @@ public class HttpRequest {
 		
 	}
 	
-	private synchronized static long getNextTime() {
-		
-		try {
-			
-			return HttpRequest.time++;
-			
-		} catch(Exception e) {
-			
-			HttpRequest.time = 0;
-			
-		}
-		
-		return HttpRequest.time++;
-		
-	}
-	
 }
\ No newline at end of file
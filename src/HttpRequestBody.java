@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.EOFException;
+
+/*
+** Body of a POST request as it arrives on the connection. Reads stop at
+** the end of the body, given by Content-Length or by the last chunk of a
+** chunked body, so the connection can be used for the next request.
+**
+** Bytes already read along with the request header are taken from the
+** given buffer first. bufferPosition() tells how far the buffer has been
+** consumed.
+*/
+public class HttpRequestBody extends InputStream {
+	
+	private static final int MAX_CHUNK_LINE_LENGTH = 8192;
+	
+	private static final int DRAIN_BUFFER_SIZE = 8192;
+	
+	private byte[] buffer;
+	private int position;
+	private int limit;
+	private InputStream input;
+	
+	private boolean isChunked;
+	private boolean isFirstChunk;
+	private boolean isComplete;
+	
+	// Bytes left of the body, or of the current chunk
+	private long remaining;
+	
+	private byte[] singleByte;
+	private StringBuilder chunkLine;
+	
+	public HttpRequestBody(byte[] buffer, int position, int limit, InputStream input, long contentLength, boolean isChunked) {
+		
+		this.buffer = buffer;
+		this.position = position;
+		this.limit = limit;
+		this.input = input;
+		
+		this.isChunked = isChunked;
+		this.isFirstChunk = true;
+		this.remaining = (isChunked ? 0 : Math.max(contentLength, 0));
+		this.isComplete = (!isChunked && this.remaining == 0);
+		
+		this.singleByte = new byte[1];
+		
+	}
+	
+	public int bufferPosition() {
+		return this.position;
+	}
+	
+	public boolean isComplete() {
+		return this.isComplete;
+	}
+	
+	public int read() throws IOException {
+		
+		if(this.read(this.singleByte, 0, 1) == -1) {
+			return -1;
+		}
+		
+		return this.singleByte[0] & 0xff;
+		
+	}
+	
+	public int read(byte[] b, int off, int len) throws IOException {
+		
+		if(len == 0) {
+			return 0;
+		}
+		
+		if(this.isChunked && this.remaining == 0 && !this.isComplete) {
+			this.nextChunk();
+		}
+		
+		if(this.isComplete) {
+			return -1;
+		}
+		
+		int bytesRead =
+			this.readFromSource(b, off, (int)Math.min(len, this.remaining));
+		
+		if(bytesRead == -1) {
+			throw new EOFException("Connection closed before end of request body.");
+		}
+		
+		this.remaining -= bytesRead;
+		
+		if(!this.isChunked && this.remaining == 0) {
+			this.isComplete = true;
+		}
+		
+		return bytesRead;
+		
+	}
+	
+	public int available() throws IOException {
+		
+		if(this.isComplete) {
+			return 0;
+		}
+		
+		return (int)Math.min(this.limit - this.position, this.remaining);
+		
+	}
+	
+	/*
+	** The connection belongs to the server thread, so closing the body
+	** leaves it open. Unread bytes are skipped by drain().
+	*/
+	public void close() throws IOException {
+		;
+	}
+	
+	/*
+	** Skip what the request processor did not read of the body.
+	*/
+	public void drain() throws IOException {
+		
+		if(this.isComplete) {
+			return;
+		}
+		
+		byte[] drainBuffer =
+			new byte[HttpRequestBody.DRAIN_BUFFER_SIZE];
+		
+		while(this.read(drainBuffer, 0, drainBuffer.length) != -1) {
+			;
+		}
+		
+	}
+	
+	private int readFromSource(byte[] b, int off, int len) throws IOException {
+		
+		if(this.position < this.limit) {
+			
+			int n = Math.min(len, this.limit - this.position);
+			
+			System.arraycopy(this.buffer, this.position, b, off, n);
+			this.position += n;
+			
+			return n;
+			
+		}
+		
+		return this.input.read(b, off, len);
+		
+	}
+	
+	private int readByteFromSource() throws IOException {
+		
+		if(this.position < this.limit) {
+			return this.buffer[this.position++] & 0xff;
+		}
+		
+		return this.input.read();
+		
+	}
+	
+	/*
+	** Reads a chunk size line and sets remaining to the chunk size.
+	** A chunk of size zero ends the body, after its trailer.
+	*/
+	private void nextChunk() throws IOException {
+		
+		// Line break ending the data of the previous chunk
+		if(!this.isFirstChunk) {
+			this.readChunkLine();
+		}
+		
+		this.isFirstChunk = false;
+		
+		String line = this.readChunkLine();
+		
+		int extension = line.indexOf(';');
+		
+		if(extension > -1) {
+			line = line.substring(0, extension);
+		}
+		
+		long chunkSize;
+		
+		try {
+			chunkSize = Long.parseLong(line.trim(), 16);
+		} catch(NumberFormatException e) {
+			throw new IOException("Invalid chunk size in request body: \"" + line + "\".");
+		}
+		
+		if(chunkSize > 0) {
+			
+			this.remaining = chunkSize;
+			
+			return;
+			
+		}
+		
+		// Skip trailer
+		while(this.readChunkLine().length() > 0) {
+			;
+		}
+		
+		this.isComplete = true;
+		
+	}
+	
+	private String readChunkLine() throws IOException {
+		
+		if(this.chunkLine == null) {
+			this.chunkLine = new StringBuilder();
+		}
+		
+		this.chunkLine.setLength(0);
+		
+		int b;
+		
+		while((b = this.readByteFromSource()) != '\n') {
+			
+			if(b == -1) {
+				throw new EOFException("Connection closed before end of request body.");
+			}
+			
+			if(this.chunkLine.length() == HttpRequestBody.MAX_CHUNK_LINE_LENGTH) {
+				throw new IOException("Chunk size line in request body is too long.");
+			}
+			
+			if(b != '\r') {
+				this.chunkLine.append((char)b);
+			}
+			
+		}
+		
+		return this.chunkLine.toString();
+		
+	}
+	
+}
\ No newline at end of file
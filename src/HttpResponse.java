@@ -20,8 +20,11 @@ public class HttpResponse {
 	public static final String NEW_LINE = "\r\n";
 	
 	public static final String FILE_NOT_FOUND =
-		"HTTP/1.0 404 Not Found" + HttpResponse.NEW_LINE;
+		"HTTP/1.1 404 Not Found" + HttpResponse.NEW_LINE;
 		
+	public static final String NOT_MODIFIED =
+		"HTTP/1.1 304 Not Modified" + HttpResponse.NEW_LINE;
+	
 	public static final String SEE_OTHER =
 		"HTTP/1.1 303 See Other" + HttpResponse.NEW_LINE;
 	
@@ -38,16 +41,19 @@ public class HttpResponse {
 	public static final String CONNECTION_CLOSE =
 		"Connection: close" + HttpResponse.NEW_LINE;
 	
+	public static final String CONTENT_LENGTH_ZERO =
+		"Content-Length: 0" + HttpResponse.NEW_LINE;
+	
 	public static final String AGE_ZERO =
 		"Age: 0" + HttpResponse.NEW_LINE;
 	
 	public static final String defaultHeader =
-		"HTTP/1.0 200 OK" + HttpResponse.NEW_LINE +
+		"HTTP/1.1 200 OK" + HttpResponse.NEW_LINE +
 		"Access-Control-Allow-Origin: *" + HttpResponse.NEW_LINE;
 	
 	public static final String[] defaultHeaders =
 		new String[] {
-			"HTTP/1.0 200 OK",
+			"HTTP/1.1 200 OK",
 			"Access-Control-Allow-Origin: *"
 		};
 		
@@ -85,6 +91,23 @@ public class HttpResponse {
 		
 	}
 	
+	public static void header(DataOutputStream output, String contentType, long contentLength, long lastModified) throws Exception {
+		
+		output.writeBytes(HttpResponse.defaultHeader);
+		
+		if(contentType != null) {
+			output.writeBytes("Content-Type: " + contentType + HttpResponse.NEW_LINE);
+		}
+		
+		output.writeBytes("Content-Length: " + contentLength + HttpResponse.NEW_LINE);
+		output.writeBytes("Last-Modified: " + Utils.getHttpDate(lastModified) + HttpResponse.NEW_LINE);
+		
+		output.writeBytes(
+			 HttpResponse.NEW_LINE
+		);
+		
+	}
+	
 	public static void header(DataOutputStream output, final String[] headers) throws Exception {
 		
 		output.writeBytes(HttpResponse.defaultHeader);
@@ -108,6 +131,15 @@ public class HttpResponse {
 	
 	public static void fileNotFound(DataOutputStream output) throws Exception {
 		output.writeBytes(HttpResponse.FILE_NOT_FOUND);
+		output.writeBytes(HttpResponse.CONTENT_LENGTH_ZERO);
+		output.writeBytes(HttpResponse.NEW_LINE);
+	}
+	
+	public static void notModified(DataOutputStream output, String eTag) throws Exception {
+		output.writeBytes(HttpResponse.NOT_MODIFIED);
+		output.writeBytes("ETag: " + eTag + HttpResponse.NEW_LINE);
+		output.writeBytes("Vary: Accept-Encoding" + HttpResponse.NEW_LINE);
+		output.writeBytes(HttpResponse.NEW_LINE);
 	}
 	
 	public static void redirect(DataOutputStream output, String path) throws Exception {
@@ -127,7 +159,8 @@ public class HttpResponse {
 			output.writeBytes("Set-Cookie: " + cookie + HttpResponse.NEW_LINE);
 		}
 		output.writeBytes("Location: " + path + HttpResponse.NEW_LINE);
-		output.writeBytes(HttpResponse.CONNECTION_CLOSE);
+		output.writeBytes(HttpResponse.CONTENT_LENGTH_ZERO);
+		output.writeBytes(HttpResponse.NEW_LINE);
 		output.flush();
 	}
 	
@@ -17,7 +17,7 @@ import java.util.HashMap;
 
 public enum HttpResponseHeader {
 
-    FILE_NOT_FOUND("FILE_NOT_FOUND", "HTTP/1.0 404 Not Found" + HttpResponse.NEW_LINE),
+    FILE_NOT_FOUND("FILE_NOT_FOUND", "HTTP/1.1 404 Not Found" + HttpResponse.NEW_LINE),
     SEE_OTHER("SEE_OTHER",
               "HTTP/1.1 303 See Other" + HttpResponse.NEW_LINE),
     PERMANENTLY_MOVED("PERMANENTLY_MOVED",
@@ -32,7 +32,7 @@ public enum HttpResponseHeader {
     AGE_ZERO("AGE_ZERO",
              "Age: 0" + HttpResponse.NEW_LINE),
     DEFAULT_HEADER("DEFAULT_HEADER",
-                   "HTTP/1.0 200 OK" + HttpResponse.NEW_LINE +
+                   "HTTP/1.1 200 OK" + HttpResponse.NEW_LINE +
                     "Access-Control-Allow-Origin: *" + HttpResponse.NEW_LINE),
     JSON_HEADERS(
         "JSON_HEADERS",
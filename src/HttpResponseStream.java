@@ -0,0 +1,729 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.OutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+** Sits between the request processors and the socket and takes care of
+** HTTP/1.1 message framing so that a connection can be reused.
+**
+** The response header written by the processor is buffered until the
+** terminating empty line. The status line is upgraded to HTTP/1.1, the
+** Connection header is set according to the keep-alive decision and, when
+** the processor did not give a Content-Length, the body is sent with
+** chunked transfer encoding. Responses that cannot be framed (e.g. HTTP/1.0
+** clients without Content-Length) fall back to closing the connection.
+**
+** When the client accepts gzip or deflate, bodies of at least
+** HTTP_COMPRESSION_THRESHOLD bytes are compressed on the fly. If the
+** length is not known up front, the body is held back until the threshold
+** is reached; smaller bodies are then sent as is with a Content-Length.
+*/
+public class HttpResponseStream extends OutputStream {
+
+	private static final int STATE_HEADER = 0;
+	private static final int STATE_BODY_FIXED = 1;
+	private static final int STATE_BODY_CHUNKED = 2;
+	private static final int STATE_BODY_NONE = 3;
+	private static final int STATE_BODY_RAW = 4;
+	private static final int STATE_BODY_PENDING = 5;
+
+	private static final int MAX_HEADER_SIZE = 65536;
+
+	private static final byte[] HTTP_PREFIX =
+		"HTTP/".getBytes(StandardCharsets.ISO_8859_1);
+
+	private static final byte[] CRLF =
+		HttpResponse.NEW_LINE.getBytes(StandardCharsets.ISO_8859_1);
+
+	private static final byte[] LAST_CHUNK =
+		("0" + HttpResponse.NEW_LINE + HttpResponse.NEW_LINE).getBytes(StandardCharsets.ISO_8859_1);
+
+	private static final byte[] CONTINUE =
+		("HTTP/1.1 100 Continue" + HttpResponse.NEW_LINE + HttpResponse.NEW_LINE).getBytes(StandardCharsets.ISO_8859_1);
+
+	private static final String[] INCOMPRESSIBLE_CONTENT_TYPES =
+		new String[] {
+			"image/",
+			"audio/",
+			"video/",
+			"application/zip",
+			"application/gzip",
+			"application/x-gzip",
+			"application/pdf"
+		};
+
+	private OutputStream output;
+
+	private int state;
+	private boolean keepAlive;
+	private boolean chunkingAllowed;
+	private boolean bytesWritten;
+
+	// Content coding accepted by the client ("gzip", "deflate") or null
+	private String acceptedEncoding;
+
+	private byte[] headerBuffer;
+	private int headerLength;
+
+	// Header kept back while deciding on compression
+	private StringBuilder pendingHeader;
+
+	private byte[] chunkBuffer;
+	private int chunkLength;
+
+	private byte[] pendingBody;
+	private int pendingBodyLength;
+
+	private long contentLengthRemaining;
+
+	private DeflaterOutputStream compressor;
+	private Deflater deflater;
+	private OutputStream framedBody;
+
+	private byte[] singleByte;
+
+	public HttpResponseStream(OutputStream output) {
+
+		this.output = output;
+		this.headerBuffer = new byte[1024];
+		this.chunkBuffer = new byte[Config.HTTP_RESPONSE_CHUNK_SIZE];
+		this.singleByte = new byte[1];
+
+		final HttpResponseStream me = this;
+
+		// Compressor output goes through the normal framing
+		this.framedBody =
+			new OutputStream() {
+				public void write(int b) throws IOException {
+					me.singleByte[0] = (byte)b;
+					me.writeFramed(me.singleByte, 0, 1);
+				}
+				public void write(byte[] b, int off, int len) throws IOException {
+					me.writeFramed(b, off, len);
+				}
+			};
+
+		this.begin(false, false);
+
+	}
+
+	/*
+	** Prepare for the next response on the connection.
+	*/
+	public void begin(boolean keepAlive, boolean chunkingAllowed) {
+
+		this.begin(keepAlive, chunkingAllowed, null);
+
+	}
+
+	public void begin(boolean keepAlive, boolean chunkingAllowed, String acceptedEncoding) {
+
+		this.state = HttpResponseStream.STATE_HEADER;
+		this.keepAlive = keepAlive;
+		this.chunkingAllowed = chunkingAllowed;
+		this.acceptedEncoding =
+			(Config.HTTP_COMPRESSION_ENABLED ? acceptedEncoding : null);
+		this.bytesWritten = false;
+		this.headerLength = 0;
+		this.pendingHeader = null;
+		this.chunkLength = 0;
+		this.pendingBodyLength = 0;
+		this.contentLengthRemaining = 0;
+		this.compressor = null;
+		this.deflater = null;
+
+	}
+
+	public boolean isKeepAlive() {
+		return this.keepAlive;
+	}
+
+	/*
+	** Interim response telling a client that sent "Expect: 100-continue"
+	** to go ahead with the request body.
+	*/
+	public void sendContinue() throws IOException {
+
+		this.output.write(HttpResponseStream.CONTINUE);
+		this.output.flush();
+
+	}
+
+	/*
+	** Whether the body of the current response is being compressed. Body
+	** bytes must then be written through this stream.
+	*/
+	public boolean isCompressing() {
+		return this.compressor != null;
+	}
+
+	public void write(int b) throws IOException {
+
+		this.singleByte[0] = (byte)b;
+
+		this.write(this.singleByte, 0, 1);
+
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+
+		if(len > 0) {
+			this.bytesWritten = true;
+		}
+
+		// Header is passed byte by byte until it is complete
+		while(len > 0 && this.state == HttpResponseStream.STATE_HEADER) {
+
+			this.appendToHeader(b[off]);
+
+			off++;
+			len--;
+
+		}
+
+		if(len == 0) {
+			return;
+		}
+
+		if(this.state == HttpResponseStream.STATE_BODY_PENDING) {
+
+			int n = Math.min(len, this.pendingBody.length - this.pendingBodyLength);
+
+			System.arraycopy(b, off, this.pendingBody, this.pendingBodyLength, n);
+			this.pendingBodyLength += n;
+
+			off += n;
+			len -= n;
+
+			if(this.pendingBodyLength < this.pendingBody.length) {
+				return;
+			}
+
+			// Large enough to be worth compressing
+			this.commitCompressed();
+
+		}
+
+		if(this.compressor != null) {
+
+			this.compressor.write(b, off, len);
+
+		} else {
+
+			this.writeFramed(b, off, len);
+
+		}
+
+	}
+
+	private void writeFramed(byte[] b, int off, int len) throws IOException {
+
+		switch(this.state) {
+			case HttpResponseStream.STATE_BODY_CHUNKED:
+
+				if(this.chunkLength == 0 && len >= this.chunkBuffer.length) {
+
+					// Large writes are sent as a chunk of their own
+					this.writeChunk(b, off, len);
+
+					return;
+
+				}
+
+				while(len > 0) {
+
+					if(this.chunkLength == this.chunkBuffer.length) {
+						this.writeChunk();
+					}
+
+					int n = Math.min(len, this.chunkBuffer.length - this.chunkLength);
+					System.arraycopy(b, off, this.chunkBuffer, this.chunkLength, n);
+					this.chunkLength += n;
+
+					off += n;
+					len -= n;
+
+				}
+
+				break;
+
+			case HttpResponseStream.STATE_BODY_FIXED:
+
+				int bytesToWrite =
+					(int)Math.min(len, this.contentLengthRemaining);
+
+				// Anything beyond Content-Length is dropped
+				if(bytesToWrite > 0) {
+					this.output.write(b, off, bytesToWrite);
+					this.contentLengthRemaining -= bytesToWrite;
+				}
+
+				break;
+
+			case HttpResponseStream.STATE_BODY_RAW:
+
+				this.output.write(b, off, len);
+
+				break;
+
+			default:
+				break;
+		}
+
+	}
+
+	/*
+	** For body bytes sent to the socket without passing through this
+	** stream, e.g. by FileChannel.transferTo.
+	*/
+	public void bodyWritten(long bytes) {
+
+		if(this.state == HttpResponseStream.STATE_BODY_FIXED) {
+			this.contentLengthRemaining -= Math.min(bytes, this.contentLengthRemaining);
+		}
+
+	}
+
+	public void flush() throws IOException {
+
+		if(	this.state == HttpResponseStream.STATE_HEADER ||
+			this.state == HttpResponseStream.STATE_BODY_PENDING	) {
+			// Nothing can be sent before the header is complete
+			return;
+		}
+
+		if(this.compressor != null) {
+			// Sync flush, so clients can decompress what has been sent so far
+			this.compressor.flush();
+		}
+
+		if(this.state == HttpResponseStream.STATE_BODY_CHUNKED && this.chunkLength > 0) {
+			this.writeChunk();
+		}
+
+		this.output.flush();
+
+	}
+
+	/*
+	** The connection is owned by the server thread, so closing the
+	** response stream only flushes it.
+	*/
+	public void close() throws IOException {
+
+		this.flush();
+
+	}
+
+	/*
+	** Complete the current response. Returns whether the connection
+	** can be used for another request.
+	*/
+	public boolean finish() throws IOException {
+
+		if(this.state == HttpResponseStream.STATE_HEADER) {
+
+			if(!this.bytesWritten) {
+
+				// No response was produced
+				this.keepAlive = false;
+
+				return this.keepAlive;
+
+			}
+
+			// Header was never terminated with an empty line
+			this.processHeader();
+
+		}
+
+		if(this.state == HttpResponseStream.STATE_BODY_PENDING) {
+
+			// Below the compression threshold, send as is
+			this.state = HttpResponseStream.STATE_BODY_FIXED;
+			this.contentLengthRemaining = this.pendingBodyLength;
+
+			this.pendingHeader.append("Content-Length: " + this.pendingBodyLength);
+			this.pendingHeader.append(HttpResponse.NEW_LINE);
+
+			this.writeHeader(this.pendingHeader);
+
+			this.writeFramed(this.pendingBody, 0, this.pendingBodyLength);
+
+		}
+
+		if(this.compressor != null) {
+
+			// Framing sink ignores close, so this only finishes the compressed body
+			this.compressor.close();
+
+			if(this.deflater != null) {
+				this.deflater.end();
+			}
+
+			this.compressor = null;
+
+		}
+
+		switch(this.state) {
+			case HttpResponseStream.STATE_BODY_CHUNKED:
+
+				if(this.chunkLength > 0) {
+					this.writeChunk();
+				}
+
+				this.output.write(HttpResponseStream.LAST_CHUNK);
+
+				break;
+
+			case HttpResponseStream.STATE_BODY_FIXED:
+
+				if(this.contentLengthRemaining > 0) {
+					// Body is shorter than announced, client can not find the next response
+					this.keepAlive = false;
+				}
+
+				break;
+
+			case HttpResponseStream.STATE_BODY_RAW:
+
+				this.keepAlive = false;
+
+				break;
+
+			default:
+				break;
+		}
+
+		this.state = HttpResponseStream.STATE_BODY_NONE;
+
+		return this.keepAlive;
+
+	}
+
+	private void appendToHeader(byte b) throws IOException {
+
+		if(this.headerLength == this.headerBuffer.length) {
+
+			if(this.headerBuffer.length >= HttpResponseStream.MAX_HEADER_SIZE) {
+				this.writeRaw();
+				this.output.write(b);
+				return;
+			}
+
+			byte[] newHeaderBuffer = new byte[this.headerBuffer.length * 2];
+			System.arraycopy(this.headerBuffer, 0, newHeaderBuffer, 0, this.headerLength);
+			this.headerBuffer = newHeaderBuffer;
+
+		}
+
+		this.headerBuffer[this.headerLength++] = b;
+
+		// Output not starting with a status line is passed through as is
+		if(	this.headerLength <= HttpResponseStream.HTTP_PREFIX.length &&
+			b != HttpResponseStream.HTTP_PREFIX[this.headerLength-1]	) {
+
+			this.writeRaw();
+			return;
+
+		}
+
+		if(	this.headerLength >= 4 &&
+			this.headerBuffer[this.headerLength-4] == '\r' &&
+			this.headerBuffer[this.headerLength-3] == '\n' &&
+			this.headerBuffer[this.headerLength-2] == '\r' &&
+			this.headerBuffer[this.headerLength-1] == '\n'	) {
+
+			this.processHeader();
+
+		}
+
+	}
+
+	private void writeRaw() throws IOException {
+
+		this.output.write(this.headerBuffer, 0, this.headerLength);
+		this.headerLength = 0;
+
+		this.keepAlive = false;
+		this.state = HttpResponseStream.STATE_BODY_RAW;
+
+	}
+
+	private void processHeader() throws IOException {
+
+		String[] lines =
+			new String(
+				this.headerBuffer,
+				0,
+				this.headerLength,
+				StandardCharsets.ISO_8859_1
+			).split(HttpResponse.NEW_LINE);
+
+		String statusLine = lines[0].trim();
+		int statusCode = 200;
+		long contentLength = -1;
+		String contentType = null;
+		boolean isEncoded = false;
+
+		int versionEnd = statusLine.indexOf(' ');
+
+		if(versionEnd > -1) {
+
+			String status =
+				statusLine.substring(versionEnd + 1).trim();
+
+			statusLine = "HTTP/1.1 " + status;
+
+			try {
+				statusCode = Integer.parseInt(status.split("\\s")[0]);
+			} catch(Exception e) {
+				;
+			}
+
+		}
+
+		StringBuilder header = new StringBuilder(this.headerLength + 128);
+
+		header.append(statusLine);
+		header.append(HttpResponse.NEW_LINE);
+
+		for(int i=1; i<lines.length; i++) {
+
+			String line = lines[i];
+			int colon = line.indexOf(':');
+
+			if(colon == -1) {
+				continue;
+			}
+
+			String key = line.substring(0, colon).trim();
+			String value = line.substring(colon + 1).trim();
+
+			if(key.equalsIgnoreCase("Connection")) {
+
+				if(value.equalsIgnoreCase("close")) {
+					this.keepAlive = false;
+				}
+
+				continue;
+
+			} else if(key.equalsIgnoreCase("Content-Length")) {
+
+				// Added back below depending on framing
+				try {
+					contentLength = Long.parseLong(value);
+				} catch(Exception e) {
+					;
+				}
+
+				continue;
+
+			} else if(key.equalsIgnoreCase("Transfer-Encoding")) {
+
+				// Body framing is decided here
+				continue;
+
+			} else if(key.equalsIgnoreCase("Content-Encoding")) {
+
+				isEncoded = true;
+
+			} else if(key.equalsIgnoreCase("Content-Type")) {
+
+				contentType = value.toLowerCase();
+
+			}
+
+			header.append(line);
+			header.append(HttpResponse.NEW_LINE);
+
+		}
+
+		this.headerLength = 0;
+
+		boolean hasBody =
+			!((statusCode >= 100 && statusCode < 200) ||
+			statusCode == 204 ||
+			statusCode == 304);
+
+		boolean compress =
+			hasBody &&
+			this.acceptedEncoding != null &&
+			!isEncoded &&
+			contentLength != 0 &&
+			HttpResponseStream.isCompressible(contentType);
+
+		if(!hasBody) {
+
+			this.state = HttpResponseStream.STATE_BODY_NONE;
+			this.writeHeader(header);
+
+		} else if(compress && contentLength >= Config.HTTP_COMPRESSION_THRESHOLD) {
+
+			this.pendingHeader = header;
+			this.commitCompressed();
+
+		} else if(compress && contentLength == -1) {
+
+			// Decide once the threshold is reached or the response is complete
+			this.state = HttpResponseStream.STATE_BODY_PENDING;
+			this.pendingHeader = header;
+
+			if(this.pendingBody == null) {
+				this.pendingBody = new byte[Config.HTTP_COMPRESSION_THRESHOLD];
+			}
+
+			this.pendingBodyLength = 0;
+
+		} else if(contentLength > -1) {
+
+			this.state = HttpResponseStream.STATE_BODY_FIXED;
+			this.contentLengthRemaining = contentLength;
+
+			header.append("Content-Length: " + contentLength);
+			header.append(HttpResponse.NEW_LINE);
+
+			this.writeHeader(header);
+
+		} else if(this.chunkingAllowed) {
+
+			this.state = HttpResponseStream.STATE_BODY_CHUNKED;
+			header.append("Transfer-Encoding: chunked");
+			header.append(HttpResponse.NEW_LINE);
+
+			this.writeHeader(header);
+
+		} else {
+
+			// Only way to tell the client where the body ends
+			this.state = HttpResponseStream.STATE_BODY_RAW;
+			this.keepAlive = false;
+
+			this.writeHeader(header);
+
+		}
+
+	}
+
+	private void commitCompressed() throws IOException {
+
+		StringBuilder header = this.pendingHeader;
+
+		header.append("Content-Encoding: " + this.acceptedEncoding);
+		header.append(HttpResponse.NEW_LINE);
+		header.append("Vary: Accept-Encoding");
+		header.append(HttpResponse.NEW_LINE);
+
+		if(this.chunkingAllowed) {
+
+			this.state = HttpResponseStream.STATE_BODY_CHUNKED;
+			header.append("Transfer-Encoding: chunked");
+			header.append(HttpResponse.NEW_LINE);
+
+		} else {
+
+			this.state = HttpResponseStream.STATE_BODY_RAW;
+			this.keepAlive = false;
+
+		}
+
+		this.writeHeader(header);
+
+		if(this.acceptedEncoding.equals("gzip")) {
+
+			final int level = Config.HTTP_COMPRESSION_LEVEL;
+
+			this.compressor =
+				new GZIPOutputStream(this.framedBody, Config.HTTP_RESPONSE_CHUNK_SIZE, true) {
+					{
+						this.def.setLevel(level);
+					}
+				};
+
+		} else {
+
+			this.deflater =
+				new Deflater(Config.HTTP_COMPRESSION_LEVEL);
+
+			this.compressor =
+				new DeflaterOutputStream(this.framedBody, this.deflater, Config.HTTP_RESPONSE_CHUNK_SIZE, true);
+
+		}
+
+		if(this.pendingBodyLength > 0) {
+
+			this.compressor.write(this.pendingBody, 0, this.pendingBodyLength);
+			this.pendingBodyLength = 0;
+
+		}
+
+	}
+
+	private void writeHeader(StringBuilder header) throws IOException {
+
+		header.append(this.keepAlive ? "Connection: keep-alive" : "Connection: close");
+		header.append(HttpResponse.NEW_LINE);
+		header.append(HttpResponse.NEW_LINE);
+
+		this.output.write(
+			header.toString().getBytes(StandardCharsets.ISO_8859_1)
+		);
+
+		this.pendingHeader = null;
+
+	}
+
+	private static boolean isCompressible(String contentType) {
+
+		if(contentType == null) {
+			return true;
+		}
+
+		for(String incompressibleContentType : HttpResponseStream.INCOMPRESSIBLE_CONTENT_TYPES) {
+
+			if(contentType.startsWith(incompressibleContentType)) {
+				return false;
+			}
+
+		}
+
+		return true;
+
+	}
+
+	private void writeChunk() throws IOException {
+
+		this.writeChunk(this.chunkBuffer, 0, this.chunkLength);
+		this.chunkLength = 0;
+
+	}
+
+	private void writeChunk(byte[] b, int off, int len) throws IOException {
+
+		this.output.write(
+			(Integer.toHexString(len) + HttpResponse.NEW_LINE).getBytes(StandardCharsets.ISO_8859_1)
+		);
+		this.output.write(b, off, len);
+		this.output.write(HttpResponseStream.CRLF);
+
+	}
+
+}
\ No newline at end of file
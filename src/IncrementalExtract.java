@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/*
+** Extracts only the rows added or changed since the last run, by a
+** watermark on a column that only grows, such as an updated_at timestamp
+** or a sequence id.
+**
+** Each run first takes the highest value of the column, by default with
+** max() over the query, and then extracts the rows above the watermark up
+** to and including that value. Rows committed while the run streams are
+** left for the next run rather than skipped, as they would be if the
+** highest value written became the watermark. The predicate replaces
+** $CONDITIONS in the query if present, otherwise the query is wrapped in
+** a subquery (see PartitionedExtract). The upper bound becomes the new
+** watermark, committed only once the file is complete, so a failed run is
+** repeated in full by the next one.
+*/
+public class IncrementalExtract {
+	
+	private QueryManager queryManager;
+	private String name;
+	private String connectionName;
+	private String query;
+	private String column;
+	private QueryOptions queryOptions;
+	
+	public IncrementalExtract(QueryManager queryManager, String name, String connectionName, String query, String column, QueryOptions queryOptions) {
+		this.queryManager = queryManager;
+		this.name = name;
+		this.connectionName = connectionName;
+		this.query = query;
+		this.column = column;
+		this.queryOptions = queryOptions;
+	}
+	
+	/*
+	** Writes the new rows to fileName, replacing it, and returns how many
+	** there were. initialValue, an SQL literal, is where the first run
+	** starts; all rows if null. upperBoundQuery returns the upper bound in
+	** its first column, for backends without derived tables or to stay
+	** behind the newest rows, e.g. "select max(id) - 100 from events";
+	** max() over the query if null. Rows where the column is null are never
+	** extracted.
+	*/
+	public long toFile(String fileName, OutputType outputType, String initialValue, String upperBoundQuery) throws Exception {
+		
+		WatermarkStore watermarks =
+			this.queryManager.watermarks();
+		
+		watermarks.startRun(this.name);
+		
+		try {
+			
+			Watermark watermark =
+				watermarks.get(this.name);
+			
+			if(watermark == null) {
+				
+				watermark =
+					new Watermark(
+						this.name,
+						this.connectionName,
+						this.column
+					);
+				
+			} else if(!watermark.getColumn().equals(this.column) || !watermark.getConnectionName().equals(this.connectionName)) {
+				
+				throw new Exception(
+					"Incremental extraction \"" + this.name + "\" tracks " + watermark.getColumn() +
+					" on connection \"" + watermark.getConnectionName() + "\". Reset it to change that."
+				);
+				
+			}
+			
+			String low =
+				(watermark.getValue() != null ? watermark.getValue() : initialValue);
+			
+			String lowPredicate =
+				this.column + " is not null" +
+				(low != null ? " and " + this.column + " > " + low : "");
+			
+			Object high =
+				this.upperBound(
+					(upperBoundQuery != null ?
+						upperBoundQuery :
+						"select max(" + this.columnName() + ") from (" +
+							PartitionedExtract.partitionQuery(this.query, lowPredicate) +
+						") fusebase_watermark"
+					)
+				);
+			
+			// No new rows, the file gets only the header
+			String predicate =
+				(high != null ?
+					(low != null ? this.column + " > " + low + " and " : "") + this.column + " <= " + Watermark.literal(high) :
+					this.column + " is null and " + this.column + " is not null"
+				);
+			
+			File file = new File(fileName);
+			File temporaryFile = new File(fileName + ".tmp");
+			
+			file.getAbsoluteFile().getParentFile().mkdirs();
+			
+			long rowCount;
+			
+			try {
+				
+				rowCount =
+					this.write(
+						PartitionedExtract.partitionQuery(this.query, predicate),
+						temporaryFile,
+						outputType
+					);
+				
+				Files.move(
+					temporaryFile.toPath(),
+					file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE
+				);
+				
+			} finally {
+				
+				temporaryFile.delete();
+				
+			}
+			
+			watermarks.commit(
+				watermark.advance(
+					high,
+					rowCount
+				)
+			);
+			
+			return rowCount;
+			
+		} finally {
+			
+			watermarks.endRun(this.name);
+			
+		}
+		
+	}
+	
+	// First column of the first row, null if none
+	private Object upperBound(String upperBoundQuery) throws Exception {
+		
+		QueryObject queryObject =
+			this.queryManager.getQueryObject(
+				this.connectionName,
+				upperBoundQuery,
+				this.queryOptions
+			);
+		
+		try {
+			
+			if(!queryObject.next()) {
+				return null;
+			}
+			
+			return PartitionedExtract.boundValue(queryObject, 1);
+			
+		} finally {
+			
+			queryObject.close();
+			
+		}
+		
+	}
+	
+	private long write(String query, File file, OutputType outputType) throws Exception {
+		
+		QueryObject queryObject =
+			this.queryManager.getQueryObject(
+				this.connectionName,
+				query,
+				this.queryOptions
+			);
+		
+		PrintWriter printWriter = null;
+		
+		try {
+			
+			ResultSetColumns columns =
+				queryObject.columns();
+			
+			printWriter =
+				new PrintWriter(
+					new BufferedWriter(
+						new OutputStreamWriter(
+							new FileOutputStream(file)
+						)
+					)
+				);
+			
+			DataWriter dataWriter =
+				PartitionedExtract.dataWriter(outputType, printWriter);
+			
+			long rowCount = 0;
+			
+			dataWriter.init();
+			dataWriter.beginRow();
+			
+			columns.writeHeader(dataWriter);
+			
+			dataWriter.endRow();
+			
+			while(queryObject.next()) {
+				
+				dataWriter.newRow();
+				dataWriter.beginRow();
+				
+				queryObject.writeRow(dataWriter);
+				
+				dataWriter.endRow();
+				
+				rowCount++;
+				
+			}
+			
+			dataWriter.finish();
+			
+			printWriter.flush();
+			
+			if(printWriter.checkError()) {
+				throw new Exception("Failed to write \"" + file.getPath() + "\".");
+			}
+			
+			return rowCount;
+			
+		} finally {
+			
+			if(printWriter != null) {
+				printWriter.close();
+			}
+			
+			queryObject.close();
+			
+		}
+		
+	}
+	
+	// The column may be qualified in the query, the subquery names it without
+	private String columnName() {
+		return this.column.substring(this.column.lastIndexOf('.') + 1);
+	}
+	
+}
\ No newline at end of file
@@ -21,6 +21,8 @@ import java.io.Serializable;
 
 public class JDBCDriverInfo implements Serializable {
 	
+	private static final long serialVersionUID = -5326902701216881969L;
+	
 	private static String defaultJDBCDriverInfoFileName = "./jdbc_drivers/JDBCDrivers.txt";
 	private static HashMap<String, JDBCDriverInfo> driverInfoList = new HashMap<String, JDBCDriverInfo>();
 	
@@ -30,14 +32,26 @@ public class JDBCDriverInfo implements Serializable {
 	private String connectStringPattern;
 	private String validationQuery;
 	private int connectionPoolSize;
-	
-	public JDBCDriverInfo(String name, String jdbcDriverPath, String className, String connectStringPattern, String validationQuery, int connectionPoolSize) {
+	private int maxConcurrentQueries;
+	private int validationInterval;
+	private int maxLifetime;
+	private int idleTimeout;
+	private int fetchSize;
+	private StreamingMode streamingMode;
+	
+	public JDBCDriverInfo(String name, String jdbcDriverPath, String className, String connectStringPattern, String validationQuery, int connectionPoolSize, int maxConcurrentQueries, int validationInterval, int maxLifetime, int idleTimeout, int fetchSize, StreamingMode streamingMode) {
 		this.name = name;
 		this.jdbcDriverPath = jdbcDriverPath;
 		this.className = className;
 		this.connectStringPattern = connectStringPattern;
 		this.validationQuery = validationQuery;
 		this.connectionPoolSize = connectionPoolSize;
+		this.maxConcurrentQueries = maxConcurrentQueries;
+		this.validationInterval = validationInterval;
+		this.maxLifetime = maxLifetime;
+		this.idleTimeout = idleTimeout;
+		this.fetchSize = fetchSize;
+		this.streamingMode = streamingMode;
 	}
 	
 	public String toString() {
@@ -72,6 +86,30 @@ public class JDBCDriverInfo implements Serializable {
 		return this.connectionPoolSize;
 	}
 	
+	public int getMaxConcurrentQueries() {
+		return (this.maxConcurrentQueries > 0 ? this.maxConcurrentQueries : Config.DB_CONNECTION_MAX_CONCURRENT_QUERIES);
+	}
+	
+	public int getValidationInterval() {
+		return (this.validationInterval > 0 ? this.validationInterval : Config.DB_CONNECTION_VALIDATION_INTERVAL);
+	}
+	
+	public int getMaxLifetime() {
+		return (this.maxLifetime > 0 ? this.maxLifetime : Config.DB_CONNECTION_MAX_LIFETIME);
+	}
+	
+	public int getIdleTimeout() {
+		return (this.idleTimeout > 0 ? this.idleTimeout : Config.DB_CONNECTION_IDLE_TIMEOUT);
+	}
+	
+	public int getFetchSize() {
+		return (this.fetchSize > 0 ? this.fetchSize : Config.DB_QUERY_FETCH_SIZE);
+	}
+	
+	public StreamingMode getStreamingMode() {
+		return (this.streamingMode != null ? this.streamingMode : StreamingMode.FETCH_SIZE);
+	}
+	
 	public static Collection<JDBCDriverInfo> getDriverInfoListEntries() {
 		return driverInfoList.values();
 	}
@@ -109,7 +147,19 @@ public class JDBCDriverInfo implements Serializable {
 				props.get("ConnectStringPattern"),
 				props.get("ValidationQuery"),
 				(props.get("ConnectionPoolSize") != null ?
-					Integer.parseInt(props.get("ConnectionPoolSize")) : Config.DB_CONNECTION_POOL_SIZE)
+					Integer.parseInt(props.get("ConnectionPoolSize")) : Config.DB_CONNECTION_POOL_SIZE),
+				(props.get("MaxConcurrentQueries") != null ?
+					Integer.parseInt(props.get("MaxConcurrentQueries")) : Config.DB_CONNECTION_MAX_CONCURRENT_QUERIES),
+				(props.get("ValidationInterval") != null ?
+					Integer.parseInt(props.get("ValidationInterval")) : Config.DB_CONNECTION_VALIDATION_INTERVAL),
+				(props.get("MaxLifetime") != null ?
+					Integer.parseInt(props.get("MaxLifetime")) : Config.DB_CONNECTION_MAX_LIFETIME),
+				(props.get("IdleTimeout") != null ?
+					Integer.parseInt(props.get("IdleTimeout")) : Config.DB_CONNECTION_IDLE_TIMEOUT),
+				(props.get("FetchSize") != null ?
+					Integer.parseInt(props.get("FetchSize")) : Config.DB_QUERY_FETCH_SIZE),
+				(props.get("Streaming") != null ?
+					StreamingMode.valueOf(props.get("Streaming")) : StreamingMode.FETCH_SIZE)
 			)
 		);
 	}
@@ -14,6 +14,8 @@
  * limitations under the License.
  */
 import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.Vector;
 
 public class JSONWriter extends DataWriter {
@@ -69,10 +71,31 @@ public class JSONWriter extends DataWriter {
 		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + this.getKey(entryId) + entry);
 	}
 	
+	public void entry(long entry, int entryId) {
+		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + this.getKey(entryId) + entry);
+	}
+	
+	public void entry(BigDecimal entry, int entryId) {
+		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + this.getKey(entryId) + entry.toPlainString());
+	}
+	
+	public void entry(Timestamp entry, int entryId) {
+		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + this.getKey(entryId) + "\"" + entry.toString() + "\"");
+	}
+	
+	public void entry(byte[] entry, int entryId) {
+		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + this.getKey(entryId) + "\"" + super.representBytes(entry) + "\"");
+	}
+	
 	public void nullEntry(int entryId) {
 		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + this.getKey(entryId) + "null");
 	}
 	
+	// The first row of an output is written without a separator
+	public String fragmentSeparator() {
+		return DataWriter.FIELD_SEPARATOR;
+	}
+	
 	public void newRow() {
 		super.newRow();
 		if(super.getRecordCount() > 1) {
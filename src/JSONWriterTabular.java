@@ -14,6 +14,8 @@
  * limitations under the License.
  */
 import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
 
 public class JSONWriterTabular extends DataWriter {
 	
@@ -45,6 +47,22 @@ public class JSONWriterTabular extends DataWriter {
 		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + entry);
 	}
 	
+	public void entry(long entry, int entryId) {
+		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + entry);
+	}
+	
+	public void entry(BigDecimal entry, int entryId) {
+		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + entry.toPlainString());
+	}
+	
+	public void entry(Timestamp entry, int entryId) {
+		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + "\"" + entry.toString() + "\"");
+	}
+	
+	public void entry(byte[] entry, int entryId) {
+		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + "\"" + representBytes(entry) + "\"");
+	}
+	
 	public void nullEntry(int entryId) {
 		out.print((entryId > 0 ? DataWriter.FIELD_SEPARATOR : "") + "null");
 	}
@@ -31,6 +31,8 @@ public class LiteString {
 	
 	public void append(String s) {
 		
+		this.ensureCapacity(this.length + s.length() + 1);
+		
 		for(int i=0; i<s.length(); i++) {
 			
 			this.data[this.length++] =
@@ -44,6 +46,8 @@ public class LiteString {
 	
 	public void append(byte[] bytes) {
 		
+		this.ensureCapacity(this.length + bytes.length + 1);
+		
 		for(int i=0; i<bytes.length; i++) {
 			
 			this.data[this.length++] = (char)bytes[i];
@@ -56,12 +60,28 @@ public class LiteString {
 	
 	public void append(char c) {
 		
+		this.ensureCapacity(this.length + 2);
+		
 		this.data[this.length++] = c;
 		
 		this.data[this.length] = LiteString.NULL;
 		
 	}
 	
+	private void ensureCapacity(int capacity) {
+		
+		if(capacity > this.data.length) {
+			
+			this.data =
+				Arrays.copyOf(
+					this.data,
+					Math.max(capacity, this.data.length * 2)
+				);
+			
+		}
+		
+	}
+	
 	public void clear() {
 		
 		this.length = 0;
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/*
+** Per connection state for NIOHTTPServer. Holds the read buffer and the
+** HttpRequest being assembled by an NIOHTTPEventLoop until it is complete.
+*/
+public class NIOHTTPConnection {
+
+	private SocketChannel channel;
+	private NIOHTTPEventLoop eventLoop;
+	private ByteBuffer readBuffer;
+	private HttpRequest httpRequest;
+	private int requestCount;
+	private long lastActivityTime;
+	private long queuedTime;
+
+	// POST data, read by the worker thread
+	private HttpRequestBody clientDataStream;
+
+	public NIOHTTPConnection(SocketChannel channel, NIOHTTPEventLoop eventLoop) {
+
+		this.channel = channel;
+		this.eventLoop = eventLoop;
+		this.readBuffer =
+			ByteBuffer.allocate(Config.HTTP_SERVER_READ_BUFFER_SIZE);
+		this.httpRequest = null;
+		this.requestCount = 0;
+		this.lastActivityTime = System.currentTimeMillis();
+		this.clientDataStream = null;
+
+	}
+
+	public SocketChannel channel() {
+		return this.channel;
+	}
+
+	public NIOHTTPEventLoop eventLoop() {
+		return this.eventLoop;
+	}
+
+	public HttpRequest httpRequest() {
+		return this.httpRequest;
+	}
+
+	public int requestCount() {
+		return this.requestCount;
+	}
+
+	public long lastActivityTime() {
+		return this.lastActivityTime;
+	}
+	
+	public long queuedTime() {
+		return this.queuedTime;
+	}
+	
+	/*
+	** Request is complete and waits for a worker thread
+	*/
+	public void queued() {
+		this.queuedTime = System.currentTimeMillis();
+	}
+
+	/*
+	** Prepare for the next request on a persistent connection. Bytes of
+	** pipelined requests already in the read buffer are kept.
+	*/
+	public void reset() {
+
+		this.httpRequest.reset();
+		this.lastActivityTime = System.currentTimeMillis();
+
+	}
+
+	public boolean hasBufferedData() {
+		return this.readBuffer.position() > 0;
+	}
+
+	/*
+	** Read available bytes from the channel and continue parsing.
+	** Returns true when a complete request has been assembled.
+	*/
+	public boolean read() throws Exception {
+
+		if(this.channel.read(this.readBuffer) == -1) {
+
+			throw new Exception("Connection closed by client.");
+
+		}
+
+		this.lastActivityTime = System.currentTimeMillis();
+
+		return this.process();
+
+	}
+
+	/*
+	** Continue parsing what is in the read buffer.
+	** Returns true when a complete request has been assembled.
+	*/
+	public boolean process() throws Exception {
+
+		if(this.httpRequest == null) {
+
+			this.httpRequest = new HttpRequest();
+
+		}
+
+		this.readBuffer.flip();
+
+		boolean isComplete;
+
+		try {
+
+			isComplete = this.parse();
+
+		} finally {
+
+			this.readBuffer.compact();
+
+		}
+
+		if(!isComplete && this.readBuffer.remaining() == 0) {
+
+			throw new Exception("HTTP request line or header exceeds " + this.readBuffer.capacity() + " bytes.");
+
+		}
+
+		if(isComplete) {
+			this.requestCount++;
+		}
+
+		return isComplete;
+
+	}
+
+	private boolean parse() throws Exception {
+		
+		int headEnd =
+			HttpRequest.findHeadEnd(
+				this.readBuffer.array(),
+				this.readBuffer.position(),
+				this.readBuffer.limit()
+			);
+		
+		if(headEnd == -1) {
+			return false;
+		}
+		
+		this.httpRequest.parse(
+			this.readBuffer.array(),
+			this.readBuffer.position(),
+			headEnd - this.readBuffer.position()
+		);
+		
+		this.readBuffer.position(headEnd);
+		
+		// Body, if any, is left for the worker thread to stream
+		return true;
+		
+	}
+	
+	/*
+	** Called by the worker thread once the channel is in blocking mode.
+	** The body starts with what is left in the read buffer.
+	*/
+	public void openClientDataStream(InputStream input) {
+		
+		if(this.httpRequest.getHttpRequestState() != HTTPRequestState.SERVER_AWAITING_DATA) {
+			return;
+		}
+		
+		this.clientDataStream =
+			new HttpRequestBody(
+				this.readBuffer.array(),
+				0,
+				this.readBuffer.position(),
+				input,
+				this.httpRequest.getContentLength(),
+				this.httpRequest.isChunkedBody()
+			);
+		
+		this.httpRequest.setClientDataStream(this.clientDataStream);
+		
+	}
+	
+	/*
+	** Skip what was not read of the body and keep the bytes after it for
+	** the next request.
+	*/
+	public void closeClientDataStream() throws Exception {
+		
+		if(this.clientDataStream == null) {
+			return;
+		}
+		
+		this.clientDataStream.drain();
+		
+		this.readBuffer.flip();
+		this.readBuffer.position(this.clientDataStream.bufferPosition());
+		this.readBuffer.compact();
+		
+		this.clientDataStream = null;
+		
+	}
+	
+	public void close() {
+
+		try {
+
+			this.channel.close();
+
+		} catch(Exception e) {
+
+			;
+
+		}
+
+	}
+
+}
\ No newline at end of file
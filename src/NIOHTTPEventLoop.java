@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.nio.channels.Selector;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+** Reads and parses HTTP requests for many connections on a single thread.
+** Complete requests are handed to NIOHTTPServer for processing by a worker.
+*/
+public class NIOHTTPEventLoop extends Thread {
+
+	private NIOHTTPServer parentHTTPServer;
+	private Selector selector;
+	private ConcurrentLinkedQueue<NIOHTTPConnection> pendingConnections;
+	private ArrayList<NIOHTTPConnection> completedConnections;
+	private long lastIdleCheckTime;
+
+	private static final long IDLE_CHECK_INTERVAL = 1000;
+
+	public NIOHTTPEventLoop(NIOHTTPServer parentHTTPServer) throws Exception {
+
+		this.parentHTTPServer = parentHTTPServer;
+		this.selector = Selector.open();
+		this.pendingConnections = new ConcurrentLinkedQueue<NIOHTTPConnection>();
+		this.completedConnections = new ArrayList<NIOHTTPConnection>();
+		this.lastIdleCheckTime = System.currentTimeMillis();
+
+		this.setDaemon(true);
+		this.start();
+
+	}
+
+	/*
+	** Called from the accepting thread. Registration must happen on
+	** the event loop thread, so queue the channel and wake up the selector.
+	*/
+	public void register(SocketChannel channel) {
+
+		this.register(
+			new NIOHTTPConnection(channel, this)
+		);
+
+	}
+
+	/*
+	** Also used to hand back a persistent connection after its response
+	** has been written.
+	*/
+	public void register(NIOHTTPConnection connection) {
+
+		this.pendingConnections.add(connection);
+		this.selector.wakeup();
+
+	}
+
+	public void run() {
+
+		while(true) {
+
+			try {
+
+				this.selector.select(NIOHTTPEventLoop.IDLE_CHECK_INTERVAL);
+
+				this.registerPendingConnections();
+
+				Iterator<SelectionKey> selectedKeys =
+					this.selector.selectedKeys().iterator();
+
+				while(selectedKeys.hasNext()) {
+
+					SelectionKey key = selectedKeys.next();
+					selectedKeys.remove();
+
+					this.processKey(key);
+
+				}
+
+				this.closeIdleConnections();
+
+				this.dispatchCompletedConnections();
+
+			} catch(Exception e) {
+
+				System.out.println(
+					e.getMessage()
+				);
+
+			}
+
+		}
+
+	}
+
+	private void registerPendingConnections() {
+
+		NIOHTTPConnection connection;
+
+		while((connection = this.pendingConnections.poll()) != null) {
+
+			SelectionKey key = null;
+
+			try {
+
+				connection.channel().configureBlocking(false);
+
+				key =
+					connection.channel().register(
+						this.selector,
+						SelectionKey.OP_READ,
+						connection
+					);
+
+				// Pipelined request may already be in the buffer
+				if(connection.hasBufferedData() && connection.process()) {
+
+					key.cancel();
+
+					this.completedConnections.add(connection);
+
+				}
+
+			} catch(Exception e) {
+
+				if(key != null) {
+					key.cancel();
+				}
+
+				connection.close();
+
+			}
+
+		}
+
+	}
+
+	private void closeIdleConnections() {
+
+		long now = System.currentTimeMillis();
+
+		if(now - this.lastIdleCheckTime < NIOHTTPEventLoop.IDLE_CHECK_INTERVAL) {
+			return;
+		}
+
+		this.lastIdleCheckTime = now;
+
+		for(SelectionKey key : this.selector.keys()) {
+
+			NIOHTTPConnection connection =
+				(NIOHTTPConnection)key.attachment();
+
+			if(key.isValid() && now - connection.lastActivityTime() > Config.HTTP_SERVER_KEEP_ALIVE_TIMEOUT) {
+
+				key.cancel();
+				connection.close();
+
+			}
+
+		}
+
+	}
+
+	private void processKey(SelectionKey key) {
+
+		NIOHTTPConnection connection =
+			(NIOHTTPConnection)key.attachment();
+
+		try {
+
+			if(key.isValid() && key.isReadable() && connection.read()) {
+
+				// Request is complete, stop watching the channel
+				key.cancel();
+
+				this.completedConnections.add(connection);
+
+			}
+
+		} catch(Exception e) {
+
+			key.cancel();
+			connection.close();
+
+		}
+
+	}
+
+	private void dispatchCompletedConnections() throws Exception {
+
+		if(this.completedConnections.isEmpty()) {
+			return;
+		}
+
+		// Flush cancelled keys so the channels can be switched to blocking mode
+		this.selector.selectNow();
+
+		for(NIOHTTPConnection connection : this.completedConnections) {
+
+			try {
+
+				connection.channel().configureBlocking(true);
+
+				this.parentHTTPServer.putInConnectionProcessingQueue(connection);
+
+			} catch(Exception e) {
+
+				connection.close();
+
+			}
+
+		}
+
+		this.completedConnections.clear();
+
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/*
+** HTTP server where reading and parsing of requests is done by a small
+** number of selector threads (NIOHTTPEventLoop). Slow or idle clients
+** therefore do not hold on to a worker thread. Worker threads are only
+** handed complete requests.
+*/
+public class NIOHTTPServer extends HTTPServer {
+	
+	private ServerSocketChannel serverSocketChannel;
+	private NIOHTTPEventLoop[] eventLoops;
+	private LinkedBlockingQueue<NIOHTTPConnection> connectionProcessingQueue;
+	
+	public NIOHTTPServer(int port, HttpRequestProcessor httpRequestProcessor, int minThreadCount, int maxThreadCount, int eventLoopCount) {
+		
+		super(port, httpRequestProcessor, minThreadCount, maxThreadCount);
+		
+		this.serverSocketChannel = null;
+		this.eventLoops =
+			new NIOHTTPEventLoop[eventLoopCount];
+		this.connectionProcessingQueue =
+			new LinkedBlockingQueue<NIOHTTPConnection>(
+				Config.HTTP_SERVER_MAX_QUEUE_LENGTH
+			);
+		
+	}
+	
+	public void runServer() {
+		
+		// Setup server socket channel on specified port
+		try {
+			
+			this.serverSocketChannel = ServerSocketChannel.open();
+			this.serverSocketChannel.socket().setReuseAddress(true);
+			this.serverSocketChannel.bind(new InetSocketAddress(this.port));
+			
+		} catch (Exception e) {
+			
+			System.err.println(
+				e.getMessage()
+			);
+			System.exit(1);
+			
+		}
+		
+		// Listen for connections and hand them to the event loops
+		try {
+			
+			// Start event loops
+			for(int i=0; i<this.eventLoops.length; i++) {
+				
+				this.eventLoops[i] =
+					new NIOHTTPEventLoop(this);
+				
+			}
+			
+			// Start worker thread pool
+			this.startWorkers();
+			
+			int nextEventLoop = 0;
+			
+			while(true) {
+				
+				SocketChannel channel =
+					this.serverSocketChannel.accept();
+				
+				if(this.isOverloaded()) {
+					
+					this.rejectConnection(channel.socket());
+					
+					continue;
+					
+				}
+				
+				this.connectionAccepted();
+				
+				this.eventLoops[nextEventLoop].register(channel);
+				
+				nextEventLoop = (nextEventLoop + 1) % this.eventLoops.length;
+				
+			}
+			
+		} catch(Exception e) {
+			
+			System.out.println(
+				e.getMessage()
+			);
+			
+		}
+		
+		// Shutdown server socket channel
+		try {
+			
+			this.serverSocketChannel.close();
+			
+		} catch(Exception e) {
+			
+			System.out.println(
+				e.getMessage()
+			);
+			
+		}
+		
+	}
+	
+	protected void startWorker() {
+		
+		new NIOHTTPServerThread(
+			this,						// NIOHTTPServer instance
+			this.httpRequestProcessor	// HttpRequestProcessor instance
+		);
+		
+	}
+	
+	protected long oldestQueueWait() {
+		
+		NIOHTTPConnection oldest =
+			this.connectionProcessingQueue.peek();
+		
+		return (oldest != null ? System.currentTimeMillis() - oldest.queuedTime() : 0);
+		
+	}
+	
+	protected int queueLength() {
+		return this.connectionProcessingQueue.size();
+	}
+	
+	public void putInConnectionProcessingQueue(NIOHTTPConnection connection) throws Exception {
+		
+		connection.queued();
+		
+		if(!this.connectionProcessingQueue.offer(connection)) {
+			this.rejectConnection(connection.channel().socket());
+		}
+		
+	}
+	
+	/*
+	** Returns null when the calling worker should stop, see takeFromQueue.
+	*/
+	public NIOHTTPConnection takeFromConnectionProcessingQueue() throws Exception {
+		
+		NIOHTTPConnection connection =
+			this.takeFromQueue(this.connectionProcessingQueue);
+		
+		if(connection != null) {
+			this.queueWaitMeasured(connection.queuedTime());
+		}
+		
+		return connection;
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+
+/*
+** Worker thread for NIOHTTPServer. Requests arrive with the header
+** parsed. The thread streams the body, if any, runs the
+** HttpRequestProcessor and writes the response.
+*/
+public class NIOHTTPServerThread extends HTTPServerThread {
+	
+	public NIOHTTPServerThread(NIOHTTPServer parentHTTPServer, HttpRequestProcessor httpRequestProcessor) {
+		
+		super(parentHTTPServer, httpRequestProcessor);
+		
+	}
+	
+	public void run() {
+		
+		NIOHTTPServer nioHTTPServer =
+			(NIOHTTPServer)this.parentHTTPServer;
+		
+		while(true) {
+			
+			NIOHTTPConnection connection = null;
+			boolean keepAlive = false;
+			
+			try {
+				
+				// This will wait until a complete request becomes available
+				connection =
+					nioHTTPServer.takeFromConnectionProcessingQueue();
+				
+				if(connection == null) {
+					// Idle while the pool is above its minimum size
+					return;
+				}
+				
+				this.socket =
+					connection.channel().socket();
+				
+				this.responseStream =
+					new HttpResponseStream(
+						new BufferedOutputStream(
+							this.socket.getOutputStream(),
+							Config.HTTP_RESPONSE_CHUNK_SIZE
+						)
+					);
+				
+				this.output =
+					new DataOutputStream(
+						this.responseStream
+					);
+				
+				connection.openClientDataStream(
+					this.socket.getInputStream()
+				);
+				
+				if(connection.httpRequest().isContinueExpected()) {
+					this.responseStream.sendContinue();
+				}
+				
+				this.responseStream.begin(
+					this.isKeepAlive(connection.httpRequest(), connection.requestCount()),
+					connection.httpRequest().isChunkedResponseSupported(),
+					connection.httpRequest().getPreferredContentEncoding()
+				);
+				
+				this.httpRequestProcessor.processHttpRequest(
+					this.output,
+					connection.httpRequest(),
+					this
+				);
+				
+				connection.closeClientDataStream();
+				
+				keepAlive = this.responseStream.finish();
+				
+				this.responseStream.flush();
+				
+			} catch(Exception e) {
+				
+				keepAlive = false;
+				
+				System.out.println(
+					e.getMessage()
+				);
+				
+			}
+			
+			if(connection != null && keepAlive) {
+				
+				// Hand the connection back for reading the next request
+				connection.reset();
+				connection.eventLoop().register(connection);
+				
+			} else if(connection != null) {
+				
+				// Shutdown HTTP I/O
+				connection.close();
+				
+			}
+			
+		}
+		
+	}
+	
+}
\ No newline at end of file
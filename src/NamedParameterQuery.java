@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/*
+** Turns ":name" placeholders into positional "?" binds.
+** Only placeholders with a value are bound, others are left as they are.
+** A placeholder quoted on its own, as in ':name', becomes a bind as well.
+** Placeholders inside longer string literals ('%:name%') cannot be bound
+** and are substituted into the literal with quotes escaped.
+** A placeholder in braces, as in {:name}, is replaced by its value as is,
+** for what cannot be a bind: table or column names and lists, e.g.
+** "select * from {:table} where id in ({:ids}) order by {:column}".
+** Such values must not come from untrusted input.
+** A bind where a name belongs, as in "from :table" or "order by :column",
+** is an error rather than a constant the query silently sorts by.
+*/
+public class NamedParameterQuery {
+	
+	private String sql;
+	private String[] parameterNames;
+	
+	private NamedParameterQuery(String sql, String[] parameterNames) {
+		this.sql = sql;
+		this.parameterNames = parameterNames;
+	}
+	
+	public String getSQL() {
+		return this.sql;
+	}
+	
+	public int parameterCount() {
+		return this.parameterNames.length;
+	}
+	
+	// Parameter names include the leading colon, as in the request
+	public String parameterName(int index) {
+		return this.parameterNames[index];
+	}
+	
+	public static NamedParameterQuery parse(String query, Map<String, String> values) throws Exception {
+		
+		StringBuilder sql = new StringBuilder(query.length());
+		List<String> parameterNames = new ArrayList<String>();
+		
+		int length = query.length();
+		int i = 0;
+		
+		// Last word or symbol outside literals and comments, in lower case
+		String previousToken = "";
+		
+		// Parenthesis depth of the current order by or group by list, -1 if none
+		int depth = 0;
+		int sortListDepth = -1;
+		
+		while(i < length) {
+			
+			char c = query.charAt(i);
+			
+			if(c == '\'') {
+				
+				int end = NamedParameterQuery.endOfQuoted(query, i, '\'');
+				String literal = query.substring(i, end);
+				String name = literal.substring(1, Math.max(literal.length() - 1, 1));
+				
+				if(literal.length() > 2 && literal.endsWith("'") && NamedParameterQuery.isPlaceholder(name, values)) {
+					
+					sql.append('?');
+					parameterNames.add(name);
+					
+				} else {
+					
+					sql.append(
+						NamedParameterQuery.substitute(literal, values)
+					);
+					
+				}
+				
+				previousToken = "'";
+				i = end;
+				
+			} else if(c == '"') {
+				
+				int end = NamedParameterQuery.endOfQuoted(query, i, '"');
+				sql.append(query, i, end);
+				previousToken = "\"";
+				i = end;
+				
+			} else if(c == '-' && i + 1 < length && query.charAt(i + 1) == '-') {
+				
+				int end = query.indexOf('\n', i);
+				end = (end == -1 ? length : end);
+				sql.append(query, i, end);
+				i = end;
+				
+			} else if(c == '/' && i + 1 < length && query.charAt(i + 1) == '*') {
+				
+				int end = query.indexOf("*/", i + 2);
+				end = (end == -1 ? length : end + 2);
+				sql.append(query, i, end);
+				i = end;
+				
+			} else if(c == '{' && i + 1 < length && query.charAt(i + 1) == ':' && NamedParameterQuery.isPlaceholder(NamedParameterQuery.rawName(query, i), values)) {
+				
+				String name = NamedParameterQuery.rawName(query, i);
+				sql.append(values.get(name));
+				previousToken = "{}";
+				i += name.length() + 2;
+				
+			} else if(c == ':' && i + 1 < length && query.charAt(i + 1) == ':') {
+				
+				// Postgres cast
+				sql.append("::");
+				previousToken = "::";
+				i += 2;
+				
+			} else if(c == ':') {
+				
+				int end = i + 1;
+				
+				while(end < length && NamedParameterQuery.isNameCharacter(query.charAt(end), end == i + 1)) {
+					end++;
+				}
+				
+				String name = query.substring(i, end);
+				
+				if(end > i + 1 && values.containsKey(name)) {
+					
+					NamedParameterQuery.checkBindPosition(
+						name,
+						previousToken,
+						(previousToken.equals("by") || previousToken.equals(",")) && sortListDepth == depth,
+						NamedParameterQuery.nextCharacter(query, end)
+					);
+					
+					sql.append('?');
+					parameterNames.add(name);
+					
+				} else {
+					
+					sql.append(name);
+					
+				}
+				
+				previousToken = "?";
+				i = end;
+				
+			} else if(Character.isLetter(c) || c == '_') {
+				
+				int end = i + 1;
+				
+				while(end < length && (NamedParameterQuery.isNameCharacter(query.charAt(end), false) || query.charAt(end) == '$')) {
+					end++;
+				}
+				
+				String word = query.substring(i, end).toLowerCase();
+				
+				if(word.equals("by") && (previousToken.equals("order") || previousToken.equals("group"))) {
+					sortListDepth = depth;
+				} else if(sortListDepth == depth && NamedParameterQuery.endsSortList(word)) {
+					sortListDepth = -1;
+				}
+				
+				sql.append(query, i, end);
+				previousToken = word;
+				i = end;
+				
+			} else {
+				
+				if(c == '(') {
+					depth++;
+				} else if(c == ')') {
+					depth--;
+					sortListDepth = (sortListDepth > depth ? -1 : sortListDepth);
+				} else if(c == ';') {
+					sortListDepth = -1;
+				}
+				
+				if(!Character.isWhitespace(c)) {
+					previousToken = String.valueOf(c);
+				}
+				
+				sql.append(c);
+				i++;
+				
+			}
+			
+		}
+		
+		return
+			new NamedParameterQuery(
+				sql.toString(),
+				parameterNames.toArray(new String[parameterNames.size()])
+			);
+		
+	}
+	
+	/*
+	** Substitutes values into the query text. Used where binds are not
+	** allowed, such as in DDL.
+	*/
+	public static String substitute(String query, Map<String, String> values) {
+		
+		if(query.indexOf(':') == -1) {
+			return query;
+		}
+		
+		boolean isLiteral = query.startsWith("'");
+		
+		// Longest first, so ":id" does not eat the start of ":idx"
+		String[] names = values.keySet().toArray(new String[values.size()]);
+		
+		Arrays.sort(
+			names,
+			new Comparator<String>() {
+				public int compare(String a, String b) {
+					return b.length() - a.length();
+				}
+			}
+		);
+		
+		for(String name : names) {
+			
+			String value = values.get(name);
+			
+			query = query.replace("{" + name + "}", value);
+			
+			query =
+				query.replace(
+					name,
+					(isLiteral ? value.replace("'", "''") : value)
+				);
+			
+		}
+		
+		return query;
+		
+	}
+	
+	/*
+	** A bind is a value, so where the query needs a name it either fails on
+	** the backend or, in an order by or group by list, quietly becomes a
+	** constant. Both used to be written as ":name" when parameters were
+	** pasted into the query text, so they are reported with the fix.
+	*/
+	private static void checkBindPosition(String name, String previousToken, boolean startsSortItem, char next) throws Exception {
+		
+		boolean namePosition =
+			previousToken.equals("from") || previousToken.equals("join") ||
+			previousToken.equals("into") || previousToken.equals("update") ||
+			previousToken.equals("table") || next == '.';
+		
+		// The whole sort item, not part of an expression such as "case when :a ..."
+		boolean sortItem =
+			startsSortItem &&
+			(next == 0 || next == ',' || next == ')' || next == ';' || Character.isLetter(next));
+		
+		if(namePosition || sortItem) {
+			throw new Exception(
+				"Parameter " + name + " is used as " +
+				(namePosition ? "a table or column name" : "an order by or group by column") +
+				", where it would be bound as a value. Write {" + name + "} to put its value into the query as is."
+			);
+		}
+		
+	}
+	
+	// Words that end an order by or group by list at its own depth
+	private static boolean endsSortList(String word) {
+		return
+			word.equals("limit") || word.equals("offset") || word.equals("fetch") ||
+			word.equals("having") || word.equals("union") || word.equals("intersect") ||
+			word.equals("except") || word.equals("window") || word.equals("for") ||
+			word.equals("select") || word.equals("where") || word.equals("from");
+	}
+	
+	// First character at or after start that is not whitespace, 0 at the end
+	private static char nextCharacter(String query, int start) {
+		
+		for(int i=start; i<query.length(); i++) {
+			
+			if(!Character.isWhitespace(query.charAt(i))) {
+				return query.charAt(i);
+			}
+			
+		}
+		
+		return 0;
+		
+	}
+	
+	private static boolean isPlaceholder(String name, Map<String, String> values) {
+		
+		if(name.length() < 2 || name.charAt(0) != ':' || !values.containsKey(name)) {
+			return false;
+		}
+		
+		for(int i=1; i<name.length(); i++) {
+			
+			if(!NamedParameterQuery.isNameCharacter(name.charAt(i), i == 1)) {
+				return false;
+			}
+			
+		}
+		
+		return true;
+		
+	}
+	
+	// The name in "{:name}" starting at start, or "" if there is no closing brace
+	private static String rawName(String query, int start) {
+		
+		int end = query.indexOf('}', start);
+		
+		return (end == -1 ? "" : query.substring(start + 1, end));
+		
+	}
+	
+	private static boolean isNameCharacter(char c, boolean isFirst) {
+		return Character.isLetter(c) || c == '_' || (!isFirst && Character.isDigit(c));
+	}
+	
+	// Index just past the closing quote, where doubled quotes are escapes
+	private static int endOfQuoted(String query, int start, char quote) {
+		
+		int i = start + 1;
+		
+		while(i < query.length()) {
+			
+			if(query.charAt(i) == quote) {
+				
+				if(i + 1 < query.length() && query.charAt(i + 1) == quote) {
+					i += 2;
+					continue;
+				}
+				
+				return i + 1;
+				
+			}
+			
+			i++;
+			
+		}
+		
+		return query.length();
+		
+	}
+	
+}
\ No newline at end of file
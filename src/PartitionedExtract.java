@@ -0,0 +1,613 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.BufferedWriter;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/*
+** Runs a query as several partitions concurrently, each on its own pooled
+** connection, and writes one file per partition or merges the partitions
+** into one file in partition order.
+**
+** A partition is the query restricted by a predicate. The predicate
+** replaces $CONDITIONS in the query if present, otherwise the query is
+** wrapped in a subquery.
+*/
+public class PartitionedExtract {
+	
+	public static final String CONDITIONS = "$CONDITIONS";
+	
+	private QueryManager queryManager;
+	private String connectionName;
+	private String query;
+	private List<String> predicates;
+	private int parallelism;
+	private QueryOptions queryOptions;
+	
+	private Set<QueryObject> openQueries;
+	
+	public PartitionedExtract(QueryManager queryManager, String connectionName, String query, List<String> predicates, int parallelism, QueryOptions queryOptions) {
+		this.queryManager = queryManager;
+		this.connectionName = connectionName;
+		this.query = query;
+		this.predicates = predicates;
+		this.parallelism = Math.max(1, Math.min(parallelism, predicates.size()));
+		this.queryOptions = queryOptions;
+		this.openQueries = ConcurrentHashMap.newKeySet();
+	}
+	
+	public static String partitionQuery(String query, String predicate) {
+		
+		if(query.contains(PartitionedExtract.CONDITIONS)) {
+			return query.replace(PartitionedExtract.CONDITIONS, "(" + predicate + ")");
+		}
+		
+		return "select * from (" + query + ") fusebase_partition where " + predicate;
+		
+	}
+	
+	public static List<String> splitPredicates(QueryManager queryManager, String connectionName, String query, String splitColumn, int partitionCount) throws Exception {
+		
+		return
+			PartitionedExtract.rangePredicates(
+				queryManager,
+				connectionName,
+				"select min(" + splitColumn + "), max(" + splitColumn + ") from (" +
+					query.replace(PartitionedExtract.CONDITIONS, "1=1") +
+				") fusebase_bounds",
+				splitColumn,
+				partitionCount
+			);
+		
+	}
+	
+	/*
+	** getObject() gives driver specific classes for some date types, e.g.
+	** oracle.sql.TIMESTAMP, so those are read as java.sql.Timestamp.
+	*/
+	public static Object boundValue(QueryObject queryObject, int column) throws Exception {
+		
+		int columnType =
+			queryObject.resultSetMetaData().getColumnType(column);
+		
+		if(columnType == Types.DATE || columnType == Types.TIMESTAMP || columnType == Types.TIMESTAMP_WITH_TIMEZONE) {
+			return queryObject.resultSet().getTimestamp(column);
+		}
+		
+		return queryObject.getObject(column);
+		
+	}
+	
+	/*
+	** Splits the range of a numeric or date column into partitionCount
+	** predicates of equal width. The range is the first row of boundsQuery,
+	** min and max. Rows where the column is null go to the first partition.
+	*/
+	public static List<String> rangePredicates(QueryManager queryManager, String connectionName, String boundsQuery, String splitColumn, int partitionCount) throws Exception {
+		
+		Object min = null;
+		Object max = null;
+		
+		QueryObject queryObject =
+			queryManager.getQueryObject(
+				connectionName,
+				boundsQuery
+			);
+		
+		try {
+			
+			if(queryObject.next()) {
+				min = PartitionedExtract.boundValue(queryObject, 1);
+				max = PartitionedExtract.boundValue(queryObject, 2);
+			}
+			
+		} finally {
+			
+			queryObject.close();
+			
+		}
+		
+		List<String> boundaries =
+			PartitionedExtract.boundaries(min, max, partitionCount);
+		
+		List<String> predicates = new ArrayList<String>();
+		
+		if(boundaries.size() == 0) {
+			
+			predicates.add("1=1");
+			
+			return predicates;
+			
+		}
+		
+		predicates.add(splitColumn + " < " + boundaries.get(0) + " or " + splitColumn + " is null");
+		
+		for(int i=1; i<boundaries.size(); i++) {
+			
+			predicates.add(splitColumn + " >= " + boundaries.get(i-1) + " and " + splitColumn + " < " + boundaries.get(i));
+			
+		}
+		
+		predicates.add(splitColumn + " >= " + boundaries.get(boundaries.size()-1));
+		
+		return predicates;
+		
+	}
+	
+	/*
+	** SQL literals of the inner boundaries between partitions, strictly
+	** increasing. Fewer than partitionCount-1 when the range is too narrow.
+	*/
+	private static List<String> boundaries(Object min, Object max, int partitionCount) throws Exception {
+		
+		List<String> boundaries = new ArrayList<String>();
+		
+		if(min == null || max == null || partitionCount < 2) {
+			return boundaries;
+		}
+		
+		if(min instanceof Number && max instanceof Number) {
+			
+			BigDecimal low = new BigDecimal(min.toString());
+			BigDecimal high = new BigDecimal(max.toString());
+			
+			boolean integral =
+				PartitionedExtract.isIntegral(min) && PartitionedExtract.isIntegral(max);
+			
+			BigDecimal previous = low;
+			
+			for(int i=1; i<partitionCount; i++) {
+				
+				BigDecimal boundary =
+					low.add(
+						high.subtract(low)
+							.multiply(BigDecimal.valueOf(i))
+							.divide(BigDecimal.valueOf(partitionCount), 10, RoundingMode.HALF_UP)
+					);
+				
+				if(integral) {
+					boundary = boundary.setScale(0, RoundingMode.CEILING);
+				}
+				
+				if(boundary.compareTo(previous) > 0 && boundary.compareTo(high) <= 0) {
+					
+					boundaries.add(boundary.stripTrailingZeros().toPlainString());
+					
+					previous = boundary;
+					
+				}
+				
+			}
+			
+		} else if(min instanceof java.util.Date && max instanceof java.util.Date) {
+			
+			long low = ((java.util.Date)min).getTime();
+			long high = ((java.util.Date)max).getTime();
+			
+			long previous = low;
+			
+			for(int i=1; i<partitionCount; i++) {
+				
+				long boundary = low + (long)((high - low) * ((double)i / partitionCount));
+				
+				if(boundary > previous && boundary <= high) {
+					
+					// JDBC escape, translated by the driver
+					boundaries.add("{ts '" + new Timestamp(boundary).toString() + "'}");
+					
+					previous = boundary;
+					
+				}
+				
+			}
+			
+		} else {
+			
+			throw new Exception("Split column must be numeric or a date, got " + min.getClass().getName() + ".");
+			
+		}
+		
+		return boundaries;
+		
+	}
+	
+	private static boolean isIntegral(Object value) {
+		
+		if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte || value instanceof BigInteger) {
+			return true;
+		}
+		
+		if(value instanceof BigDecimal) {
+			return ((BigDecimal)value).signum() == 0 || ((BigDecimal)value).stripTrailingZeros().scale() <= 0;
+		}
+		
+		return false;
+		
+	}
+	
+	public static String partFileName(String fileName, int partition) {
+		
+		String part = String.format(".part%04d", partition);
+		
+		int extension = fileName.lastIndexOf('.');
+		
+		if(extension > fileName.lastIndexOf(File.separatorChar)) {
+			return fileName.substring(0, extension) + part + fileName.substring(extension);
+		}
+		
+		return fileName + part;
+		
+	}
+	
+	/*
+	** Writes one complete file per partition, named by partFileName().
+	** Returns the total row count.
+	*/
+	public long toPartFiles(String fileName, OutputType outputType) throws Exception {
+		
+		List<File> files = new ArrayList<File>();
+		
+		for(int i=0; i<this.predicates.size(); i++) {
+			files.add(new File(PartitionedExtract.partFileName(fileName, i+1)));
+		}
+		
+		long rowCount = 0;
+		
+		for(Part part : this.run(files, outputType)) {
+			rowCount += part.rowCount;
+		}
+		
+		return rowCount;
+		
+	}
+	
+	/*
+	** Partitions are written to temporary part files concurrently and then
+	** concatenated in partition order, header from the first and trailer
+	** written afresh, so the file reads as if the query ran as one.
+	*/
+	public long toFile(String fileName, OutputType outputType) throws Exception {
+		
+		List<File> files = new ArrayList<File>();
+		
+		for(int i=0; i<this.predicates.size(); i++) {
+			files.add(new File(fileName + ".part" + (i+1) + ".tmp"));
+		}
+		
+		try {
+			
+			List<Part> parts =
+				this.run(files, outputType);
+			
+			long rowCount = 0;
+			
+			FileOutputStream fileOutputStream =
+				new FileOutputStream(fileName);
+			
+			try {
+				
+				FileChannel out = fileOutputStream.getChannel();
+				
+				DataWriter dataWriter =
+					PartitionedExtract.dataWriter(outputType, null);
+				
+				PartitionedExtract.transfer(parts.get(0).file, 0, parts.get(0).headerEnd, out);
+				
+				for(Part part : parts) {
+					
+					if(part.rowCount == 0) {
+						continue;
+					}
+					
+					if(rowCount > 0) {
+						out.write(ByteBuffer.wrap(dataWriter.fragmentSeparator().getBytes()));
+					}
+					
+					PartitionedExtract.transfer(part.file, part.headerEnd, part.bodyEnd, out);
+					
+					rowCount += part.rowCount;
+					
+				}
+				
+				out.force(false);
+				
+			} finally {
+				
+				fileOutputStream.close();
+				
+			}
+			
+			PrintWriter printWriter =
+				new PrintWriter(
+					new BufferedWriter(
+						new OutputStreamWriter(
+							new FileOutputStream(fileName, true)
+						)
+					)
+				);
+			
+			DataWriter trailerWriter =
+				PartitionedExtract.dataWriter(outputType, printWriter);
+			
+			trailerWriter.setRecordCount((int)rowCount);
+			trailerWriter.finish();
+			
+			printWriter.flush();
+			printWriter.close();
+			
+			return rowCount;
+			
+		} finally {
+			
+			for(File file : files) {
+				file.delete();
+			}
+			
+		}
+		
+	}
+	
+	private static void transfer(File file, long start, long end, FileChannel out) throws Exception {
+		
+		FileInputStream fileInputStream =
+			new FileInputStream(file);
+		
+		try {
+			
+			FileChannel in = fileInputStream.getChannel();
+			
+			long position = start;
+			
+			while(position < end) {
+				position += in.transferTo(position, end - position, out);
+			}
+			
+		} finally {
+			
+			fileInputStream.close();
+			
+		}
+		
+	}
+	
+	public static DataWriter dataWriter(OutputType outputType, PrintWriter printWriter) {
+		
+		if(outputType == OutputType.JSON_TABULAR) {
+			
+			return new JSONWriterTabular(printWriter);
+			
+		} else if(outputType == OutputType.CSV) {
+			
+			return new CSVWriter(printWriter);
+			
+		}
+		
+		return new JSONWriter(printWriter);
+		
+	}
+	
+	/*
+	** Runs the partitions on a thread each, at most parallelism at a time.
+	** The first failure cancels the partitions still running and deletes
+	** what was written.
+	*/
+	private List<Part> run(final List<File> files, final OutputType outputType) throws Exception {
+		
+		final PartitionedExtract me = this;
+		
+		ExecutorService executor =
+			Executors.newFixedThreadPool(
+				this.parallelism,
+				new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "PartitionedExtract-" + me.connectionName);
+						thread.setDaemon(true);
+						return thread;
+					}
+				}
+			);
+		
+		ExecutorCompletionService<Part> completionService =
+			new ExecutorCompletionService<Part>(executor);
+		
+		List<Future<Part>> futures = new ArrayList<Future<Part>>();
+		
+		for(int i=0; i<this.predicates.size(); i++) {
+			
+			final int partition = i;
+			
+			futures.add(
+				completionService.submit(
+					new Callable<Part>() {
+						public Part call() throws Exception {
+							return me.writePartition(
+								partition,
+								files.get(partition),
+								outputType
+							);
+						}
+					}
+				)
+			);
+			
+		}
+		
+		executor.shutdown();
+		
+		try {
+			
+			for(int i=0; i<futures.size(); i++) {
+				completionService.take().get();
+			}
+			
+		} catch(ExecutionException e) {
+			
+			for(Future<Part> future : futures) {
+				future.cancel(false);
+			}
+			
+			for(QueryObject queryObject : this.openQueries) {
+				queryObject.cancel("Another partition failed.");
+			}
+			
+			while(!executor.isTerminated()) {
+				executor.awaitTermination(1, TimeUnit.SECONDS);
+			}
+			
+			for(File file : files) {
+				file.delete();
+			}
+			
+			throw (e.getCause() instanceof Exception ? (Exception)e.getCause() : e);
+			
+		}
+		
+		List<Part> parts = new ArrayList<Part>();
+		
+		for(Future<Part> future : futures) {
+			parts.add(future.get());
+		}
+		
+		return parts;
+		
+	}
+	
+	/*
+	** Same output as QueryManager.printResultSet(), with the byte offsets
+	** of the rows recorded for merging.
+	*/
+	private Part writePartition(int partition, File file, OutputType outputType) throws Exception {
+		
+		if(file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		
+		Part part = new Part(file);
+		
+		QueryObject queryObject =
+			this.queryManager.getQueryObject(
+				this.connectionName,
+				PartitionedExtract.partitionQuery(
+					this.query,
+					this.predicates.get(partition)
+				),
+				this.queryOptions
+			);
+		
+		this.openQueries.add(queryObject);
+		
+		FileOutputStream fileOutputStream =
+			new FileOutputStream(file);
+		
+		PrintWriter printWriter =
+			new PrintWriter(
+				new BufferedWriter(
+					new OutputStreamWriter(
+						fileOutputStream
+					)
+				)
+			);
+		
+		try {
+			
+			DataWriter dataWriter =
+				PartitionedExtract.dataWriter(outputType, printWriter);
+			
+			ResultSetColumns columns =
+				new ResultSetColumns(
+					queryObject.resultSetMetaData()
+				);
+			
+			dataWriter.init();
+			dataWriter.beginRow();
+			
+			columns.writeHeader(dataWriter);
+			
+			dataWriter.endRow();
+			
+			printWriter.flush();
+			part.headerEnd = fileOutputStream.getChannel().position();
+			
+			while(queryObject.next()) {
+				
+				dataWriter.newRow();
+				dataWriter.beginRow();
+				
+				columns.writeRow(
+					queryObject.resultSet(),
+					dataWriter
+				);
+				
+				dataWriter.endRow();
+				
+			}
+			
+			printWriter.flush();
+			part.bodyEnd = fileOutputStream.getChannel().position();
+			part.rowCount = dataWriter.getRecordCount();
+			
+			dataWriter.finish();
+			
+		} finally {
+			
+			printWriter.close();
+			
+			this.openQueries.remove(queryObject);
+			
+			queryObject.close();
+			
+		}
+		
+		return part;
+		
+	}
+	
+	private static class Part {
+		
+		private File file;
+		private long headerEnd;
+		private long bodyEnd;
+		private long rowCount;
+		
+		private Part(File file) {
+			this.file = file;
+		}
+		
+	}
+	
+}
\ No newline at end of file
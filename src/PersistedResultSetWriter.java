@@ -13,6 +13,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
 public class PersistedResultSetWriter extends DataWriter {
 	
 	private PersistedResultSet persistedResultSet;
@@ -46,6 +49,22 @@ public class PersistedResultSetWriter extends DataWriter {
 		this.persistedResultSet.setValue(entryId, new ValueInt(entry));
 	}
 	
+	public void entry(long entry, int entryId) {
+		this.persistedResultSet.setValue(entryId, new ValueLong(entry));
+	}
+	
+	public void entry(BigDecimal entry, int entryId) {
+		this.persistedResultSet.setValue(entryId, new ValueString(entry.toPlainString()));
+	}
+	
+	public void entry(Timestamp entry, int entryId) {
+		this.persistedResultSet.setValue(entryId, new ValueString(entry.toString()));
+	}
+	
+	public void entry(byte[] entry, int entryId) {
+		this.persistedResultSet.setValue(entryId, new ValueString(representBytes(entry)));
+	}
+	
 	public void newRow() {
 		this.recordCount++;
 		this.persistedResultSet.addRecord();
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+** A physical connection owned by a DBConnectionPool, with the bookkeeping
+** needed to reset it on return and to report it when it is held too long.
+*/
+public class PooledConnection {
+	
+	private Connection connection;
+	private long createdTime;
+	private long lastUsedTime;
+	private long lastValidatedTime;
+	
+	private long borrowedTime;
+	private String borrower;
+	private StackTraceElement[] borrowStackTrace;
+	
+	// Least recently used prepared statements are closed first
+	private LinkedHashMap<String, PooledStatement> statementCache;
+	
+	public PooledConnection(Connection connection) {
+		this.connection = connection;
+		this.createdTime = System.currentTimeMillis();
+		this.lastUsedTime = this.createdTime;
+		this.lastValidatedTime = this.createdTime;
+		this.statementCache =
+			new LinkedHashMap<String, PooledStatement>(16, 0.75f, true) {
+				protected boolean removeEldestEntry(Map.Entry<String, PooledStatement> eldest) {
+					
+					if(this.size() > Config.DB_CONNECTION_STATEMENT_CACHE_SIZE) {
+						eldest.getValue().close();
+						return true;
+					}
+					
+					return false;
+					
+				}
+			};
+	}
+	
+	public Connection connection() {
+		return this.connection;
+	}
+	
+	public long createdTime() {
+		return this.createdTime;
+	}
+	
+	public long lastUsedTime() {
+		return this.lastUsedTime;
+	}
+	
+	public long lastValidatedTime() {
+		return this.lastValidatedTime;
+	}
+	
+	public long borrowedTime() {
+		return this.borrowedTime;
+	}
+	
+	public String borrower() {
+		return this.borrower;
+	}
+	
+	public StackTraceElement[] borrowStackTrace() {
+		return this.borrowStackTrace;
+	}
+	
+	public void borrowed(boolean trackStackTrace) {
+		
+		this.borrowedTime = System.currentTimeMillis();
+		this.borrower = Thread.currentThread().getName();
+		
+		// Filling in a stack trace is not free, so only when asked for
+		this.borrowStackTrace =
+			(trackStackTrace ? new Throwable().getStackTrace() : null);
+		
+	}
+	
+	/*
+	** Puts the connection back into the state a fresh connection has:
+	** autocommit on and read/write. Returns false if the connection is no
+	** longer usable and should be discarded.
+	*/
+	public boolean reset() {
+		
+		this.lastUsedTime = System.currentTimeMillis();
+		this.borrower = null;
+		this.borrowStackTrace = null;
+		
+		try {
+			
+			if(this.connection.isClosed()) {
+				return false;
+			}
+			
+			if(!this.connection.getAutoCommit()) {
+				this.connection.rollback();
+				this.connection.setAutoCommit(true);
+			}
+			
+			if(this.connection.isReadOnly()) {
+				this.connection.setReadOnly(false);
+			}
+			
+			this.connection.clearWarnings();
+			
+		} catch(SQLFeatureNotSupportedException e) {
+			
+			// Driver without transaction support, nothing to reset
+			;
+			
+		} catch(Exception e) {
+			
+			return false;
+			
+		}
+		
+		return true;
+		
+	}
+	
+	/*
+	** Only called by the thread that has borrowed the connection.
+	*/
+	public PooledStatement prepareStatement(String sql) throws SQLException {
+		
+		if(Config.DB_CONNECTION_STATEMENT_CACHE_SIZE <= 0) {
+			
+			return
+				new PooledStatement(
+					this.connection.prepareStatement(sql),
+					false
+				);
+			
+		}
+		
+		PooledStatement pooledStatement =
+			this.statementCache.get(sql);
+		
+		if(pooledStatement == null) {
+			
+			pooledStatement =
+				new PooledStatement(
+					this.connection.prepareStatement(sql),
+					true
+				);
+			
+			this.statementCache.put(sql, pooledStatement);
+			
+		}
+		
+		return pooledStatement;
+		
+	}
+	
+	/*
+	** Drops a statement that failed, it is prepared again on next use.
+	*/
+	public void removeStatement(String sql) {
+		
+		PooledStatement pooledStatement =
+			this.statementCache.remove(sql);
+		
+		if(pooledStatement != null) {
+			pooledStatement.close();
+		}
+		
+	}
+	
+	public int cachedStatementCount() {
+		return this.statementCache.size();
+	}
+	
+	/*
+	** Runs the validation query if the driver has one, otherwise asks the
+	** driver whether the connection is still valid.
+	*/
+	public boolean validate(String validationQuery, int timeoutSeconds) {
+		
+		try {
+			
+			if(validationQuery != null && !validationQuery.trim().equals("")) {
+				
+				Statement statement = this.connection.createStatement();
+				
+				try {
+					
+					try {
+						statement.setQueryTimeout(timeoutSeconds);
+					} catch(Exception e) {
+						;
+					}
+					
+					statement.execute(validationQuery);
+					
+				} finally {
+					
+					statement.close();
+					
+				}
+				
+			} else {
+				
+				try {
+					
+					if(!this.connection.isValid(timeoutSeconds)) {
+						return false;
+					}
+					
+				} catch(SQLFeatureNotSupportedException | AbstractMethodError e) {
+					
+					// Pre JDBC 4 driver
+					if(this.connection.isClosed()) {
+						return false;
+					}
+					
+				}
+				
+			}
+			
+		} catch(Exception e) {
+			
+			return false;
+			
+		}
+		
+		this.lastValidatedTime = System.currentTimeMillis();
+		
+		return true;
+		
+	}
+	
+	public void close() {
+		
+		try {
+			this.connection.close();
+		} catch(Exception e) {
+			;
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Map;
+
+/*
+** A prepared statement kept in a pooled connection's statement cache,
+** with the parameter types the driver reported for it.
+*/
+public class PooledStatement {
+	
+	private PreparedStatement statement;
+	private boolean isCached;
+	
+	// null until asked for, empty if the driver cannot tell
+	private int[] parameterTypes;
+	
+	public PooledStatement(PreparedStatement statement, boolean isCached) {
+		this.statement = statement;
+		this.isCached = isCached;
+		this.parameterTypes = null;
+	}
+	
+	public PreparedStatement statement() {
+		return this.statement;
+	}
+	
+	public boolean isCached() {
+		return this.isCached;
+	}
+	
+	public void bind(NamedParameterQuery query, Map<String, String> values) throws Exception {
+		
+		this.statement.clearParameters();
+		
+		int[] parameterTypes = this.parameterTypes();
+		
+		for(int i=0; i<query.parameterCount(); i++) {
+			
+			String name = query.parameterName(i);
+			
+			int type =
+				(i < parameterTypes.length ? parameterTypes[i] : Types.VARCHAR);
+			
+			try {
+				
+				PooledStatement.setParameter(
+					this.statement,
+					i + 1,
+					type,
+					values.get(name)
+				);
+				
+			} catch(IllegalArgumentException e) {
+				
+				throw new Exception("Invalid value \"" + values.get(name) + "\" for parameter " + name + ".");
+				
+			}
+			
+		}
+		
+	}
+	
+	/*
+	** Binds a row of a bulk load. Text is converted like request
+	** parameters, other values are passed to the driver as they are.
+	** columnTypes, the types of the source columns, are used when the
+	** driver does not tell the parameter types.
+	*/
+	public void bind(Object[] row, int[] columnTypes) throws Exception {
+		
+		int[] parameterTypes = this.parameterTypes();
+		
+		for(int i=0; i<row.length; i++) {
+			
+			if(row[i] == null || row[i] instanceof String) {
+				
+				int type =
+					(i < parameterTypes.length ? parameterTypes[i] : (columnTypes != null && i < columnTypes.length ? columnTypes[i] : Types.VARCHAR));
+				
+				PooledStatement.setParameter(
+					this.statement,
+					i + 1,
+					type,
+					(String)row[i]
+				);
+				
+			} else {
+				
+				this.statement.setObject(i + 1, row[i]);
+				
+			}
+			
+		}
+		
+	}
+	
+	private int[] parameterTypes() {
+		
+		if(this.parameterTypes != null) {
+			return this.parameterTypes;
+		}
+		
+		try {
+			
+			ParameterMetaData parameterMetaData =
+				this.statement.getParameterMetaData();
+			
+			int[] parameterTypes =
+				new int[parameterMetaData.getParameterCount()];
+			
+			for(int i=0; i<parameterTypes.length; i++) {
+				parameterTypes[i] = parameterMetaData.getParameterType(i + 1);
+			}
+			
+			this.parameterTypes = parameterTypes;
+			
+		} catch(Exception | AbstractMethodError e) {
+			
+			// Not supported by all JDBC drivers, everything is bound as text then
+			this.parameterTypes = new int[0];
+			
+		}
+		
+		return this.parameterTypes;
+		
+	}
+	
+	/*
+	** Binds a request parameter value, converted to the type the driver
+	** expects. Empty values of non-character types are bound as NULL.
+	*/
+	public static void setParameter(PreparedStatement statement, int index, int type, String value) throws Exception {
+		
+		boolean isCharacterType =
+			type == Types.CHAR || type == Types.VARCHAR || type == Types.LONGVARCHAR ||
+			type == Types.NCHAR || type == Types.NVARCHAR || type == Types.LONGNVARCHAR ||
+			type == Types.CLOB || type == Types.NCLOB || type == Types.OTHER || type == Types.NULL;
+		
+		if(value == null || (value.equals("") && !isCharacterType)) {
+			statement.setNull(index, type);
+			return;
+		}
+		
+		switch(type) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				statement.setInt(index, Integer.parseInt(value.trim()));
+				break;
+			case Types.BIGINT:
+				statement.setLong(index, Long.parseLong(value.trim()));
+				break;
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+				statement.setBigDecimal(index, new BigDecimal(value.trim()));
+				break;
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				statement.setDouble(index, Double.parseDouble(value.trim()));
+				break;
+			case Types.BIT:
+			case Types.BOOLEAN:
+				statement.setBoolean(index, value.trim().equals("1") || Boolean.parseBoolean(value.trim()));
+				break;
+			case Types.DATE:
+				statement.setDate(index, Date.valueOf(value.trim()));
+				break;
+			case Types.TIME:
+				statement.setTime(index, Time.valueOf(value.trim()));
+				break;
+			case Types.TIMESTAMP:
+				statement.setTimestamp(index, Timestamp.valueOf(value.trim()));
+				break;
+			default:
+				statement.setString(index, value);
+				break;
+		}
+		
+	}
+	
+	/*
+	** Called when the caller is done with the statement. Cached statements
+	** stay open for the next caller on the same connection.
+	*/
+	public void release() {
+		
+		try {
+			
+			if(this.isCached) {
+				this.statement.clearParameters();
+			} else {
+				this.statement.close();
+			}
+			
+		} catch(Exception e) {
+			;
+		}
+		
+	}
+	
+	public void close() {
+		
+		try {
+			this.statement.close();
+		} catch(Exception e) {
+			;
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+/*
+** Wraps a statement handed out to scripts so that closing it gives its
+** connection back to the pool. getConnection() still returns the
+** physical connection the statement was prepared on.
+*/
+public class PooledStatementHandler implements InvocationHandler {
+	
+	private Statement statement;
+	private DBConnectionPool connectionPool;
+	private Connection connection;
+	
+	public PooledStatementHandler(Statement statement, DBConnectionPool connectionPool, Connection connection) {
+		this.statement = statement;
+		this.connectionPool = connectionPool;
+		this.connection = connection;
+	}
+	
+	public static <T extends Statement> T wrap(T statement, Class<T> statementInterface, DBConnectionPool connectionPool, Connection connection) {
+		
+		return
+			statementInterface.cast(
+				Proxy.newProxyInstance(
+					statementInterface.getClassLoader(),
+					new Class<?>[] {statementInterface},
+					new PooledStatementHandler(
+						statement,
+						connectionPool,
+						connection
+					)
+				)
+			);
+		
+	}
+	
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		
+		if(method.getName().equals("close") && method.getParameterTypes().length == 0) {
+			
+			ScriptResources.untrack(proxy);
+			
+			try {
+				
+				this.statement.close();
+				
+			} finally {
+				
+				this.release();
+				
+			}
+			
+			return null;
+			
+		}
+		
+		try {
+			
+			return method.invoke(this.statement, args);
+			
+		} catch(InvocationTargetException e) {
+			
+			throw e.getCause();
+			
+		}
+		
+	}
+	
+	private synchronized void release() {
+		
+		if(this.connectionPool != null) {
+			this.connectionPool.giveBack(this.connection);
+			this.connectionPool = null;
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -16,14 +16,23 @@
 import java.io.Serializable;
 
 public class Query implements Serializable {
+	private static final long serialVersionUID = -6237903736762393218L;
+	
 	private String queryId;
 	private String query;
 	private String connectionName;
+	// Seconds the result is served from the query result cache, 0 for never
+	private int cacheTTL;
 	
 	public Query(String queryId, String query, String connectionName) {
+		this(queryId, query, connectionName, 0);
+	}
+	
+	public Query(String queryId, String query, String connectionName, int cacheTTL) {
 		this.queryId = queryId;
 		this.query = query;
 		this.connectionName = connectionName;
+		this.cacheTTL = cacheTTL;
 	}
 	
 	public String getQueryId() {
@@ -46,6 +55,14 @@ public class Query implements Serializable {
 		this.connectionName = connectionName;
 	}
 	
+	public int getCacheTTL() {
+		return this.cacheTTL;
+	}
+	
+	public void setCacheTTL(int cacheTTL) {
+		this.cacheTTL = cacheTTL;
+	}
+	
 	public JSONBuilder getJSONBuilder() {
 		return
 			JSONBuilder.f().
@@ -53,6 +70,7 @@ public class Query implements Serializable {
 					k("queryId").v(this.getQueryId()).
 					k("connectionName").v(this.getConnectionName()).
 					k("query").v(this.getQuery()).
+					k("cacheTTL").v(this.getCacheTTL()).
 				$('}');
 	}
 	
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.File;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/*
+** A query submitted through api/connections/query/submit. It runs on the
+** QueryJobManager executor and spools its rows to a local file, from
+** which they are fetched in pages while and after it runs.
+*/
+public class QueryJob {
+	
+	private long id;
+	private String connectionName;
+	private String query;
+	private Map<String, String> parameters;
+	private QueryOptions queryOptions;
+	
+	private volatile QueryJobState state;
+	private long submitTime;
+	private volatile long startTime;
+	private volatile long endTime;
+	private volatile String error;
+	
+	// Opened when the job starts, null until then
+	private File spoolFile;
+	private volatile QueryJobSpool spool;
+	private Future<?> future;
+	private QueryObject queryObject;
+	private boolean isCancelled;
+	private boolean isDiscarded;
+	
+	public QueryJob(long id, String connectionName, String query, Map<String, String> parameters, QueryOptions queryOptions, File spoolFile) {
+		this.id = id;
+		this.connectionName = connectionName;
+		this.query = query;
+		this.parameters = parameters;
+		this.queryOptions = queryOptions;
+		this.state = QueryJobState.QUEUED;
+		this.submitTime = System.currentTimeMillis();
+		this.startTime = 0;
+		this.endTime = 0;
+		this.error = null;
+		this.spoolFile = spoolFile;
+		this.spool = null;
+		this.isCancelled = false;
+		this.isDiscarded = false;
+	}
+	
+	public long getId() {
+		return this.id;
+	}
+	
+	// Only the user who submitted a job can see it
+	public boolean isOwner(String user) {
+		
+		String owner = this.queryOptions.user();
+		
+		return (owner != null ? owner.equals(user) : user == null);
+		
+	}
+	
+	public QueryJobState getState() {
+		return this.state;
+	}
+	
+	public String getError() {
+		return this.error;
+	}
+	
+	public long getEndTime() {
+		return this.endTime;
+	}
+	
+	public boolean isFinished() {
+		return this.state != QueryJobState.QUEUED && this.state != QueryJobState.RUNNING;
+	}
+	
+	public synchronized void setFuture(Future<?> future) {
+		this.future = future;
+	}
+	
+	public void run(QueryManager queryManager) {
+		
+		synchronized(this) {
+			
+			if(this.isCancelled) {
+				return;
+			}
+			
+			try {
+				
+				this.spool = new QueryJobSpool(this.spoolFile);
+				
+			} catch(Exception e) {
+				
+				this.finish(QueryJobState.FAILED, e.getMessage());
+				
+				return;
+				
+			}
+			
+			this.state = QueryJobState.RUNNING;
+			this.startTime = System.currentTimeMillis();
+			
+		}
+		
+		QueryObject queryObject = null;
+		
+		try {
+			
+			queryObject =
+				queryManager.getQueryObject(
+					this.connectionName,
+					this.query,
+					this.parameters,
+					this.queryOptions
+				);
+			
+			synchronized(this) {
+				
+				this.queryObject = queryObject;
+				
+				if(this.isCancelled) {
+					queryObject.cancel("Job cancelled.");
+				}
+				
+			}
+			
+			queryManager.printResultSet(
+				queryObject,
+				this.spool
+			);
+			
+			this.finish(QueryJobState.DONE, null);
+			
+		} catch(Exception e) {
+			
+			this.finish(
+				(this.isCancelled ? QueryJobState.CANCELLED : QueryJobState.FAILED),
+				e.getMessage()
+			);
+			
+		} finally {
+			
+			if(queryObject != null) {
+				queryObject.close();
+			}
+			
+			this.spool.close();
+			
+			synchronized(this) {
+				
+				this.queryObject = null;
+				
+				// Rows of a failed or cancelled job cannot be fetched
+				if(this.isDiscarded || this.state != QueryJobState.DONE) {
+					this.spool.getFile().delete();
+				}
+				
+			}
+			
+		}
+		
+	}
+	
+	private void finish(QueryJobState state, String error) {
+		
+		this.error = error;
+		this.endTime = System.currentTimeMillis();
+		this.state = state;
+		
+	}
+	
+	public synchronized boolean cancel() {
+		
+		if(this.isFinished()) {
+			return false;
+		}
+		
+		this.isCancelled = true;
+		
+		if(this.state == QueryJobState.QUEUED) {
+			
+			if(this.future != null) {
+				this.future.cancel(false);
+			}
+			
+			this.finish(QueryJobState.CANCELLED, "Job cancelled.");
+			
+		} else if(this.queryObject != null) {
+			
+			this.queryObject.cancel("Job cancelled.");
+			
+		}
+		
+		return true;
+		
+	}
+	
+	// Cancels the job if needed and deletes its rows
+	public synchronized void discard() {
+		
+		this.cancel();
+		
+		this.isDiscarded = true;
+		
+		if(this.state != QueryJobState.RUNNING) {
+			this.spoolFile.delete();
+		}
+		
+	}
+	
+	/*
+	** Number of rows from offset that can be fetched now, at most limit.
+	*/
+	public long pageSize(long offset, int limit) {
+		return Math.max(0, Math.min(limit, this.getSpooledRows() - offset));
+	}
+	
+	/*
+	** Token for the page after nextOffset, null when the job is done and
+	** has no rows beyond it.
+	*/
+	public String nextToken(long nextOffset) {
+		
+		boolean isDone = (this.state == QueryJobState.DONE);
+		
+		if(isDone && nextOffset >= this.getSpooledRows()) {
+			return null;
+		}
+		
+		return Long.toString(this.id, 36) + "." + Long.toString(nextOffset, 36);
+		
+	}
+	
+	// The offset a token from nextToken() continues at
+	public long tokenOffset(String token) throws Exception {
+		
+		int dot = token.indexOf('.');
+		
+		try {
+			
+			if(dot > 0 && Long.parseLong(token.substring(0, dot), 36) == this.id) {
+				return Long.parseLong(token.substring(dot + 1), 36);
+			}
+			
+		} catch(NumberFormatException e) {
+			;
+		}
+		
+		throw new Exception("Invalid continuation token \"" + token + "\".");
+		
+	}
+	
+	public void fetch(DataWriter dataWriter, long offset, long rowCount) throws Exception {
+		
+		QueryJobSpool spool = this.spool;
+		
+		// Not started, no columns or rows yet
+		if(spool == null) {
+			dataWriter.init();
+			return;
+		}
+		
+		spool.replay(
+			dataWriter,
+			offset,
+			rowCount
+		);
+		
+	}
+	
+	public JSONBuilder getJSONBuilder() {
+		
+		JSONBuilder jb = JSONBuilder.f();
+		
+		jb.$('{');
+		
+		jb.k("jobId").v(this.id);
+		jb.k("connectionName").v(this.connectionName);
+		jb.k("query").v(this.query);
+		jb.k("user").v(this.queryOptions.user());
+		jb.k("state").v(this.state.toString());
+		jb.k("submitTime").v(new Date(this.submitTime));
+		jb.k("elapsedTimeMs").v(this.getElapsedTime());
+		QueryJobSpool spool = this.spool;
+		
+		jb.k("rowCount").v(spool != null ? spool.getRowCount() : 0);
+		jb.k("fetchableRowCount").v(spool != null ? spool.getSpooledRows() : 0);
+		jb.k("spoolBytes").v(spool != null ? spool.getSpooledBytes() : 0);
+		
+		if(this.error != null) {
+			jb.k("error").v(this.error);
+		}
+		
+		jb.$('}');
+		
+		return jb;
+		
+	}
+	
+	private long getSpooledRows() {
+		
+		QueryJobSpool spool = this.spool;
+		
+		return (spool != null ? spool.getSpooledRows() : 0);
+		
+	}
+	
+	// Running time, 0 while queued
+	private long getElapsedTime() {
+		
+		long startTime = this.startTime;
+		long endTime = this.endTime;
+		
+		if(startTime == 0) {
+			return 0;
+		}
+		
+		return Math.max(0, (endTime != 0 ? endTime : System.currentTimeMillis()) - startTime);
+		
+	}
+	
+}
\ No newline at end of file
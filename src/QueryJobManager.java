@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+** Runs submitted query jobs on a dedicated executor, so long queries hold
+** neither an HTTP connection nor an HTTPServerThread. At most
+** Config.QUERY_JOB_MAX_QUEUED jobs wait for a thread, more are refused.
+** Finished jobs are kept for Config.QUERY_JOB_RETENTION ms, then their
+** spool files deleted. Jobs are only visible to the user who submitted them.
+*/
+public class QueryJobManager {
+	
+	private ConcurrentHashMap<Long, QueryJob> jobs;
+	private AtomicLong nextId;
+	private ExecutorService executor;
+	private File spoolDirectory;
+	
+	public QueryJobManager() {
+		
+		this.jobs = new ConcurrentHashMap<Long, QueryJob>();
+		this.nextId = new AtomicLong(1);
+		
+		this.executor =
+			new ThreadPoolExecutor(
+				Config.QUERY_JOB_THREAD_COUNT,
+				Config.QUERY_JOB_THREAD_COUNT,
+				0,
+				TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(Config.QUERY_JOB_MAX_QUEUED),
+				new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "QueryJobManager-job");
+						thread.setDaemon(true);
+						return thread;
+					}
+				}
+			);
+		
+		this.spoolDirectory = new File(Config.QUERY_JOB_SPOOL_DIRECTORY);
+		this.spoolDirectory.mkdirs();
+		
+		// Jobs do not outlive a restart
+		File[] spoolFiles = this.spoolDirectory.listFiles();
+		
+		if(spoolFiles != null) {
+			for(File spoolFile : spoolFiles) {
+				if(spoolFile.getName().endsWith(".spool")) {
+					spoolFile.delete();
+				}
+			}
+		}
+		
+		this.startCleaner();
+		
+	}
+	
+	public QueryJob submit(final QueryManager queryManager, String connectionName, String query, Map<String, String> parameters, QueryOptions queryOptions) throws Exception {
+		
+		long id = this.nextId.getAndIncrement();
+		
+		final QueryJob job =
+			new QueryJob(
+				id,
+				connectionName,
+				query,
+				parameters,
+				queryOptions,
+				new File(this.spoolDirectory, "job" + id + ".spool")
+			);
+		
+		this.jobs.put(id, job);
+		
+		try {
+			
+			job.setFuture(
+				this.executor.submit(
+					new Runnable() {
+						public void run() {
+							job.run(queryManager);
+						}
+					}
+				)
+			);
+			
+		} catch(RejectedExecutionException e) {
+			
+			this.jobs.remove(id);
+			
+			throw new Exception("Too many queued jobs, at most " + Config.QUERY_JOB_MAX_QUEUED + ". Please try again later.");
+			
+		}
+		
+		return job;
+		
+	}
+	
+	// null if there is no such job of this user
+	public QueryJob get(long id, String user) {
+		
+		QueryJob job =
+			this.jobs.get(id);
+		
+		return (job != null && job.isOwner(user) ? job : null);
+		
+	}
+	
+	public boolean discard(long id, String user) {
+		
+		if(this.get(id, user) == null) {
+			return false;
+		}
+		
+		return this.discard(id);
+		
+	}
+	
+	private boolean discard(long id) {
+		
+		QueryJob job =
+			this.jobs.remove(id);
+		
+		if(job == null) {
+			return false;
+		}
+		
+		job.discard();
+		
+		return true;
+		
+	}
+	
+	private void startCleaner() {
+		
+		final QueryJobManager me = this;
+		
+		Thread cleaner =
+			new Thread() {
+				public void run() {
+					
+					while(true) {
+						
+						try {
+							
+							Thread.sleep(Config.QUERY_JOB_CLEANUP_INTERVAL);
+							
+							long now = System.currentTimeMillis();
+							
+							for(QueryJob job : me.jobs.values()) {
+								
+								if(job.isFinished() && now - job.getEndTime() >= Config.QUERY_JOB_RETENTION) {
+									me.discard(job.getId());
+								}
+								
+							}
+							
+						} catch(Exception e) {
+							
+							System.out.println(
+								e.getMessage()
+							);
+							
+						}
+						
+					}
+					
+				}
+			};
+		
+		cleaner.setName("QueryJobManager-cleaner");
+		cleaner.setDaemon(true);
+		cleaner.start();
+		
+	}
+	
+	// The jobs of user
+	public JSONBuilder getJSONBuilder(String user) {
+		
+		JSONBuilder jb = JSONBuilder.f();
+		
+		jb.$('[');
+		
+		for(QueryJob job : this.jobs.values()) {
+			if(job.isOwner(user)) {
+				jb.v(job.getJSONBuilder());
+			}
+		}
+		
+		return jb.$(']');
+		
+	}
+	
+}
\ No newline at end of file
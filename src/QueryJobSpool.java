@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+
+/*
+** Spools the rows of a query job to a local file as typed values, and
+** replays any range of them into another DataWriter, so a page can be
+** fetched in every output type.
+**
+** Every Config.QUERY_JOB_SPOOL_INDEX_ROWS rows the file position is kept,
+** so a page at any offset skips less than that many rows. Rows are only
+** visible to readers once flushed.
+*/
+public class QueryJobSpool extends DataWriter {
+	
+	private static final int NULL = 0;
+	private static final int STRING = 1;
+	private static final int INT = 2;
+	private static final int LONG = 3;
+	private static final int DOUBLE = 4;
+	private static final int DECIMAL = 5;
+	private static final int TIMESTAMP = 6;
+	private static final int BYTES = 7;
+	
+	private File file;
+	private CountingOutputStream counter;
+	private DataOutputStream output;
+	
+	private ArrayList<String> columnNames;
+	private boolean isHeaderWritten;
+	
+	private volatile long rowCount;
+	private long lastFlushTime;
+	
+	// File position of every QUERY_JOB_SPOOL_INDEX_ROWS'th row
+	private ArrayList<Long> index;
+	private long spooledRows;
+	private long spooledBytes;
+	
+	public QueryJobSpool(File file) throws Exception {
+		
+		super(null, DataWriterType.QUERY_JOB_SPOOL);
+		
+		this.file = file;
+		this.counter = new CountingOutputStream(new FileOutputStream(file));
+		this.output = new DataOutputStream(new BufferedOutputStream(this.counter, 65536));
+		this.columnNames = new ArrayList<String>();
+		this.isHeaderWritten = false;
+		this.rowCount = 0;
+		this.lastFlushTime = System.currentTimeMillis();
+		this.index = new ArrayList<Long>();
+		this.index.add(0L);
+		this.spooledRows = 0;
+		this.spooledBytes = 0;
+		
+	}
+	
+	public File getFile() {
+		return this.file;
+	}
+	
+	// Rows written, including those not yet flushed
+	public long getRowCount() {
+		return this.rowCount;
+	}
+	
+	public synchronized long getSpooledRows() {
+		return this.spooledRows;
+	}
+	
+	public synchronized long getSpooledBytes() {
+		return this.spooledBytes;
+	}
+	
+	public synchronized String[] getColumnNames() {
+		return this.columnNames.toArray(new String[this.columnNames.size()]);
+	}
+	
+	public synchronized void headerEntry(String entry, int entryId) {
+		this.columnNames.add(entry);
+	}
+	
+	public void entry(String entry, int entryId) {
+		
+		try {
+			
+			this.output.writeByte(STRING);
+			this.writeBytes(entry.getBytes(StandardCharsets.UTF_8));
+			
+		} catch(IOException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		
+	}
+	
+	public void entry(double entry, int entryId) {
+		
+		try {
+			
+			this.output.writeByte(DOUBLE);
+			this.output.writeDouble(entry);
+			
+		} catch(IOException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		
+	}
+	
+	public void entry(int entry, int entryId) {
+		
+		try {
+			
+			this.output.writeByte(INT);
+			this.output.writeInt(entry);
+			
+		} catch(IOException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		
+	}
+	
+	public void entry(long entry, int entryId) {
+		
+		try {
+			
+			this.output.writeByte(LONG);
+			this.output.writeLong(entry);
+			
+		} catch(IOException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		
+	}
+	
+	public void entry(BigDecimal entry, int entryId) {
+		
+		try {
+			
+			this.output.writeByte(DECIMAL);
+			this.writeBytes(entry.toString().getBytes(StandardCharsets.UTF_8));
+			
+		} catch(IOException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		
+	}
+	
+	public void entry(Timestamp entry, int entryId) {
+		
+		try {
+			
+			this.output.writeByte(TIMESTAMP);
+			this.output.writeLong(entry.getTime());
+			this.output.writeInt(entry.getNanos());
+			
+		} catch(IOException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		
+	}
+	
+	public void entry(byte[] entry, int entryId) {
+		
+		try {
+			
+			this.output.writeByte(BYTES);
+			this.writeBytes(entry);
+			
+		} catch(IOException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		
+	}
+	
+	public void nullEntry(int entryId) {
+		
+		try {
+			this.output.writeByte(NULL);
+		} catch(IOException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		
+	}
+	
+	private void writeBytes(byte[] bytes) throws IOException {
+		
+		this.output.writeInt(bytes.length);
+		this.output.write(bytes);
+		
+	}
+	
+	public void endRow() {
+		this.isHeaderWritten = true;
+	}
+	
+	public void rowWritten() {
+		
+		this.rowCount++;
+		
+		if(this.rowCount % Config.QUERY_JOB_SPOOL_INDEX_ROWS == 0) {
+			
+			this.flush(true);
+			
+		} else if(System.currentTimeMillis() - this.lastFlushTime >= Config.QUERY_JOB_SPOOL_FLUSH_INTERVAL) {
+			
+			this.flush(false);
+			
+		}
+		
+	}
+	
+	public void finish() {
+		this.flush(false);
+	}
+	
+	private void flush(boolean isIndexRow) {
+		
+		try {
+			this.output.flush();
+		} catch(IOException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		
+		synchronized(this) {
+			
+			if(isIndexRow) {
+				this.index.add(this.counter.count);
+			}
+			
+			this.spooledRows = this.rowCount;
+			this.spooledBytes = this.counter.count;
+			
+		}
+		
+		this.lastFlushTime = System.currentTimeMillis();
+		
+	}
+	
+	public void close() {
+		
+		try {
+			this.output.close();
+		} catch(Exception e) {
+			;
+		}
+		
+	}
+	
+	/*
+	** Writes rowCount rows from offset to dataWriter, with the header. The
+	** caller checks that they are spooled and calls dataWriter.finish().
+	*/
+	public void replay(DataWriter dataWriter, long offset, long rowCount) throws Exception {
+		
+		String[] columnNames =
+			this.getColumnNames();
+		
+		dataWriter.init();
+		dataWriter.beginRow();
+		
+		for(int i=0; i<columnNames.length; i++) {
+			dataWriter.headerEntry(columnNames[i], i);
+		}
+		
+		dataWriter.endRow();
+		
+		if(rowCount <= 0) {
+			return;
+		}
+		
+		int indexEntry =
+			(int)(offset / Config.QUERY_JOB_SPOOL_INDEX_ROWS);
+		
+		long position;
+		
+		synchronized(this) {
+			indexEntry = Math.min(indexEntry, this.index.size() - 1);
+			position = this.index.get(indexEntry);
+		}
+		
+		FileInputStream fileInput =
+			new FileInputStream(this.file);
+		
+		try {
+			
+			fileInput.getChannel().position(position);
+			
+			DataInputStream input =
+				new DataInputStream(
+					new BufferedInputStream(
+						fileInput,
+						65536
+					)
+				);
+			
+			// Skipped rows are read into a writer that drops them
+			DataWriter skipped =
+				new DataWriter(null, DataWriterType.QUERY_JOB_SPOOL);
+			
+			for(long row = (long)indexEntry * Config.QUERY_JOB_SPOOL_INDEX_ROWS; row < offset; row++) {
+				QueryJobSpool.readRow(input, columnNames.length, skipped);
+			}
+			
+			for(long row = 0; row < rowCount; row++) {
+				
+				dataWriter.newRow();
+				dataWriter.beginRow();
+				
+				QueryJobSpool.readRow(input, columnNames.length, dataWriter);
+				
+				dataWriter.endRow();
+				dataWriter.rowWritten();
+				
+				if(dataWriter.isOutputBroken()) {
+					break;
+				}
+				
+			}
+			
+		} finally {
+			
+			fileInput.close();
+			
+		}
+		
+	}
+	
+	private static void readRow(DataInputStream input, int columnCount, DataWriter dataWriter) throws Exception {
+		
+		for(int i=0; i<columnCount; i++) {
+			
+			switch(input.readByte()) {
+				case NULL:
+					dataWriter.nullEntry(i);
+					break;
+				case STRING:
+					dataWriter.entry(new String(QueryJobSpool.readBytes(input), StandardCharsets.UTF_8), i);
+					break;
+				case INT:
+					dataWriter.entry(input.readInt(), i);
+					break;
+				case LONG:
+					dataWriter.entry(input.readLong(), i);
+					break;
+				case DOUBLE:
+					dataWriter.entry(input.readDouble(), i);
+					break;
+				case DECIMAL:
+					dataWriter.entry(new BigDecimal(new String(QueryJobSpool.readBytes(input), StandardCharsets.UTF_8)), i);
+					break;
+				case TIMESTAMP: {
+					Timestamp timestamp = new Timestamp(input.readLong());
+					timestamp.setNanos(input.readInt());
+					dataWriter.entry(timestamp, i);
+					break;
+				}
+				case BYTES:
+					dataWriter.entry(QueryJobSpool.readBytes(input), i);
+					break;
+				default:
+					throw new Exception("Corrupt spool file.");
+			}
+			
+		}
+		
+	}
+	
+	private static byte[] readBytes(DataInputStream input) throws IOException {
+		
+		byte[] bytes = new byte[input.readInt()];
+		
+		input.readFully(bytes);
+		
+		return bytes;
+		
+	}
+	
+	// DataOutputStream.size() is an int
+	private static class CountingOutputStream extends FilterOutputStream {
+		
+		private long count;
+		
+		public CountingOutputStream(OutputStream output) {
+			super(output);
+			this.count = 0;
+		}
+		
+		public void write(int b) throws IOException {
+			this.out.write(b);
+			this.count++;
+		}
+		
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -24,200 +24,903 @@ import java.sql.ResultSetMetaData;
 import java.util.Date;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.io.Serializable;
 
 public class QueryManager implements Serializable, RESTAPIValidValues {
 	
+	private static final long serialVersionUID = 1354029392908777270L;
+	
 	private DBConnectionManager dbConnectionManager;
 	private HashMap<String, Query> queries;
 	
 	private String validAPIValues;
 	
+	private transient RunningQueryRegistry runningQueries;
+	private transient QueryResultCache resultCache;
+	private transient ConcurrentHashMap<String, SharedQuery> sharedQueries;
+	private transient QueryJobManager queryJobs;
+	private transient ConcurrentHashMap<Long, BulkLoader> bulkLoads;
+	private transient AtomicLong nextBulkLoadId;
+	private transient WatermarkStore watermarks;
+	
 	public QueryManager(DBConnectionManager dbConnectionManager) {
 		this.dbConnectionManager = dbConnectionManager;
 		this.queries = new HashMap<String, Query>();
 		this.setValidAPIValues();
 	}
 	
-	public Connection getConnection(String connectionName) throws Exception {
-		return this.dbConnectionManager.getConnection(connectionName).getConnection();
+	public void sql(	DataWriter dataWriter,
+						String connectionName,
+						String query			) throws Exception {
+		
+		this.sql(
+			dataWriter,
+			connectionName,
+			query,
+			0
+		);
+		
 	}
 	
 	public void sql(	DataWriter dataWriter,
 						String connectionName,
-						String query			) throws Exception {
+						String query,
+						int fetchSize			) throws Exception {
+		
+		this.sql(
+			dataWriter,
+			connectionName,
+			query,
+			new QueryOptions(fetchSize, 0, null)
+		);
+		
+	}
+	
+	public void sql(	DataWriter dataWriter,
+						String connectionName,
+						String query,
+						QueryOptions queryOptions	) throws Exception {
 		
 		QueryObject queryObject =
 			this.getQueryObject(
 				connectionName,
-				query
+				query,
+				queryOptions
 			);
 		
-		this.printResultSet(
-			queryObject,
-			dataWriter
-		);
-		
-		queryObject.close();
+		try {
+			
+			this.printResultSet(
+				queryObject,
+				dataWriter
+			);
+			
+		} finally {
+			
+			queryObject.close();
+			
+		}
 						
 	}
 	
+	/*
+	** Stops between rows when the query is cancelled or the client that
+	** the rows are streamed to has gone away.
+	*/
 	public void printResultSet(	QueryObject queryObject,
 								DataWriter dataWriter	) throws Exception {
 		
-		ResultSet rs =
-			queryObject.resultSet();
-		
-		ResultSetMetaData rsmd =
-			queryObject.resultSetMetaData();
-
-		Object fieldVal = null;
-		String columnClassName = null;
+		// Column types are looked up once, not per cell
+		ResultSetColumns columns =
+			queryObject.columns();
 		
 		dataWriter.init();
 		dataWriter.beginRow();
-
-		for(int i=0; i<rsmd.getColumnCount(); i++) {
-			dataWriter.headerEntry(
-				rsmd.getColumnName(i+1),
-				i
-			);
-		}
+		
+		columns.writeHeader(dataWriter);
 		
 		dataWriter.endRow();
 		
-		while(rs.next()) {
+		while(queryObject.next()) {
 			
 			dataWriter.newRow();
 			dataWriter.beginRow();
 			
-			for(int i=0; i<rsmd.getColumnCount(); i++) {
+			queryObject.writeRow(
+				dataWriter
+			);
+			
+			dataWriter.endRow();
+			dataWriter.rowWritten();
+			
+			if(dataWriter.isOutputBroken()) {
 				
-				fieldVal = rs.getObject(i + 1);
+				queryObject.cancel("Client disconnected.");
 				
-				if(fieldVal == null) {
-					dataWriter.nullEntry(i);
-					continue;
+			}
+			
+		}
+		
+		dataWriter.finish();
+		
+	}
+	
+	private RunningQueryRegistry runningQueries() {
+		
+		synchronized(this) {
+			
+			if(this.runningQueries == null) {
+				this.runningQueries = new RunningQueryRegistry();
+			}
+			
+			return this.runningQueries;
+			
+		}
+		
+	}
+	
+	public QueryResultCache resultCache() {
+		
+		synchronized(this) {
+			
+			if(this.resultCache == null) {
+				this.resultCache = new QueryResultCache();
+			}
+			
+			return this.resultCache;
+			
+		}
+		
+	}
+	
+	public WatermarkStore watermarks() {
+		
+		synchronized(this) {
+			
+			if(this.watermarks == null) {
+				this.watermarks = new WatermarkStore(Config.WATERMARK_STATE_FILENAME);
+			}
+			
+			return this.watermarks;
+			
+		}
+		
+	}
+	
+	public QueryJobManager queryJobs() {
+		
+		synchronized(this) {
+			
+			if(this.queryJobs == null) {
+				this.queryJobs = new QueryJobManager();
+			}
+			
+			return this.queryJobs;
+			
+		}
+		
+	}
+	
+	/*
+	** Drops the cached results of a registered query, or of all queries
+	** if queryId is null. Returns the number of results dropped.
+	*/
+	public int invalidateCachedResults(String queryId) {
+		
+		if(queryId == null) {
+			return this.resultCache().invalidate(null, null);
+		}
+		
+		Query query = this.queries.get(queryId);
+		
+		return (query != null ? this.resultCache().invalidate(null, query.getQuery()) : 0);
+		
+	}
+	
+	public JSONBuilder getRunningQueriesJSONBuilder() {
+		return this.runningQueries().getJSONBuilder();
+	}
+	
+	public boolean cancelQuery(long runningQueryId) {
+		return this.runningQueries().cancel(runningQueryId, "Cancelled.");
+	}
+	
+	/*
+	** Tracks the statement in the running query registry and sets its
+	** timeout, before it starts executing.
+	*/
+	private RunningQuery startQuery(String connectionName, String query, Statement statement, QueryOptions queryOptions) {
+		
+		// Not supported by all JDBC drivers
+		try {
+			statement.setQueryTimeout(queryOptions.queryTimeout());
+		} catch(Exception e) {
+			;
+		}
+		
+		return
+			this.runningQueries().register(
+				connectionName,
+				query,
+				queryOptions.user(),
+				queryOptions.queryTimeout(),
+				statement
+			);
+		
+	}
+	
+	/*
+	** The driver error of a cancelled statement says little, the reason
+	** for the cancel says more.
+	*/
+	private Exception queryFailed(RunningQuery runningQuery, Exception e) {
+		
+		if(runningQuery != null && runningQuery.isCancelled()) {
+			return new Exception(runningQuery.getCancelReason());
+		}
+		
+		return e;
+		
+	}
+	
+	public QueryObject getQueryObject(String connectionName, String query) throws Exception {
+		
+		return this.getQueryObject(connectionName, query, new QueryOptions());
+		
+	}
+	
+	public QueryObject getQueryObject(String connectionName, String query, int fetchSize) throws Exception {
+		
+		return this.getQueryObject(connectionName, query, new QueryOptions(fetchSize, 0, null));
+		
+	}
+	
+	/*
+	** Holds a query permit and a pooled connection until QueryObject.close().
+	*/
+	public QueryObject getQueryObject(String connectionName, String query, QueryOptions queryOptions) throws Exception {
+		
+		DBConnection dbConnection =
+			this.dbConnectionManager.getConnection(connectionName);
+		
+		DBConnectionPool connectionPool =
+			dbConnection.getConnectionPool();
+		
+		dbConnection.acquireQueryPermit();
+		
+		Connection connection = null;
+		Statement statement = null;
+		RunningQuery runningQuery = null;
+		
+		try {
+			
+			connection = connectionPool.borrow();
+			
+			statement = connection.createStatement(
+				ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY
+			);
+
+			// Not supported by all JDBC drivers
+			try {
+				statement.setMaxRows(0);
+			} catch(Exception e) {
+				;
+			}
+			
+			this.prepareFetch(
+				dbConnection,
+				connection,
+				statement,
+				queryOptions.fetchSize()
+			);
+			
+			runningQuery =
+				this.startQuery(
+					connectionName,
+					query,
+					statement,
+					queryOptions
+				);
+			
+			ResultSet resultSet =
+				statement.executeQuery(query);
+			
+			QueryObject queryObject =
+				new QueryObject(
+					statement,
+					resultSet,
+					resultSet.getMetaData(),
+					dbConnection,
+					connectionPool,
+					connection
+				);
+			
+			queryObject.setRunningQuery(
+				this.runningQueries(),
+				runningQuery
+			);
+			
+			return queryObject;
+			
+		} catch(Exception e) {
+			
+			this.runningQueries().unregister(runningQuery);
+			
+			if(statement != null) {
+				try {
+					statement.close();
+				} catch(Exception ce) {
+					;
 				}
+			}
+			
+			connectionPool.giveBack(connection);
+			dbConnection.releaseQueryPermit();
+			
+			throw this.queryFailed(runningQuery, e);
+			
+		}
+		
+	}
+	
+	/*
+	** Identical queries (connection, SQL and parameters) that arrive while
+	** one is running read its rows instead of executing again. Late
+	** requests join as long as the first rows are still buffered.
+	*/
+	public QueryObject getSharedQueryObject(String connectionName, String query, Map<String, String> parameters, QueryOptions queryOptions) throws Exception {
+		
+		if(!Config.DB_QUERY_SINGLE_FLIGHT) {
+			return this.getQueryObject(connectionName, query, parameters, queryOptions);
+		}
+		
+		ConcurrentHashMap<String, SharedQuery> sharedQueries =
+			this.sharedQueries();
+		
+		String key =
+			SharedQuery.key(
+				connectionName,
+				query,
+				parameters,
+				queryOptions
+			);
+		
+		while(true) {
+			
+			SharedQuery sharedQuery =
+				sharedQueries.get(key);
+			
+			if(sharedQuery == null) {
 				
-				// Ugly hack :-(
-				try {
-					columnClassName =
-						rsmd.getColumnClassName(i+1);
-				} catch(Exception e) {
-					columnClassName = "java.lang.String";
+				sharedQuery =
+					new SharedQuery(
+						sharedQueries,
+						key
+					);
+				
+				if(sharedQueries.putIfAbsent(key, sharedQuery) != null) {
+					continue;
 				}
 				
+				QueryObject queryObject;
 				
-				if(columnClassName.equals("java.lang.String") || columnClassName.equals("java.lang.Boolean")) {
-					
-					dataWriter.entry(
-						fieldVal.toString(),
-						i
-					);
-					
-				} else if(columnClassName.equals("java.lang.Integer")) {
-					
-					dataWriter.entry(
-						Integer.parseInt(
-							fieldVal.toString()
-						),
-						i
-					);
-					
-				} else if (columnClassName.equals("java.lang.Double") || columnClassName.equals("java.lang.Float")) {
+				try {
 					
-					dataWriter.entry(
-						Double.parseDouble(
-							fieldVal.toString()
-						),
-						i
-					);
+					queryObject =
+						this.getQueryObject(
+							connectionName,
+							query,
+							parameters,
+							queryOptions
+						);
 					
-				} else if (columnClassName.equals("java.lang.Date")) {
+					queryObject.share(sharedQuery);
 					
-					dataWriter.entry(
-						((Date)fieldVal).toString(),
-						i
-					);
+				} catch(Exception e) {
 					
-				} else {
+					sharedQuery.fail(e);
 					
-					dataWriter.entry(
-						fieldVal.toString(),
-						i
-					);
+					throw e;
 					
 				}
 				
+				return queryObject;
+				
 			}
 			
-			dataWriter.endRow();
+			SharedQuery.Follower follower =
+				sharedQuery.join();
+			
+			if(follower == null) {
+				
+				// Closed to new requests, start a new one
+				sharedQueries.remove(key, sharedQuery);
+				
+				continue;
+				
+			}
+			
+			return this.follow(
+				sharedQuery,
+				follower,
+				connectionName,
+				query,
+				queryOptions
+			);
 			
 		}
 		
-		dataWriter.finish();
-		
 	}
 	
-	public QueryObject getQueryObject(String connectionName, String query) throws Exception {
+	// Followers are running queries without a statement
+	private QueryObject follow(final SharedQuery sharedQuery, final SharedQuery.Follower follower, String connectionName, String query, QueryOptions queryOptions) throws Exception {
 		
-		Connection connection =
-			this.getConnection(connectionName);
+		final RunningQuery runningQuery =
+			this.runningQueries().register(
+				connectionName,
+				query,
+				queryOptions.user(),
+				queryOptions.queryTimeout(),
+				null
+			);
 		
-		Statement statement = connection.createStatement(
-			ResultSet.TYPE_FORWARD_ONLY,
-			ResultSet.CONCUR_READ_ONLY
+		runningQuery.setCancelListener(
+			new Runnable() {
+				public void run() {
+					sharedQuery.cancel(follower, runningQuery.getCancelReason());
+				}
+			}
 		);
-
-		// Not supported by all JDBC drivers
+		
+		ResultSetColumns columns;
+		
 		try {
-			statement.setMaxRows(0);
+			
+			columns = sharedQuery.awaitStart(follower);
+			
 		} catch(Exception e) {
-			;
+			
+			sharedQuery.leave(follower);
+			
+			this.runningQueries().unregister(runningQuery);
+			
+			throw e;
+			
 		}
 		
-		ResultSet resultSet =
-			statement.executeQuery(query);
+		return new SharedQueryObject(
+			sharedQuery,
+			follower,
+			columns,
+			this.runningQueries(),
+			runningQuery
+		);
 		
-		return
-			new QueryObject(
-				statement,
-				resultSet,
-				resultSet.getMetaData()
+	}
+	
+	private ConcurrentHashMap<String, SharedQuery> sharedQueries() {
+		
+		synchronized(this) {
+			
+			if(this.sharedQueries == null) {
+				this.sharedQueries = new ConcurrentHashMap<String, SharedQuery>();
+			}
+			
+			return this.sharedQueries;
+			
+		}
+		
+	}
+	
+	public QueryObject getQueryObject(String connectionName, String query, Map<String, String> parameters) throws Exception {
+		
+		return this.getQueryObject(connectionName, query, parameters, new QueryOptions());
+		
+	}
+	
+	/*
+	** Binds ":name" parameters instead of pasting them into the query, so
+	** the backend sees the same statement text for every set of values.
+	** Statements are cached per pooled connection.
+	*/
+	public QueryObject getQueryObject(String connectionName, String query, Map<String, String> parameters, QueryOptions queryOptions) throws Exception {
+		
+		NamedParameterQuery namedParameterQuery =
+			NamedParameterQuery.parse(query, parameters);
+		
+		if(namedParameterQuery.parameterCount() == 0) {
+			return this.getQueryObject(connectionName, namedParameterQuery.getSQL(), queryOptions);
+		}
+		
+		DBConnection dbConnection =
+			this.dbConnectionManager.getConnection(connectionName);
+		
+		DBConnectionPool connectionPool =
+			dbConnection.getConnectionPool();
+		
+		dbConnection.acquireQueryPermit();
+		
+		Connection connection = null;
+		PooledStatement pooledStatement = null;
+		RunningQuery runningQuery = null;
+		
+		try {
+			
+			connection = connectionPool.borrow();
+			
+			pooledStatement =
+				connectionPool.prepareStatement(
+					connection,
+					namedParameterQuery.getSQL()
+				);
+			
+			pooledStatement.bind(
+				namedParameterQuery,
+				parameters
+			);
+			
+			this.prepareFetch(
+				dbConnection,
+				connection,
+				pooledStatement.statement(),
+				queryOptions.fetchSize()
 			);
+			
+			runningQuery =
+				this.startQuery(
+					connectionName,
+					query,
+					pooledStatement.statement(),
+					queryOptions
+				);
+			
+			ResultSet resultSet =
+				pooledStatement.statement().executeQuery();
+			
+			QueryObject queryObject =
+				new QueryObject(
+					pooledStatement,
+					resultSet,
+					resultSet.getMetaData(),
+					dbConnection,
+					connectionPool,
+					connection
+				);
+			
+			queryObject.setRunningQuery(
+				this.runningQueries(),
+				runningQuery
+			);
+			
+			return queryObject;
+			
+		} catch(Exception e) {
+			
+			this.runningQueries().unregister(runningQuery);
+			
+			if(pooledStatement != null) {
+				connectionPool.removeStatement(connection, namedParameterQuery.getSQL());
+			}
+			
+			connectionPool.giveBack(connection);
+			dbConnection.releaseQueryPermit();
+			
+			throw this.queryFailed(runningQuery, e);
+			
+		}
+		
+	}
+	
+	/*
+	** Sets how rows are fetched, so that a large result is streamed in
+	** batches instead of row by row or all at once. Autocommit set off for
+	** cursors is turned back on when the connection is given back.
+	*/
+	private void prepareFetch(DBConnection dbConnection, Connection connection, Statement statement, int fetchSize) {
+		
+		JDBCDriverInfo jdbcDriverInfo = dbConnection.getJDBCDriverInfo();
+		StreamingMode streamingMode = jdbcDriverInfo.getStreamingMode();
+		
+		// Not supported by all JDBC drivers
+		try {
+			
+			if(streamingMode == StreamingMode.ROW_BY_ROW) {
+				
+				statement.setFetchSize(Integer.MIN_VALUE);
+				
+			} else {
+				
+				if(streamingMode == StreamingMode.CURSOR) {
+					connection.setAutoCommit(false);
+				}
+				
+				statement.setFetchSize(
+					(fetchSize > 0 ? fetchSize : jdbcDriverInfo.getFetchSize())
+				);
+				
+			}
+			
+		} catch(Exception e) {
+			;
+		}
 		
 	}
 	
 	public int dml(String connectionName, String query) throws Exception {
 		
-		Statement statement =
-			this.getConnection(connectionName).createStatement();
+		return this.executeUpdate(connectionName, query, new QueryOptions());
 		
-		int recordCount = statement.executeUpdate(query);
+	}
+	
+	public int dml(String connectionName, String query, Map<String, String> parameters) throws Exception {
+		
+		return this.dml(connectionName, query, parameters, new QueryOptions());
+		
+	}
+	
+	public int dml(String connectionName, String query, Map<String, String> parameters, QueryOptions queryOptions) throws Exception {
 		
-		statement.close();
+		NamedParameterQuery namedParameterQuery =
+			NamedParameterQuery.parse(query, parameters);
 		
-		return recordCount;
+		if(namedParameterQuery.parameterCount() == 0) {
+			return this.executeUpdate(connectionName, namedParameterQuery.getSQL(), queryOptions);
+		}
+		
+		DBConnection dbConnection =
+			this.dbConnectionManager.getConnection(connectionName);
+		
+		DBConnectionPool connectionPool =
+			dbConnection.getConnectionPool();
+		
+		dbConnection.acquireQueryPermit();
+		
+		Connection connection = null;
+		PooledStatement pooledStatement = null;
+		RunningQuery runningQuery = null;
+		
+		try {
+			
+			connection = connectionPool.borrow();
+			
+			pooledStatement =
+				connectionPool.prepareStatement(
+					connection,
+					namedParameterQuery.getSQL()
+				);
+			
+			pooledStatement.bind(
+				namedParameterQuery,
+				parameters
+			);
+			
+			runningQuery =
+				this.startQuery(
+					connectionName,
+					query,
+					pooledStatement.statement(),
+					queryOptions
+				);
+			
+			int recordCount =
+				pooledStatement.statement().executeUpdate();
+			
+			pooledStatement.release();
+			
+			return recordCount;
+			
+		} catch(Exception e) {
+			
+			if(pooledStatement != null) {
+				connectionPool.removeStatement(connection, namedParameterQuery.getSQL());
+			}
+			
+			throw this.queryFailed(runningQuery, e);
+			
+		} finally {
+			
+			this.runningQueries().unregister(runningQuery);
+			
+			connectionPool.giveBack(connection);
+			dbConnection.releaseQueryPermit();
+			
+		}
 		
 	}
 	
 	public int ddl(String connectionName, String query) throws Exception {
 		
-		Statement statement =
-			this.getConnection(connectionName).createStatement();
+		return this.executeUpdate(connectionName, query, new QueryOptions());
 		
-		int ddlStatus = statement.executeUpdate(query);
+	}
+	
+	private int executeUpdate(String connectionName, String query, QueryOptions queryOptions) throws Exception {
+		
+		DBConnection dbConnection =
+			this.dbConnectionManager.getConnection(connectionName);
+		
+		DBConnectionPool connectionPool =
+			dbConnection.getConnectionPool();
+		
+		dbConnection.acquireQueryPermit();
+		
+		Connection connection = null;
+		RunningQuery runningQuery = null;
+		
+		try {
+			
+			connection = connectionPool.borrow();
+			
+			Statement statement =
+				connection.createStatement();
+			
+			try {
+				
+				runningQuery =
+					this.startQuery(
+						connectionName,
+						query,
+						statement,
+						queryOptions
+					);
+				
+				return statement.executeUpdate(query);
+				
+			} finally {
+				
+				statement.close();
+				
+			}
+			
+		} catch(Exception e) {
+			
+			throw this.queryFailed(runningQuery, e);
+			
+		} finally {
+			
+			this.runningQueries().unregister(runningQuery);
+			
+			connectionPool.giveBack(connection);
+			dbConnection.releaseQueryPermit();
+			
+		}
+		
+	}
+	
+	/*
+	** Inserts the rows of source into table with batched inserts on
+	** parallel connections. The source is closed when done.
+	*/
+	public JSONBuilder bulkLoad(String connectionName, String table, BulkLoadSource source, BulkLoadOptions bulkLoadOptions) throws Exception {
 		
-		statement.close();
+		DBConnection dbConnection =
+			this.dbConnectionManager.getConnection(connectionName);
 		
-		return ddlStatus;
+		ConcurrentHashMap<Long, BulkLoader> bulkLoads =
+			this.bulkLoads();
+		
+		BulkLoader bulkLoader = null;
+		
+		try {
+			
+			if(dbConnection == null) {
+				throw new Exception("Connection \"" + connectionName + "\" does not exist.");
+			}
+			
+			bulkLoader =
+				new BulkLoader(
+					this.nextBulkLoadId.getAndIncrement(),
+					dbConnection,
+					table,
+					bulkLoadOptions
+				);
+			
+		} catch(Exception e) {
+			
+			source.close();
+			
+			throw e;
+			
+		}
+		
+		bulkLoads.put(bulkLoader.getId(), bulkLoader);
+		
+		try {
+			
+			return bulkLoader.load(source);
+			
+		} finally {
+			
+			bulkLoads.remove(bulkLoader.getId());
+			
+		}
 		
 	}
 	
+	/*
+	** Copies the result of sourceQuery on sourceConnectionName into table
+	** on connectionName. Rows are fetched while earlier batches are being
+	** inserted.
+	*/
+	public JSONBuilder copy(String sourceConnectionName, String sourceQuery, String connectionName, String table, BulkLoadOptions bulkLoadOptions, QueryOptions queryOptions) throws Exception {
+		
+		return
+			this.bulkLoad(
+				connectionName,
+				table,
+				BulkLoader.querySource(
+					this.getQueryObject(
+						sourceConnectionName,
+						sourceQuery,
+						queryOptions
+					)
+				),
+				bulkLoadOptions
+			);
+		
+	}
+	
+	private ConcurrentHashMap<Long, BulkLoader> bulkLoads() {
+		
+		synchronized(this) {
+			
+			if(this.bulkLoads == null) {
+				this.bulkLoads = new ConcurrentHashMap<Long, BulkLoader>();
+				this.nextBulkLoadId = new AtomicLong(1);
+			}
+			
+			return this.bulkLoads;
+			
+		}
+		
+	}
+	
+	// Progress of the bulk loads and copies that are running
+	public JSONBuilder getBulkLoadsJSONBuilder() {
+		
+		JSONBuilder jb = JSONBuilder.f();
+		
+		jb.$('[');
+		
+		for(BulkLoader bulkLoader : this.bulkLoads().values()) {
+			jb.v(bulkLoader.getJSONBuilder());
+		}
+		
+		return jb.$(']');
+		
+	}
+	
+	/*
+	** The statement holds a pooled connection until it is closed.
+	*/
 	public PreparedStatement getPreparedStatement(String connectionName, String query) throws Exception {
 		
-		return this.getConnection(connectionName).prepareStatement(query);
+		DBConnectionPool connectionPool =
+			this.dbConnectionManager.getConnection(connectionName).getConnectionPool();
+		
+		Connection connection = connectionPool.borrow();
+		
+		try {
+			
+			return
+				PooledStatementHandler.wrap(
+					connection.prepareStatement(query),
+					PreparedStatement.class,
+					connectionPool,
+					connection
+				);
+			
+		} catch(Exception e) {
+			
+			connectionPool.giveBack(connection);
+			
+			throw e;
+			
+		}
 		
 	}
 	
@@ -238,12 +941,39 @@ public class QueryManager implements Serializable, RESTAPIValidValues {
 	*/
 	public CallableStatement getCallableStatement(String connectionName, String query) throws Exception {
 		
-		return this.getConnection(connectionName).prepareCall(query);
+		DBConnectionPool connectionPool =
+			this.dbConnectionManager.getConnection(connectionName).getConnectionPool();
+		
+		Connection connection = connectionPool.borrow();
+		
+		try {
+			
+			return
+				PooledStatementHandler.wrap(
+					connection.prepareCall(query),
+					CallableStatement.class,
+					connectionPool,
+					connection
+				);
+			
+		} catch(Exception e) {
+			
+			connectionPool.giveBack(connection);
+			
+			throw e;
+			
+		}
 		
 	}
 	
 	public MapAction addOrUpdateQuery(String queryId, String query, String connectionName) {
 		
+		return this.addOrUpdateQuery(queryId, query, connectionName, 0);
+		
+	}
+	
+	public MapAction addOrUpdateQuery(String queryId, String query, String connectionName, int cacheTTL) {
+		
 		if(!this.queries.containsKey(queryId)) {
 			
 			this.queries.put(
@@ -251,7 +981,8 @@ public class QueryManager implements Serializable, RESTAPIValidValues {
 				new Query(
 					queryId,
 					query,
-					connectionName
+					connectionName,
+					cacheTTL
 				)
 			);
 			
@@ -263,9 +994,12 @@ public class QueryManager implements Serializable, RESTAPIValidValues {
 			
 			Query queryObject =
 				this.queries.get(queryId);
+			
+			this.resultCache().invalidate(null, queryObject.getQuery());
 				
 			queryObject.setQuery(query);
 			queryObject.setConnectionName(connectionName);
+			queryObject.setCacheTTL(cacheTTL);
 			
 			return MapAction.UPDATE;
 			
@@ -293,7 +1027,8 @@ public class QueryManager implements Serializable, RESTAPIValidValues {
 		return this.addOrUpdateQuery(
 			queryId,
 			queryJSON.get("query").getValue().toString(),
-			queryJSON.get("connectionName").getValue().toString()
+			queryJSON.get("connectionName").getValue().toString(),
+			(queryJSON.get("cacheTTL") != null ? (int)Double.parseDouble(queryJSON.get("cacheTTL").getValue().toString()) : 0)
 		);
 		
 	}
@@ -302,7 +1037,7 @@ public class QueryManager implements Serializable, RESTAPIValidValues {
 		
 		if(this.queries.containsKey(queryId)) {
 			
-			this.queries.remove(queryId);
+			this.resultCache().invalidate(null, this.queries.remove(queryId).getQuery());
 			
 			this.setValidAPIValues();
 			
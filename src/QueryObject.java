@@ -13,6 +13,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+import java.sql.Connection;
 import java.sql.Statement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -20,13 +21,81 @@ import java.sql.ResultSetMetaData;
 public class QueryObject {
 	
 	private Statement statement;
+	private PooledStatement pooledStatement;
 	private ResultSet resultSet;
 	private ResultSetMetaData resultSetMetaData;
 	
+	// Query permit and pooled connection held until close()
+	private DBConnection dbConnection;
+	private DBConnectionPool connectionPool;
+	private Connection connection;
+	
+	private RunningQueryRegistry runningQueryRegistry;
+	private RunningQuery runningQuery;
+	
+	private ResultSetColumns columns;
+	
+	// Rows are published to identical requests while this is set
+	private SharedQuery sharedQuery;
+	private Object[] currentRow;
+	
 	public QueryObject(Statement statement, ResultSet resultSet, ResultSetMetaData resultSetMetaData) {
+		this(statement, resultSet, resultSetMetaData, null, null, null);
+	}
+	
+	public QueryObject(Statement statement, ResultSet resultSet, ResultSetMetaData resultSetMetaData, DBConnection dbConnection, DBConnectionPool connectionPool, Connection connection) {
 		this.statement = statement;
 		this.resultSet = resultSet;
 		this.resultSetMetaData = resultSetMetaData;
+		this.dbConnection = dbConnection;
+		this.connectionPool = connectionPool;
+		this.connection = connection;
+	}
+	
+	public QueryObject(PooledStatement pooledStatement, ResultSet resultSet, ResultSetMetaData resultSetMetaData, DBConnection dbConnection, DBConnectionPool connectionPool, Connection connection) {
+		this(pooledStatement.statement(), resultSet, resultSetMetaData, dbConnection, connectionPool, connection);
+		this.pooledStatement = pooledStatement;
+	}
+	
+	public void setRunningQuery(RunningQueryRegistry runningQueryRegistry, RunningQuery runningQuery) {
+		this.runningQueryRegistry = runningQueryRegistry;
+		this.runningQuery = runningQuery;
+	}
+	
+	public void share(final SharedQuery sharedQuery) throws Exception {
+		
+		this.sharedQuery = sharedQuery;
+		
+		final RunningQuery runningQuery = this.runningQuery;
+		
+		// A leader waiting for a follower does not notice Statement.cancel()
+		if(runningQuery != null) {
+			runningQuery.setCancelListener(
+				new Runnable() {
+					public void run() {
+						sharedQuery.cancel(runningQuery.getCancelReason());
+					}
+				}
+			);
+		}
+		
+		sharedQuery.start(this.columns());
+		
+	}
+	
+	public void cancel(String reason) {
+		
+		SharedQuery sharedQuery = this.sharedQuery;
+		
+		// Other requests still read the rows
+		if(sharedQuery != null && sharedQuery.hasFollowers()) {
+			return;
+		}
+		
+		if(this.runningQuery != null) {
+			this.runningQuery.cancel(reason);
+		}
+		
 	}
 	
 	public ResultSet resultSet() {
@@ -34,7 +103,106 @@ public class QueryObject {
 	}
 	
 	public boolean next() throws Exception {
-		return this.resultSet.next();
+		
+		if(this.sharedQuery == null) {
+			return this.fetch();
+		}
+		
+		boolean isPublished;
+		
+		try {
+			
+			if(!this.fetch()) {
+				
+				this.sharedQuery.finish();
+				this.sharedQuery = null;
+				
+				return false;
+				
+			}
+			
+			this.currentRow =
+				this.columns().readRow(this.resultSet);
+			
+			isPublished =
+				this.sharedQuery.publish(this.currentRow);
+			
+		} catch(Exception e) {
+			
+			this.sharedQuery.fail(e);
+			this.sharedQuery = null;
+			
+			throw e;
+			
+		}
+		
+		if(!isPublished) {
+			
+			this.sharedQuery.finish();
+			this.sharedQuery = null;
+			
+		}
+		
+		return true;
+		
+	}
+	
+	private boolean fetch() throws Exception {
+		
+		this.currentRow = null;
+		
+		RunningQuery runningQuery = this.runningQuery;
+		
+		if(runningQuery == null) {
+			return this.resultSet.next();
+		}
+		
+		if(runningQuery.isCancelled()) {
+			throw new Exception(runningQuery.getCancelReason());
+		}
+		
+		boolean hasNext;
+		
+		try {
+			
+			hasNext = this.resultSet.next();
+			
+		} catch(Exception e) {
+			
+			if(runningQuery.isCancelled()) {
+				throw new Exception(runningQuery.getCancelReason());
+			}
+			
+			throw e;
+			
+		}
+		
+		if(hasNext) {
+			runningQuery.rowFetched();
+		}
+		
+		return hasNext;
+		
+	}
+	
+	public ResultSetColumns columns() throws Exception {
+		
+		if(this.columns == null) {
+			this.columns = new ResultSetColumns(this.resultSetMetaData);
+		}
+		
+		return this.columns;
+		
+	}
+	
+	public void writeRow(DataWriter dataWriter) throws Exception {
+		
+		if(this.currentRow != null) {
+			this.columns().writeRow(this.currentRow, dataWriter);
+		} else {
+			this.columns().writeRow(this.resultSet, dataWriter);
+		}
+		
 	}
 	
 	public Object getObject(int column) throws Exception {
@@ -58,20 +226,55 @@ public class QueryObject {
 	}
 	
 	public String getColumnClassName(int column) throws Exception {
-		return this.resultSetMetaData.getColumnName(column);
+		return this.resultSetMetaData.getColumnClassName(column);
 	}
 	
 	public int close() {
 		
+		ScriptResources.untrack(this);
+		
+		if(this.sharedQuery != null) {
+			this.sharedQuery.fail(new Exception("Query closed before the last row was read."));
+			this.sharedQuery = null;
+		}
+		
 		try {
-			statement.close();
 			resultSet.close();
+			
+			// A cached statement stays open on its connection
+			if(this.pooledStatement != null) {
+				this.pooledStatement.release();
+			} else {
+				statement.close();
+			}
 		} catch(Exception e) {
 			return -1;
+		} finally {
+			this.release();
 		}
 		
 		return 1;
 		
 	}
 	
+	private synchronized void release() {
+		
+		if(this.runningQueryRegistry != null) {
+			this.runningQueryRegistry.unregister(this.runningQuery);
+			this.runningQueryRegistry = null;
+		}
+		
+		if(this.connectionPool != null) {
+			this.connectionPool.giveBack(this.connection);
+			this.connectionPool = null;
+			this.connection = null;
+		}
+		
+		if(this.dbConnection != null) {
+			this.dbConnection.releaseQueryPermit();
+			this.dbConnection = null;
+		}
+		
+	}
+	
 }
\ No newline at end of file
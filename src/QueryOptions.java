@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+** Per query settings passed down to QueryManager. A zero fetch size
+** means the driver profile default applies, a zero timeout means the
+** Config default, which is no limit unless set.
+*/
+public class QueryOptions {
+	
+	private int fetchSize;
+	private int queryTimeout;
+	private String user;
+	
+	public QueryOptions() {
+		this(0, 0, null);
+	}
+	
+	public QueryOptions(int fetchSize, int queryTimeout, String user) {
+		this.fetchSize = fetchSize;
+		this.queryTimeout = queryTimeout;
+		this.user = user;
+	}
+	
+	public int fetchSize() {
+		return this.fetchSize;
+	}
+	
+	// In seconds, 0 is no limit
+	public int queryTimeout() {
+		return (this.queryTimeout > 0 ? this.queryTimeout : Config.DB_QUERY_TIMEOUT);
+	}
+	
+	public String user() {
+		return this.user;
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+** Encoded results of registered queries, as sent to the client, kept for
+** the query's cacheTTL. Keyed by connection, SQL, bound parameters and
+** output type. The least recently used results are evicted when the total
+** size would exceed Config.QUERY_RESULT_CACHE_MAX_BYTES.
+*/
+public class QueryResultCache {
+	
+	private LinkedHashMap<String, Entry> entries;
+	private long bytes;
+	
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+	private long invalidations;
+	
+	public QueryResultCache() {
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		this.bytes = 0;
+	}
+	
+	public static String key(String connectionName, String query, Map<String, String> parameters, OutputType outputType) {
+		
+		StringBuilder key = new StringBuilder();
+		
+		key.append(connectionName).append('\n');
+		key.append(outputType).append('\n');
+		key.append(query);
+		
+		// Same values in any order give the same key
+		for(Map.Entry<String, String> parameter : new TreeMap<String, String>(parameters).entrySet()) {
+			key.append('\n').append(parameter.getKey()).append('=').append(parameter.getValue());
+		}
+		
+		return key.toString();
+		
+	}
+	
+	public synchronized byte[] get(String key) {
+		
+		Entry entry = this.entries.get(key);
+		
+		if(entry == null) {
+			
+			this.misses++;
+			
+			return null;
+			
+		}
+		
+		if(entry.expiryTime <= System.currentTimeMillis()) {
+			
+			this.remove(key);
+			this.expirations++;
+			this.misses++;
+			
+			return null;
+			
+		}
+		
+		this.hits++;
+		
+		return entry.data;
+		
+	}
+	
+	/*
+	** Results larger than Config.QUERY_RESULT_CACHE_MAX_ENTRY_SIZE are not
+	** kept.
+	*/
+	public synchronized void put(String key, String connectionName, String query, String data, int ttl) {
+		
+		byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+		
+		if(bytes.length > Config.QUERY_RESULT_CACHE_MAX_ENTRY_SIZE) {
+			return;
+		}
+		
+		this.remove(key);
+		
+		Iterator<String> leastRecentlyUsed = this.entries.keySet().iterator();
+		
+		while(this.bytes + bytes.length > Config.QUERY_RESULT_CACHE_MAX_BYTES && leastRecentlyUsed.hasNext()) {
+			
+			this.bytes -= this.entries.get(leastRecentlyUsed.next()).data.length;
+			leastRecentlyUsed.remove();
+			
+			this.evictions++;
+			
+		}
+		
+		this.entries.put(
+			key,
+			new Entry(
+				connectionName,
+				query,
+				bytes,
+				System.currentTimeMillis() + ttl * 1000L
+			)
+		);
+		
+		this.bytes += bytes.length;
+		
+	}
+	
+	private void remove(String key) {
+		
+		Entry entry = this.entries.remove(key);
+		
+		if(entry != null) {
+			this.bytes -= entry.data.length;
+		}
+		
+	}
+	
+	/*
+	** Removes the results of query on connectionName, for any parameters.
+	** A null argument matches everything. Returns the number removed.
+	*/
+	public synchronized int invalidate(String connectionName, String query) {
+		
+		int removed = 0;
+		
+		Iterator<Entry> iterator = this.entries.values().iterator();
+		
+		while(iterator.hasNext()) {
+			
+			Entry entry = iterator.next();
+			
+			if(	(connectionName == null || connectionName.equals(entry.connectionName)) &&
+				(query == null || query.equals(entry.query))	) {
+				
+				this.bytes -= entry.data.length;
+				iterator.remove();
+				
+				removed++;
+				
+			}
+			
+		}
+		
+		this.invalidations += removed;
+		
+		return removed;
+		
+	}
+	
+	public synchronized JSONBuilder getJSONBuilder() {
+		
+		return
+			JSONBuilder.f().
+				$('{').
+					k("entries").v(this.entries.size()).
+					k("bytes").v(this.bytes).
+					k("maxBytes").v(Config.QUERY_RESULT_CACHE_MAX_BYTES).
+					k("hits").v(this.hits).
+					k("misses").v(this.misses).
+					k("evictions").v(this.evictions).
+					k("expirations").v(this.expirations).
+					k("invalidations").v(this.invalidations).
+				$('}');
+		
+	}
+	
+	private static class Entry {
+		
+		private String connectionName;
+		private String query;
+		private byte[] data;
+		private long expiryTime;
+		
+		private Entry(String connectionName, String query, byte[] data, long expiryTime) {
+			this.connectionName = connectionName;
+			this.query = query;
+			this.data = data;
+			this.expiryTime = expiryTime;
+		}
+		
+	}
+	
+}
\ No newline at end of file
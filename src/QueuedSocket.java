@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.net.Socket;
+
+/*
+** Accepted connection waiting for a worker in HTTPServer. The time it
+** was queued is used to measure queue wait.
+*/
+public class QueuedSocket {
+	
+	private Socket socket;
+	private long queuedTime;
+	
+	public QueuedSocket(Socket socket) {
+		
+		this.socket = socket;
+		this.queuedTime = System.currentTimeMillis();
+		
+	}
+	
+	public Socket socket() {
+		return this.socket;
+	}
+	
+	public long queuedTime() {
+		return this.queuedTime;
+	}
+	
+}
\ No newline at end of file
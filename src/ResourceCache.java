@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/*
+** In memory cache of the resources (web, ui) packaged in fusebase.jar.
+**
+** The names of all jar entries are indexed once, so looking up a request
+** path is a single map lookup. Entry contents are read and compressed the
+** first time they are requested and served from memory afterwards.
+*/
+public class ResourceCache {
+	
+	private JarFile jarFile;
+	
+	// Request path -> jar entry name
+	private HashMap<String, String> entryNames;
+	
+	private ConcurrentHashMap<String, CachedResource> resources;
+	
+	public ResourceCache(JarFile jarFile) {
+		
+		this.jarFile = jarFile;
+		this.entryNames = new HashMap<String, String>();
+		this.resources = new ConcurrentHashMap<String, CachedResource>();
+		
+		this.indexEntries();
+		
+	}
+	
+	/*
+	** Resources are packaged as "../web/...", and are requested as
+	** "web/..." or "/web/..." (see FileManager.fixJarEntryFileName)
+	*/
+	private void indexEntries() {
+		
+		Enumeration<JarEntry> jarEntries =
+			this.jarFile.entries();
+		
+		while(jarEntries.hasMoreElements()) {
+			
+			String entryName =
+				jarEntries.nextElement().getName();
+			
+			this.entryNames.put(entryName, entryName);
+			
+		}
+		
+		for(String entryName : this.entryNames.values().toArray(new String[0])) {
+			
+			if(entryName.startsWith("../")) {
+				
+				if(!this.entryNames.containsKey(entryName.substring(3))) {
+					this.entryNames.put(entryName.substring(3), entryName);
+				}
+				
+				if(!this.entryNames.containsKey(entryName.substring(2))) {
+					this.entryNames.put(entryName.substring(2), entryName);
+				}
+				
+			}
+			
+		}
+		
+	}
+	
+	public boolean contains(String fileName) {
+		
+		return this.entryNames.containsKey(fileName);
+		
+	}
+	
+	/*
+	** Returns null if fileName is not a resource, or too large to be cached
+	*/
+	public CachedResource get(String fileName) throws Exception {
+		
+		CachedResource cachedResource =
+			this.resources.get(fileName);
+		
+		if(cachedResource != null) {
+			return cachedResource;
+		}
+		
+		String entryName =
+			this.entryNames.get(fileName);
+		
+		if(entryName == null) {
+			return null;
+		}
+		
+		JarEntry jarEntry =
+			this.jarFile.getJarEntry(entryName);
+		
+		if(jarEntry.getSize() > Config.RESOURCE_CACHE_MAX_ENTRY_SIZE) {
+			return null;
+		}
+		
+		cachedResource =
+			new CachedResource(
+				this.readEntry(jarEntry),
+				jarEntry.getTime()
+			);
+		
+		// Another thread may have loaded it meanwhile, either copy is fine
+		this.resources.put(
+			fileName,
+			cachedResource
+		);
+		
+		return cachedResource;
+		
+	}
+	
+	public String getEntryName(String fileName) {
+		
+		return this.entryNames.get(fileName);
+		
+	}
+	
+	private byte[] readEntry(JarEntry jarEntry) throws Exception {
+		
+		InputStream is =
+			this.jarFile.getInputStream(jarEntry);
+		
+		ByteArrayOutputStream bytes =
+			new ByteArrayOutputStream(
+				(jarEntry.getSize() > 0 ? (int)jarEntry.getSize() : 8192)
+			);
+		
+		byte[] buffer = new byte[8192];
+		int bytesRead;
+		
+		try {
+			
+			while((bytesRead = is.read(buffer)) != -1) {
+				bytes.write(buffer, 0, bytesRead);
+			}
+			
+		} finally {
+			
+			is.close();
+			
+		}
+		
+		return bytes.toByteArray();
+		
+	}
+	
+}
\ No newline at end of file
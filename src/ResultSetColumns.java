@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/*
+** Column metadata of a result set, resolved once into a reader per column
+** so that rows are written with typed getters and no per cell lookups.
+*/
+public class ResultSetColumns {
+	
+	private static final int READ_STRING = 0;
+	private static final int READ_INT = 1;
+	private static final int READ_LONG = 2;
+	private static final int READ_DOUBLE = 3;
+	private static final int READ_DECIMAL = 4;
+	private static final int READ_TIMESTAMP = 5;
+	private static final int READ_BYTES = 6;
+	private static final int READ_OBJECT = 7;
+	
+	private int columnCount;
+	private String[] columnNames;
+	private String[] columnClassNames;
+	private int[] readers;
+	
+	public ResultSetColumns(ResultSetMetaData resultSetMetaData) throws Exception {
+		
+		this.columnCount = resultSetMetaData.getColumnCount();
+		this.columnNames = new String[this.columnCount];
+		this.columnClassNames = new String[this.columnCount];
+		this.readers = new int[this.columnCount];
+		
+		for(int i=0; i<this.columnCount; i++) {
+			
+			this.columnNames[i] = resultSetMetaData.getColumnName(i + 1);
+			this.columnClassNames[i] = ResultSetColumns.columnClassName(resultSetMetaData, i + 1);
+			this.readers[i] = ResultSetColumns.reader(resultSetMetaData, i + 1, this.columnClassNames[i]);
+			
+		}
+		
+	}
+	
+	public int getColumnCount() {
+		return this.columnCount;
+	}
+	
+	public String getColumnName(int index) {
+		return this.columnNames[index];
+	}
+	
+	// null if the driver does not tell
+	public String getColumnClassName(int index) {
+		return this.columnClassNames[index];
+	}
+	
+	// Not supported by all JDBC drivers
+	private static String columnClassName(ResultSetMetaData resultSetMetaData, int column) {
+		
+		try {
+			return resultSetMetaData.getColumnClassName(column);
+		} catch(Exception e) {
+			return null;
+		}
+		
+	}
+	
+	private static int reader(ResultSetMetaData resultSetMetaData, int column, String columnClassName) {
+		
+		int columnType;
+		
+		try {
+			columnType = resultSetMetaData.getColumnType(column);
+		} catch(Exception e) {
+			return READ_OBJECT;
+		}
+		
+		switch(columnType) {
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+			case Types.LONGNVARCHAR:
+			case Types.CLOB:
+			case Types.NCLOB:
+				return READ_STRING;
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				// Unsigned integers do not fit
+				return ("java.lang.Long".equals(columnClassName) ? READ_LONG : READ_INT);
+			case Types.BIGINT:
+				// Unsigned big integers do not fit either
+				return ("java.math.BigInteger".equals(columnClassName) ? READ_DECIMAL : READ_LONG);
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return READ_DOUBLE;
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+				return READ_DECIMAL;
+			case Types.TIMESTAMP:
+				return READ_TIMESTAMP;
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+			case Types.BLOB:
+				return READ_BYTES;
+			default:
+				return READ_OBJECT;
+		}
+		
+	}
+	
+	public void writeHeader(DataWriter dataWriter) {
+		
+		for(int i=0; i<this.columnCount; i++) {
+			dataWriter.headerEntry(
+				this.columnNames[i],
+				i
+			);
+		}
+		
+	}
+	
+	public void writeRow(ResultSet resultSet, DataWriter dataWriter) throws Exception {
+		
+		for(int i=0; i<this.columnCount; i++) {
+			
+			int column = i + 1;
+			
+			switch(this.readers[i]) {
+				case READ_STRING: {
+					String value = resultSet.getString(column);
+					if(value == null) {
+						dataWriter.nullEntry(i);
+					} else {
+						dataWriter.entry(value, i);
+					}
+					break;
+				}
+				case READ_INT: {
+					int value = resultSet.getInt(column);
+					if(resultSet.wasNull()) {
+						dataWriter.nullEntry(i);
+					} else {
+						dataWriter.entry(value, i);
+					}
+					break;
+				}
+				case READ_LONG: {
+					long value = resultSet.getLong(column);
+					if(resultSet.wasNull()) {
+						dataWriter.nullEntry(i);
+					} else {
+						dataWriter.entry(value, i);
+					}
+					break;
+				}
+				case READ_DOUBLE: {
+					double value = resultSet.getDouble(column);
+					if(resultSet.wasNull()) {
+						dataWriter.nullEntry(i);
+					} else {
+						dataWriter.entry(value, i);
+					}
+					break;
+				}
+				case READ_DECIMAL: {
+					BigDecimal value = resultSet.getBigDecimal(column);
+					if(value == null) {
+						dataWriter.nullEntry(i);
+					} else {
+						dataWriter.entry(value, i);
+					}
+					break;
+				}
+				case READ_TIMESTAMP: {
+					Timestamp value = resultSet.getTimestamp(column);
+					if(value == null) {
+						dataWriter.nullEntry(i);
+					} else {
+						dataWriter.entry(value, i);
+					}
+					break;
+				}
+				case READ_BYTES: {
+					byte[] value = resultSet.getBytes(column);
+					if(value == null) {
+						dataWriter.nullEntry(i);
+					} else {
+						dataWriter.entry(value, i);
+					}
+					break;
+				}
+				default: {
+					Object value = resultSet.getObject(column);
+					if(value == null) {
+						dataWriter.nullEntry(i);
+					} else {
+						dataWriter.entry(value.toString(), i);
+					}
+					break;
+				}
+			}
+			
+		}
+		
+	}
+	
+	/*
+	** Reads the current row into values of the types the writers take,
+	** for rows that are written more than once (see SharedQuery).
+	*/
+	public Object[] readRow(ResultSet resultSet) throws Exception {
+		
+		Object[] row = new Object[this.columnCount];
+		
+		for(int i=0; i<this.columnCount; i++) {
+			
+			int column = i + 1;
+			
+			switch(this.readers[i]) {
+				case READ_STRING:
+					row[i] = resultSet.getString(column);
+					break;
+				case READ_INT: {
+					int value = resultSet.getInt(column);
+					row[i] = (resultSet.wasNull() ? null : Integer.valueOf(value));
+					break;
+				}
+				case READ_LONG: {
+					long value = resultSet.getLong(column);
+					row[i] = (resultSet.wasNull() ? null : Long.valueOf(value));
+					break;
+				}
+				case READ_DOUBLE: {
+					double value = resultSet.getDouble(column);
+					row[i] = (resultSet.wasNull() ? null : Double.valueOf(value));
+					break;
+				}
+				case READ_DECIMAL:
+					row[i] = resultSet.getBigDecimal(column);
+					break;
+				case READ_TIMESTAMP:
+					row[i] = resultSet.getTimestamp(column);
+					break;
+				case READ_BYTES:
+					row[i] = resultSet.getBytes(column);
+					break;
+				default: {
+					Object value = resultSet.getObject(column);
+					row[i] = (value == null ? null : value.toString());
+					break;
+				}
+			}
+			
+		}
+		
+		return row;
+		
+	}
+	
+	public void writeRow(Object[] row, DataWriter dataWriter) {
+		
+		for(int i=0; i<this.columnCount; i++) {
+			
+			if(row[i] == null) {
+				dataWriter.nullEntry(i);
+				continue;
+			}
+			
+			switch(this.readers[i]) {
+				case READ_INT:
+					dataWriter.entry(((Integer)row[i]).intValue(), i);
+					break;
+				case READ_LONG:
+					dataWriter.entry(((Long)row[i]).longValue(), i);
+					break;
+				case READ_DOUBLE:
+					dataWriter.entry(((Double)row[i]).doubleValue(), i);
+					break;
+				case READ_DECIMAL:
+					dataWriter.entry((BigDecimal)row[i], i);
+					break;
+				case READ_TIMESTAMP:
+					dataWriter.entry((Timestamp)row[i], i);
+					break;
+				case READ_BYTES:
+					dataWriter.entry((byte[])row[i], i);
+					break;
+				default:
+					dataWriter.entry((String)row[i], i);
+					break;
+			}
+			
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.sql.Statement;
+import java.util.Date;
+
+/*
+** A statement that is executing or streaming its result, or a request
+** reading the result of an identical one (see SharedQuery), as listed by
+** api/queries/running.
+*/
+public class RunningQuery {
+	
+	private long id;
+	private String connectionName;
+	private String query;
+	private String user;
+	private long startTime;
+	private int timeout;
+	private Statement statement;
+	
+	private volatile long rowCount;
+	private volatile String cancelReason;
+	private volatile Runnable cancelListener;
+	
+	public RunningQuery(long id, String connectionName, String query, String user, int timeout, Statement statement) {
+		this.id = id;
+		this.connectionName = connectionName;
+		this.query = query;
+		this.user = user;
+		this.startTime = System.currentTimeMillis();
+		this.timeout = timeout;
+		this.statement = statement;
+		this.rowCount = 0;
+		this.cancelReason = null;
+		this.cancelListener = null;
+	}
+	
+	public long getId() {
+		return this.id;
+	}
+	
+	public long getStartTime() {
+		return this.startTime;
+	}
+	
+	// In seconds, 0 for none
+	public int getTimeout() {
+		return this.timeout;
+	}
+	
+	public boolean isTimedOut(long now) {
+		return this.timeout > 0 && now - this.startTime >= this.timeout * 1000L;
+	}
+	
+	// Only the thread running the query counts rows
+	public void rowFetched() {
+		this.rowCount++;
+	}
+	
+	public boolean isCancelled() {
+		return this.cancelReason != null;
+	}
+	
+	public String getCancelReason() {
+		return this.cancelReason;
+	}
+	
+	/*
+	** Runs on cancel, for queries that wait on something other than the
+	** statement, such as a shared query.
+	*/
+	public void setCancelListener(Runnable cancelListener) {
+		
+		this.cancelListener = cancelListener;
+		
+		if(this.cancelReason != null) {
+			cancelListener.run();
+		}
+		
+	}
+	
+	/*
+	** Asks the driver to stop the statement. The query also stops at the
+	** next row for drivers that ignore Statement.cancel(). There is no
+	** statement for requests reading a shared query.
+	*/
+	public void cancel(String reason) {
+		
+		if(this.cancelReason != null) {
+			return;
+		}
+		
+		this.cancelReason = reason;
+		
+		try {
+			if(this.statement != null) {
+				this.statement.cancel();
+			}
+		} catch(Exception e) {
+			;
+		}
+		
+		Runnable cancelListener = this.cancelListener;
+		
+		if(cancelListener != null) {
+			cancelListener.run();
+		}
+		
+	}
+	
+	public JSONBuilder getJSONBuilder() {
+		return
+			JSONBuilder.f().
+				$('{').
+					k("id").v(this.id).
+					k("connectionName").v(this.connectionName).
+					k("query").v(this.query).
+					k("user").v(this.user).
+					k("startTime").v(new Date(this.startTime)).
+					k("runningTimeMs").v(System.currentTimeMillis() - this.startTime).
+					k("rowCount").v(this.rowCount).
+					k("timeout").v(this.timeout).
+					k("cancelled").v(this.isCancelled()).
+				$('}');
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.sql.Statement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+** Every statement executed through QueryManager, from execution until it
+** is closed. A daemon thread cancels queries that outlive their timeout,
+** including time spent streaming rows, which Statement.setQueryTimeout
+** does not cover for most drivers.
+*/
+public class RunningQueryRegistry {
+	
+	private ConcurrentHashMap<Long, RunningQuery> runningQueries;
+	private AtomicLong nextId;
+	
+	public RunningQueryRegistry() {
+		this.runningQueries = new ConcurrentHashMap<Long, RunningQuery>();
+		this.nextId = new AtomicLong(1);
+		this.startTimeoutChecker();
+	}
+	
+	public RunningQuery register(String connectionName, String query, String user, int timeout, Statement statement) {
+		
+		RunningQuery runningQuery =
+			new RunningQuery(
+				this.nextId.getAndIncrement(),
+				connectionName,
+				query,
+				user,
+				timeout,
+				statement
+			);
+		
+		this.runningQueries.put(
+			runningQuery.getId(),
+			runningQuery
+		);
+		
+		return runningQuery;
+		
+	}
+	
+	public void unregister(RunningQuery runningQuery) {
+		
+		if(runningQuery != null) {
+			this.runningQueries.remove(runningQuery.getId());
+		}
+		
+	}
+	
+	public boolean cancel(long id, String reason) {
+		
+		RunningQuery runningQuery =
+			this.runningQueries.get(id);
+		
+		if(runningQuery == null) {
+			return false;
+		}
+		
+		runningQuery.cancel(reason);
+		
+		return true;
+		
+	}
+	
+	private void startTimeoutChecker() {
+		
+		final RunningQueryRegistry me = this;
+		
+		Thread timeoutChecker =
+			new Thread() {
+				public void run() {
+					
+					while(true) {
+						
+						try {
+							
+							Thread.sleep(Config.DB_QUERY_TIMEOUT_CHECK_INTERVAL);
+							
+							long now = System.currentTimeMillis();
+							
+							for(RunningQuery runningQuery : me.runningQueries.values()) {
+								
+								if(runningQuery.isTimedOut(now)) {
+									runningQuery.cancel("Query timed out after " + runningQuery.getTimeout() + " seconds.");
+								}
+								
+							}
+							
+						} catch(Exception e) {
+							
+							System.out.println(
+								e.getMessage()
+							);
+							
+						}
+						
+					}
+					
+				}
+			};
+		
+		timeoutChecker.setName("RunningQueryRegistry-timeout");
+		timeoutChecker.setDaemon(true);
+		timeoutChecker.start();
+		
+	}
+	
+	public JSONBuilder getJSONBuilder() {
+		
+		JSONBuilder jb = JSONBuilder.f();
+		
+		jb.$('[');
+		
+		for(RunningQuery runningQuery : this.runningQueries.values()) {
+			jb.v(runningQuery.getJSONBuilder());
+		}
+		
+		return jb.$(']');
+		
+	}
+	
+}
\ No newline at end of file
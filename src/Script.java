@@ -130,10 +130,20 @@ public class Script implements Serializable {
 			output
 		);
 
-		this.scriptEngine.eval(
-			this.source,
-			this.scriptContext
-		);
+		ScriptResources scriptResources = ScriptResources.begin();
+		
+		try {
+			
+			this.scriptEngine.eval(
+				this.source,
+				this.scriptContext
+			);
+			
+		} finally {
+			
+			closeLeftOpen(this.name, scriptResources);
+			
+		}
 		
 	}
 	
@@ -183,10 +193,33 @@ public class Script implements Serializable {
 			output
 		);
 
-		scriptEngine.eval(
-			scriptSource,
-			scriptContext
-		);
+		ScriptResources scriptResources = ScriptResources.begin();
+		
+		try {
+			
+			scriptEngine.eval(
+				scriptSource,
+				scriptContext
+			);
+			
+		} finally {
+			
+			closeLeftOpen("anonymous", scriptResources);
+			
+		}
+		
+	}
+	
+	private static void closeLeftOpen(String scriptName, ScriptResources scriptResources) {
+		
+		int leftOpen = scriptResources.end();
+		
+		if(leftOpen > 0) {
+			System.out.println(
+				"Script \"" + scriptName + "\" ended with " + leftOpen +
+				" statement(s) or query object(s) open. Closed them."
+			);
+		}
 		
 	}
 	
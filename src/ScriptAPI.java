@@ -31,6 +31,8 @@ import java.io.DataOutput;
 import jdk.nashorn.api.scripting.ScriptObjectMirror;
 import jdk.nashorn.internal.objects.NativeArray;
 import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
 
 public class ScriptAPI implements Serializable {
 	
@@ -56,9 +58,11 @@ public class ScriptAPI implements Serializable {
 		try {
 			
 			return
-				this.fuseBase.queryManager.getQueryObject(
-					connectionName,
-					query
+				ScriptResources.track(
+					this.fuseBase.queryManager.getQueryObject(
+						connectionName,
+						query
+					)
 				);
 			
 		} catch(Exception e) {
@@ -278,6 +282,32 @@ public class ScriptAPI implements Serializable {
 	
 	public void queryToFile(String connectionName, String query, String fileName, String outputTypeText) throws Exception {
 		
+		this.queryToFile(
+			connectionName,
+			query,
+			fileName,
+			outputTypeText,
+			0
+		);
+		
+	}
+	
+	public void queryToFile(String connectionName, String query, String fileName, String outputTypeText, int fetchSize) throws Exception {
+		
+		this.queryToFile(
+			connectionName,
+			query,
+			fileName,
+			outputTypeText,
+			fetchSize,
+			0
+		);
+		
+	}
+	
+	// queryTimeout in seconds, 0 is no limit
+	public void queryToFile(String connectionName, String query, String fileName, String outputTypeText, int fetchSize, int queryTimeout) throws Exception {
+		
 		File file = new File(fileName);
 		
 		file.getParentFile().mkdirs();
@@ -309,7 +339,8 @@ public class ScriptAPI implements Serializable {
 		this.fuseBase.queryManager.sql(
 			dataWriter,
 			connectionName,
-			query
+			query,
+			new QueryOptions(fetchSize, queryTimeout, null)
 		);
 		
 		printWriter.flush();
@@ -318,6 +349,216 @@ public class ScriptAPI implements Serializable {
 		
 	}
 	
+	/*
+	** Splits the range of a numeric or date column into partitionCount
+	** partitions and extracts them concurrently on pooled connections.
+	** Writes one ordered file if merge is true, otherwise one file per
+	** partition. The query may contain $CONDITIONS where the partition
+	** predicate goes.
+	*/
+	public void queryToFilePartitioned(String connectionName, String query, String fileName, String outputTypeText, String splitColumn, int partitionCount, boolean merge) throws Exception {
+		
+		this.queryToFilePartitioned(
+			connectionName,
+			query,
+			fileName,
+			outputTypeText,
+			splitColumn,
+			partitionCount,
+			null,
+			merge,
+			0
+		);
+		
+	}
+	
+	/*
+	** Same as above with the range of the split column given by a query
+	** returning min and max, for backends without derived tables.
+	*/
+	public void queryToFilePartitioned(String connectionName, String query, String fileName, String outputTypeText, String splitColumn, int partitionCount, String boundsQuery, boolean merge) throws Exception {
+		
+		this.queryToFilePartitioned(
+			connectionName,
+			query,
+			fileName,
+			outputTypeText,
+			splitColumn,
+			partitionCount,
+			boundsQuery,
+			merge,
+			0
+		);
+		
+	}
+	
+	/*
+	** Same as above with a limit in seconds on each partition query, 0 for
+	** none. boundsQuery may be null.
+	*/
+	public void queryToFilePartitioned(String connectionName, String query, String fileName, String outputTypeText, String splitColumn, int partitionCount, String boundsQuery, boolean merge, int queryTimeout) throws Exception {
+		
+		this.extractPartitions(
+			connectionName,
+			query,
+			fileName,
+			outputTypeText,
+			(boundsQuery != null ?
+				PartitionedExtract.rangePredicates(
+					this.fuseBase.queryManager,
+					connectionName,
+					boundsQuery,
+					splitColumn,
+					partitionCount
+				) :
+				PartitionedExtract.splitPredicates(
+					this.fuseBase.queryManager,
+					connectionName,
+					query,
+					splitColumn,
+					partitionCount
+				)
+			),
+			merge,
+			queryTimeout
+		);
+		
+	}
+	
+	/*
+	** One partition per predicate, e.g.
+	** ["region = 'EU'", "region = 'US'", "region not in ('EU', 'US')"].
+	*/
+	public void queryToFilePartitioned(String connectionName, String query, String fileName, String outputTypeText, ScriptObjectMirror predicates, boolean merge) throws Exception {
+		
+		this.queryToFilePartitioned(
+			connectionName,
+			query,
+			fileName,
+			outputTypeText,
+			predicates,
+			merge,
+			0
+		);
+		
+	}
+	
+	public void queryToFilePartitioned(String connectionName, String query, String fileName, String outputTypeText, ScriptObjectMirror predicates, boolean merge, int queryTimeout) throws Exception {
+		
+		this.extractPartitions(
+			connectionName,
+			query,
+			fileName,
+			outputTypeText,
+			Arrays.asList(
+				(String[])predicates.to(String[].class)
+			),
+			merge,
+			queryTimeout
+		);
+		
+	}
+	
+	private void extractPartitions(String connectionName, String query, String fileName, String outputTypeText, List<String> predicates, boolean merge, int queryTimeout) throws Exception {
+		
+		OutputType outputType =
+			OutputType.valueOf(outputTypeText);
+		
+		DBConnectionPool connectionPool =
+			this.fuseBase.dbConnectionManager.getConnection(connectionName).getConnectionPool();
+		
+		PartitionedExtract partitionedExtract =
+			new PartitionedExtract(
+				this.fuseBase.queryManager,
+				connectionName,
+				query,
+				predicates,
+				(connectionPool != null ? connectionPool.maxSize() : predicates.size()),
+				new QueryOptions(0, queryTimeout, null)
+			);
+		
+		if(merge) {
+			
+			partitionedExtract.toFile(
+				fileName,
+				outputType
+			);
+			
+		} else {
+			
+			partitionedExtract.toPartFiles(
+				fileName,
+				outputType
+			);
+			
+		}
+		
+	}
+	
+	public long queryToFileIncremental(String name, String connectionName, String query, String fileName, String outputTypeText, String watermarkColumn) throws Exception {
+		
+		return this.queryToFileIncremental(name, connectionName, query, fileName, outputTypeText, watermarkColumn, null);
+		
+	}
+	
+	/*
+	** Writes the rows where watermarkColumn is above where the last run by
+	** this name stopped, and returns how many. The first run starts
+	** after initialValue, an SQL literal, or extracts all rows if it is
+	** null. The query may contain $CONDITIONS where the predicate goes.
+	*/
+	public long queryToFileIncremental(String name, String connectionName, String query, String fileName, String outputTypeText, String watermarkColumn, String initialValue) throws Exception {
+		
+		return this.queryToFileIncremental(name, connectionName, query, fileName, outputTypeText, watermarkColumn, initialValue, 0);
+		
+	}
+	
+	// queryTimeout in seconds, 0 is no limit
+	public long queryToFileIncremental(String name, String connectionName, String query, String fileName, String outputTypeText, String watermarkColumn, String initialValue, int queryTimeout) throws Exception {
+		
+		return this.queryToFileIncremental(name, connectionName, query, fileName, outputTypeText, watermarkColumn, initialValue, null, queryTimeout);
+		
+	}
+	
+	/*
+	** Same as above with the upper bound of the run, the first column of
+	** upperBoundQuery, instead of the max of watermarkColumn over the query.
+	*/
+	public long queryToFileIncremental(String name, String connectionName, String query, String fileName, String outputTypeText, String watermarkColumn, String initialValue, String upperBoundQuery, int queryTimeout) throws Exception {
+		
+		IncrementalExtract incrementalExtract =
+			new IncrementalExtract(
+				this.fuseBase.queryManager,
+				name,
+				connectionName,
+				query,
+				watermarkColumn,
+				new QueryOptions(0, queryTimeout, null)
+			);
+		
+		return
+			incrementalExtract.toFile(
+				fileName,
+				OutputType.valueOf(outputTypeText),
+				initialValue,
+				upperBoundQuery
+			);
+		
+	}
+	
+	public String watermarks() {
+		
+		return this.fuseBase.queryManager.watermarks().getJSONBuilder().getJSON();
+		
+	}
+	
+	// The next incremental extraction by this name extracts all rows
+	public boolean resetWatermark(String name) throws Exception {
+		
+		return this.fuseBase.queryManager.watermarks().reset(name);
+		
+	}
+	
 	public PrintWriter getFileForWriting(String fileName) throws Exception {
 		
 		return this.getFileForWriting(fileName, false);
@@ -378,14 +619,142 @@ public class ScriptAPI implements Serializable {
 		
 	}
 	
+	public String bulkLoadCSV(String connectionName, String table, String fileName, char delimiter) {
+		
+		return this.bulkLoadCSV(connectionName, table, fileName, delimiter, 0, 0, 0);
+		
+	}
+	
+	/*
+	** Inserts the rows of a CSV file into table. The header names the
+	** columns. Returns a JSON summary with the batches that failed.
+	*/
+	public String bulkLoadCSV(String connectionName, String table, String fileName, char delimiter, int batchSize, int commitInterval, int writerCount) {
+		
+		try {
+			
+			return
+				this.fuseBase.queryManager.bulkLoad(
+					connectionName,
+					table,
+					BulkLoader.csvSource(
+						new CSVReader(fileName, delimiter, null, "")
+					),
+					new BulkLoadOptions(batchSize, commitInterval, writerCount)
+				).getJSON();
+			
+		} catch(Exception e) {
+			
+			return this.error(e);
+			
+		}
+		
+	}
+	
+	public String bulkLoadQuery(String connectionName, String table, String sourceConnectionName, String sourceQuery) {
+		
+		return this.copy(sourceConnectionName, sourceQuery, connectionName, table, 0, 0, 0);
+		
+	}
+	
+	/*
+	** Inserts the result of a query on another connection into table. The
+	** result column names are the insert column names.
+	*/
+	public String bulkLoadQuery(String connectionName, String table, String sourceConnectionName, String sourceQuery, int batchSize, int commitInterval, int writerCount) {
+		
+		return this.copy(sourceConnectionName, sourceQuery, connectionName, table, batchSize, commitInterval, writerCount, 0);
+		
+	}
+	
+	public String bulkLoadQuery(String connectionName, String table, String sourceConnectionName, String sourceQuery, int batchSize, int commitInterval, int writerCount, int queryTimeout) {
+		
+		return this.copy(sourceConnectionName, sourceQuery, connectionName, table, batchSize, commitInterval, writerCount, queryTimeout);
+		
+	}
+	
+	public String copy(String sourceConnectionName, String sourceQuery, String connectionName, String table) {
+		
+		return this.copy(sourceConnectionName, sourceQuery, connectionName, table, 0, 0, 0);
+		
+	}
+	
+	/*
+	** Copies the result of sourceQuery into table on connectionName,
+	** fetching and inserting at the same time. Returns a JSON summary with
+	** the rows copied, throughput and the batches that failed.
+	*/
+	public String copy(String sourceConnectionName, String sourceQuery, String connectionName, String table, int batchSize, int commitInterval, int writerCount) {
+		
+		return this.copy(sourceConnectionName, sourceQuery, connectionName, table, batchSize, commitInterval, writerCount, 0);
+		
+	}
+	
+	// queryTimeout limits the source query, in seconds, 0 is no limit
+	public String copy(String sourceConnectionName, String sourceQuery, String connectionName, String table, int batchSize, int commitInterval, int writerCount, int queryTimeout) {
+		
+		try {
+			
+			return
+				this.fuseBase.queryManager.copy(
+					sourceConnectionName,
+					sourceQuery,
+					connectionName,
+					table,
+					new BulkLoadOptions(batchSize, commitInterval, writerCount),
+					new QueryOptions(0, queryTimeout, null)
+				).getJSON();
+			
+		} catch(Exception e) {
+			
+			return this.error(e);
+			
+		}
+		
+	}
+	
+	// Progress of the bulk loads and copies that are running
+	public String bulkLoadProgress() {
+		
+		return this.fuseBase.queryManager.getBulkLoadsJSONBuilder().getJSON();
+		
+	}
+	
+	public String invalidateQueryCache() {
+		
+		return this.invalidateQueryCache(null);
+		
+	}
+	
+	/*
+	** Drops the cached results of a registered query, e.g. after a load
+	** that changed its data.
+	*/
+	public String invalidateQueryCache(String queryId) {
+		
+		int removed =
+			this.fuseBase.queryManager.invalidateCachedResults(queryId);
+		
+		return this.success("Removed " + removed + " cached results.");
+		
+	}
+	
+	public String queryCacheStatistics() {
+		
+		return this.fuseBase.queryManager.resultCache().getJSONBuilder().getJSON();
+		
+	}
+	
 	public PreparedStatement getPreparedStatement(String connectionName, String query) {
 		
 		try {
 				
 			return
-				this.fuseBase.queryManager.getPreparedStatement(
-					connectionName,
-					query
+				ScriptResources.track(
+					this.fuseBase.queryManager.getPreparedStatement(
+						connectionName,
+						query
+					)
 				);
 			
 		} catch(Exception e) {
@@ -401,9 +770,11 @@ public class ScriptAPI implements Serializable {
 		try {
 				
 			return
-				this.fuseBase.queryManager.getCallableStatement(
-					connectionName,
-					query
+				ScriptResources.track(
+					this.fuseBase.queryManager.getCallableStatement(
+						connectionName,
+						query
+					)
 				);
 			
 		} catch(Exception e) {
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/*
+** Query objects and statements borrowed by the script running on the
+** current thread. Each one holds a pooled connection (and a query permit
+** for query objects) until closed, so whatever the script leaves open is
+** closed when the script ends.
+*/
+public class ScriptResources {
+	
+	private static final ThreadLocal<ScriptResources> current =
+		new ThreadLocal<ScriptResources>();
+	
+	private ScriptResources outer;
+	private Set<Object> resources =
+		Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+	
+	private ScriptResources(ScriptResources outer) {
+		this.outer = outer;
+	}
+	
+	public static ScriptResources begin() {
+		
+		ScriptResources scriptResources =
+			new ScriptResources(current.get());
+		
+		current.set(scriptResources);
+		
+		return scriptResources;
+		
+	}
+	
+	public static <T> T track(T resource) {
+		
+		ScriptResources scriptResources = current.get();
+		
+		if(scriptResources != null && resource != null) {
+			synchronized(scriptResources.resources) {
+				scriptResources.resources.add(resource);
+			}
+		}
+		
+		return resource;
+		
+	}
+	
+	public static void untrack(Object resource) {
+		
+		for(ScriptResources scriptResources = current.get(); scriptResources != null; scriptResources = scriptResources.outer) {
+			synchronized(scriptResources.resources) {
+				if(scriptResources.resources.remove(resource)) {
+					return;
+				}
+			}
+		}
+		
+	}
+	
+	public int end() {
+		
+		if(current.get() == this) {
+			if(this.outer != null) {
+				current.set(this.outer);
+			} else {
+				current.remove();
+			}
+		}
+		
+		List<Object> leftOpen;
+		
+		synchronized(this.resources) {
+			leftOpen = new ArrayList<Object>(this.resources);
+			this.resources.clear();
+		}
+		
+		for(Object resource : leftOpen) {
+			try {
+				if(resource instanceof QueryObject) {
+					((QueryObject)resource).close();
+				} else if(resource instanceof Statement) {
+					((Statement)resource).close();
+				}
+			} catch(Exception e) {
+				;
+			}
+		}
+		
+		return leftOpen.size();
+		
+	}
+	
+}
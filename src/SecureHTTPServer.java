@@ -14,6 +14,7 @@
  * limitations under the License.
  */
 import java.util.LinkedList;
+import java.net.Socket;
 import javax.net.ssl.SSLServerSocket;
 import javax.net.ssl.SSLSocket;
 import java.io.InputStream;
@@ -36,9 +37,10 @@ public class SecureHTTPServer extends HTTPServer {
 								HttpRequestProcessor httpRequestProcessor,
 								InputStream certificateFileInputStream,
 								String sslKeyStorePassword,
-								int threadCount								) throws Exception {
+								int minThreadCount,
+								int maxThreadCount							) throws Exception {
 		
-		super(port, httpRequestProcessor, threadCount);
+		super(port, httpRequestProcessor, minThreadCount, maxThreadCount);
 		
 		this.serverSocket = null;
 		
@@ -49,6 +51,26 @@ public class SecureHTTPServer extends HTTPServer {
 		
 	}
 	
+	/*
+	** Writing the 503 response would mean a TLS handshake on the
+	** accepting thread, so the connection is just closed.
+	*/
+	protected void rejectConnection(Socket socket) {
+		
+		this.connectionRejected();
+		
+		try {
+			
+			socket.close();
+			
+		} catch(Exception e) {
+			
+			;
+			
+		}
+		
+	}
+	
 	private void setupSSL(InputStream certificateFileInputStream, String sslKeyStorePassword) throws Exception {
 		
 		KeyStore keyStore =
@@ -105,20 +127,11 @@ public class SecureHTTPServer extends HTTPServer {
 		// Listen for connections and create server thread when accepting a connection
 		try {
 			
-			// Start worker thread pool
-			for(int i=0; i<this.httpServerThreads.length; i++) {
-
-				this.httpServerThreads[i] =
-					new HTTPServerThread(
-						this,						// HTTPServer instance
-						this.httpRequestProcessor	// HttpRequestProcessor instance
-					);
-
-			}
+			this.startWorkers();
 			
 			while(true) {
 				
-				this.clientSocketProcessingQueue.put(
+				this.dispatch(
 					(SSLSocket)this.serverSocket.accept()
 				);
 				
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Iterator;
+
+/*
+** One execution of a query whose rows are shared by every identical
+** request that arrives while it runs (single flight). The request that
+** started it, the leader, fetches the rows and publishes them here; the
+** followers read them at their own pace through SharedQueryObject.
+**
+** Followers can join until Config.DB_QUERY_SINGLE_FLIGHT_JOIN_ROWS rows
+** have been fetched, rows are kept until then so late joiners start from
+** the first row. The leader waits when it is more than
+** Config.DB_QUERY_SINGLE_FLIGHT_BUFFER_ROWS rows ahead of a follower, for
+** at most Config.DB_QUERY_SINGLE_FLIGHT_LAG_TIMEOUT ms, after which the
+** followers that are that far behind are dropped and fail.
+*/
+public class SharedQuery {
+	
+	private Map<String, SharedQuery> flights;
+	private String key;
+	
+	private ResultSetColumns columns;
+	
+	private ArrayList<Object[]> rows;
+	// Index of rows.get(0) among all published rows
+	private long offset;
+	private long rowCount;
+	
+	private Set<Follower> followers;
+	private boolean isJoinable;
+	private boolean isStarted;
+	private boolean isDone;
+	private Exception error;
+	private String cancelReason;
+	
+	public SharedQuery(Map<String, SharedQuery> flights, String key) {
+		this.flights = flights;
+		this.key = key;
+		this.rows = new ArrayList<Object[]>();
+		this.offset = 0;
+		this.rowCount = 0;
+		this.followers = new HashSet<Follower>();
+		this.isJoinable = true;
+		this.isStarted = false;
+		this.isDone = false;
+		this.error = null;
+		this.cancelReason = null;
+	}
+	
+	// Requests only share when their options match as well
+	public static String key(String connectionName, String query, Map<String, String> parameters, QueryOptions queryOptions) {
+		
+		StringBuilder key = new StringBuilder();
+		
+		key.append(connectionName).append('\n').append(query);
+		key.append('\n').append(queryOptions.fetchSize()).append('\n').append(queryOptions.queryTimeout());
+		
+		for(Map.Entry<String, String> parameter : new java.util.TreeMap<String, String>(parameters).entrySet()) {
+			key.append('\n').append(parameter.getKey()).append('=').append(parameter.getValue());
+		}
+		
+		return key.toString();
+		
+	}
+	
+	// null if the flight can no longer be joined
+	public synchronized Follower join() {
+		
+		if(!this.isJoinable) {
+			return null;
+		}
+		
+		Follower follower = new Follower();
+		
+		this.followers.add(follower);
+		
+		return follower;
+		
+	}
+	
+	public synchronized void leave(Follower follower) {
+		
+		this.followers.remove(follower);
+		
+		this.notifyAll();
+		
+	}
+	
+	/*
+	** Drops a follower, its next read fails with the reason. Used when its
+	** request is cancelled or times out.
+	*/
+	public synchronized void cancel(Follower follower, String reason) {
+		
+		if(follower.cancelReason == null) {
+			follower.cancelReason = reason;
+		}
+		
+		this.followers.remove(follower);
+		
+		this.notifyAll();
+		
+	}
+	
+	/*
+	** Stops the leader, publish() fails with the reason. Used when the
+	** leading query is cancelled or times out.
+	*/
+	public synchronized void cancel(String reason) {
+		
+		if(this.cancelReason == null) {
+			this.cancelReason = reason;
+		}
+		
+		this.notifyAll();
+		
+	}
+	
+	public synchronized boolean hasFollowers() {
+		return this.followers.size() > 0;
+	}
+	
+	public synchronized void start(ResultSetColumns columns) {
+		
+		this.columns = columns;
+		this.isStarted = true;
+		
+		this.notifyAll();
+		
+	}
+	
+	/*
+	** Waits until the leader has executed the query. Throws its error if
+	** that failed.
+	*/
+	public synchronized ResultSetColumns awaitStart(Follower follower) throws Exception {
+		
+		while(!this.isStarted && this.error == null && follower.cancelReason == null) {
+			this.wait();
+		}
+		
+		if(follower.cancelReason != null) {
+			throw new Exception(follower.cancelReason);
+		}
+		
+		if(this.error != null) {
+			throw this.error;
+		}
+		
+		return this.columns;
+		
+	}
+	
+	/*
+	** Returns false when nobody can read the row any more, the leader then
+	** stops publishing.
+	*/
+	public synchronized boolean publish(Object[] row) throws Exception {
+		
+		long deadline = System.currentTimeMillis() + Config.DB_QUERY_SINGLE_FLIGHT_LAG_TIMEOUT;
+		
+		while(this.cancelReason == null && this.followers.size() > 0 && this.rowCount - this.minPosition() >= Config.DB_QUERY_SINGLE_FLIGHT_BUFFER_ROWS) {
+			
+			long waitTime = deadline - System.currentTimeMillis();
+			
+			if(waitTime <= 0) {
+				this.dropLaggingFollowers();
+				break;
+			}
+			
+			this.wait(waitTime);
+			
+		}
+		
+		if(this.cancelReason != null) {
+			throw new Exception(this.cancelReason);
+		}
+		
+		if(this.isJoinable && this.rowCount >= Config.DB_QUERY_SINGLE_FLIGHT_JOIN_ROWS) {
+			this.close();
+		}
+		
+		if(!this.isJoinable && this.followers.size() == 0) {
+			return false;
+		}
+		
+		this.rows.add(row);
+		this.rowCount++;
+		
+		if(!this.isJoinable) {
+			this.trim();
+		}
+		
+		this.notifyAll();
+		
+		return true;
+		
+	}
+	
+	// Drops the rows every follower has read
+	private void trim() {
+		
+		long position =
+			(this.followers.size() > 0 ? this.minPosition() : this.rowCount);
+		
+		int readRows = (int)(position - this.offset);
+		
+		if(readRows >= 1024 || (readRows > 0 && readRows == this.rows.size())) {
+			
+			this.rows.subList(0, readRows).clear();
+			this.offset = position;
+			
+		}
+		
+	}
+	
+	private void dropLaggingFollowers() {
+		
+		Iterator<Follower> iterator = this.followers.iterator();
+		
+		while(iterator.hasNext()) {
+			
+			Follower follower = iterator.next();
+			
+			if(this.rowCount - follower.position >= Config.DB_QUERY_SINGLE_FLIGHT_BUFFER_ROWS) {
+				
+				follower.cancelReason =
+					"Fell more than " + Config.DB_QUERY_SINGLE_FLIGHT_BUFFER_ROWS + " rows behind the shared query for " + Config.DB_QUERY_SINGLE_FLIGHT_LAG_TIMEOUT + " ms.";
+				
+				iterator.remove();
+				
+			}
+			
+		}
+		
+		this.notifyAll();
+		
+	}
+	
+	private long minPosition() {
+		
+		long position = this.rowCount;
+		
+		for(Follower follower : this.followers) {
+			position = Math.min(position, follower.position);
+		}
+		
+		return position;
+		
+	}
+	
+	// null after the last row
+	public synchronized Object[] next(Follower follower) throws Exception {
+		
+		while(follower.cancelReason == null && follower.position >= this.rowCount && !this.isDone && this.error == null) {
+			this.wait();
+		}
+		
+		// Its rows may be gone
+		if(follower.cancelReason != null) {
+			throw new Exception(follower.cancelReason);
+		}
+		
+		if(follower.position < this.rowCount) {
+			
+			Object[] row =
+				this.rows.get((int)(follower.position - this.offset));
+			
+			follower.position++;
+			
+			// The leader may wait for this follower
+			if(this.rowCount - follower.position < Config.DB_QUERY_SINGLE_FLIGHT_BUFFER_ROWS) {
+				this.notifyAll();
+			}
+			
+			return row;
+			
+		}
+		
+		if(this.error != null) {
+			throw this.error;
+		}
+		
+		return null;
+		
+	}
+	
+	public synchronized void finish() {
+		
+		this.close();
+		
+		this.isDone = true;
+		
+		this.notifyAll();
+		
+	}
+	
+	public synchronized void fail(Exception error) {
+		
+		this.close();
+		
+		if(!this.isDone) {
+			this.error = error;
+		}
+		
+		this.notifyAll();
+		
+	}
+	
+	// No more followers, later requests start their own flight
+	private void close() {
+		
+		if(this.isJoinable) {
+			
+			this.isJoinable = false;
+			
+			this.flights.remove(this.key, this);
+			
+		}
+		
+	}
+	
+	public static class Follower {
+		
+		private long position;
+		private String cancelReason;
+		
+		private Follower() {
+			this.position = 0;
+			this.cancelReason = null;
+		}
+		
+	}
+	
+}
\ No newline at end of file
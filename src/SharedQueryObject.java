@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+** Reads the rows of a query that another request executes, see
+** SharedQuery. Holds no connection or query permit, but is listed as a
+** running query of its own so it can be cancelled and time out.
+*/
+public class SharedQueryObject extends QueryObject {
+	
+	private SharedQuery sharedQuery;
+	private SharedQuery.Follower follower;
+	private ResultSetColumns columns;
+	private Object[] currentRow;
+	
+	private RunningQueryRegistry runningQueryRegistry;
+	private RunningQuery runningQuery;
+	
+	public SharedQueryObject(SharedQuery sharedQuery, SharedQuery.Follower follower, ResultSetColumns columns, RunningQueryRegistry runningQueryRegistry, RunningQuery runningQuery) {
+		super(null, null, null);
+		this.sharedQuery = sharedQuery;
+		this.follower = follower;
+		this.columns = columns;
+		this.runningQueryRegistry = runningQueryRegistry;
+		this.runningQuery = runningQuery;
+	}
+	
+	public void cancel(String reason) {
+		this.runningQuery.cancel(reason);
+	}
+	
+	public boolean next() throws Exception {
+		
+		this.currentRow =
+			this.sharedQuery.next(this.follower);
+		
+		if(this.currentRow == null) {
+			return false;
+		}
+		
+		this.runningQuery.rowFetched();
+		
+		return true;
+		
+	}
+	
+	public ResultSetColumns columns() {
+		return this.columns;
+	}
+	
+	public void writeRow(DataWriter dataWriter) {
+		this.columns.writeRow(this.currentRow, dataWriter);
+	}
+	
+	public Object getObject(int column) {
+		return this.currentRow[column - 1];
+	}
+	
+	public Object getString(int column) {
+		
+		Object value = this.currentRow[column - 1];
+		
+		return (value == null ? null : value.toString());
+		
+	}
+	
+	public int getColumnCount() {
+		return this.columns.getColumnCount();
+	}
+	
+	public String getColumnName(int column) {
+		return this.columns.getColumnName(column - 1);
+	}
+	
+	public String getColumnClassName(int column) {
+		return this.columns.getColumnClassName(column - 1);
+	}
+	
+	public int close() {
+		
+		this.sharedQuery.leave(this.follower);
+		
+		this.runningQueryRegistry.unregister(this.runningQuery);
+		
+		return 1;
+		
+	}
+	
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public enum StreamingMode {
+	// Statement.setFetchSize only
+	FETCH_SIZE,
+	// Fetch size inside a transaction, needed for server side cursors (PostgreSQL)
+	CURSOR,
+	// Row by row with a fetch size of Integer.MIN_VALUE (MySQL)
+	ROW_BY_ROW;
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+
+/*
+** PrintWriter for streaming result sets to a client. Data is pushed out
+** (as one or more HTTP chunks) after the first row and then whenever the
+** given number of rows or characters has been written since the last flush.
+*/
+public class StreamingPrintWriter extends PrintWriter {
+	
+	private int flushRows;
+	private long flushBytes;
+	
+	private long rowCount;
+	private int rowsSinceFlush;
+	private long bytesSinceFlush;
+	
+	private boolean isClientGone;
+	
+	// Copy of what is written, for the query result cache
+	private StringBuilder capture;
+	private int captureLimit;
+	
+	public StreamingPrintWriter(OutputStream output, int flushRows, long flushBytes) {
+		
+		super(
+			new BufferedWriter(
+				new OutputStreamWriter(
+					output,
+					StandardCharsets.UTF_8
+				),
+				Config.HTTP_RESPONSE_CHUNK_SIZE
+			)
+		);
+		
+		this.flushRows = flushRows;
+		this.flushBytes = flushBytes;
+		
+		this.rowCount = 0;
+		this.rowsSinceFlush = 0;
+		this.bytesSinceFlush = 0;
+		
+		this.isClientGone = false;
+		
+		this.capture = null;
+		this.captureLimit = 0;
+		
+	}
+	
+	public void write(int c) {
+		
+		super.write(c);
+		this.bytesSinceFlush++;
+		
+		if(this.capture != null) {
+			this.capture.append((char)c);
+			this.checkCaptureLimit();
+		}
+		
+	}
+	
+	public void write(char[] buf, int off, int len) {
+		
+		super.write(buf, off, len);
+		this.bytesSinceFlush += len;
+		
+		if(this.capture != null) {
+			this.capture.append(buf, off, len);
+			this.checkCaptureLimit();
+		}
+		
+	}
+	
+	public void write(String s, int off, int len) {
+		
+		super.write(s, off, len);
+		this.bytesSinceFlush += len;
+		
+		if(this.capture != null) {
+			this.capture.append(s, off, off + len);
+			this.checkCaptureLimit();
+		}
+		
+	}
+	
+	/*
+	** Keeps a copy of everything written from now on, unless it grows
+	** beyond limit characters.
+	*/
+	public void startCapture(int limit) {
+		
+		this.capture = new StringBuilder();
+		this.captureLimit = limit;
+		
+	}
+	
+	// null if the limit was exceeded or capturing was not started
+	public String stopCapture() {
+		
+		String captured =
+			(this.capture != null ? this.capture.toString() : null);
+		
+		this.capture = null;
+		
+		return captured;
+		
+	}
+	
+	private void checkCaptureLimit() {
+		
+		if(this.capture.length() > this.captureLimit) {
+			this.capture = null;
+		}
+		
+	}
+	
+	public void flush() {
+		
+		super.flush();
+		
+		this.rowsSinceFlush = 0;
+		this.bytesSinceFlush = 0;
+		
+	}
+	
+	/*
+	** PrintWriter swallows the IOException of a closed socket and calls
+	** this instead.
+	*/
+	protected void setError() {
+		
+		super.setError();
+		this.isClientGone = true;
+		
+	}
+	
+	public boolean isClientGone() {
+		return this.isClientGone;
+	}
+	
+	/*
+	** Called by DataWriter after each complete row.
+	*/
+	public void rowWritten() {
+		
+		this.rowCount++;
+		this.rowsSinceFlush++;
+		
+		if(	this.rowCount == 1 ||
+			(this.flushRows > 0 && this.rowsSinceFlush >= this.flushRows) ||
+			(this.flushBytes > 0 && this.bytesSinceFlush >= this.flushBytes)	) {
+			
+			this.flush();
+			
+		}
+		
+	}
+	
+}
\ No newline at end of file
@@ -20,6 +20,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.lang.System;
 import java.util.Calendar;
+import java.util.Date;
 import java.security.Key;
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
@@ -301,8 +302,12 @@ public class Utils {
 	}
 	
 	public static String getSystemTime() {
-		Calendar calendar =
-			Calendar.getInstance();
+		return Utils.getHttpDate(
+			Calendar.getInstance().getTimeInMillis()
+		);
+	}
+	
+	public static String getHttpDate(long timeInMs) {
 		SimpleDateFormat dateFormat =
 			new SimpleDateFormat(
 				"EEE, dd MMM yyyy HH:mm:ss z", Locale.US
@@ -310,7 +315,7 @@ public class Utils {
 		dateFormat.setTimeZone(
 			TimeZone.getTimeZone("GMT")
 		);
-		return dateFormat.format(calendar.getTime());
+		return dateFormat.format(new Date(timeInMs));
 	}
 	
 	public static void main(String args[]) {
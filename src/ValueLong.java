@@ -13,41 +13,12 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-public class AgedString {
-	
-	private String value;
-	private long age;
-	
-	public AgedString(String value, long age) {
-		this.value = value;
-		this.age = age;
-	}
-	
-	public void setValue(String value, long age) {
-		this.value = value;
-		this.age = age;
-	}
-	
-	public String value(long age) {
-		if(age == this.age) {
-			return this.value;
-		}
-		return null;
+public class ValueLong extends Value<Long> {	
+	public ValueLong(long value) {
+		super(Long.valueOf(value));
 	}
 	
-	public String value(long age, String defaultvalue) {
-		if(age == this.age) {
-			return this.value;
-		}
-		return defaultvalue;
-	}
-	
-	public long age() {
-		return this.age;
-	}
-	
-	public String toString() {
+	public Long getValue() {
 		return this.value;
 	}
-	
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/*
+** How far an incremental extraction has got: the highest value of its
+** watermark column written so far, kept as the SQL literal the next run
+** compares the column with.
+*/
+public class Watermark implements Serializable {
+	
+	private String name;
+	private String connectionName;
+	private String column;
+	private String value;
+	
+	private Date lastRunTime;
+	private long lastRowCount;
+	private long totalRowCount;
+	
+	public Watermark(String name, String connectionName, String column) {
+		this.name = name;
+		this.connectionName = connectionName;
+		this.column = column;
+		this.value = null;
+		this.lastRunTime = null;
+		this.lastRowCount = 0;
+		this.totalRowCount = 0;
+	}
+	
+	public String getName() {
+		return this.name;
+	}
+	
+	public String getConnectionName() {
+		return this.connectionName;
+	}
+	
+	public String getColumn() {
+		return this.column;
+	}
+	
+	// SQL literal, null before the first row
+	public String getValue() {
+		return this.value;
+	}
+	
+	/*
+	** A copy that has moved on to value after a run that wrote rowCount
+	** rows. value is null when the run wrote nothing.
+	*/
+	public Watermark advance(Object value, long rowCount) {
+		
+		Watermark watermark =
+			new Watermark(
+				this.name,
+				this.connectionName,
+				this.column
+			);
+		
+		watermark.value = (value != null ? Watermark.literal(value) : this.value);
+		watermark.lastRunTime = new Date();
+		watermark.lastRowCount = rowCount;
+		watermark.totalRowCount = this.totalRowCount + rowCount;
+		
+		return watermark;
+		
+	}
+	
+	public static String literal(Object value) {
+		
+		if(value instanceof Number) {
+			return new BigDecimal(value.toString()).toPlainString();
+		}
+		
+		// JDBC escapes, translated by the driver
+		if(value instanceof java.sql.Date) {
+			return "{d '" + value.toString() + "'}";
+		}
+		
+		if(value instanceof Timestamp) {
+			return "{ts '" + value.toString() + "'}";
+		}
+		
+		if(value instanceof Date) {
+			return "{ts '" + new Timestamp(((Date)value).getTime()).toString() + "'}";
+		}
+		
+		return "'" + value.toString().replace("'", "''") + "'";
+		
+	}
+	
+	public JSONBuilder getJSONBuilder() {
+		
+		JSONBuilder jb = JSONBuilder.f();
+		
+		jb.$('{');
+		
+		jb.k("name").v(this.name);
+		jb.k("connectionName").v(this.connectionName);
+		jb.k("column").v(this.column);
+		
+		if(this.value != null) {
+			jb.k("value").v(this.value);
+		}
+		
+		if(this.lastRunTime != null) {
+			jb.k("lastRunTime").v(this.lastRunTime);
+		}
+		
+		jb.k("lastRowCount").v(this.lastRowCount);
+		jb.k("totalRowCount").v(this.totalRowCount);
+		
+		jb.$('}');
+		
+		return jb;
+		
+	}
+	
+}
\ No newline at end of file
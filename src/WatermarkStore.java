@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2018 "Niclas Kjall-Ohlsson, Bjornar Fjoren"
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+** Watermarks of the incremental extractions, by name. Saved to
+** Config.WATERMARK_STATE_FILENAME on every commit rather than with the
+** rest of FuseBase at shutdown, since a lost commit means rows are
+** extracted twice.
+*/
+public class WatermarkStore {
+	
+	private File file;
+	private HashMap<String, Watermark> watermarks;
+	private Set<String> running;
+	
+	public WatermarkStore(String fileName) {
+		
+		this.file = new File(fileName);
+		this.watermarks = new HashMap<String, Watermark>();
+		this.running = new HashSet<String>();
+		
+		this.load();
+		
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void load() {
+		
+		if(!this.file.exists()) {
+			return;
+		}
+		
+		try {
+			
+			ObjectInputStream in =
+				new ObjectInputStream(
+					new FileInputStream(this.file)
+				);
+			
+			try {
+				this.watermarks = (HashMap<String, Watermark>)in.readObject();
+			} finally {
+				in.close();
+			}
+			
+		} catch(Exception e) {
+			
+			System.out.println(
+				"Could not read watermarks from \"" + this.file.getPath() + "\": " + e.getMessage()
+			);
+			
+		}
+		
+	}
+	
+	// Written to a temporary file first, a crash leaves the old state
+	private void save() throws Exception {
+		
+		this.file.getAbsoluteFile().getParentFile().mkdirs();
+		
+		File temporaryFile = new File(this.file.getPath() + ".tmp");
+		
+		FileOutputStream fileOut = new FileOutputStream(temporaryFile);
+		ObjectOutputStream out = new ObjectOutputStream(fileOut);
+		
+		try {
+			
+			out.writeObject(this.watermarks);
+			out.flush();
+			fileOut.getFD().sync();
+			
+		} finally {
+			
+			out.close();
+			
+		}
+		
+		Files.move(
+			temporaryFile.toPath(),
+			this.file.toPath(),
+			StandardCopyOption.REPLACE_EXISTING,
+			StandardCopyOption.ATOMIC_MOVE
+		);
+		
+	}
+	
+	public synchronized Watermark get(String name) {
+		return this.watermarks.get(name);
+	}
+	
+	public synchronized void commit(Watermark watermark) throws Exception {
+		
+		Watermark previous =
+			this.watermarks.put(watermark.getName(), watermark);
+		
+		try {
+			
+			this.save();
+			
+		} catch(Exception e) {
+			
+			if(previous != null) {
+				this.watermarks.put(watermark.getName(), previous);
+			} else {
+				this.watermarks.remove(watermark.getName());
+			}
+			
+			throw e;
+			
+		}
+		
+	}
+	
+	// The next run of name extracts from the start
+	public synchronized boolean reset(String name) throws Exception {
+		
+		if(this.running.contains(name)) {
+			throw new Exception("Incremental extraction \"" + name + "\" is running.");
+		}
+		
+		if(this.watermarks.remove(name) == null) {
+			return false;
+		}
+		
+		this.save();
+		
+		return true;
+		
+	}
+	
+	/*
+	** Only one run per name at a time, two would both extract the rows
+	** after the same watermark.
+	*/
+	public synchronized void startRun(String name) throws Exception {
+		
+		if(!this.running.add(name)) {
+			throw new Exception("Incremental extraction \"" + name + "\" is already running.");
+		}
+		
+	}
+	
+	public synchronized void endRun(String name) {
+		this.running.remove(name);
+	}
+	
+	public synchronized JSONBuilder getJSONBuilder() {
+		
+		JSONBuilder jb = JSONBuilder.f();
+		
+		jb.$('[');
+		
+		for(Watermark watermark : this.watermarks.values()) {
+			jb.v(watermark.getJSONBuilder());
+		}
+		
+		return jb.$(']');
+		
+	}
+	
+}
\ No newline at end of file